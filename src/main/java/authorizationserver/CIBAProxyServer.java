@@ -18,49 +18,59 @@
 
 package authorizationserver;
 
+import ciba.proxy.server.servicelayer.NotificationDispatcher;
+import ciba.proxy.server.servicelayer.OutboundRequestDispatcher;
 import ciba.proxy.server.servicelayer.ServerRequestHandler;
 import ciba.proxy.server.servicelayer.ServerResponseHandler;
 import com.nimbusds.jose.Payload;
 import com.nimbusds.jwt.JWTClaimsSet;
 import configuration.ConfigHandler;
+import configuration.ConfigurationFile;
+import dao.DaoFactory;
 import exceptions.InternalServerErrorException;
 import handlers.CIBAAuthRequestHandler;
+import handlers.HandlerRegistry;
 import handlers.Handlers;
 import handlers.RegisterHandler;
 import handlers.TokenRequestHandler;
 import handlers.UserRegisterHandler;
+import metrics.ProxyMetrics;
 import net.minidev.json.JSONObject;
 import net.minidev.json.parser.ParseException;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.server.ResponseStatusException;
-import tempErrorCache.TempErrorCache;
+import resilience.IdentityServerGuard;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.concurrent.CompletionException;
 import java.util.logging.Logger;
 
 /**
  * Actual implementation of CIBA proxy server.
+ * Serves the servlet runtime; the reactive runtime is served by ReactiveCIBAProxyServer.
  */
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class CIBAProxyServer implements AuthorizationServer {
 
-    private ArrayList<Handlers> handlers = new ArrayList<>();
-    // List of interested observers.
+    private final HandlerRegistry handlers = new HandlerRegistry();
+    // Interested observers, by type.
 
     private static final Logger LOGGER = Logger.getLogger(CIBAProxyServer.class.getName());
 
-    private final Object mutex = new Object();
-    //to serve as a mutex lock in synchronization
-
     public CIBAProxyServer() {
 
         CIBAAuthRequestHandler cibaauthrequesthandler = CIBAAuthRequestHandler.getInstance();
@@ -95,13 +105,19 @@ public class CIBAProxyServer implements AuthorizationServer {
 
         LOGGER.info("CIBA Authentication request hits the CIBA Auth Request Endpoint.");
 
+        if (OutboundRequestDispatcher.getInstance().isSaturated()) {
+            LOGGER.warning("Authentication request rejected, the Identity server dispatch queue is full.");
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "slow_down");
+        }
+        if (IdentityServerGuard.getInstance().isOpen(IdentityServerGuard.AUTHORIZE)) {
+            LOGGER.warning("Authentication request rejected, the Identity server authorize endpoint is unavailable.");
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "temporarily_unavailable");
+        }
+
         try {
-            if (!handlers.isEmpty()) {
-                for (Handlers handler : handlers) {
-                    if (handler instanceof CIBAAuthRequestHandler && !request.equals("")) {
-                        return notifyHandler(handler, request);
-                    }
-                }
+            CIBAAuthRequestHandler handler = handlers.get(CIBAAuthRequestHandler.class);
+            if (handler != null && !request.equals("")) {
+                return notifyHandler(handler, request);
             }
 
             throw new InternalServerErrorException("No Authentication Request Handlers configured to listen.");
@@ -119,20 +135,36 @@ public class CIBAProxyServer implements AuthorizationServer {
      * Endpoint where token request hits and then proceeded.
      */
     @RequestMapping(value = "/TokenEndPoint")
-    public String acceptTokenRequest(@RequestParam(defaultValue = "", value = "auth_req_id") String auth_req_id,
-                                     @RequestParam(defaultValue = "", value = "grant_type") String grantType) {
+    public DeferredResult<String> acceptTokenRequest(
+            @RequestParam(defaultValue = "", value = "auth_req_id") String auth_req_id,
+            @RequestParam(defaultValue = "", value = "grant_type") String grantType) {
 
         LOGGER.info("CIBA Token request hits the CIBA Token Request Endpoint.");
 
         try {
-            if (!handlers.isEmpty()) {
-                for (Handlers handler : handlers) {
-                    if (handler instanceof TokenRequestHandler) {
+            TokenRequestHandler handler = handlers.get(TokenRequestHandler.class);
+            if (handler != null) {
 
-                        return this.notifyHandler(handler, auth_req_id, grantType).toString();
+                if (!ConfigurationFile.getInstance().getTOKEN_LONG_POLL()) {
+                    DeferredResult<String> response = new DeferredResult<>();
+                    response.setResult(this.notifyHandler(handler, auth_req_id, grantType).toString());
+                    return response;
+                }
 
+                // A parked request gives its thread back and is answered from the thread that wakes it.
+                // The container timeout outlives the wait, so the wait always expires first.
+                DeferredResult<String> response =
+                        new DeferredResult<>(ConfigurationFile.getInstance().getLONG_POLL_TIMEOUT() + 5000L);
+                LOGGER.info("Token request handler notified.");
+                handler.receiveWhenReady(auth_req_id, grantType).whenComplete((payload, error) -> {
+                    if (error == null) {
+                        response.setResult(payload.toString());
+                    } else {
+                        response.setErrorResult(error instanceof CompletionException && error.getCause() != null ?
+                                error.getCause() : error);
                     }
-                }
+                });
+                return response;
             }
 
             LOGGER.warning("No Token request handlers added to the system.");
@@ -155,14 +187,11 @@ public class CIBAProxyServer implements AuthorizationServer {
         LOGGER.info("CIBA Client App registration request hits the CIBA Registration Endpoint.");
 
         try {
-            if (!handlers.isEmpty()) {
-                for (Handlers handler : handlers) {
-                    if (handler instanceof RegisterHandler) {
+            RegisterHandler handler = handlers.get(RegisterHandler.class);
+            if (handler != null) {
 
-                        return this.notifyHandler(handler, name, password, mode).toString();
+                return this.notifyHandler(handler, name, password, mode).toString();
 
-                    }
-                }
             }
 
             LOGGER.warning("No Client Registration handlers added to the system.");
@@ -183,14 +212,11 @@ public class CIBAProxyServer implements AuthorizationServer {
         LOGGER.info("CIBA User registration request hits the CIBA User Registration Endpoint.");
 
         try {
-            if (!handlers.isEmpty()) {
-                for (Handlers handler : handlers) {
-                    if (handler instanceof UserRegisterHandler) {
+            UserRegisterHandler handler = handlers.get(UserRegisterHandler.class);
+            if (handler != null) {
 
-                        return this.notifyHandler(handler, user, headersRequest);
+                return this.notifyHandler(handler, user, headersRequest);
 
-                    }
-                }
             }
 
             LOGGER.warning("No User Registration handlers added to the system.");
@@ -202,6 +228,68 @@ public class CIBAProxyServer implements AuthorizationServer {
 
     }
 
+    /**
+     * Endpoint where bulk user registration requests hit, as a JSON array or as one JSON object per line.
+     * The outcome of each user is streamed back as one JSON object per line.
+     */
+    @RequestMapping(value = "/BulkUserRegistrationEndPoint", method = RequestMethod.POST)
+    public void acceptBulkUserRegistration(HttpServletRequest request, HttpServletResponse response,
+                                           @RequestHeader HttpHeaders headersRequest) throws IOException {
+
+        LOGGER.info("CIBA Bulk User registration request hits the CIBA Bulk User Registration Endpoint.");
+
+        UserRegisterHandler handler = handlers.get(UserRegisterHandler.class);
+        if (handler != null) {
+
+            response.setContentType("application/x-ndjson");
+            response.setCharacterEncoding("UTF-8");
+            handler.receiveBulk(request.getInputStream(), response.getOutputStream(), headersRequest);
+            return;
+        }
+
+        LOGGER.warning("No User Registration handlers added to the system.");
+        throw new ResponseStatusException(
+                HttpStatus.INTERNAL_SERVER_ERROR, "No User Registration handlers registered.");
+    }
+
+    /**
+     * Management endpoint exposing the metrics of the proxy server.
+     */
+    @RequestMapping(value = "/MetricsEndPoint", method = RequestMethod.GET)
+    public String getMetrics(
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+
+        ManagementAccess.getInstance().authorize(authorization);
+        return new JSONObject(ProxyMetrics.getInstance().snapshot()).toJSONString();
+    }
+
+    /**
+     * Management endpoint listing the ping notifications that could not be delivered.
+     */
+    @RequestMapping(value = "/NotificationDeadLetterEndPoint", method = RequestMethod.GET)
+    public String getNotificationDeadLetters(
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+
+        ManagementAccess.getInstance().authorize(authorization);
+        JSONObject response = new JSONObject();
+        response.put("count", NotificationDispatcher.getInstance().getDeadLetterCount());
+        response.put("deadLetters", NotificationDispatcher.getInstance().getDeadLetters());
+        return response.toJSONString();
+    }
+
+    /**
+     * Management endpoint delivering every dead lettered ping notification again.
+     */
+    @RequestMapping(value = "/NotificationDeadLetterEndPoint/redeliver", method = RequestMethod.POST)
+    public String redeliverNotificationDeadLetters(
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+
+        ManagementAccess.getInstance().authorize(authorization);
+        JSONObject response = new JSONObject();
+        response.put("redelivered", NotificationDispatcher.getInstance().redeliver());
+        return response.toJSONString();
+    }
+
     /**
      * Endpoint which serves as Callbackurl.
      */
@@ -214,37 +302,32 @@ public class CIBAProxyServer implements AuthorizationServer {
         LOGGER.info("Grant code is being received at this Callback Endpoint.");
 
         try {
-            if (!handlers.isEmpty()) {
-
-                for (Handlers handler : handlers) {
-                    if (handler instanceof ServerResponseHandler) {
-                        // if (response.get("code").toString() != null && response.get("session_state") != null) {
-                        if (!code.isEmpty() && !StringUtils.isBlank(code)) {
-
-                            JWTClaimsSet claims = new JWTClaimsSet.Builder()
-                                    .claim("code", code)
-                                    .claim("session_state", session_state)
-                                    .claim("state", state)
-                                    .build();
-
-                            TempErrorCache.getInstance()
-                                    .removeAuthResponse(ServerRequestHandler.getInstance().getAuthReqId(state));
-                            TempErrorCache.getInstance()
-                                    .addAuthenticationStatus(ServerRequestHandler.getInstance().getAuthReqId(state),
-                                            "Success");
-
-                            JSONObject response = claims.toJSONObject();
-                            notifyCodeHandler(handler, response, state);
-
-                        } else {
-                            TempErrorCache.getInstance()
-                                    .removeAuthResponse(ServerRequestHandler.getInstance().getAuthReqId(state));
-                            TempErrorCache.getInstance()
-                                    .addAuthenticationStatus(ServerRequestHandler.getInstance().getAuthReqId(state),
-                                            "Failed");
-
-                        }
-                    }
+            ServerResponseHandler handler = handlers.get(ServerResponseHandler.class);
+            if (handler != null) {
+
+                // if (response.get("code").toString() != null && response.get("session_state") != null) {
+                if (!code.isEmpty() && !StringUtils.isBlank(code)) {
+
+                    JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                            .claim("code", code)
+                            .claim("session_state", session_state)
+                            .claim("state", state)
+                            .build();
+
+                    DaoFactory.getInstance().getArtifactStoreConnector(
+                            ConfigurationFile.getInstance().getSTORE_CONNECTOR_TYPE())
+                            .updateAuthenticationStatus(ServerRequestHandler.getInstance().getAuthReqId(state),
+                                    "Success");
+
+                    JSONObject response = claims.toJSONObject();
+                    notifyCodeHandler(handler, response, state);
+
+                } else {
+                    DaoFactory.getInstance().getArtifactStoreConnector(
+                            ConfigurationFile.getInstance().getSTORE_CONNECTOR_TYPE())
+                            .updateAuthenticationStatus(ServerRequestHandler.getInstance().getAuthReqId(state),
+                                    "Failed");
+
                 }
 
             } else {
@@ -319,14 +402,7 @@ public class CIBAProxyServer implements AuthorizationServer {
      */
     public void register(Handlers handler) {
 
-        if (handler == null) {
-            throw new NullPointerException("Null Handlers.");
-        }
-        synchronized (mutex) {
-            if (!handlers.contains(handler)) {
-                handlers.add(handler);
-            }
-        }
+        handlers.register(handler);
     }
 
     /**
@@ -336,9 +412,7 @@ public class CIBAProxyServer implements AuthorizationServer {
      */
     public void deRegister(Handlers handler) {
 
-        synchronized (mutex) {
-            handlers.remove(handler);
-        }
+        handlers.deRegister(handler);
     }
 
     /**
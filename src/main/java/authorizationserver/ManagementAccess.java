@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package authorizationserver;
+
+import configuration.ConfigurationFile;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.logging.Logger;
+
+/**
+ * Guards the management endpoints of the proxy, which expose its internal state to the operator.
+ * Callers present the configured management token as a bearer token. Without a configured token the endpoints are
+ * switched off.
+ */
+public class ManagementAccess {
+
+    private static final Logger LOGGER = Logger.getLogger(ManagementAccess.class.getName());
+
+    private static final String BEARER = "Bearer ";
+
+    private ManagementAccess() {
+
+    }
+
+    private static ManagementAccess managementAccessInstance = new ManagementAccess();
+
+    public static ManagementAccess getInstance() {
+
+        if (managementAccessInstance == null) {
+
+            synchronized (ManagementAccess.class) {
+
+                if (managementAccessInstance == null) {
+
+                    /* instance will be created at request time */
+                    managementAccessInstance = new ManagementAccess();
+                }
+            }
+        }
+        return managementAccessInstance;
+    }
+
+    /**
+     * Check the authorization of a management request.
+     *
+     * @param authorization Authorization header of the request, may be null.
+     * @throws ResponseStatusException not found if no management token is configured, unauthorized if the request
+     *                                 does not carry it.
+     */
+    public void authorize(String authorization) {
+
+        String managementToken = ConfigurationFile.getInstance().getMANAGEMENT_TOKEN();
+        if (managementToken == null || managementToken.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        if (authorization == null || !authorization.startsWith(BEARER)) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "invalid_token");
+        }
+        // Compared in constant time, so the token cannot be guessed from response times.
+        if (!MessageDigest.isEqual(managementToken.getBytes(StandardCharsets.UTF_8),
+                authorization.substring(BEARER.length()).trim().getBytes(StandardCharsets.UTF_8))) {
+            LOGGER.warning("Management request with an invalid token.");
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "invalid_token");
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package authorizationserver;
+
+import ciba.proxy.server.servicelayer.NotificationDispatcher;
+import ciba.proxy.server.servicelayer.OutboundRequestDispatcher;
+import ciba.proxy.server.servicelayer.ReactiveIdentityServerClient;
+import dao.DbConnection;
+import dao.ReactiveStoreAdapter;
+import handlers.PendingTokenRequests;
+import handlers.UserRegisterHandler;
+import jdbc.ExpiryReaper;
+import jdbc.JdbcWriteBehindQueue;
+import org.springframework.stereotype.Component;
+import resilience.IdentityServerNodePool;
+import util.RestTemplateFactory;
+
+import java.util.logging.Logger;
+import javax.annotation.PreDestroy;
+
+/**
+ * Releases the resources held by the stores and outbound clients when the server shuts down, whichever runtime
+ * serves the endpoints.
+ */
+@Component
+public class ProxyResources {
+
+    private static final Logger LOGGER = Logger.getLogger(ProxyResources.class.getName());
+
+    /**
+     * Releases the resources held by the stores and outbound clients. Everything that writes to the stores is
+     * stopped first, so the write-behind queue is flushed last, right before the connection pools close.
+     */
+    @PreDestroy
+    public void shutdown() {
+
+        ExpiryReaper.getInstance().shutdown();
+        OutboundRequestDispatcher.getInstance().shutdown();
+        NotificationDispatcher.getInstance().shutdown();
+        PendingTokenRequests.getInstance().shutdown();
+        UserRegisterHandler.getInstance().shutdown();
+        IdentityServerNodePool.getInstance().shutdown();
+        ReactiveStoreAdapter.getInstance().shutdown();
+        RestTemplateFactory.getInstance().close();
+        ReactiveIdentityServerClient.getInstance().close();
+
+        JdbcWriteBehindQueue.getInstance().shutdown();
+        DbConnection.closeAll();
+        LOGGER.info("Connection pools closed.");
+    }
+}
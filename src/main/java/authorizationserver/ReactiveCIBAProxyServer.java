@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package authorizationserver;
+
+import ciba.proxy.server.servicelayer.NotificationDispatcher;
+import ciba.proxy.server.servicelayer.OutboundRequestDispatcher;
+import ciba.proxy.server.servicelayer.ServerRequestHandler;
+import ciba.proxy.server.servicelayer.ServerResponseHandler;
+import com.nimbusds.jose.Payload;
+import com.nimbusds.jwt.JWTClaimsSet;
+import configuration.ConfigurationFile;
+import dao.DaoFactory;
+import dao.ReactiveStoreAdapter;
+import handlers.CIBAAuthRequestHandler;
+import handlers.HandlerRegistry;
+import handlers.RegisterHandler;
+import handlers.TokenRequestHandler;
+import handlers.UserRegisterHandler;
+import metrics.ProxyMetrics;
+import net.minidev.json.JSONObject;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import resilience.IdentityServerGuard;
+
+import java.util.logging.Logger;
+
+/**
+ * CIBA proxy server on the reactive runtime, serving the endpoints on a few event loop threads.
+ * Store work runs through the reactive store adapter and Identity server calls through the non-blocking client,
+ * so no event loop thread waits on either.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveCIBAProxyServer implements AuthorizationServer {
+
+    private static final Logger LOGGER = Logger.getLogger(ReactiveCIBAProxyServer.class.getName());
+
+    private final HandlerRegistry handlers = new HandlerRegistry();
+
+    public ReactiveCIBAProxyServer() {
+
+        handlers.register(CIBAAuthRequestHandler.getInstance());
+        handlers.register(TokenRequestHandler.getInstance());
+        handlers.register(RegisterHandler.getInstance());
+        handlers.register(UserRegisterHandler.getInstance());
+        handlers.register(ServerResponseHandler.getInstance());
+        LOGGER.config("Successfully configured the Handlers as observers.");
+    }
+
+    /**
+     * Endpoint where authentication request hits and then proceeded.
+     */
+    @RequestMapping(value = "/CIBAEndPoint")
+    public Mono<String> acceptAuthRequest(@RequestParam(defaultValue = "", value = "request") String request) {
+
+        LOGGER.info("CIBA Authentication request hits the CIBA Auth Request Endpoint.");
+
+        if (OutboundRequestDispatcher.getInstance().isSaturated()) {
+            LOGGER.warning("Authentication request rejected, the Identity server dispatch queue is full.");
+            return Mono.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "slow_down"));
+        }
+        if (IdentityServerGuard.getInstance().isOpen(IdentityServerGuard.AUTHORIZE)) {
+            LOGGER.warning("Authentication request rejected, the Identity server authorize endpoint is unavailable.");
+            return Mono.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "temporarily_unavailable"));
+        }
+        CIBAAuthRequestHandler handler = handlers.get(CIBAAuthRequestHandler.class);
+        if (handler == null || request.equals("")) {
+            return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    "No Authentication Request Handlers configured to listen."));
+        }
+        return ReactiveStoreAdapter.getInstance().call(() -> handler.receive(request));
+    }
+
+    /**
+     * Endpoint where token request hits and then proceeded.
+     */
+    @RequestMapping(value = "/TokenEndPoint")
+    public Mono<String> acceptTokenRequest(@RequestParam(defaultValue = "", value = "auth_req_id") String auth_req_id,
+                                           @RequestParam(defaultValue = "", value = "grant_type") String grantType) {
+
+        LOGGER.info("CIBA Token request hits the CIBA Token Request Endpoint.");
+
+        TokenRequestHandler handler = handlers.get(TokenRequestHandler.class);
+        if (handler == null) {
+            return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    "No Token request handlers registered"));
+        }
+        if (ConfigurationFile.getInstance().getTOKEN_LONG_POLL()) {
+            return ReactiveStoreAdapter.getInstance().call(() -> handler.receiveWhenReady(auth_req_id, grantType))
+                    .flatMap(Mono::fromFuture)
+                    .map(Payload::toString);
+        }
+        return ReactiveStoreAdapter.getInstance().call(() -> handler.receive(auth_req_id, grantType).toString());
+    }
+
+    /**
+     * Endpoint through which  client app can be registered.
+     */
+    @RequestMapping("/RegistrationEndPoint")
+    public Mono<String> acceptRegistrationRequest(@RequestParam(defaultValue = "", value = "name") String name,
+                                                  @RequestParam(defaultValue = "", value = "password") String password,
+                                                  @RequestParam(defaultValue = "", value = "mode") String mode) {
+
+        LOGGER.info("CIBA Client App registration request hits the CIBA Registration Endpoint.");
+
+        RegisterHandler handler = handlers.get(RegisterHandler.class);
+        if (handler == null) {
+            return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    "No Client Registration handlers registered."));
+        }
+        return ReactiveStoreAdapter.getInstance().call(() -> handler.receive(name, password, mode).toString());
+    }
+
+    /**
+     * Endpoint where user registration request hits and then proceeded.
+     */
+    @RequestMapping("/UserRegistrationEndPoint")
+    public Mono<String> acceptUserRegistration(@RequestBody JSONObject user,
+                                               @RequestHeader HttpHeaders headersRequest) {
+
+        LOGGER.info("CIBA User registration request hits the CIBA User Registration Endpoint.");
+
+        UserRegisterHandler handler = handlers.get(UserRegisterHandler.class);
+        if (handler == null) {
+            return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    "No User Registration handlers registered."));
+        }
+        // The SCIM2 call blocks, so it runs off the event loop like store work.
+        return ReactiveStoreAdapter.getInstance().call(() -> handler.receive(user, headersRequest));
+    }
+
+    /**
+     * Management endpoint exposing the metrics of the proxy server.
+     */
+    @RequestMapping(value = "/MetricsEndPoint", method = RequestMethod.GET)
+    public Mono<String> getMetrics(
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+
+        ManagementAccess.getInstance().authorize(authorization);
+        return ReactiveStoreAdapter.getInstance()
+                .callInPlace(() -> new JSONObject(ProxyMetrics.getInstance().snapshot()).toJSONString());
+    }
+
+    /**
+     * Management endpoint listing the ping notifications that could not be delivered.
+     */
+    @RequestMapping(value = "/NotificationDeadLetterEndPoint", method = RequestMethod.GET)
+    public String getNotificationDeadLetters(
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+
+        ManagementAccess.getInstance().authorize(authorization);
+        JSONObject response = new JSONObject();
+        response.put("count", NotificationDispatcher.getInstance().getDeadLetterCount());
+        response.put("deadLetters", NotificationDispatcher.getInstance().getDeadLetters());
+        return response.toJSONString();
+    }
+
+    /**
+     * Management endpoint delivering every dead lettered ping notification again.
+     */
+    @RequestMapping(value = "/NotificationDeadLetterEndPoint/redeliver", method = RequestMethod.POST)
+    public String redeliverNotificationDeadLetters(
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+
+        ManagementAccess.getInstance().authorize(authorization);
+        JSONObject response = new JSONObject();
+        response.put("redelivered", NotificationDispatcher.getInstance().redeliver());
+        return response.toJSONString();
+    }
+
+    /**
+     * Endpoint which serves as Callbackurl.
+     */
+    @RequestMapping("/CallBackEndpoint")
+    public Mono<Void> acceptAuthCode(@RequestParam(defaultValue = "", value = "code") String code,
+                                     @RequestParam(defaultValue = "", value = "session_state") String session_state,
+                                     @RequestParam(defaultValue = "", value = "state") String state) {
+
+        LOGGER.info("Grant code is being received at this Callback Endpoint.");
+
+        ServerResponseHandler handler = handlers.get(ServerResponseHandler.class);
+        if (handler == null) {
+            LOGGER.warning("No Server Response handlers added to the system.");
+            return Mono.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    "No Server event handlers registered."));
+        }
+
+        String authReqId = ServerRequestHandler.getInstance().getAuthReqId(state);
+        return ReactiveStoreAdapter.getInstance().run(() -> {
+            if (!code.isEmpty() && !StringUtils.isBlank(code)) {
+
+                JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                        .claim("code", code)
+                        .claim("session_state", session_state)
+                        .claim("state", state)
+                        .build();
+
+                DaoFactory.getInstance().getArtifactStoreConnector(
+                        ConfigurationFile.getInstance().getSTORE_CONNECTOR_TYPE())
+                        .updateAuthenticationStatus(authReqId, "Success");
+
+                LOGGER.info("Server Request Handler is notified about reception of grant code.");
+                handler.receivecode(claims.toJSONObject(), state);
+
+            } else {
+                DaoFactory.getInstance().getArtifactStoreConnector(
+                        ConfigurationFile.getInstance().getSTORE_CONNECTOR_TYPE())
+                        .updateAuthenticationStatus(authReqId, "Failed");
+            }
+        });
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package authorizationserver;
+
+import org.apache.coyote.AbstractProtocol;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.stereotype.Component;
+import util.ExecutorFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Logger;
+
+/**
+ * Serves inbound requests of the servlet runtime on virtual threads in Virtual thread mode, so a request blocked on
+ * the stores or the Identity server does not hold one of the container's platform threads.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class RequestExecutorCustomizer implements WebServerFactoryCustomizer<TomcatServletWebServerFactory> {
+
+    private static final Logger LOGGER = Logger.getLogger(RequestExecutorCustomizer.class.getName());
+
+    @Override
+    public void customize(TomcatServletWebServerFactory factory) {
+
+        ExecutorService requestExecutor = ExecutorFactory.getInstance().getRequestExecutor();
+        if (requestExecutor == null) {
+            return;
+        }
+        factory.addConnectorCustomizers(connector -> {
+            ProtocolHandler protocolHandler = connector.getProtocolHandler();
+            if (protocolHandler instanceof AbstractProtocol) {
+                ((AbstractProtocol<?>) protocolHandler).setExecutor(requestExecutor);
+                LOGGER.config("Serving requests on virtual threads.");
+            }
+        });
+    }
+}
@@ -19,9 +19,14 @@
 package authorizationserver;
 
 import configuration.ConfigHandler;
+import configuration.ConfigurationFile;
+import jdbc.ExpiryReaper;
+import jdbc.SchemaManager;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.web.servlet.support.SpringBootServletInitializer;
+import resilience.IdentityServerNodePool;
 
 import java.io.IOException;
 
@@ -30,10 +35,27 @@ public class ServerInstantiation extends SpringBootServletInitializer {
 
     public static void main(String[] args) throws IOException {
 
-        SpringApplication.run(ServerInstantiation.class, args);
-
         ConfigHandler.getInstance().configure();
-        // Reading from config file and configure the server accordingly.
+        // Reading from config file and configure the server accordingly, before the runtime is chosen.
+
+        if ("JDBC".equals(ConfigurationFile.getInstance().getSTORE_CONNECTOR_TYPE())) {
+            SchemaManager.getInstance().migrate();
+            // Creating or migrating the tables of the JDBC store once, before serving requests. A failed
+            // migration aborts the startup.
+
+            ExpiryReaper.getInstance().start();
+            // Deleting expired transactions in the background.
+        }
+
+        SpringApplication application = new SpringApplication(ServerInstantiation.class);
+        if ("Reactive".equals(ConfigurationFile.getInstance().getRUNTIME_MODE())) {
+            // Serving the endpoints on event loop threads instead of a thread per request.
+            application.setWebApplicationType(WebApplicationType.REACTIVE);
+        }
+        application.run(args);
+
+        IdentityServerNodePool.getInstance().start();
+        // Opening connections to the Identity server before the first requests arrive.
 
     }
 
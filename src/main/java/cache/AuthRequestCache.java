@@ -19,10 +19,10 @@
 package cache;
 
 import handlers.Handlers;
+import transactionartifacts.CibaTransaction;
 import transactionartifacts.CIBAauthRequest;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Logger;
 
 /**
@@ -55,16 +55,17 @@ public class AuthRequestCache implements ProxyCache {
 
     }
 
-    private ArrayList<Handlers> interestedparty = new ArrayList<>();
+    private CopyOnWriteArrayList<Handlers> interestedparty = new CopyOnWriteArrayList<>();
 
-    private HashMap<String, Object> authRequestCache = new HashMap<String, Object>();
+    private CibaTransactionCache transactionCache = CibaTransactionCache.getInstance();
 
     @Override
     public void add(String auth_req_id, Object authrequest) {
 
-        if (authrequest instanceof CIBAauthRequest) {
+        if (auth_req_id != null && authrequest instanceof CIBAauthRequest) {
             LOGGER.info("CIBA Authentication added to store.");
-            authRequestCache.put(auth_req_id, authrequest);
+            transactionCache.update(auth_req_id,
+                    transaction -> transaction.setAuthRequest((CIBAauthRequest) authrequest));
 
         }
     }
@@ -72,25 +73,31 @@ public class AuthRequestCache implements ProxyCache {
     @Override
     public void remove(String auth_req_idey) {
 
-        authRequestCache.remove(auth_req_idey);
+        if (auth_req_idey != null) {
+            transactionCache.updateIfPresent(auth_req_idey, transaction -> transaction.setAuthRequest(null));
+        }
     }
 
     @Override
     public Object get(String auth_req_id) {
 
-        return authRequestCache.get(auth_req_id);
+        if (auth_req_id == null) {
+            return null;
+        }
+        CibaTransaction transaction = transactionCache.get(auth_req_id);
+        return transaction == null ? null : transaction.getAuthRequest();
     }
 
     @Override
     public void clear() {
-        //To be implemented if needed
 
+        transactionCache.updateAll(transaction -> transaction.setAuthRequest(null));
     }
 
     @Override
     public long size() {
 
-        return authRequestCache.size();
+        return transactionCache.count(CibaTransaction.Part.AUTH_REQUEST);
     }
 
     @Override
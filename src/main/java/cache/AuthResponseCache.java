@@ -19,10 +19,10 @@
 package cache;
 
 import handlers.Handlers;
+import transactionartifacts.CibaTransaction;
 import transactionartifacts.CIBAauthResponse;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Logger;
 
 /**
@@ -55,15 +55,16 @@ public class AuthResponseCache implements ProxyCache {
 
     }
 
-    private ArrayList<Handlers> interestedparty = new ArrayList<Handlers>();
-    private HashMap<String, Object> authResponseCache = new HashMap<String, Object>();
+    private CopyOnWriteArrayList<Handlers> interestedparty = new CopyOnWriteArrayList<>();
+    private CibaTransactionCache transactionCache = CibaTransactionCache.getInstance();
 
     @Override
     public void add(String auth_req_id, Object authresponse) {
 
-        if (authresponse instanceof CIBAauthResponse) {
+        if (auth_req_id != null && authresponse instanceof CIBAauthResponse) {
 
-            authResponseCache.put(auth_req_id, authresponse);
+            transactionCache.update(auth_req_id,
+                    transaction -> transaction.setAuthResponse((CIBAauthResponse) authresponse));
             LOGGER.info("CIBA Auth response added to store.");
         }
 
@@ -72,24 +73,31 @@ public class AuthResponseCache implements ProxyCache {
     @Override
     public void remove(String auth_req_idey) {
 
-        authResponseCache.remove(auth_req_idey);
+        if (auth_req_idey != null) {
+            transactionCache.updateIfPresent(auth_req_idey, transaction -> transaction.setAuthResponse(null));
+        }
     }
 
     @Override
     public Object get(String auth_req_id) {
 
-        return authResponseCache.get(auth_req_id);
+        if (auth_req_id == null) {
+            return null;
+        }
+        CibaTransaction transaction = transactionCache.get(auth_req_id);
+        return transaction == null ? null : transaction.getAuthResponse();
     }
 
     @Override
     public void clear() {
 
+        transactionCache.updateAll(transaction -> transaction.setAuthResponse(null));
     }
 
     @Override
     public long size() {
 
-        return authResponseCache.size();
+        return transactionCache.count(CibaTransaction.Part.AUTH_RESPONSE);
     }
 
     @Override
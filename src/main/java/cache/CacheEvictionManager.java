@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cache;
+
+import cibaparameters.CIBAParameters;
+import tempErrorCache.TempErrorCache;
+
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Tracks the expiry of every auth_req_id held in the in-memory caches and evicts expired transactions.
+ */
+public class CacheEvictionManager {
+
+    private static final Logger LOGGER = Logger.getLogger(CacheEvictionManager.class.getName());
+
+    // Interval between two sweeps of the expiry index.
+    private static final long SWEEP_INTERVAL_MILLIS = 5000;
+
+    private final ConcurrentHashMap<String, Long> expiryTimes = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sweeper;
+
+    private CacheEvictionManager() {
+
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ciba-cache-eviction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::evictExpired, SWEEP_INTERVAL_MILLIS, SWEEP_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    private static CacheEvictionManager cacheEvictionManagerInstance = new CacheEvictionManager();
+
+    public static CacheEvictionManager getInstance() {
+
+        if (cacheEvictionManagerInstance == null) {
+
+            synchronized (CacheEvictionManager.class) {
+
+                if (cacheEvictionManagerInstance == null) {
+
+                    /* instance will be created at request time */
+                    cacheEvictionManagerInstance = new CacheEvictionManager();
+                }
+            }
+        }
+        return cacheEvictionManagerInstance;
+    }
+
+    /**
+     * Sets the expiry time of a transaction, replacing any earlier one.
+     *
+     * @param authReqId  Ciba Authentication request identifier.
+     * @param expiryTime Epoch millis after which the transaction is evicted.
+     */
+    public void track(String authReqId, long expiryTime) {
+
+        expiryTimes.put(authReqId, expiryTime);
+    }
+
+    /**
+     * Starts tracking a transaction with the default CIBA expiry if it has no expiry yet.
+     * Covers artifacts stored before the polling attribute that carries the actual expiry.
+     *
+     * @param authReqId Ciba Authentication request identifier.
+     */
+    public void trackIfAbsent(String authReqId) {
+
+        expiryTimes.putIfAbsent(authReqId, currentTime() + CIBAParameters.getInstance().getExpires_in() * 1000);
+    }
+
+    /**
+     * Checks whether the transaction has passed its expiry time.
+     *
+     * @param authReqId Ciba Authentication request identifier.
+     * @return true if the transaction is expired.
+     */
+    public boolean isExpired(String authReqId) {
+
+        Long expiryTime = expiryTimes.get(authReqId);
+        return expiryTime != null && expiryTime < currentTime();
+    }
+
+    /**
+     * Removes every artifact of the transaction from the in-memory caches.
+     *
+     * @param authReqId Ciba Authentication request identifier.
+     */
+    public void evict(String authReqId) {
+
+        CibaTransactionCache.getInstance().remove(authReqId);
+        TempErrorCache.getInstance().removeAuthResponse(authReqId);
+        expiryTimes.remove(authReqId);
+    }
+
+    /**
+     * @return number of transactions being tracked.
+     */
+    public long size() {
+
+        return expiryTimes.size();
+    }
+
+    private void evictExpired() {
+
+        long now = currentTime();
+        int evicted = 0;
+        try {
+            for (Map.Entry<String, Long> entry : expiryTimes.entrySet()) {
+                if (entry.getValue() < now) {
+                    evict(entry.getKey());
+                    evicted++;
+                }
+            }
+        } catch (RuntimeException e) {
+            // Never let a failed sweep cancel the scheduled task.
+            LOGGER.severe("Error while evicting expired transactions : " + e.getMessage());
+        }
+        if (evicted > 0) {
+            LOGGER.info(evicted + " expired transactions evicted from the cache.");
+        }
+    }
+
+    private long currentTime() {
+
+        return ZonedDateTime.now().toInstant().toEpochMilli();
+    }
+}
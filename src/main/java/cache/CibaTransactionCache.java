@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cache;
+
+import handlers.Handlers;
+import transactionartifacts.CibaTransaction;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Cache holding one record per CIBA transaction.
+ * The artifact caches are views over the records held here.
+ */
+public class CibaTransactionCache implements ProxyCache {
+
+    private CibaTransactionCache() {
+
+    }
+
+    private static CibaTransactionCache cibaTransactionCacheInstance = new CibaTransactionCache();
+
+    public static CibaTransactionCache getInstance() {
+
+        if (cibaTransactionCacheInstance == null) {
+
+            synchronized (CibaTransactionCache.class) {
+
+                if (cibaTransactionCacheInstance == null) {
+
+                    /* instance will be created at request time */
+                    cibaTransactionCacheInstance = new CibaTransactionCache();
+                }
+            }
+        }
+        return cibaTransactionCacheInstance;
+
+    }
+
+    private CopyOnWriteArrayList<Handlers> interestedparty = new CopyOnWriteArrayList<>();
+
+    private ConcurrentHashMap<String, CibaTransaction> transactionCache = new ConcurrentHashMap<>();
+
+    @Override
+    public void add(String authReqId, Object transaction) {
+
+        if (authReqId != null && transaction instanceof CibaTransaction) {
+            transactionCache.put(authReqId, (CibaTransaction) transaction);
+            CacheEvictionManager.getInstance().trackIfAbsent(authReqId);
+        }
+    }
+
+    /**
+     * Applies an update to the record of the transaction, creating the record if it does not exist.
+     *
+     * @param authReqId Ciba Authentication request identifier.
+     * @param update    Update to apply on the record.
+     */
+    public void update(String authReqId, Consumer<CibaTransaction> update) {
+
+        if (authReqId == null) {
+            return;
+        }
+        transactionCache.compute(authReqId, (key, transaction) -> {
+            CibaTransaction record = transaction == null ? new CibaTransaction(key) : transaction;
+            update.accept(record);
+            return record;
+        });
+        CacheEvictionManager.getInstance().trackIfAbsent(authReqId);
+    }
+
+    /**
+     * Applies an update to an existing record and drops the record once it holds no artifact.
+     *
+     * @param authReqId Ciba Authentication request identifier.
+     * @param update    Update to apply on the record.
+     */
+    public void updateIfPresent(String authReqId, Consumer<CibaTransaction> update) {
+
+        if (authReqId == null) {
+            return;
+        }
+        transactionCache.computeIfPresent(authReqId, (key, transaction) -> {
+            update.accept(transaction);
+            return transaction.isEmpty() ? null : transaction;
+        });
+    }
+
+    /**
+     * Applies an update to every record, dropping the records left without any artifact.
+     *
+     * @param update Update to apply on the records.
+     */
+    public void updateAll(Consumer<CibaTransaction> update) {
+
+        for (String authReqId : transactionCache.keySet()) {
+            updateIfPresent(authReqId, update);
+        }
+    }
+
+    @Override
+    public void remove(String authReqId) {
+
+        if (authReqId != null) {
+            transactionCache.remove(authReqId);
+        }
+    }
+
+    @Override
+    public CibaTransaction get(String authReqId) {
+
+        if (authReqId == null) {
+            return null;
+        }
+        if (CacheEvictionManager.getInstance().isExpired(authReqId)) {
+            CacheEvictionManager.getInstance().evict(authReqId);
+            return null;
+        }
+        return transactionCache.get(authReqId);
+    }
+
+    /**
+     * Applies an update to an existing record only if the record satisfies the condition, atomically.
+     *
+     * @param authReqId Ciba Authentication request identifier.
+     * @param condition Condition the record must satisfy.
+     * @param update    Update to apply on the record.
+     * @return true if the update was applied.
+     */
+    public boolean compareAndUpdate(String authReqId, Predicate<CibaTransaction> condition,
+                                    Consumer<CibaTransaction> update) {
+
+        if (authReqId == null || CacheEvictionManager.getInstance().isExpired(authReqId)) {
+            return false;
+        }
+        boolean[] updated = new boolean[1];
+        transactionCache.computeIfPresent(authReqId, (key, transaction) -> {
+            if (condition.test(transaction)) {
+                update.accept(transaction);
+                updated[0] = true;
+            }
+            return transaction;
+        });
+        return updated[0];
+    }
+
+    @Override
+    public void clear() {
+
+        transactionCache.clear();
+    }
+
+    @Override
+    public long size() {
+
+        return transactionCache.size();
+    }
+
+    /**
+     * @return number of transactions holding the given kind of artifact.
+     */
+    long count(CibaTransaction.Part part) {
+
+        return transactionCache.values().stream().filter(transaction -> {
+            switch (part) {
+                case AUTH_REQUEST:
+                    return transaction.getAuthRequest() != null;
+                case AUTH_RESPONSE:
+                    return transaction.getAuthResponse() != null;
+                case POLLING_ATTRIBUTE:
+                    return transaction.getPollingAtrribute() != null;
+                case TOKEN_REQUEST:
+                    return transaction.getTokenRequest() != null;
+                case TOKEN_RESPONSE:
+                    return transaction.getTokenResponse() != null;
+                default:
+                    return transaction.getAuthenticationStatus() != null;
+            }
+        }).count();
+    }
+
+    @Override
+    public void register(Object object) {
+
+        interestedparty.add((Handlers) object);
+
+    }
+
+}
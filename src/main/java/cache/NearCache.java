@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package cache;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.exceptions.JedisException;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Bounded in-process cache in front of a Redis backed store.
+ * Entries are invalidated on every node through a Redis pub/sub channel. While the node is not subscribed to
+ * the channel, invalidations can be missed, so lookups bypass the cache until the subscription is back.
+ *
+ * @param <V> Type of the cached values.
+ */
+public class NearCache<V> {
+
+    private static final Logger LOGGER = Logger.getLogger(NearCache.class.getName());
+
+    // Wait before subscribing again after the subscription is lost.
+    private static final long RESUBSCRIBE_DELAY_MILLIS = 5000;
+
+    private final String channel;
+    private final int maxEntries;
+    private final Supplier<JedisPool> jedisPoolSupplier;
+    private final ConcurrentHashMap<String, V> entries = new ConcurrentHashMap<>();
+
+    // Incremented on every invalidation so that values loaded concurrently with one are not cached.
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicBoolean subscriberStarted = new AtomicBoolean(false);
+    private volatile boolean subscribed = false;
+
+    /**
+     * @param channel           Redis channel carrying the invalidated keys.
+     * @param maxEntries        Maximum number of entries held in-process.
+     * @param jedisPoolSupplier Supplies the pool used for the subscription.
+     */
+    public NearCache(String channel, int maxEntries, Supplier<JedisPool> jedisPoolSupplier) {
+
+        this.channel = channel;
+        this.maxEntries = maxEntries;
+        this.jedisPoolSupplier = jedisPoolSupplier;
+    }
+
+    /**
+     * Return the cached value, loading it from the store on a miss.
+     *
+     * @param key    Key of the value.
+     * @param loader Loads the value from the store, may return null.
+     * @return Value of the key or null.
+     */
+    public V get(String key, Function<String, V> loader) {
+
+        startSubscriber();
+        if (!subscribed) {
+            return loader.apply(key);
+        }
+
+        V value = entries.get(key);
+        if (value != null) {
+            return value;
+        }
+
+        long invalidationsBeforeLoad = invalidations.get();
+        value = loader.apply(key);
+        if (value != null && subscribed && invalidations.get() == invalidationsBeforeLoad) {
+            if (entries.size() >= maxEntries) {
+                evictOne();
+            }
+            entries.put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Invalidate the key locally and on every other node.
+     * To be called after the store is written, on the connection used for the write.
+     *
+     * @param jedis Redis connection.
+     * @param key   Key that was written.
+     */
+    public void publishInvalidation(Jedis jedis, String key) {
+
+        invalidate(key);
+        jedis.publish(channel, key);
+    }
+
+    /**
+     * Invalidate the key on this node.
+     *
+     * @param key Key of the value.
+     */
+    public void invalidate(String key) {
+
+        invalidations.incrementAndGet();
+        entries.remove(key);
+    }
+
+    /**
+     * Invalidate every key on this node.
+     */
+    public void invalidateAll() {
+
+        invalidations.incrementAndGet();
+        entries.clear();
+    }
+
+    /**
+     * @return number of entries held in-process.
+     */
+    public long size() {
+
+        return entries.size();
+    }
+
+    private void evictOne() {
+
+        Iterator<String> keys = entries.keySet().iterator();
+        if (keys.hasNext()) {
+            entries.remove(keys.next());
+        }
+    }
+
+    private void startSubscriber() {
+
+        if (!subscriberStarted.compareAndSet(false, true)) {
+            return;
+        }
+        Thread subscriber = new Thread(this::subscribe, "ciba-near-cache-" + channel);
+        subscriber.setDaemon(true);
+        subscriber.start();
+    }
+
+    private void subscribe() {
+
+        JedisPubSub listener = new JedisPubSub() {
+
+            @Override
+            public void onSubscribe(String subscribedChannel, int subscribedChannels) {
+
+                // Nothing is cached while unsubscribed, but drop anything cached by a racing lookup.
+                invalidateAll();
+                subscribed = true;
+                LOGGER.info("Near cache subscribed to " + subscribedChannel);
+            }
+
+            @Override
+            public void onMessage(String messageChannel, String key) {
+
+                invalidate(key);
+            }
+        };
+
+        while (!Thread.currentThread().isInterrupted()) {
+            try (Jedis jedis = jedisPoolSupplier.get().getResource()) {
+                jedis.subscribe(listener, channel);
+            } catch (JedisException e) {
+                LOGGER.warning("Near cache subscription to " + channel + " lost : " + e.getMessage());
+            }
+            subscribed = false;
+            invalidateAll();
+            try {
+                Thread.sleep(RESUBSCRIBE_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
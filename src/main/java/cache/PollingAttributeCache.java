@@ -19,10 +19,10 @@
 package cache;
 
 import handlers.Handlers;
+import transactionartifacts.CibaTransaction;
 import transactionartifacts.PollingAtrribute;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Logger;
 
 /**
@@ -55,42 +55,54 @@ public class PollingAttributeCache implements ProxyCache {
 
     }
 
-    private ArrayList<Handlers> interestedparty = new ArrayList<>();
+    private CopyOnWriteArrayList<Handlers> interestedparty = new CopyOnWriteArrayList<>();
 
-    private HashMap<String, Object> pollingAttributeCache = new HashMap<>();
+    private CibaTransactionCache transactionCache = CibaTransactionCache.getInstance();
 
     @Override
     public void add(String authReqId, Object pollingattribute) {
 
-        if (pollingattribute instanceof PollingAtrribute) {
+        if (authReqId != null && pollingattribute instanceof PollingAtrribute) {
 
             LOGGER.info("PollingAttribute added to store");
-            pollingAttributeCache.put(authReqId, pollingattribute);
+            transactionCache.update(authReqId,
+                    transaction -> transaction.setPollingAtrribute((PollingAtrribute) pollingattribute));
+
+            // The polling attribute carries the actual lifetime of the transaction.
+            PollingAtrribute pollingAtrribute = (PollingAtrribute) pollingattribute;
+            CacheEvictionManager.getInstance()
+                    .track(authReqId, pollingAtrribute.getIssuedTime() + pollingAtrribute.getExpiresIn());
         }
     }
 
     @Override
     public void remove(String authReqId) {
 
-        pollingAttributeCache.remove(authReqId);
-
+        if (authReqId != null) {
+            transactionCache.updateIfPresent(authReqId, transaction -> transaction.setPollingAtrribute(null));
+        }
     }
 
     @Override
     public Object get(String authReqId) {
 
-        return pollingAttributeCache.get(authReqId);
+        if (authReqId == null) {
+            return null;
+        }
+        CibaTransaction transaction = transactionCache.get(authReqId);
+        return transaction == null ? null : transaction.getPollingAtrribute();
     }
 
     @Override
     public void clear() {
-        //To be implemented if needed
+
+        transactionCache.updateAll(transaction -> transaction.setPollingAtrribute(null));
     }
 
     @Override
     public long size() {
 
-        return pollingAttributeCache.size();
+        return transactionCache.count(CibaTransaction.Part.POLLING_ATTRIBUTE);
     }
 
     @Override
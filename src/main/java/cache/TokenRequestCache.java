@@ -19,10 +19,10 @@
 package cache;
 
 import handlers.Handlers;
+import transactionartifacts.CibaTransaction;
 import transactionartifacts.TokenRequest;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Logger;
 
 /**
@@ -54,14 +54,14 @@ public class TokenRequestCache implements ProxyCache {
         return tokenRequestCacheInstance;
     }
 
-    private ArrayList<Handlers> interestedparty = new ArrayList<>();
-    HashMap<String, Object> tokenRequestCache = new HashMap<>();
+    private CopyOnWriteArrayList<Handlers> interestedparty = new CopyOnWriteArrayList<>();
+    private CibaTransactionCache transactionCache = CibaTransactionCache.getInstance();
 
     @Override
     public void add(String authReqId, Object tokenrequest) {
 
-        if (tokenrequest instanceof TokenRequest) {
-            tokenRequestCache.put(authReqId, tokenrequest);
+        if (authReqId != null && tokenrequest instanceof TokenRequest) {
+            transactionCache.update(authReqId, transaction -> transaction.setTokenRequest((TokenRequest) tokenrequest));
             LOGGER.info(authReqId + " : Token Request added.");
         }
     }
@@ -69,24 +69,31 @@ public class TokenRequestCache implements ProxyCache {
     @Override
     public void remove(String authReqIdkey) {
 
-        tokenRequestCache.remove(authReqIdkey);
+        if (authReqIdkey != null) {
+            transactionCache.updateIfPresent(authReqIdkey, transaction -> transaction.setTokenRequest(null));
+        }
     }
 
     @Override
     public Object get(String authReqId) {
 
-        return tokenRequestCache.get(authReqId);
+        if (authReqId == null) {
+            return null;
+        }
+        CibaTransaction transaction = transactionCache.get(authReqId);
+        return transaction == null ? null : transaction.getTokenRequest();
     }
 
     @Override
     public void clear() {
 
+        transactionCache.updateAll(transaction -> transaction.setTokenRequest(null));
     }
 
     @Override
     public long size() {
 
-        return tokenRequestCache.size();
+        return transactionCache.count(CibaTransaction.Part.TOKEN_REQUEST);
     }
 
     @Override
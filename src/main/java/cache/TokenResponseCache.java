@@ -19,10 +19,10 @@
 package cache;
 
 import handlers.Handlers;
+import transactionartifacts.CibaTransaction;
 import transactionartifacts.TokenResponse;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Logger;
 
 /**
@@ -54,14 +54,15 @@ public class TokenResponseCache implements ProxyCache {
         return tokenResponseCacheInstance;
     }
 
-    private ArrayList<Handlers> interestedparty = new ArrayList<Handlers>();
-    private HashMap<String, Object> tokenResponseCache = new HashMap<String, Object>();
+    private CopyOnWriteArrayList<Handlers> interestedparty = new CopyOnWriteArrayList<>();
+    private CibaTransactionCache transactionCache = CibaTransactionCache.getInstance();
 
     @Override
     public void add(String authReqId, Object tokenresponse) {
 
-        if (tokenresponse instanceof TokenResponse) {
-            tokenResponseCache.put(authReqId, tokenresponse);
+        if (authReqId != null && tokenresponse instanceof TokenResponse) {
+            transactionCache.update(authReqId,
+                    transaction -> transaction.setTokenResponse((TokenResponse) tokenresponse));
             LOGGER.info(authReqId + " : Token Response added by the server.");
 
         }
@@ -71,25 +72,32 @@ public class TokenResponseCache implements ProxyCache {
     @Override
     public void remove(String authReqId) {
 
-        tokenResponseCache.remove(authReqId);
+        if (authReqId != null) {
+            transactionCache.updateIfPresent(authReqId, transaction -> transaction.setTokenResponse(null));
+        }
     }
 
     @Override
     public Object get(String authReqId) {
 
         LOGGER.info(authReqId + " : Polling checked for Token Response availability.");
-        return tokenResponseCache.get(authReqId);
+        if (authReqId == null) {
+            return null;
+        }
+        CibaTransaction transaction = transactionCache.get(authReqId);
+        return transaction == null ? null : transaction.getTokenResponse();
     }
 
     @Override
     public void clear() {
 
+        transactionCache.updateAll(transaction -> transaction.setTokenResponse(null));
     }
 
     @Override
     public long size() {
 
-        return tokenResponseCache.size();
+        return transactionCache.count(CibaTransaction.Part.TOKEN_RESPONSE);
     }
 
     @Override
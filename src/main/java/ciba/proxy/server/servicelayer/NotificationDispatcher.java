@@ -0,0 +1,363 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package ciba.proxy.server.servicelayer;
+
+import configuration.ConfigurationFile;
+import metrics.ProxyMetrics;
+import net.minidev.json.JSONArray;
+import net.minidev.json.JSONObject;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import resilience.Bulkhead;
+import util.ExecutorFactory;
+import util.RestTemplateFactory;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import javax.net.ssl.SSLException;
+
+/**
+ * Delivers ping mode notifications to the client notification endpoint in the background. Every endpoint has its
+ * own concurrency cap, so a slow client cannot hold every delivery thread. Failed deliveries are retried with
+ * jittered exponential backoff, and those that still fail are kept in a bounded dead letter queue for redelivery.
+ */
+public class NotificationDispatcher {
+
+    private static final Logger LOGGER = Logger.getLogger(NotificationDispatcher.class.getName());
+
+    private final ConcurrentHashMap<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedDeque<Notification> deadLetters = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger deadLetterCount = new AtomicInteger();
+    private volatile ThreadPoolExecutor executor;
+    private volatile ScheduledExecutorService retryTimer;
+
+    private NotificationDispatcher() {
+
+        ProxyMetrics.getInstance().registerGauge("notify.deadLetters", deadLetterCount::get);
+    }
+
+    private static NotificationDispatcher notificationDispatcherInstance = new NotificationDispatcher();
+
+    public static NotificationDispatcher getInstance() {
+
+        if (notificationDispatcherInstance == null) {
+
+            synchronized (NotificationDispatcher.class) {
+
+                if (notificationDispatcherInstance == null) {
+
+                    /* instance will be created at request time */
+                    notificationDispatcherInstance = new NotificationDispatcher();
+                }
+            }
+        }
+        return notificationDispatcherInstance;
+    }
+
+    /**
+     * Notify the client that the token of a transaction is ready.
+     *
+     * @param endpoint          Client notification endpoint.
+     * @param authReqId         Ciba Authentication request identifier.
+     * @param notificationToken client_notification_token of the authentication request.
+     */
+    public void dispatch(String endpoint, String authReqId, String notificationToken) {
+
+        submit(new Notification(endpoint, authReqId, notificationToken));
+    }
+
+    /**
+     * @return the dead lettered notifications, oldest first. Each is identified by a hash of its auth_req_id and the
+     * host of its endpoint only, since an auth_req_id is enough to redeem the tokens.
+     */
+    public JSONArray getDeadLetters() {
+
+        JSONArray entries = new JSONArray();
+        for (Notification notification : deadLetters) {
+            entries.add(notification.toJSON());
+        }
+        return entries;
+    }
+
+    public int getDeadLetterCount() {
+
+        return deadLetterCount.get();
+    }
+
+    /**
+     * Deliver every dead lettered notification again, with a fresh set of retries.
+     *
+     * @return number of notifications resubmitted.
+     */
+    public int redeliver() {
+
+        List<Notification> redelivered = new ArrayList<>();
+        Notification notification;
+        while ((notification = deadLetters.pollFirst()) != null) {
+            deadLetterCount.decrementAndGet();
+            redelivered.add(notification);
+        }
+        for (Notification deadLetter : redelivered) {
+            submit(new Notification(deadLetter.endpoint, deadLetter.authReqId, deadLetter.notificationToken));
+        }
+        ProxyMetrics.getInstance().addToCounter("notify.redelivered", redelivered.size());
+        return redelivered.size();
+    }
+
+    /**
+     * Stop delivering, to be called when the server shuts down. Notifications not delivered yet are dropped;
+     * their clients can still poll for the token.
+     */
+    public synchronized void shutdown() {
+
+        if (retryTimer != null) {
+            retryTimer.shutdownNow();
+            retryTimer = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
+    }
+
+    private void submit(Notification notification) {
+
+        try {
+            getExecutor().execute(() -> deliver(notification));
+        } catch (RejectedExecutionException e) {
+            ProxyMetrics.getInstance().incrementCounter("notify.rejected");
+            deadLetter(notification, "delivery queue full");
+        }
+    }
+
+    private void deliver(Notification notification) {
+
+        ProxyMetrics proxyMetrics = ProxyMetrics.getInstance();
+        Bulkhead bulkhead = bulkheads.computeIfAbsent(notification.endpoint,
+                endpoint -> new Bulkhead("notify." + URI.create(endpoint).getAuthority(),
+                        ConfigurationFile.getInstance().getNOTIFICATION_MAX_CONCURRENT()));
+        if (!bulkhead.tryAcquire()) {
+            retryOrDeadLetter(notification, "notification endpoint busy");
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.setBearerAuth(notification.notificationToken);
+            JSONObject body = new JSONObject();
+            body.put("auth_req_id", notification.authReqId);
+
+            proxyMetrics.incrementCounter("notify.sent");
+            // The notification token is a bearer credential, so it only goes to endpoints whose certificate verifies.
+            RestTemplateFactory.getInstance()
+                    .getNotificationRestTemplate(ConfigurationFile.getInstance().getNOTIFICATION_TIMEOUT())
+                    .exchange(notification.endpoint, HttpMethod.POST, new HttpEntity<>(body.toJSONString(), headers),
+                            String.class);
+
+            proxyMetrics.incrementCounter("notify.delivered");
+            // From the token being stored to the client being told, retries included.
+            proxyMetrics.recordTime("notify.latency", System.currentTimeMillis() - notification.createdTime);
+            LOGGER.info("Ping notification delivered for " + notification.authReqId);
+
+        } catch (ResourceAccessException e) {
+            if (e.getCause() instanceof SSLException) {
+                // A certificate that does not verify will not verify on the next attempt either.
+                deadLetter(notification, e.getMessage());
+            } else {
+                retryOrDeadLetter(notification, e.getMessage());
+            }
+        } catch (HttpStatusCodeException e) {
+            if (e.getStatusCode().is5xxServerError() || e.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS) {
+                retryOrDeadLetter(notification, e.getStatusCode().toString());
+            } else {
+                // The client refused the notification, so sending it again would not help.
+                deadLetter(notification, e.getStatusCode().toString());
+            }
+        } catch (RuntimeException e) {
+            deadLetter(notification, e.getMessage());
+        } finally {
+            bulkhead.release();
+            proxyMetrics.recordTime("notify.call", System.currentTimeMillis() - startTime);
+        }
+    }
+
+    private void retryOrDeadLetter(Notification notification, String error) {
+
+        ConfigurationFile configurationFile = ConfigurationFile.getInstance();
+        if (notification.attempt >= configurationFile.getNOTIFICATION_RETRIES()) {
+            deadLetter(notification, error);
+            return;
+        }
+
+        // Half of the backoff is fixed and half random, so clients failing together are not retried together.
+        long backoff = (long) configurationFile.getNOTIFICATION_BACKOFF() << notification.attempt;
+        long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        notification.attempt++;
+        ProxyMetrics.getInstance().incrementCounter("notify.retried");
+        LOGGER.info("Ping notification for " + notification.authReqId + " failed, retrying : " + error);
+        try {
+            getRetryTimer().schedule(() -> submit(notification), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            deadLetter(notification, error);
+        }
+    }
+
+    private void deadLetter(Notification notification, String error) {
+
+        notification.error = error;
+        notification.failedTime = System.currentTimeMillis();
+        deadLetters.addLast(notification);
+        // The oldest entries make room, so the queue stays bounded however long the client is down.
+        if (deadLetterCount.incrementAndGet() > ConfigurationFile.getInstance().getNOTIFICATION_DEAD_LETTER_CAPACITY()
+                && deadLetters.pollFirst() != null) {
+            deadLetterCount.decrementAndGet();
+            ProxyMetrics.getInstance().incrementCounter("notify.deadLetters.dropped");
+        }
+        ProxyMetrics.getInstance().incrementCounter("notify.deadLettered");
+        LOGGER.warning("Ping notification for " + notification.authReqId + " dead lettered : " + error);
+    }
+
+    private ScheduledExecutorService getRetryTimer() {
+
+        if (retryTimer == null) {
+            synchronized (this) {
+                if (retryTimer == null) {
+                    retryTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                        Thread thread = new Thread(runnable, "ciba-notify-retry");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return retryTimer;
+    }
+
+    private ThreadPoolExecutor getExecutor() {
+
+        if (executor == null) {
+            synchronized (this) {
+                if (executor == null) {
+                    int threads = ConfigurationFile.getInstance().getNOTIFICATION_THREADS();
+                    int queueCapacity = ConfigurationFile.getInstance().getNOTIFICATION_QUEUE_CAPACITY();
+                    ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(threads, threads,
+                            60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                            ExecutorFactory.getInstance().threadFactory("ciba-notify"));
+                    threadPoolExecutor.allowCoreThreadTimeOut(true);
+
+                    ProxyMetrics.getInstance().registerGauge("notify.active", threadPoolExecutor::getActiveCount);
+                    ProxyMetrics.getInstance().registerGauge("notify.queued",
+                            () -> threadPoolExecutor.getQueue().size());
+                    executor = threadPoolExecutor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * A ping notification and the state of its delivery.
+     */
+    private static class Notification {
+
+        private final String endpoint;
+        private final String authReqId;
+        private final String notificationToken;
+        private final long createdTime = System.currentTimeMillis();
+        private volatile int attempt;
+        private volatile String error;
+        private volatile long failedTime;
+
+        Notification(String endpoint, String authReqId, String notificationToken) {
+
+            this.endpoint = endpoint;
+            this.authReqId = authReqId;
+            this.notificationToken = notificationToken;
+        }
+
+        JSONObject toJSON() {
+
+            JSONObject entry = new JSONObject();
+            entry.put("id", hash(authReqId));
+            entry.put("host", host(endpoint));
+            entry.put("attempts", attempt + 1);
+            entry.put("error", error);
+            entry.put("failedAt", failedTime);
+            return entry;
+        }
+
+        /**
+         * Hash of an auth_req_id, enough to match a dead letter with the logs of its transaction.
+         */
+        private static String hash(String authReqId) {
+
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256")
+                        .digest(String.valueOf(authReqId).getBytes(StandardCharsets.UTF_8));
+                StringBuilder hex = new StringBuilder();
+                for (int i = 0; i < 8; i++) {
+                    hex.append(String.format("%02x", digest[i]));
+                }
+                return hex.toString();
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+
+        private static String host(String endpoint) {
+
+            try {
+                return URI.create(endpoint).getHost();
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,376 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package ciba.proxy.server.servicelayer;
+
+import configuration.ConfigurationFile;
+import dao.DaoFactory;
+import metrics.ProxyMetrics;
+import util.BoundedPerTaskExecutor;
+import util.ExecutorFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+/**
+ * Runs outbound calls to the Identity server on dedicated threads, so that request threads return to the client
+ * without waiting for the Identity server, and for the user's consent. Token exchanges run on threads of their own,
+ * apart from the authorize calls waiting on consent.
+ * The outcome of each call is recorded as the authentication status of its transaction.
+ * Concurrency and queue depth are bounded, so a burst of requests cannot overload the Identity server. In Virtual
+ * thread mode every call gets a virtual thread of its own, within the same bounds.
+ */
+public class OutboundRequestDispatcher {
+
+    private static final Logger LOGGER = Logger.getLogger(OutboundRequestDispatcher.class.getName());
+
+    private final ExecutorFactory executorFactory;
+    private volatile ExecutorService executor;
+    private volatile ExecutorService tokenExecutor;
+    private volatile boolean isShutdown;
+    private volatile ScheduledExecutorService retryTimer;
+    private final AtomicInteger nonBlockingCalls = new AtomicInteger();
+
+    private OutboundRequestDispatcher() {
+
+        this(ExecutorFactory.getInstance());
+    }
+
+    /**
+     * Creates a dispatcher apart from the shared one, such as for comparing thread modes.
+     *
+     * @param executorFactory Creates the threads of the dispatcher.
+     */
+    OutboundRequestDispatcher(ExecutorFactory executorFactory) {
+
+        this.executorFactory = executorFactory;
+        ProxyMetrics.getInstance().registerGauge("dispatch.reactive.inFlight", nonBlockingCalls::get);
+    }
+
+    private static OutboundRequestDispatcher outboundRequestDispatcherInstance = new OutboundRequestDispatcher();
+
+    public static OutboundRequestDispatcher getInstance() {
+
+        if (outboundRequestDispatcherInstance == null) {
+
+            synchronized (OutboundRequestDispatcher.class) {
+
+                if (outboundRequestDispatcherInstance == null) {
+
+                    /* instance will be created at request time */
+                    outboundRequestDispatcherInstance = new OutboundRequestDispatcher();
+                }
+            }
+        }
+        return outboundRequestDispatcherInstance;
+    }
+
+    /**
+     * Run an outbound call of a transaction in the background.
+     * A call that throws marks the authentication of the transaction as failed.
+     *
+     * @param authReqId Ciba Authentication request identifier.
+     * @param name      Name of the call, used in metrics and logs.
+     * @param call      Outbound call.
+     * @return false if the call was rejected because the queue is full.
+     */
+    public boolean dispatch(String authReqId, String name, Runnable call) {
+
+        return dispatch(authReqId, name, call, 0, 0, e -> false);
+    }
+
+    /**
+     * Run an outbound call of a transaction in the background, retrying it with exponential backoff.
+     * Retries wait on a timer rather than on a dispatch thread. A call that fails for good marks the authentication
+     * of the transaction as failed.
+     *
+     * @param authReqId     Ciba Authentication request identifier.
+     * @param name          Name of the call, used in metrics and logs.
+     * @param call          Outbound call.
+     * @param retries       Maximum number of retries.
+     * @param backoffMillis Delay before the first retry, doubled on every further retry.
+     * @param retryable     Whether a failure is worth retrying.
+     * @return false if the call was rejected because the queue is full.
+     */
+    public boolean dispatch(String authReqId, String name, Runnable call, int retries, long backoffMillis,
+                            Predicate<RuntimeException> retryable) {
+
+        return submit(false, authReqId, name, call, 0, retries, backoffMillis, retryable);
+    }
+
+    /**
+     * Exchange the authorization code of a consented transaction for tokens in the background, retrying it with
+     * exponential backoff. Exchanges have their own threads, so they never wait behind authorize calls held open
+     * for the user's consent. The code is single-use and the user has already consented, so an exchange is never
+     * turned away: when its queue is full, it runs on the calling thread instead.
+     *
+     * @param authReqId     Ciba Authentication request identifier.
+     * @param call          Token exchange.
+     * @param retries       Maximum number of retries.
+     * @param backoffMillis Delay before the first retry, doubled on every further retry.
+     * @param retryable     Whether a failure is worth retrying.
+     */
+    public void dispatchTokenExchange(String authReqId, Runnable call, int retries, long backoffMillis,
+                                      Predicate<RuntimeException> retryable) {
+
+        submit(true, authReqId, "token", call, 0, retries, backoffMillis, retryable);
+    }
+
+    private boolean submit(boolean tokenExchange, String authReqId, String name, Runnable call, int attempt,
+                           int retries, long backoffMillis, Predicate<RuntimeException> retryable) {
+
+        long queuedTime = System.currentTimeMillis();
+        Runnable task = () -> {
+            ProxyMetrics proxyMetrics = ProxyMetrics.getInstance();
+            long startTime = System.currentTimeMillis();
+            proxyMetrics.recordTime("dispatch." + name + ".queued", startTime - queuedTime);
+            try {
+                call.run();
+                proxyMetrics.incrementCounter("dispatch." + name + ".completed");
+            } catch (RuntimeException e) {
+                if (attempt < retries && retryable.test(e)) {
+                    proxyMetrics.incrementCounter("dispatch." + name + ".retried");
+                    LOGGER.info("Outbound " + name + " call failed, retrying : " + e.getMessage());
+                    scheduleRetry(tokenExchange, authReqId, name, call, attempt, retries, backoffMillis, retryable);
+                } else {
+                    proxyMetrics.incrementCounter("dispatch." + name + ".failed");
+                    LOGGER.warning("Outbound " + name + " call failed : " + e.getMessage());
+                    markFailed(authReqId);
+                }
+            } finally {
+                proxyMetrics.recordTime("dispatch." + name, System.currentTimeMillis() - startTime);
+            }
+        };
+
+        try {
+            (tokenExchange ? getTokenExecutor() : getExecutor()).execute(task);
+            return true;
+
+        } catch (RejectedExecutionException e) {
+            if (tokenExchange && attempt == 0 && !isShutdown) {
+                // Waiting on this thread beats losing the single-use code of a consented transaction. Retries are
+                // submitted from the retry timer, which must never run a call itself.
+                ProxyMetrics.getInstance().incrementCounter("dispatch." + name + ".callerRuns");
+                task.run();
+                return true;
+            }
+            ProxyMetrics.getInstance().incrementCounter("dispatch." + name + ".rejected");
+            LOGGER.warning("Outbound " + name + " call rejected, the dispatch queue is full or shut down.");
+            return false;
+        }
+    }
+
+    /**
+     * Resubmit a failed call once its backoff has passed. The timer only schedules, the call runs on a dispatch
+     * thread. A retry finding the queue full waits out a further backoff, and fails once no retries are left.
+     */
+    private void scheduleRetry(boolean tokenExchange, String authReqId, String name, Runnable call, int attempt,
+                               int retries, long backoffMillis, Predicate<RuntimeException> retryable) {
+
+        try {
+            getRetryTimer().schedule(() -> {
+                if (!submit(tokenExchange, authReqId, name, call, attempt + 1, retries, backoffMillis, retryable)) {
+                    if (attempt + 1 < retries && !isShutdown) {
+                        scheduleRetry(tokenExchange, authReqId, name, call, attempt + 1, retries, backoffMillis,
+                                retryable);
+                    } else {
+                        markFailed(authReqId);
+                    }
+                }
+            }, backoffMillis << attempt, TimeUnit.MILLISECONDS);
+
+        } catch (RejectedExecutionException e) {
+            LOGGER.warning("Outbound " + name + " call not retried, the dispatcher is shut down.");
+            markFailed(authReqId);
+        }
+    }
+
+    private void markFailed(String authReqId) {
+
+        DaoFactory.getInstance()
+                .getArtifactStoreConnector(ConfigurationFile.getInstance().getSTORE_CONNECTOR_TYPE())
+                .updateAuthenticationStatus(authReqId, "Failed");
+    }
+
+    /**
+     * Admission check for new transactions, letting a burst be turned away before any work is done for it.
+     *
+     * @return true if every thread is busy and the queue is full.
+     */
+    public boolean isSaturated() {
+
+        ExecutorService executorService = executor;
+        return executorService instanceof ThreadPoolExecutor
+                && ((ThreadPoolExecutor) executorService).getQueue().remainingCapacity() == 0
+                || executorService instanceof BoundedPerTaskExecutor
+                && ((BoundedPerTaskExecutor) executorService).isFull()
+                || nonBlockingCalls.get() >= getNonBlockingCapacity();
+    }
+
+    /**
+     * Reserve room for a non-blocking outbound call of the reactive runtime. Such calls hold no dispatch thread, so
+     * they are counted against the same bound as the threads and queue of the blocking calls, outbound
+     * dispatch threads plus queue capacity.
+     *
+     * @return false if as many calls are in flight as allowed, the call must then be turned away.
+     */
+    public boolean tryReserve() {
+
+        while (true) {
+            int inFlight = nonBlockingCalls.get();
+            if (inFlight >= getNonBlockingCapacity()) {
+                ProxyMetrics.getInstance().incrementCounter("dispatch.reactive.rejected");
+                return false;
+            }
+            if (nonBlockingCalls.compareAndSet(inFlight, inFlight + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Release the room of a finished non-blocking outbound call.
+     */
+    public void release() {
+
+        nonBlockingCalls.decrementAndGet();
+    }
+
+    private int getNonBlockingCapacity() {
+
+        ConfigurationFile configurationFile = ConfigurationFile.getInstance();
+        return configurationFile.getOUTBOUND_DISPATCH_THREADS() + configurationFile.getOUTBOUND_QUEUE_CAPACITY();
+    }
+
+    /**
+     * Stop accepting calls and wait briefly for running ones, to be called when the server shuts down.
+     * Calls dispatched afterwards are rejected, the pools are not created again.
+     */
+    public synchronized void shutdown() {
+
+        isShutdown = true;
+        if (retryTimer != null) {
+            retryTimer.shutdownNow();
+            retryTimer = null;
+        }
+        stop(executor);
+        executor = null;
+        stop(tokenExecutor);
+        tokenExecutor = null;
+    }
+
+    private static void stop(ExecutorService executorService) {
+
+        if (executorService != null) {
+            executorService.shutdown();
+            try {
+                if (!executorService.awaitTermination(10, TimeUnit.SECONDS)) {
+                    executorService.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executorService.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void rejectIfShutdown() {
+
+        if (isShutdown) {
+            throw new RejectedExecutionException("Outbound request dispatcher is shut down.");
+        }
+    }
+
+    private ScheduledExecutorService getRetryTimer() {
+
+        if (retryTimer == null) {
+            synchronized (this) {
+                rejectIfShutdown();
+                if (retryTimer == null) {
+                    retryTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                        Thread thread = new Thread(runnable, "ciba-outbound-retry");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return retryTimer;
+    }
+
+    private ExecutorService getExecutor() {
+
+        if (executor == null) {
+            synchronized (this) {
+                rejectIfShutdown();
+                if (executor == null) {
+                    executor = newPool(ConfigurationFile.getInstance().getOUTBOUND_DISPATCH_THREADS(),
+                            ConfigurationFile.getInstance().getOUTBOUND_QUEUE_CAPACITY(), "ciba-outbound", "dispatch");
+                }
+            }
+        }
+        return executor;
+    }
+
+    private ExecutorService getTokenExecutor() {
+
+        if (tokenExecutor == null) {
+            synchronized (this) {
+                rejectIfShutdown();
+                if (tokenExecutor == null) {
+                    tokenExecutor = newPool(ConfigurationFile.getInstance().getTOKEN_EXCHANGE_THREADS(),
+                            ConfigurationFile.getInstance().getTOKEN_EXCHANGE_QUEUE_CAPACITY(), "ciba-outbound-token",
+                            "dispatch.token");
+                }
+            }
+        }
+        return tokenExecutor;
+    }
+
+    private ExecutorService newPool(int threads, int queueCapacity, String threadName, String metricName) {
+
+        ExecutorService perTaskExecutor = executorFactory.newPerTaskExecutor(threadName);
+        if (perTaskExecutor != null) {
+            // Calls waiting for a permit park their virtual threads, holding no platform thread.
+            BoundedPerTaskExecutor boundedExecutor =
+                    new BoundedPerTaskExecutor(perTaskExecutor, threads, queueCapacity);
+            ProxyMetrics.getInstance().registerGauge(metricName + ".active", boundedExecutor::getActiveCount);
+            ProxyMetrics.getInstance().registerGauge(metricName + ".queued", boundedExecutor::getQueuedCount);
+            return boundedExecutor;
+        }
+
+        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(threads, threads,
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                executorFactory.threadFactory(threadName));
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        // Calls beyond the queue capacity are rejected rather than queued without bound.
+        threadPoolExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+
+        ProxyMetrics.getInstance().registerGauge(metricName + ".active", threadPoolExecutor::getActiveCount);
+        ProxyMetrics.getInstance().registerGauge(metricName + ".queued", () -> threadPoolExecutor.getQueue().size());
+        return threadPoolExecutor;
+    }
+}
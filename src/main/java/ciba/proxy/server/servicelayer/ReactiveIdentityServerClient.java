@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package ciba.proxy.server.servicelayer;
+
+import configuration.ConfigurationFile;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import resilience.IdentityServerGuard;
+import resilience.IdentityServerNodePool;
+import util.RestTemplateFactory;
+
+import java.time.Duration;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import javax.net.ssl.SSLException;
+
+/**
+ * Non-blocking client of the Identity server for the reactive runtime. Calls hold a connection but no thread while
+ * they wait, so a call waiting for the user's consent costs next to nothing.
+ * Calls go through the same node pool and guard as the blocking client.
+ */
+public class ReactiveIdentityServerClient {
+
+    private static final Logger LOGGER = Logger.getLogger(ReactiveIdentityServerClient.class.getName());
+
+    private volatile WebClient webClient;
+    private ConnectionProvider connectionProvider;
+
+    private ReactiveIdentityServerClient() {
+
+    }
+
+    private static ReactiveIdentityServerClient reactiveIdentityServerClientInstance =
+            new ReactiveIdentityServerClient();
+
+    public static ReactiveIdentityServerClient getInstance() {
+
+        if (reactiveIdentityServerClientInstance == null) {
+
+            synchronized (ReactiveIdentityServerClient.class) {
+
+                if (reactiveIdentityServerClientInstance == null) {
+
+                    /* instance will be created at request time */
+                    reactiveIdentityServerClientInstance = new ReactiveIdentityServerClient();
+                }
+            }
+        }
+        return reactiveIdentityServerClientInstance;
+    }
+
+    /**
+     * GET an Identity server endpoint.
+     *
+     * @param endpoint     Name of the endpoint.
+     * @param pathAndQuery Path and query, relative to the base URL of a node.
+     * @return body of the response.
+     */
+    public Mono<String> get(String endpoint, String pathAndQuery) {
+
+        return exchange(endpoint, baseUrl -> getWebClient().get()
+                .uri(baseUrl + pathAndQuery)
+                .retrieve()
+                .bodyToMono(String.class));
+    }
+
+    /**
+     * POST a form to an Identity server endpoint.
+     *
+     * @param endpoint Name of the endpoint.
+     * @param path     Path, relative to the base URL of a node.
+     * @param form     Form to post.
+     * @param headers  Headers of the request.
+     * @return body of the response.
+     */
+    public Mono<String> postForm(String endpoint, String path, MultiValueMap<String, String> form,
+                                 HttpHeaders headers) {
+
+        return exchange(endpoint, baseUrl -> getWebClient().post()
+                .uri(baseUrl + path)
+                .headers(requestHeaders -> requestHeaders.addAll(headers))
+                .body(BodyInserters.fromFormData(form))
+                .retrieve()
+                .bodyToMono(String.class));
+    }
+
+    /**
+     * Close the pooled connections, to be called when the server shuts down.
+     */
+    public synchronized void close() {
+
+        if (connectionProvider != null) {
+            connectionProvider.dispose();
+            connectionProvider = null;
+            webClient = null;
+        }
+    }
+
+    private Mono<String> exchange(String endpoint, Function<String, Mono<String>> request) {
+
+        Duration timeout = Duration.ofMillis(IdentityServerGuard.getInstance().getTimeout(endpoint));
+        // Deferred, so that the call is only made, and counted against the guard, on subscription.
+        return Mono.defer(() -> Mono.fromFuture(IdentityServerGuard.getInstance().callAsync(endpoint,
+                () -> IdentityServerNodePool.getInstance().callAsync(baseUrl -> request.apply(baseUrl)
+                        .timeout(timeout)
+                        .toFuture()))));
+    }
+
+    private WebClient getWebClient() {
+
+        if (webClient == null) {
+            synchronized (this) {
+                if (webClient == null) {
+                    webClient = createWebClient();
+                }
+            }
+        }
+        return webClient;
+    }
+
+    private WebClient createWebClient() {
+
+        ConfigurationFile configurationFile = ConfigurationFile.getInstance();
+        SslContext sslContext;
+        try {
+            // Verifies the Identity server against the same trust store as the blocking client.
+            sslContext = SslContextBuilder.forClient()
+                    .trustManager(RestTemplateFactory.getInstance().getTrustManagerFactory()).build();
+        } catch (SSLException e) {
+            throw new IllegalStateException("Unable to create the SSL context : " + e.getMessage(), e);
+        }
+
+        connectionProvider = ConnectionProvider.fixed("ciba-is", configurationFile.getHTTP_MAX_CONNECTIONS());
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .secure(sslContextSpec -> sslContextSpec.sslContext(sslContext))
+                .tcpConfiguration(tcpClient -> tcpClient
+                        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, configurationFile.getHTTP_CONNECT_TIMEOUT()));
+
+        LOGGER.info("Non-blocking Identity server client created.");
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+}
@@ -21,6 +21,8 @@ package ciba.proxy.server.servicelayer;
 import cibaparameters.CIBAParameters;
 import com.nimbusds.jwt.SignedJWT;
 import configuration.ConfigurationFile;
+import dao.DaoFactory;
+import dao.ReactiveStoreAdapter;
 import exceptions.BadRequestException;
 import handlers.Handlers;
 import net.minidev.json.JSONObject;
@@ -28,7 +30,9 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.server.ResponseStatusException;
-import tempErrorCache.TempErrorCache;
+import reactor.core.publisher.Mono;
+import resilience.IdentityServerGuard;
+import resilience.IdentityServerNodePool;
 import transactionartifacts.CIBAauthRequest;
 import util.CodeGenerator;
 import util.RestTemplateFactory;
@@ -37,7 +41,7 @@ import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.text.ParseException;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 /**
@@ -45,11 +49,23 @@ import java.util.logging.Logger;
  */
 public class ServerRequestHandler implements Handlers {
 
-    private HashMap<String, String> identifierstore = new HashMap<String, String>();
+    private ConcurrentHashMap<String, String> identifierstore = new ConcurrentHashMap<>();
     private static final Logger LOGGER = Logger.getLogger(ServerRequestHandler.class.getName());
+    private final OutboundRequestDispatcher dispatcher;
 
     private ServerRequestHandler() {
 
+        this(OutboundRequestDispatcher.getInstance());
+    }
+
+    /**
+     * Creates a handler apart from the shared one, such as for comparing thread modes.
+     *
+     * @param dispatcher Runs the authorize calls.
+     */
+    ServerRequestHandler(OutboundRequestDispatcher dispatcher) {
+
+        this.dispatcher = dispatcher;
     }
 
     private static ServerRequestHandler serverRequestHandlerInstance = new ServerRequestHandler();
@@ -83,8 +99,43 @@ public class ServerRequestHandler implements Handlers {
         // Create a mapping ID and store.
         String mappingID = storeInDB(auth_req_id);
 
-        // Initiate Authorization request.
-        initiateRequest(cibAauthRequest, mappingID);
+        // Polls are told to wait from now on, while the Identity server waits for the user's consent.
+        DaoFactory.getInstance()
+                .getArtifactStoreConnector(ConfigurationFile.getInstance().getSTORE_CONNECTOR_TYPE())
+                .updateAuthenticationStatus(auth_req_id, "RequestSent");
+
+        if ("Reactive".equals(ConfigurationFile.getInstance().getRUNTIME_MODE())) {
+            // The reactive runtime waits for the Identity server without holding any thread, within the same
+            // bound as the blocking calls.
+            if (!dispatcher.tryReserve()) {
+                DaoFactory.getInstance()
+                        .getArtifactStoreConnector(ConfigurationFile.getInstance().getSTORE_CONNECTOR_TYPE())
+                        .updateAuthenticationStatus(auth_req_id, "Failed");
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "slow_down");
+            }
+            String user = getUser(cibAauthRequest);
+            Mono.defer(() -> ReactiveIdentityServerClient.getInstance()
+                    .get(IdentityServerGuard.AUTHORIZE, getAuthorizeQuery(mappingID, user)))
+                    .doFinally(signal -> dispatcher.release())
+                    .subscribe(result -> LOGGER.info("Code received at the Endpoint. Need processing the code flow"),
+                            error -> {
+                                LOGGER.warning("Outbound authorize call failed : " + error.getMessage());
+                                ReactiveStoreAdapter.getInstance().run(() -> DaoFactory.getInstance()
+                                        .getArtifactStoreConnector(
+                                                ConfigurationFile.getInstance().getSTORE_CONNECTOR_TYPE())
+                                        .updateAuthenticationStatus(auth_req_id, "Failed")).subscribe();
+                            });
+            return;
+        }
+
+        // Initiate Authorization request without holding the request thread.
+        if (!dispatcher.dispatch(auth_req_id, "authorize", () -> initiateRequest(cibAauthRequest, mappingID))) {
+
+            DaoFactory.getInstance()
+                    .getArtifactStoreConnector(ConfigurationFile.getInstance().getSTORE_CONNECTOR_TYPE())
+                    .updateAuthenticationStatus(auth_req_id, "Failed");
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "slow_down");
+        }
 
     }
 
@@ -120,17 +171,11 @@ public class ServerRequestHandler implements Handlers {
                         .getBinding_message();
                 String usercode = cibAauthRequest.getUser_code();
 
-                TempErrorCache.getInstance()
-                        .addAuthenticationStatus(ServerRequestHandler.getInstance().getAuthReqId(identifier),
-                                "RequestSent");
-
-                RestTemplate restTemplate = RestTemplateFactory.getInstance().getRestTemplate();
-                String result = restTemplate
-                        .getForObject(CIBAParameters.getInstance().getAUTHORIZE_ENDPOINT() + "?scope=openid&" +
-                                "response_type=code&state=" + identifier + "&redirect_uri=" +
-                                CIBAParameters.getInstance().
-                                        getCallBackURL() + "&client_id=" +
-                                ConfigurationFile.getInstance().getCLIENT_ID() + "&user=" + user, String.class);
+                RestTemplate restTemplate = RestTemplateFactory.getInstance()
+                        .getRestTemplate(IdentityServerGuard.getInstance().getTimeout(IdentityServerGuard.AUTHORIZE));
+                String result = IdentityServerGuard.getInstance().call(IdentityServerGuard.AUTHORIZE,
+                        () -> IdentityServerNodePool.getInstance().call(baseUrl -> restTemplate
+                                .getForObject(baseUrl + getAuthorizeQuery(identifier, user), String.class)));
 
                 if (result != null) {
                     LOGGER.info("Code received at the Endpoint. Need processing the code flow");
@@ -155,6 +200,19 @@ public class ServerRequestHandler implements Handlers {
         }
     }
 
+    /**
+     * Path and query of the authorize request, relative to the base URL of an Identity server node.
+     *
+     * @param identifier mapping identifier for the auth_req_id.
+     * @param user       user to be authenticated.
+     */
+    private String getAuthorizeQuery(String identifier, String user) {
+
+        return CIBAParameters.getInstance().getAUTHORIZE_PATH() + "?scope=openid&response_type=code&state=" +
+                identifier + "&redirect_uri=" + CIBAParameters.getInstance().getCallBackURL() + "&client_id=" +
+                ConfigurationFile.getInstance().getCLIENT_ID() + "&user=" + user;
+    }
+
     /**
      * Get user from authentication request.
      *
@@ -21,8 +21,10 @@ package ciba.proxy.server.servicelayer;
 import cibaparameters.CIBAParameters;
 import configuration.ConfigurationFile;
 import dao.DaoFactory;
+import dao.ReactiveStoreAdapter;
 import handlers.Handlers;
 import handlers.NotificationHandler;
+import handlers.PendingTokenRequests;
 import net.minidev.json.JSONObject;
 import net.minidev.json.parser.JSONParser;
 import net.minidev.json.parser.ParseException;
@@ -31,7 +33,13 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
+import reactor.core.publisher.Mono;
+import resilience.CallNotPermittedException;
+import resilience.IdentityServerGuard;
+import resilience.IdentityServerNodePool;
+import resilience.LimitExceededException;
 import transactionartifacts.TokenResponse;
 import util.RestTemplateFactory;
 import validator.TokenResponseValidator;
@@ -39,6 +47,8 @@ import validator.TokenResponseValidator;
 import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.function.Function;
 import java.util.logging.Logger;
 
 /**
@@ -75,40 +85,97 @@ public class ServerResponseHandler implements Handlers {
      *
      * @param code        binding -authorize code.
      * @param idenitifier mapping ID.
+     * @throws RestClientException if the Identity server could not be reached or refused the code.
+     * @throws CallNotPermittedException if the token endpoint is failing fast.
      */
     public void getToken(String code, String idenitifier) {
 
         try {
-            RestTemplate restTemplate = RestTemplateFactory.getInstance().getRestTemplate();
-
-            // Setting the headers.
-            HttpHeaders headers = new HttpHeaders();
-            headers.setBasicAuth(ConfigurationFile.getInstance().getCLIENT_ID(),
-                    ConfigurationFile.getInstance().getCLIENT_SECRET());
-            headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
-
-            // Adding the attributes to the body.
-            MultiValueMap<String, String> map = new LinkedMultiValueMap<String, String>();
-            map.add("grant_type", "authorization_code");
-            map.add("code", code);
-            map.add("redirect_uri", CIBAParameters.getInstance().getCallBackURL());
-            map.add("state", idenitifier);
+            RestTemplate restTemplate = RestTemplateFactory.getInstance()
+                    .getRestTemplate(IdentityServerGuard.getInstance().getTimeout(IdentityServerGuard.TOKEN));
 
             HttpEntity<MultiValueMap<String, String>> request =
-                    new HttpEntity<MultiValueMap<String, String>>(map, headers);
+                    new HttpEntity<MultiValueMap<String, String>>(getTokenForm(code, idenitifier), getTokenHeaders());
+
+            Function<String, String> tokenCall = baseUrl -> restTemplate.postForObject(
+                    baseUrl + CIBAParameters.getInstance().getTOKEN_PATH(), request, String.class);
 
-            String token = restTemplate.postForObject("https://localhost:9443/oauth2/token", request, String.class);
+            // Never hedged. The code is single-use, and a replayed code may get the tokens already issued revoked.
+            String token = IdentityServerGuard.getInstance().call(IdentityServerGuard.TOKEN,
+                    () -> IdentityServerNodePool.getInstance().call(tokenCall));
             JSONParser parser = new JSONParser();
             JSONObject json = (JSONObject) parser.parse(token);
             receivetoken(json, idenitifier);
 
         } catch (KeyStoreException | NoSuchAlgorithmException | KeyManagementException | ParseException e) {
-            e.printStackTrace();
             LOGGER.severe(e.getMessage());
+            throw new IllegalStateException("Unable to obtain token : " + e.getMessage(), e);
         }
 
     }
 
+    /**
+     * Get token from Identity server without blocking, for the reactive runtime.
+     * Retried like the blocking exchange, on a timer rather than on a thread.
+     *
+     * @param code       binding -authorize code.
+     * @param identifier mapping ID.
+     * @param attempt    Number of attempts already made.
+     * @return completion of the exchange, once the token is stored.
+     */
+    private Mono<Void> getTokenReactive(String code, String identifier, int attempt) {
+
+        ConfigurationFile configurationFile = ConfigurationFile.getInstance();
+        return ReactiveIdentityServerClient.getInstance()
+                .postForm(IdentityServerGuard.TOKEN, CIBAParameters.getInstance().getTOKEN_PATH(),
+                        getTokenForm(code, identifier), getTokenHeaders())
+                .onErrorResume(error -> attempt < configurationFile.getTOKEN_EXCHANGE_RETRIES() && isRetryable(error)
+                        ? Mono.delay(Duration.ofMillis(configurationFile.getTOKEN_EXCHANGE_BACKOFF() << attempt))
+                        .then(getTokenReactive(code, identifier, attempt + 1))
+                        .then(Mono.empty())
+                        : Mono.error(error))
+                .flatMap(token -> ReactiveStoreAdapter.getInstance().run(() -> {
+                    try {
+                        JSONParser parser = new JSONParser();
+                        receivetoken((JSONObject) parser.parse(token), identifier);
+                    } catch (ParseException e) {
+                        throw new IllegalStateException("Unable to obtain token : " + e.getMessage(), e);
+                    }
+                }));
+    }
+
+    private HttpHeaders getTokenHeaders() {
+
+        // Setting the headers.
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBasicAuth(ConfigurationFile.getInstance().getCLIENT_ID(),
+                ConfigurationFile.getInstance().getCLIENT_SECRET());
+        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+        return headers;
+    }
+
+    private MultiValueMap<String, String> getTokenForm(String code, String identifier) {
+
+        // Adding the attributes to the body.
+        MultiValueMap<String, String> map = new LinkedMultiValueMap<String, String>();
+        map.add("grant_type", "authorization_code");
+        map.add("code", code);
+        map.add("redirect_uri", CIBAParameters.getInstance().getCallBackURL());
+        map.add("state", identifier);
+        return map;
+    }
+
+    /**
+     * Only exchanges that never reached the Identity server are retried: failed connections, and calls shed at the
+     * concurrency limit or by an open circuit. After a timeout or a server error the code may have been spent, and
+     * replaying it may get the tokens already issued revoked.
+     */
+    private static boolean isRetryable(Throwable error) {
+
+        return IdentityServerGuard.isConnectFailure(error) || error instanceof LimitExceededException
+                || error instanceof CallNotPermittedException;
+    }
+
     /**
      * Validate token and return token response.
      *
@@ -126,6 +193,7 @@ public class ServerResponseHandler implements Handlers {
                 addTokenResponse(ServerRequestHandler.getInstance().getAuthReqId(identifier), tokenResponse);
 
         LOGGER.info("Token Response Received and added to Store.");
+        PendingTokenRequests.getInstance().tokenReceived(ServerRequestHandler.getInstance().getAuthReqId(identifier));
         notify(ServerRequestHandler.getInstance().getAuthReqId(identifier));
 
     }
@@ -154,8 +222,22 @@ public class ServerResponseHandler implements Handlers {
     public void receivecode(JSONObject codeobject, String identifier) {
 
         String code = codeobject.get("code").toString();
-
-        this.getToken(code, identifier);
+        String authReqId = ServerRequestHandler.getInstance().getAuthReqId(identifier);
+
+        // The exchange runs in the background, so the Identity server redirect returns at once.
+        ConfigurationFile configurationFile = ConfigurationFile.getInstance();
+        if ("Reactive".equals(configurationFile.getRUNTIME_MODE())) {
+            getTokenReactive(code, identifier, 0).subscribe(null, error -> {
+                LOGGER.warning("Outbound token call failed : " + error.getMessage());
+                ReactiveStoreAdapter.getInstance().run(() -> DaoFactory.getInstance()
+                        .getArtifactStoreConnector(configurationFile.getSTORE_CONNECTOR_TYPE())
+                        .updateAuthenticationStatus(authReqId, "Failed")).subscribe();
+            });
+            return;
+        }
+        OutboundRequestDispatcher.getInstance().dispatchTokenExchange(authReqId,
+                () -> getToken(code, identifier), configurationFile.getTOKEN_EXCHANGE_RETRIES(),
+                configurationFile.getTOKEN_EXCHANGE_BACKOFF(), ServerResponseHandler::isRetryable);
     }
 
     /**
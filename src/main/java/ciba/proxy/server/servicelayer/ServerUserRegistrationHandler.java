@@ -18,16 +18,32 @@
 
 package ciba.proxy.server.servicelayer;
 
+import cibaparameters.CIBAParameters;
 import handlers.Handlers;
+import net.minidev.json.JSONArray;
 import net.minidev.json.JSONObject;
+import net.minidev.json.parser.JSONParser;
+import net.minidev.json.parser.ParseException;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.server.ResponseStatusException;
+import resilience.CallNotPermittedException;
+import resilience.IdentityServerGuard;
+import resilience.IdentityServerNodePool;
 import util.RestTemplateFactory;
 
 import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 
 /**
@@ -37,6 +53,8 @@ public class ServerUserRegistrationHandler implements Handlers {
 
     private static final Logger LOGGER = Logger.getLogger(ServerResponseHandler.class.getName());
 
+    private static final String BULK_REQUEST_SCHEMA = "urn:ietf:params:scim:api:messages:2.0:BulkRequest";
+
     private ServerUserRegistrationHandler() {
         // this.run();
     }
@@ -73,19 +91,123 @@ public class ServerUserRegistrationHandler implements Handlers {
     public String save(JSONObject user, HttpHeaders headers) {
 
         try {
-            RestTemplate restTemplate = RestTemplateFactory.getInstance().getRestTemplate();
+            RestTemplate restTemplate = RestTemplateFactory.getInstance()
+                    .getRestTemplate(IdentityServerGuard.getInstance().getTimeout(IdentityServerGuard.SCIM));
 
             System.out.println(user);
             HttpEntity<String> request = new HttpEntity<String>(user.toString(), headers);
-            String uri = "https://localhost:9443/scim2/Users";
-            return (restTemplate.postForObject(uri, request, String.class));
+            return IdentityServerGuard.getInstance().call(IdentityServerGuard.SCIM,
+                    () -> IdentityServerNodePool.getInstance().call(baseUrl -> restTemplate.postForObject(
+                            baseUrl + CIBAParameters.getInstance().getSCIM_USERS_PATH(), request, String.class)));
 
         } catch (KeyStoreException | NoSuchAlgorithmException | KeyManagementException e) {
-            e.printStackTrace();
-            LOGGER.severe(e.getMessage());
+            LOGGER.severe("Unable to create the SCIM2 client : " + e.getMessage());
+        } catch (CallNotPermittedException e) {
+            LOGGER.warning(e.getMessage());
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "temporarily_unavailable");
         }
         return "Unstored";
 
     }
 
+    /**
+     * Register a batch of users on the Identity server with a single SCIM2 bulk request.
+     * A batch that cannot be sent fails every user in it, and is not retried.
+     *
+     * @param users   Users to be registered.
+     * @param headers Headers for the bulk request.
+     * @return outcome of the registration of each user, in the order of the users.
+     */
+    public List<JSONObject> saveBulk(List<JSONObject> users, HttpHeaders headers) {
+
+        JSONArray operations = new JSONArray();
+        for (int i = 0; i < users.size(); i++) {
+            JSONObject operation = new JSONObject();
+            operation.put("method", "POST");
+            operation.put("path", "/Users");
+            operation.put("bulkId", String.valueOf(i));
+            operation.put("data", users.get(i));
+            operations.add(operation);
+        }
+        JSONObject bulkRequest = new JSONObject();
+        bulkRequest.put("schemas", Collections.singletonList(BULK_REQUEST_SCHEMA));
+        bulkRequest.put("Operations", operations);
+
+        List<JSONObject> results = new ArrayList<>(users.size());
+        try {
+            RestTemplate restTemplate = RestTemplateFactory.getInstance()
+                    .getRestTemplate(IdentityServerGuard.getInstance().getTimeout(IdentityServerGuard.SCIM));
+
+            HttpEntity<String> request = new HttpEntity<String>(bulkRequest.toJSONString(), headers);
+            String response = IdentityServerGuard.getInstance().call(IdentityServerGuard.SCIM,
+                    () -> IdentityServerNodePool.getInstance().call(baseUrl -> restTemplate.postForObject(
+                            baseUrl + CIBAParameters.getInstance().getSCIM_BULK_PATH(), request, String.class)));
+
+            // Operations in the response are matched to users by bulk identifier, whatever their order.
+            Map<String, JSONObject> outcomes = new HashMap<>();
+            JSONParser parser = new JSONParser(JSONParser.MODE_PERMISSIVE);
+            Object responseOperations = ((JSONObject) parser.parse(response)).get("Operations");
+            if (responseOperations instanceof JSONArray) {
+                for (Object responseOperation : (JSONArray) responseOperations) {
+                    JSONObject outcome = (JSONObject) responseOperation;
+                    outcomes.put(String.valueOf(outcome.get("bulkId")), outcome);
+                }
+            }
+            for (int i = 0; i < users.size(); i++) {
+                JSONObject outcome = outcomes.get(String.valueOf(i));
+                JSONObject result = new JSONObject();
+                if (outcome == null) {
+                    result.put("status", "500");
+                    result.put("error", "No outcome returned by the Identity server.");
+                } else {
+                    result.put("status", String.valueOf(getStatusCode(outcome.get("status"))));
+                    if (outcome.get("location") != null) {
+                        result.put("location", outcome.get("location"));
+                    }
+                    if (outcome.get("response") != null) {
+                        result.put("response", outcome.get("response"));
+                    }
+                }
+                results.add(result);
+            }
+            return results;
+
+        } catch (KeyStoreException | NoSuchAlgorithmException | KeyManagementException | ParseException
+                | ClassCastException e) {
+            LOGGER.severe("SCIM2 bulk request failed : " + e.getMessage());
+            return failAll(users.size(), "500", e.getMessage());
+        } catch (CallNotPermittedException e) {
+            LOGGER.warning(e.getMessage());
+            return failAll(users.size(), "503", "temporarily_unavailable");
+        } catch (HttpStatusCodeException e) {
+            return failAll(users.size(), String.valueOf(e.getRawStatusCode()), e.getResponseBodyAsString());
+        } catch (RestClientException e) {
+            LOGGER.warning("SCIM2 bulk request failed : " + e.getMessage());
+            return failAll(users.size(), "502", e.getMessage());
+        }
+    }
+
+    /**
+     * Status of a bulk operation, either a code or an object holding the code.
+     */
+    private static Object getStatusCode(Object status) {
+
+        if (status instanceof JSONObject) {
+            return ((JSONObject) status).get("code");
+        }
+        return status;
+    }
+
+    private static List<JSONObject> failAll(int size, String status, String error) {
+
+        List<JSONObject> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            JSONObject result = new JSONObject();
+            result.put("status", status);
+            result.put("error", error);
+            results.add(result);
+        }
+        return results;
+    }
+
 }
@@ -63,17 +63,54 @@ public class CIBAParameters {
 
     private String grant_type = "urn:openid:params:grant-type:ciba";
 
-    public String getAUTHORIZE_ENDPOINT() {
+    public String getAUTHORIZE_PATH() {
 
-        return AUTHORIZE_ENDPOINT;
+        return AUTHORIZE_PATH;
     }
 
-    public void setAUTHORIZE_ENDPOINT(String AUTHORIZE_ENDPOINT) {
+    public void setAUTHORIZE_PATH(String AUTHORIZE_PATH) {
 
-        this.AUTHORIZE_ENDPOINT = AUTHORIZE_ENDPOINT;
+        this.AUTHORIZE_PATH = AUTHORIZE_PATH;
     }
 
-    private String AUTHORIZE_ENDPOINT = "https://localhost:9443/oauth2/authorize";
+    // Paths of the Identity server endpoints, relative to the base URL of an Identity server node.
+    private String AUTHORIZE_PATH = "/oauth2/authorize";
+
+    public String getTOKEN_PATH() {
+
+        return TOKEN_PATH;
+    }
+
+    public void setTOKEN_PATH(String TOKEN_PATH) {
+
+        this.TOKEN_PATH = TOKEN_PATH;
+    }
+
+    private String TOKEN_PATH = "/oauth2/token";
+
+    public String getSCIM_USERS_PATH() {
+
+        return SCIM_USERS_PATH;
+    }
+
+    public void setSCIM_USERS_PATH(String SCIM_USERS_PATH) {
+
+        this.SCIM_USERS_PATH = SCIM_USERS_PATH;
+    }
+
+    private String SCIM_USERS_PATH = "/scim2/Users";
+
+    public String getSCIM_BULK_PATH() {
+
+        return SCIM_BULK_PATH;
+    }
+
+    public void setSCIM_BULK_PATH(String SCIM_BULK_PATH) {
+
+        this.SCIM_BULK_PATH = SCIM_BULK_PATH;
+    }
+
+    private String SCIM_BULK_PATH = "/scim2/Bulk";
 
     private long token_expires_in = 3600;
 
@@ -178,6 +178,737 @@ public class ConfigHandler {
                     LOGGER.severe("Client Notification EndPoint can not be null");
                 }
 
+                if (tempConfig.getRedisHost() != null && !tempConfig.getRedisHost().isEmpty()) {
+                    // Configuring the Redis server used by the Redis store connector.
+                    ConfigurationFile.getInstance().setREDIS_HOST(tempConfig.getRedisHost());
+                }
+
+                try {
+                    if (tempConfig.getRedisPort() != null) {
+                        if (tempConfig.getRedisPort() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Configuring the port of the Redis server.
+                        ConfigurationFile.getInstance().setREDIS_PORT(tempConfig.getRedisPort());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Redis Port must be a positive number.");
+                }
+
+                if (tempConfig.getRedisPassword() != null && !tempConfig.getRedisPassword().isEmpty()) {
+                    // Configuring the password of the Redis server, if it requires one.
+                    ConfigurationFile.getInstance().setREDIS_PASSWORD(tempConfig.getRedisPassword());
+                }
+
+                if (tempConfig.getClientStoreConnectorType() != null &&
+                        !tempConfig.getClientStoreConnectorType().isEmpty()) {
+                    // Configuring the store of registered clients. Redis shares them across proxy nodes.
+                    ConfigurationFile.getInstance()
+                            .setCLIENT_STORE_CONNECTOR_TYPE(tempConfig.getClientStoreConnectorType());
+                }
+
+                try {
+                    if (tempConfig.getNearCacheMaxEntries() != null) {
+                        if (tempConfig.getNearCacheMaxEntries() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Configuring the number of clients and users cached in-process in front of Redis.
+                        ConfigurationFile.getInstance().setNEAR_CACHE_MAX_ENTRIES(tempConfig.getNearCacheMaxEntries());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Near Cache Max Entries must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getDbPoolMaxActive() != null) {
+                        if (tempConfig.getDbPoolMaxActive() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Configuring the maximum number of connections in the database pool.
+                        ConfigurationFile.getInstance().setDB_POOL_MAX_ACTIVE(tempConfig.getDbPoolMaxActive());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("DB Pool Max Active must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getDbPoolInitialSize() != null) {
+                        if (tempConfig.getDbPoolInitialSize() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Configuring the number of connections opened when the database pool starts.
+                        ConfigurationFile.getInstance().setDB_POOL_INITIAL_SIZE(tempConfig.getDbPoolInitialSize());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("DB Pool Initial Size must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getDbPoolMaxWait() != null) {
+                        if (tempConfig.getDbPoolMaxWait() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Configuring how long, in milliseconds, a request waits for a free database connection.
+                        ConfigurationFile.getInstance().setDB_POOL_MAX_WAIT(tempConfig.getDbPoolMaxWait());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("DB Pool Max Wait must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getDbPoolLeakTimeout() != null) {
+                        if (tempConfig.getDbPoolLeakTimeout() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Configuring after how many seconds a borrowed connection is considered leaked and reclaimed.
+                        ConfigurationFile.getInstance().setDB_POOL_LEAK_TIMEOUT(tempConfig.getDbPoolLeakTimeout());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("DB Pool Leak Timeout must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getDbStatementCacheSize() != null) {
+                        if (tempConfig.getDbStatementCacheSize() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Prepared statements cached per pooled connection.
+                        ConfigurationFile.getInstance()
+                                .setDB_STATEMENT_CACHE_SIZE(tempConfig.getDbStatementCacheSize());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("DB Statement Cache Size must be a positive number.");
+                }
+
+                if (tempConfig.getJdbcWriteMode() != null && !tempConfig.getJdbcWriteMode().isEmpty()) {
+                    if ("WriteThrough".equals(tempConfig.getJdbcWriteMode()) ||
+                            "WriteBehind".equals(tempConfig.getJdbcWriteMode())) {
+                        // WriteThrough or WriteBehind, for the JDBC artifact store.
+                        ConfigurationFile.getInstance().setJDBC_WRITE_MODE(tempConfig.getJdbcWriteMode());
+                    } else {
+                        LOGGER.severe("JDBC Write Mode must be WriteThrough or WriteBehind.");
+                    }
+                }
+
+                try {
+                    if (tempConfig.getWriteBehindFlushInterval() != null) {
+                        if (tempConfig.getWriteBehindFlushInterval() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Milliseconds between two flushes of pending writes.
+                        ConfigurationFile.getInstance()
+                                .setWRITE_BEHIND_FLUSH_INTERVAL(tempConfig.getWriteBehindFlushInterval());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Write Behind Flush Interval must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getWriteBehindBatchSize() != null) {
+                        if (tempConfig.getWriteBehindBatchSize() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Transactions written per database batch.
+                        ConfigurationFile.getInstance()
+                                .setWRITE_BEHIND_BATCH_SIZE(tempConfig.getWriteBehindBatchSize());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Write Behind Batch Size must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getWriteBehindMaxPending() != null) {
+                        if (tempConfig.getWriteBehindMaxPending() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Pending transactions after which writers flush synchronously.
+                        ConfigurationFile.getInstance()
+                                .setWRITE_BEHIND_MAX_PENDING(tempConfig.getWriteBehindMaxPending());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Write Behind Max Pending must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getReaperInterval() != null) {
+                        if (tempConfig.getReaperInterval() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Seconds between two runs of the JDBC expiry reaper.
+                        ConfigurationFile.getInstance().setREAPER_INTERVAL(tempConfig.getReaperInterval());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Reaper Interval must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getReaperBatchSize() != null) {
+                        if (tempConfig.getReaperBatchSize() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Expired transactions deleted per batch.
+                        ConfigurationFile.getInstance().setREAPER_BATCH_SIZE(tempConfig.getReaperBatchSize());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Reaper Batch Size must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getReaperBatchPause() != null) {
+                        if (tempConfig.getReaperBatchPause() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Milliseconds between two batches, giving replicas time to catch up.
+                        ConfigurationFile.getInstance().setREAPER_BATCH_PAUSE(tempConfig.getReaperBatchPause());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Reaper Batch Pause must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getHttpMaxConnectionsPerRoute() != null) {
+                        if (tempConfig.getHttpMaxConnectionsPerRoute() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Pooled connections per Identity server host.
+                        ConfigurationFile.getInstance()
+                                .setHTTP_MAX_CONNECTIONS_PER_ROUTE(tempConfig.getHttpMaxConnectionsPerRoute());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("HTTP Max Connections Per Route must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getHttpMaxConnections() != null) {
+                        if (tempConfig.getHttpMaxConnections() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Pooled connections to all hosts.
+                        ConfigurationFile.getInstance().setHTTP_MAX_CONNECTIONS(tempConfig.getHttpMaxConnections());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("HTTP Max Connections must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getHttpConnectTimeout() != null) {
+                        if (tempConfig.getHttpConnectTimeout() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Milliseconds to establish a connection.
+                        ConfigurationFile.getInstance().setHTTP_CONNECT_TIMEOUT(tempConfig.getHttpConnectTimeout());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("HTTP Connect Timeout must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getHttpReadTimeout() != null) {
+                        if (tempConfig.getHttpReadTimeout() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Milliseconds to wait for response data.
+                        ConfigurationFile.getInstance().setHTTP_READ_TIMEOUT(tempConfig.getHttpReadTimeout());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("HTTP Read Timeout must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getHttpIdleTimeout() != null) {
+                        if (tempConfig.getHttpIdleTimeout() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Seconds an idle connection is kept alive.
+                        ConfigurationFile.getInstance().setHTTP_IDLE_TIMEOUT(tempConfig.getHttpIdleTimeout());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("HTTP Idle Timeout must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getOutboundDispatchThreads() != null) {
+                        if (tempConfig.getOutboundDispatchThreads() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Threads running outbound calls to the Identity server.
+                        ConfigurationFile.getInstance()
+                                .setOUTBOUND_DISPATCH_THREADS(tempConfig.getOutboundDispatchThreads());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Outbound Dispatch Threads must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getOutboundQueueCapacity() != null) {
+                        if (tempConfig.getOutboundQueueCapacity() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Outbound calls waiting for a thread before new requests are rejected.
+                        ConfigurationFile.getInstance()
+                                .setOUTBOUND_QUEUE_CAPACITY(tempConfig.getOutboundQueueCapacity());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Outbound Queue Capacity must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getTokenExchangeRetries() != null) {
+                        if (tempConfig.getTokenExchangeRetries() < 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Retries of a token exchange that failed on a timeout or a server error.
+                        ConfigurationFile.getInstance().setTOKEN_EXCHANGE_RETRIES(tempConfig.getTokenExchangeRetries());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Token Exchange Retries must not be negative.");
+                }
+
+                try {
+                    if (tempConfig.getTokenExchangeBackoff() != null) {
+                        if (tempConfig.getTokenExchangeBackoff() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Milliseconds before the first retry, doubled on every further retry.
+                        ConfigurationFile.getInstance().setTOKEN_EXCHANGE_BACKOFF(tempConfig.getTokenExchangeBackoff());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Token Exchange Backoff must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getCircuitBreakerWindow() != null) {
+                        if (tempConfig.getCircuitBreakerWindow() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Number of recent Identity server calls the failure rate is computed over.
+                        ConfigurationFile.getInstance().setCIRCUIT_BREAKER_WINDOW(tempConfig.getCircuitBreakerWindow());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Circuit Breaker Window must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getCircuitBreakerFailureRate() != null) {
+                        if (tempConfig.getCircuitBreakerFailureRate() <= 0
+                                || tempConfig.getCircuitBreakerFailureRate() > 100) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Failure percentage at which calls to an Identity server endpoint stop.
+                        ConfigurationFile.getInstance()
+                                .setCIRCUIT_BREAKER_FAILURE_RATE(tempConfig.getCircuitBreakerFailureRate());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Circuit Breaker Failure Rate must be a percentage between 1 and 100.");
+                }
+
+                try {
+                    if (tempConfig.getCircuitBreakerOpenDuration() != null) {
+                        if (tempConfig.getCircuitBreakerOpenDuration() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Seconds an open circuit fails fast before a trial call.
+                        ConfigurationFile.getInstance()
+                                .setCIRCUIT_BREAKER_OPEN_DURATION(tempConfig.getCircuitBreakerOpenDuration());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Circuit Breaker Open Duration must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getAuthorizeMaxConcurrent() != null) {
+                        if (tempConfig.getAuthorizeMaxConcurrent() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Maximum concurrent authorize calls to the Identity server.
+                        ConfigurationFile.getInstance()
+                                .setAUTHORIZE_MAX_CONCURRENT(tempConfig.getAuthorizeMaxConcurrent());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Authorize Max Concurrent must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getAuthorizeTimeout() != null) {
+                        if (tempConfig.getAuthorizeTimeout() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Read timeout of authorize calls in milliseconds, covering the wait for the user's consent.
+                        ConfigurationFile.getInstance().setAUTHORIZE_TIMEOUT(tempConfig.getAuthorizeTimeout());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Authorize Timeout must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getTokenMaxConcurrent() != null) {
+                        if (tempConfig.getTokenMaxConcurrent() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Maximum concurrent token calls to the Identity server.
+                        ConfigurationFile.getInstance().setTOKEN_MAX_CONCURRENT(tempConfig.getTokenMaxConcurrent());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Token Max Concurrent must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getTokenTimeout() != null) {
+                        if (tempConfig.getTokenTimeout() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Read timeout of token calls in milliseconds.
+                        ConfigurationFile.getInstance().setTOKEN_TIMEOUT(tempConfig.getTokenTimeout());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Token Timeout must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getScimMaxConcurrent() != null) {
+                        if (tempConfig.getScimMaxConcurrent() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Maximum concurrent SCIM2 calls to the Identity server.
+                        ConfigurationFile.getInstance().setSCIM_MAX_CONCURRENT(tempConfig.getScimMaxConcurrent());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Scim Max Concurrent must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getScimTimeout() != null) {
+                        if (tempConfig.getScimTimeout() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Read timeout of SCIM2 calls in milliseconds.
+                        ConfigurationFile.getInstance().setSCIM_TIMEOUT(tempConfig.getScimTimeout());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Scim Timeout must be a positive number.");
+                }
+
+                if (tempConfig.getIdentityServerNodes() != null && !tempConfig.getIdentityServerNodes().isEmpty()) {
+                    // Comma separated base URLs of the Identity server nodes calls are balanced across.
+                    ConfigurationFile.getInstance().setIDENTITY_SERVER_NODES(tempConfig.getIdentityServerNodes());
+                }
+
+                if (tempConfig.getHealthCheckPath() != null && !tempConfig.getHealthCheckPath().isEmpty()) {
+                    // Path probed on every Identity server node to check that it is up.
+                    ConfigurationFile.getInstance().setHEALTH_CHECK_PATH(tempConfig.getHealthCheckPath());
+                }
+
+                try {
+                    if (tempConfig.getHealthCheckInterval() != null) {
+                        if (tempConfig.getHealthCheckInterval() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Seconds between health checks of the Identity server nodes.
+                        ConfigurationFile.getInstance().setHEALTH_CHECK_INTERVAL(tempConfig.getHealthCheckInterval());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Health Check Interval must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getAdaptiveLimitInitial() != null) {
+                        if (tempConfig.getAdaptiveLimitInitial() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Concurrency limit of token and SCIM2 calls before any round trip is measured.
+                        ConfigurationFile.getInstance().setADAPTIVE_LIMIT_INITIAL(tempConfig.getAdaptiveLimitInitial());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Adaptive Limit Initial must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getAdaptiveLimitMin() != null) {
+                        if (tempConfig.getAdaptiveLimitMin() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Lowest the adaptive concurrency limit can go.
+                        ConfigurationFile.getInstance().setADAPTIVE_LIMIT_MIN(tempConfig.getAdaptiveLimitMin());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Adaptive Limit Min must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getAdaptiveLimitSmoothing() != null) {
+                        if (tempConfig.getAdaptiveLimitSmoothing() <= 0
+                                || tempConfig.getAdaptiveLimitSmoothing() > 100) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Percentage of each new estimate taken into the adaptive concurrency limit.
+                        ConfigurationFile.getInstance()
+                                .setADAPTIVE_LIMIT_SMOOTHING(tempConfig.getAdaptiveLimitSmoothing());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Adaptive Limit Smoothing must be a percentage between 1 and 100.");
+                }
+
+                if (Boolean.TRUE.equals(tempConfig.getTokenHedging())) {
+                    // A code is single-use, so a second token request could get the tokens of the first revoked.
+                    LOGGER.warning("Token Hedging is no longer supported, token exchanges are not hedged.");
+                }
+
+                if (tempConfig.getHedgePercentile() != null || tempConfig.getHedgeMinDelay() != null
+                        || tempConfig.getHedgeBudget() != null) {
+                    LOGGER.warning("Hedge Percentile, Hedge Min Delay and Hedge Budget are no longer supported.");
+                }
+
+                try {
+                    if (tempConfig.getTlsSessionCacheSize() != null) {
+                        if (tempConfig.getTlsSessionCacheSize() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Number of TLS sessions kept for resuming connections to the Identity server.
+                        ConfigurationFile.getInstance().setTLS_SESSION_CACHE_SIZE(tempConfig.getTlsSessionCacheSize());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Tls Session Cache Size must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getTlsSessionTimeout() != null) {
+                        if (tempConfig.getTlsSessionTimeout() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Seconds a cached TLS session can be resumed for.
+                        ConfigurationFile.getInstance().setTLS_SESSION_TIMEOUT(tempConfig.getTlsSessionTimeout());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Tls Session Timeout must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getHttpPrewarmConnections() != null) {
+                        if (tempConfig.getHttpPrewarmConnections() < 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Connections kept open to every Identity server node ahead of calls, 0 to open them on demand.
+                        ConfigurationFile.getInstance()
+                                .setHTTP_PREWARM_CONNECTIONS(tempConfig.getHttpPrewarmConnections());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Http Prewarm Connections must not be negative.");
+                }
+
+                try {
+                    if (tempConfig.getScimBulkBatchSize() != null) {
+                        if (tempConfig.getScimBulkBatchSize() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Users sent to the Identity server in each SCIM2 bulk request.
+                        ConfigurationFile.getInstance().setSCIM_BULK_BATCH_SIZE(tempConfig.getScimBulkBatchSize());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Scim Bulk Batch Size must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getScimBulkParallelism() != null) {
+                        if (tempConfig.getScimBulkParallelism() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // SCIM2 bulk requests sent to the Identity server at once.
+                        ConfigurationFile.getInstance().setSCIM_BULK_PARALLELISM(tempConfig.getScimBulkParallelism());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Scim Bulk Parallelism must be a positive number.");
+                }
+
+                if (tempConfig.getRuntimeMode() != null && !tempConfig.getRuntimeMode().isEmpty()) {
+                    if ("Servlet".equals(tempConfig.getRuntimeMode()) ||
+                            "Reactive".equals(tempConfig.getRuntimeMode())) {
+                        // Servlet or Reactive, the web runtime serving the proxy endpoints.
+                        ConfigurationFile.getInstance().setRUNTIME_MODE(tempConfig.getRuntimeMode());
+                    } else {
+                        LOGGER.severe("Runtime Mode must be Servlet or Reactive.");
+                    }
+                }
+
+                if (tempConfig.getThreadMode() != null && !tempConfig.getThreadMode().isEmpty()) {
+                    if ("Platform".equals(tempConfig.getThreadMode()) ||
+                            "Virtual".equals(tempConfig.getThreadMode())) {
+                        // Platform or Virtual, the threads running blocking handler, store and Identity server work.
+                        ConfigurationFile.getInstance().setTHREAD_MODE(tempConfig.getThreadMode());
+                    } else {
+                        LOGGER.severe("Thread Mode must be Platform or Virtual.");
+                    }
+                }
+
+                if (tempConfig.getTokenLongPoll() != null) {
+                    // Holding a pending token request until its token arrives, instead of answering at once.
+                    ConfigurationFile.getInstance().setTOKEN_LONG_POLL(tempConfig.getTokenLongPoll());
+                }
+
+                try {
+                    if (tempConfig.getLongPollTimeout() != null) {
+                        if (tempConfig.getLongPollTimeout() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Milliseconds a long polled token request waits for the token.
+                        ConfigurationFile.getInstance().setLONG_POLL_TIMEOUT(tempConfig.getLongPollTimeout());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Long Poll Timeout must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getLongPollMaxWaiting() != null) {
+                        if (tempConfig.getLongPollMaxWaiting() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Token requests held at once, further requests are answered at once.
+                        ConfigurationFile.getInstance().setLONG_POLL_MAX_WAITING(tempConfig.getLongPollMaxWaiting());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Long Poll Max Waiting must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getNotificationThreads() != null) {
+                        if (tempConfig.getNotificationThreads() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Threads delivering ping notifications to clients.
+                        ConfigurationFile.getInstance().setNOTIFICATION_THREADS(tempConfig.getNotificationThreads());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Notification Threads must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getNotificationQueueCapacity() != null) {
+                        if (tempConfig.getNotificationQueueCapacity() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Ping notifications waiting for a delivery thread.
+                        ConfigurationFile.getInstance()
+                                .setNOTIFICATION_QUEUE_CAPACITY(tempConfig.getNotificationQueueCapacity());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Notification Queue Capacity must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getNotificationMaxConcurrent() != null) {
+                        if (tempConfig.getNotificationMaxConcurrent() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Ping notifications in flight to one client notification endpoint.
+                        ConfigurationFile.getInstance()
+                                .setNOTIFICATION_MAX_CONCURRENT(tempConfig.getNotificationMaxConcurrent());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Notification Max Concurrent must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getNotificationTimeout() != null) {
+                        if (tempConfig.getNotificationTimeout() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Read timeout in milliseconds of a ping notification.
+                        ConfigurationFile.getInstance().setNOTIFICATION_TIMEOUT(tempConfig.getNotificationTimeout());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Notification Timeout must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getNotificationRetries() != null) {
+                        if (tempConfig.getNotificationRetries() < 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Retries of a ping notification before it is dead lettered.
+                        ConfigurationFile.getInstance().setNOTIFICATION_RETRIES(tempConfig.getNotificationRetries());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Notification Retries must not be negative.");
+                }
+
+                try {
+                    if (tempConfig.getNotificationBackoff() != null) {
+                        if (tempConfig.getNotificationBackoff() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Base delay in milliseconds before retrying a ping notification, doubled on every retry.
+                        ConfigurationFile.getInstance().setNOTIFICATION_BACKOFF(tempConfig.getNotificationBackoff());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Notification Backoff must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getNotificationDeadLetterCapacity() != null) {
+                        if (tempConfig.getNotificationDeadLetterCapacity() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Undelivered ping notifications kept for inspection and redelivery.
+                        ConfigurationFile.getInstance()
+                                .setNOTIFICATION_DEAD_LETTER_CAPACITY(tempConfig.getNotificationDeadLetterCapacity());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Notification Dead Letter Capacity must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getTokenExchangeThreads() != null) {
+                        if (tempConfig.getTokenExchangeThreads() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Threads exchanging authorization codes for tokens, apart from the authorize calls.
+                        ConfigurationFile.getInstance().setTOKEN_EXCHANGE_THREADS(tempConfig.getTokenExchangeThreads());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Token Exchange Threads must be a positive number.");
+                }
+
+                try {
+                    if (tempConfig.getTokenExchangeQueueCapacity() != null) {
+                        if (tempConfig.getTokenExchangeQueueCapacity() <= 0) {
+                            throw new IllegalArgumentException();
+                        }
+                        // Token exchanges waiting for a thread, further ones run on the thread that received the code.
+                        ConfigurationFile.getInstance()
+                                .setTOKEN_EXCHANGE_QUEUE_CAPACITY(tempConfig.getTokenExchangeQueueCapacity());
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.severe("Token Exchange Queue Capacity must be a positive number.");
+                }
+
+                if (tempConfig.getUserStoreConnectorType() != null &&
+                        !tempConfig.getUserStoreConnectorType().isEmpty()) {
+                    // Configuring the store of registered users. Redis shares them across proxy nodes.
+                    ConfigurationFile.getInstance()
+                            .setUSER_STORE_CONNECTOR_TYPE(tempConfig.getUserStoreConnectorType());
+                }
+
+                if (tempConfig.getRequireRegistration() != null) {
+                    // Turning away authentication requests from unregistered clients or for unregistered users.
+                    ConfigurationFile.getInstance().setREQUIRE_REGISTRATION(tempConfig.getRequireRegistration());
+                }
+
+                if (tempConfig.getManagementToken() != null && !tempConfig.getManagementToken().isEmpty()) {
+                    // Secret the operator presents as a bearer token to the management endpoints.
+                    ConfigurationFile.getInstance().setMANAGEMENT_TOKEN(tempConfig.getManagementToken());
+                }
+
+                String trustStore = tempConfig.getIdentityServerTrustStore();
+                if (trustStore != null && !trustStore.isEmpty()) {
+                    // Trust store the Identity server certificate is verified against, the JVM's by default.
+                    ConfigurationFile.getInstance().setIDENTITY_SERVER_TRUST_STORE(trustStore);
+                }
+
+                String trustStorePassword = tempConfig.getIdentityServerTrustStorePassword();
+                if (trustStorePassword != null && !trustStorePassword.isEmpty()) {
+                    // Password of the Identity server trust store.
+                    ConfigurationFile.getInstance().setIDENTITY_SERVER_TRUST_STORE_PASSWORD(trustStorePassword);
+                }
+
                 // this.setConfiguration();
 
                 try {
@@ -59,6 +59,71 @@ public class ConfigurationFile {
     private String DATABASE;
     private String FLOW_MODE;
     private String CLIENT_NOTIFICATION_ENDPOINT;
+    private String REDIS_HOST = "localhost";
+    private int REDIS_PORT = 6379;
+    private String REDIS_PASSWORD;
+    private String CLIENT_STORE_CONNECTOR_TYPE = "InMemoryCache";
+    private int NEAR_CACHE_MAX_ENTRIES = 10000;
+    private int DB_POOL_MAX_ACTIVE = 50;
+    private int DB_POOL_INITIAL_SIZE = 10;
+    private int DB_POOL_MAX_WAIT = 10000;
+    private int DB_POOL_LEAK_TIMEOUT = 60;
+    private int DB_STATEMENT_CACHE_SIZE = 100;
+    private String JDBC_WRITE_MODE = "WriteThrough";
+    private int WRITE_BEHIND_FLUSH_INTERVAL = 200;
+    private int WRITE_BEHIND_BATCH_SIZE = 500;
+    private int WRITE_BEHIND_MAX_PENDING = 10000;
+    private int REAPER_INTERVAL = 60;
+    private int REAPER_BATCH_SIZE = 500;
+    private int REAPER_BATCH_PAUSE = 100;
+    private int HTTP_MAX_CONNECTIONS_PER_ROUTE = 50;
+    private int HTTP_MAX_CONNECTIONS = 200;
+    private int HTTP_CONNECT_TIMEOUT = 5000;
+    private int HTTP_READ_TIMEOUT = 30000;
+    private int HTTP_IDLE_TIMEOUT = 30;
+    private int OUTBOUND_DISPATCH_THREADS = 50;
+    private int OUTBOUND_QUEUE_CAPACITY = 1000;
+    private int TOKEN_EXCHANGE_RETRIES = 3;
+    private int TOKEN_EXCHANGE_BACKOFF = 500;
+    private int CIRCUIT_BREAKER_WINDOW = 20;
+    private int CIRCUIT_BREAKER_FAILURE_RATE = 50;
+    private int CIRCUIT_BREAKER_OPEN_DURATION = 30;
+    private int AUTHORIZE_MAX_CONCURRENT = 50;
+    private int AUTHORIZE_TIMEOUT = 300000;
+    private int TOKEN_MAX_CONCURRENT = 20;
+    private int TOKEN_TIMEOUT = 10000;
+    private int SCIM_MAX_CONCURRENT = 10;
+    private int SCIM_TIMEOUT = 10000;
+    private String IDENTITY_SERVER_NODES = "https://localhost:9443";
+    private String HEALTH_CHECK_PATH = "/oauth2/jwks";
+    private int HEALTH_CHECK_INTERVAL = 10;
+    private int ADAPTIVE_LIMIT_INITIAL = 10;
+    private int ADAPTIVE_LIMIT_MIN = 2;
+    private int ADAPTIVE_LIMIT_SMOOTHING = 20;
+    private int TLS_SESSION_CACHE_SIZE = 1000;
+    private int TLS_SESSION_TIMEOUT = 3600;
+    private int HTTP_PREWARM_CONNECTIONS = 2;
+    private int SCIM_BULK_BATCH_SIZE = 100;
+    private int SCIM_BULK_PARALLELISM = 4;
+    private String RUNTIME_MODE = "Servlet";
+    private String THREAD_MODE = "Platform";
+    private boolean TOKEN_LONG_POLL = false;
+    private int LONG_POLL_TIMEOUT = 20000;
+    private int LONG_POLL_MAX_WAITING = 10000;
+    private int NOTIFICATION_THREADS = 4;
+    private int NOTIFICATION_QUEUE_CAPACITY = 1000;
+    private int NOTIFICATION_MAX_CONCURRENT = 10;
+    private int NOTIFICATION_TIMEOUT = 5000;
+    private int NOTIFICATION_RETRIES = 5;
+    private int NOTIFICATION_BACKOFF = 1000;
+    private int NOTIFICATION_DEAD_LETTER_CAPACITY = 1000;
+    private int TOKEN_EXCHANGE_THREADS = 10;
+    private int TOKEN_EXCHANGE_QUEUE_CAPACITY = 100;
+    private String USER_STORE_CONNECTOR_TYPE;
+    private boolean REQUIRE_REGISTRATION = false;
+    private String MANAGEMENT_TOKEN;
+    private String IDENTITY_SERVER_TRUST_STORE;
+    private String IDENTITY_SERVER_TRUST_STORE_PASSWORD;
 
     public String getCLIENT_NOTIFICATION_ENDPOINT() {
 
@@ -184,4 +249,655 @@ public class ConfigurationFile {
         // System.out.println("Sec token here :"+SEC_TOKEN);
     }
 
+    public String getREDIS_HOST() {
+
+        return REDIS_HOST;
+    }
+
+    public void setREDIS_HOST(String REDIS_HOST) {
+
+        this.REDIS_HOST = REDIS_HOST;
+    }
+
+    public int getREDIS_PORT() {
+
+        return REDIS_PORT;
+    }
+
+    public void setREDIS_PORT(int REDIS_PORT) {
+
+        this.REDIS_PORT = REDIS_PORT;
+    }
+
+    public String getREDIS_PASSWORD() {
+
+        return REDIS_PASSWORD;
+    }
+
+    public void setREDIS_PASSWORD(String REDIS_PASSWORD) {
+
+        this.REDIS_PASSWORD = REDIS_PASSWORD;
+    }
+
+    public String getCLIENT_STORE_CONNECTOR_TYPE() {
+
+        return CLIENT_STORE_CONNECTOR_TYPE;
+    }
+
+    public void setCLIENT_STORE_CONNECTOR_TYPE(String CLIENT_STORE_CONNECTOR_TYPE) {
+
+        this.CLIENT_STORE_CONNECTOR_TYPE = CLIENT_STORE_CONNECTOR_TYPE;
+    }
+
+    public int getNEAR_CACHE_MAX_ENTRIES() {
+
+        return NEAR_CACHE_MAX_ENTRIES;
+    }
+
+    public void setNEAR_CACHE_MAX_ENTRIES(int NEAR_CACHE_MAX_ENTRIES) {
+
+        this.NEAR_CACHE_MAX_ENTRIES = NEAR_CACHE_MAX_ENTRIES;
+    }
+
+    public int getDB_POOL_MAX_ACTIVE() {
+
+        return DB_POOL_MAX_ACTIVE;
+    }
+
+    public void setDB_POOL_MAX_ACTIVE(int DB_POOL_MAX_ACTIVE) {
+
+        this.DB_POOL_MAX_ACTIVE = DB_POOL_MAX_ACTIVE;
+    }
+
+    public int getDB_POOL_INITIAL_SIZE() {
+
+        return DB_POOL_INITIAL_SIZE;
+    }
+
+    public void setDB_POOL_INITIAL_SIZE(int DB_POOL_INITIAL_SIZE) {
+
+        this.DB_POOL_INITIAL_SIZE = DB_POOL_INITIAL_SIZE;
+    }
+
+    public int getDB_POOL_MAX_WAIT() {
+
+        return DB_POOL_MAX_WAIT;
+    }
+
+    public void setDB_POOL_MAX_WAIT(int DB_POOL_MAX_WAIT) {
+
+        this.DB_POOL_MAX_WAIT = DB_POOL_MAX_WAIT;
+    }
+
+    public int getDB_POOL_LEAK_TIMEOUT() {
+
+        return DB_POOL_LEAK_TIMEOUT;
+    }
+
+    public void setDB_POOL_LEAK_TIMEOUT(int DB_POOL_LEAK_TIMEOUT) {
+
+        this.DB_POOL_LEAK_TIMEOUT = DB_POOL_LEAK_TIMEOUT;
+    }
+
+    public int getDB_STATEMENT_CACHE_SIZE() {
+
+        return DB_STATEMENT_CACHE_SIZE;
+    }
+
+    public void setDB_STATEMENT_CACHE_SIZE(int DB_STATEMENT_CACHE_SIZE) {
+
+        this.DB_STATEMENT_CACHE_SIZE = DB_STATEMENT_CACHE_SIZE;
+    }
+
+    public String getJDBC_WRITE_MODE() {
+
+        return JDBC_WRITE_MODE;
+    }
+
+    public void setJDBC_WRITE_MODE(String JDBC_WRITE_MODE) {
+
+        this.JDBC_WRITE_MODE = JDBC_WRITE_MODE;
+    }
+
+    public int getWRITE_BEHIND_FLUSH_INTERVAL() {
+
+        return WRITE_BEHIND_FLUSH_INTERVAL;
+    }
+
+    public void setWRITE_BEHIND_FLUSH_INTERVAL(int WRITE_BEHIND_FLUSH_INTERVAL) {
+
+        this.WRITE_BEHIND_FLUSH_INTERVAL = WRITE_BEHIND_FLUSH_INTERVAL;
+    }
+
+    public int getWRITE_BEHIND_BATCH_SIZE() {
+
+        return WRITE_BEHIND_BATCH_SIZE;
+    }
+
+    public void setWRITE_BEHIND_BATCH_SIZE(int WRITE_BEHIND_BATCH_SIZE) {
+
+        this.WRITE_BEHIND_BATCH_SIZE = WRITE_BEHIND_BATCH_SIZE;
+    }
+
+    public int getWRITE_BEHIND_MAX_PENDING() {
+
+        return WRITE_BEHIND_MAX_PENDING;
+    }
+
+    public void setWRITE_BEHIND_MAX_PENDING(int WRITE_BEHIND_MAX_PENDING) {
+
+        this.WRITE_BEHIND_MAX_PENDING = WRITE_BEHIND_MAX_PENDING;
+    }
+
+    public int getREAPER_INTERVAL() {
+
+        return REAPER_INTERVAL;
+    }
+
+    public void setREAPER_INTERVAL(int REAPER_INTERVAL) {
+
+        this.REAPER_INTERVAL = REAPER_INTERVAL;
+    }
+
+    public int getREAPER_BATCH_SIZE() {
+
+        return REAPER_BATCH_SIZE;
+    }
+
+    public void setREAPER_BATCH_SIZE(int REAPER_BATCH_SIZE) {
+
+        this.REAPER_BATCH_SIZE = REAPER_BATCH_SIZE;
+    }
+
+    public int getREAPER_BATCH_PAUSE() {
+
+        return REAPER_BATCH_PAUSE;
+    }
+
+    public void setREAPER_BATCH_PAUSE(int REAPER_BATCH_PAUSE) {
+
+        this.REAPER_BATCH_PAUSE = REAPER_BATCH_PAUSE;
+    }
+
+    public int getHTTP_MAX_CONNECTIONS_PER_ROUTE() {
+
+        return HTTP_MAX_CONNECTIONS_PER_ROUTE;
+    }
+
+    public void setHTTP_MAX_CONNECTIONS_PER_ROUTE(int HTTP_MAX_CONNECTIONS_PER_ROUTE) {
+
+        this.HTTP_MAX_CONNECTIONS_PER_ROUTE = HTTP_MAX_CONNECTIONS_PER_ROUTE;
+    }
+
+    public int getHTTP_MAX_CONNECTIONS() {
+
+        return HTTP_MAX_CONNECTIONS;
+    }
+
+    public void setHTTP_MAX_CONNECTIONS(int HTTP_MAX_CONNECTIONS) {
+
+        this.HTTP_MAX_CONNECTIONS = HTTP_MAX_CONNECTIONS;
+    }
+
+    public int getHTTP_CONNECT_TIMEOUT() {
+
+        return HTTP_CONNECT_TIMEOUT;
+    }
+
+    public void setHTTP_CONNECT_TIMEOUT(int HTTP_CONNECT_TIMEOUT) {
+
+        this.HTTP_CONNECT_TIMEOUT = HTTP_CONNECT_TIMEOUT;
+    }
+
+    public int getHTTP_READ_TIMEOUT() {
+
+        return HTTP_READ_TIMEOUT;
+    }
+
+    public void setHTTP_READ_TIMEOUT(int HTTP_READ_TIMEOUT) {
+
+        this.HTTP_READ_TIMEOUT = HTTP_READ_TIMEOUT;
+    }
+
+    public int getHTTP_IDLE_TIMEOUT() {
+
+        return HTTP_IDLE_TIMEOUT;
+    }
+
+    public void setHTTP_IDLE_TIMEOUT(int HTTP_IDLE_TIMEOUT) {
+
+        this.HTTP_IDLE_TIMEOUT = HTTP_IDLE_TIMEOUT;
+    }
+
+    public int getOUTBOUND_DISPATCH_THREADS() {
+
+        return OUTBOUND_DISPATCH_THREADS;
+    }
+
+    public void setOUTBOUND_DISPATCH_THREADS(int OUTBOUND_DISPATCH_THREADS) {
+
+        this.OUTBOUND_DISPATCH_THREADS = OUTBOUND_DISPATCH_THREADS;
+    }
+
+    public int getOUTBOUND_QUEUE_CAPACITY() {
+
+        return OUTBOUND_QUEUE_CAPACITY;
+    }
+
+    public void setOUTBOUND_QUEUE_CAPACITY(int OUTBOUND_QUEUE_CAPACITY) {
+
+        this.OUTBOUND_QUEUE_CAPACITY = OUTBOUND_QUEUE_CAPACITY;
+    }
+
+    public int getTOKEN_EXCHANGE_RETRIES() {
+
+        return TOKEN_EXCHANGE_RETRIES;
+    }
+
+    public void setTOKEN_EXCHANGE_RETRIES(int TOKEN_EXCHANGE_RETRIES) {
+
+        this.TOKEN_EXCHANGE_RETRIES = TOKEN_EXCHANGE_RETRIES;
+    }
+
+    public int getTOKEN_EXCHANGE_BACKOFF() {
+
+        return TOKEN_EXCHANGE_BACKOFF;
+    }
+
+    public void setTOKEN_EXCHANGE_BACKOFF(int TOKEN_EXCHANGE_BACKOFF) {
+
+        this.TOKEN_EXCHANGE_BACKOFF = TOKEN_EXCHANGE_BACKOFF;
+    }
+
+    public int getCIRCUIT_BREAKER_WINDOW() {
+
+        return CIRCUIT_BREAKER_WINDOW;
+    }
+
+    public void setCIRCUIT_BREAKER_WINDOW(int CIRCUIT_BREAKER_WINDOW) {
+
+        this.CIRCUIT_BREAKER_WINDOW = CIRCUIT_BREAKER_WINDOW;
+    }
+
+    public int getCIRCUIT_BREAKER_FAILURE_RATE() {
+
+        return CIRCUIT_BREAKER_FAILURE_RATE;
+    }
+
+    public void setCIRCUIT_BREAKER_FAILURE_RATE(int CIRCUIT_BREAKER_FAILURE_RATE) {
+
+        this.CIRCUIT_BREAKER_FAILURE_RATE = CIRCUIT_BREAKER_FAILURE_RATE;
+    }
+
+    public int getCIRCUIT_BREAKER_OPEN_DURATION() {
+
+        return CIRCUIT_BREAKER_OPEN_DURATION;
+    }
+
+    public void setCIRCUIT_BREAKER_OPEN_DURATION(int CIRCUIT_BREAKER_OPEN_DURATION) {
+
+        this.CIRCUIT_BREAKER_OPEN_DURATION = CIRCUIT_BREAKER_OPEN_DURATION;
+    }
+
+    public int getAUTHORIZE_MAX_CONCURRENT() {
+
+        return AUTHORIZE_MAX_CONCURRENT;
+    }
+
+    public void setAUTHORIZE_MAX_CONCURRENT(int AUTHORIZE_MAX_CONCURRENT) {
+
+        this.AUTHORIZE_MAX_CONCURRENT = AUTHORIZE_MAX_CONCURRENT;
+    }
+
+    public int getAUTHORIZE_TIMEOUT() {
+
+        return AUTHORIZE_TIMEOUT;
+    }
+
+    public void setAUTHORIZE_TIMEOUT(int AUTHORIZE_TIMEOUT) {
+
+        this.AUTHORIZE_TIMEOUT = AUTHORIZE_TIMEOUT;
+    }
+
+    public int getTOKEN_MAX_CONCURRENT() {
+
+        return TOKEN_MAX_CONCURRENT;
+    }
+
+    public void setTOKEN_MAX_CONCURRENT(int TOKEN_MAX_CONCURRENT) {
+
+        this.TOKEN_MAX_CONCURRENT = TOKEN_MAX_CONCURRENT;
+    }
+
+    public int getTOKEN_TIMEOUT() {
+
+        return TOKEN_TIMEOUT;
+    }
+
+    public void setTOKEN_TIMEOUT(int TOKEN_TIMEOUT) {
+
+        this.TOKEN_TIMEOUT = TOKEN_TIMEOUT;
+    }
+
+    public int getSCIM_MAX_CONCURRENT() {
+
+        return SCIM_MAX_CONCURRENT;
+    }
+
+    public void setSCIM_MAX_CONCURRENT(int SCIM_MAX_CONCURRENT) {
+
+        this.SCIM_MAX_CONCURRENT = SCIM_MAX_CONCURRENT;
+    }
+
+    public int getSCIM_TIMEOUT() {
+
+        return SCIM_TIMEOUT;
+    }
+
+    public void setSCIM_TIMEOUT(int SCIM_TIMEOUT) {
+
+        this.SCIM_TIMEOUT = SCIM_TIMEOUT;
+    }
+
+    public String getIDENTITY_SERVER_NODES() {
+
+        return IDENTITY_SERVER_NODES;
+    }
+
+    public void setIDENTITY_SERVER_NODES(String IDENTITY_SERVER_NODES) {
+
+        this.IDENTITY_SERVER_NODES = IDENTITY_SERVER_NODES;
+    }
+
+    public String getHEALTH_CHECK_PATH() {
+
+        return HEALTH_CHECK_PATH;
+    }
+
+    public void setHEALTH_CHECK_PATH(String HEALTH_CHECK_PATH) {
+
+        this.HEALTH_CHECK_PATH = HEALTH_CHECK_PATH;
+    }
+
+    public int getHEALTH_CHECK_INTERVAL() {
+
+        return HEALTH_CHECK_INTERVAL;
+    }
+
+    public void setHEALTH_CHECK_INTERVAL(int HEALTH_CHECK_INTERVAL) {
+
+        this.HEALTH_CHECK_INTERVAL = HEALTH_CHECK_INTERVAL;
+    }
+
+    public int getADAPTIVE_LIMIT_INITIAL() {
+
+        return ADAPTIVE_LIMIT_INITIAL;
+    }
+
+    public void setADAPTIVE_LIMIT_INITIAL(int ADAPTIVE_LIMIT_INITIAL) {
+
+        this.ADAPTIVE_LIMIT_INITIAL = ADAPTIVE_LIMIT_INITIAL;
+    }
+
+    public int getADAPTIVE_LIMIT_MIN() {
+
+        return ADAPTIVE_LIMIT_MIN;
+    }
+
+    public void setADAPTIVE_LIMIT_MIN(int ADAPTIVE_LIMIT_MIN) {
+
+        this.ADAPTIVE_LIMIT_MIN = ADAPTIVE_LIMIT_MIN;
+    }
+
+    public int getADAPTIVE_LIMIT_SMOOTHING() {
+
+        return ADAPTIVE_LIMIT_SMOOTHING;
+    }
+
+    public void setADAPTIVE_LIMIT_SMOOTHING(int ADAPTIVE_LIMIT_SMOOTHING) {
+
+        this.ADAPTIVE_LIMIT_SMOOTHING = ADAPTIVE_LIMIT_SMOOTHING;
+    }
+
+    public int getTLS_SESSION_CACHE_SIZE() {
+
+        return TLS_SESSION_CACHE_SIZE;
+    }
+
+    public void setTLS_SESSION_CACHE_SIZE(int TLS_SESSION_CACHE_SIZE) {
+
+        this.TLS_SESSION_CACHE_SIZE = TLS_SESSION_CACHE_SIZE;
+    }
+
+    public int getTLS_SESSION_TIMEOUT() {
+
+        return TLS_SESSION_TIMEOUT;
+    }
+
+    public void setTLS_SESSION_TIMEOUT(int TLS_SESSION_TIMEOUT) {
+
+        this.TLS_SESSION_TIMEOUT = TLS_SESSION_TIMEOUT;
+    }
+
+    public int getHTTP_PREWARM_CONNECTIONS() {
+
+        return HTTP_PREWARM_CONNECTIONS;
+    }
+
+    public void setHTTP_PREWARM_CONNECTIONS(int HTTP_PREWARM_CONNECTIONS) {
+
+        this.HTTP_PREWARM_CONNECTIONS = HTTP_PREWARM_CONNECTIONS;
+    }
+
+    public int getSCIM_BULK_BATCH_SIZE() {
+
+        return SCIM_BULK_BATCH_SIZE;
+    }
+
+    public void setSCIM_BULK_BATCH_SIZE(int SCIM_BULK_BATCH_SIZE) {
+
+        this.SCIM_BULK_BATCH_SIZE = SCIM_BULK_BATCH_SIZE;
+    }
+
+    public int getSCIM_BULK_PARALLELISM() {
+
+        return SCIM_BULK_PARALLELISM;
+    }
+
+    public void setSCIM_BULK_PARALLELISM(int SCIM_BULK_PARALLELISM) {
+
+        this.SCIM_BULK_PARALLELISM = SCIM_BULK_PARALLELISM;
+    }
+
+    public String getRUNTIME_MODE() {
+
+        return RUNTIME_MODE;
+    }
+
+    public void setRUNTIME_MODE(String RUNTIME_MODE) {
+
+        this.RUNTIME_MODE = RUNTIME_MODE;
+    }
+
+    public String getTHREAD_MODE() {
+
+        return THREAD_MODE;
+    }
+
+    public void setTHREAD_MODE(String THREAD_MODE) {
+
+        this.THREAD_MODE = THREAD_MODE;
+    }
+
+    public boolean getTOKEN_LONG_POLL() {
+
+        return TOKEN_LONG_POLL;
+    }
+
+    public void setTOKEN_LONG_POLL(boolean TOKEN_LONG_POLL) {
+
+        this.TOKEN_LONG_POLL = TOKEN_LONG_POLL;
+    }
+
+    public int getLONG_POLL_TIMEOUT() {
+
+        return LONG_POLL_TIMEOUT;
+    }
+
+    public void setLONG_POLL_TIMEOUT(int LONG_POLL_TIMEOUT) {
+
+        this.LONG_POLL_TIMEOUT = LONG_POLL_TIMEOUT;
+    }
+
+    public int getLONG_POLL_MAX_WAITING() {
+
+        return LONG_POLL_MAX_WAITING;
+    }
+
+    public void setLONG_POLL_MAX_WAITING(int LONG_POLL_MAX_WAITING) {
+
+        this.LONG_POLL_MAX_WAITING = LONG_POLL_MAX_WAITING;
+    }
+
+    public int getNOTIFICATION_THREADS() {
+
+        return NOTIFICATION_THREADS;
+    }
+
+    public void setNOTIFICATION_THREADS(int NOTIFICATION_THREADS) {
+
+        this.NOTIFICATION_THREADS = NOTIFICATION_THREADS;
+    }
+
+    public int getNOTIFICATION_QUEUE_CAPACITY() {
+
+        return NOTIFICATION_QUEUE_CAPACITY;
+    }
+
+    public void setNOTIFICATION_QUEUE_CAPACITY(int NOTIFICATION_QUEUE_CAPACITY) {
+
+        this.NOTIFICATION_QUEUE_CAPACITY = NOTIFICATION_QUEUE_CAPACITY;
+    }
+
+    public int getNOTIFICATION_MAX_CONCURRENT() {
+
+        return NOTIFICATION_MAX_CONCURRENT;
+    }
+
+    public void setNOTIFICATION_MAX_CONCURRENT(int NOTIFICATION_MAX_CONCURRENT) {
+
+        this.NOTIFICATION_MAX_CONCURRENT = NOTIFICATION_MAX_CONCURRENT;
+    }
+
+    public int getNOTIFICATION_TIMEOUT() {
+
+        return NOTIFICATION_TIMEOUT;
+    }
+
+    public void setNOTIFICATION_TIMEOUT(int NOTIFICATION_TIMEOUT) {
+
+        this.NOTIFICATION_TIMEOUT = NOTIFICATION_TIMEOUT;
+    }
+
+    public int getNOTIFICATION_RETRIES() {
+
+        return NOTIFICATION_RETRIES;
+    }
+
+    public void setNOTIFICATION_RETRIES(int NOTIFICATION_RETRIES) {
+
+        this.NOTIFICATION_RETRIES = NOTIFICATION_RETRIES;
+    }
+
+    public int getNOTIFICATION_BACKOFF() {
+
+        return NOTIFICATION_BACKOFF;
+    }
+
+    public void setNOTIFICATION_BACKOFF(int NOTIFICATION_BACKOFF) {
+
+        this.NOTIFICATION_BACKOFF = NOTIFICATION_BACKOFF;
+    }
+
+    public int getNOTIFICATION_DEAD_LETTER_CAPACITY() {
+
+        return NOTIFICATION_DEAD_LETTER_CAPACITY;
+    }
+
+    public void setNOTIFICATION_DEAD_LETTER_CAPACITY(int NOTIFICATION_DEAD_LETTER_CAPACITY) {
+
+        this.NOTIFICATION_DEAD_LETTER_CAPACITY = NOTIFICATION_DEAD_LETTER_CAPACITY;
+    }
+
+    public int getTOKEN_EXCHANGE_THREADS() {
+
+        return TOKEN_EXCHANGE_THREADS;
+    }
+
+    public void setTOKEN_EXCHANGE_THREADS(int TOKEN_EXCHANGE_THREADS) {
+
+        this.TOKEN_EXCHANGE_THREADS = TOKEN_EXCHANGE_THREADS;
+    }
+
+    public int getTOKEN_EXCHANGE_QUEUE_CAPACITY() {
+
+        return TOKEN_EXCHANGE_QUEUE_CAPACITY;
+    }
+
+    public void setTOKEN_EXCHANGE_QUEUE_CAPACITY(int TOKEN_EXCHANGE_QUEUE_CAPACITY) {
+
+        this.TOKEN_EXCHANGE_QUEUE_CAPACITY = TOKEN_EXCHANGE_QUEUE_CAPACITY;
+    }
+
+    public String getUSER_STORE_CONNECTOR_TYPE() {
+
+        // Users are kept in the client store unless a store of their own is configured.
+        return USER_STORE_CONNECTOR_TYPE != null ? USER_STORE_CONNECTOR_TYPE : CLIENT_STORE_CONNECTOR_TYPE;
+    }
+
+    public void setUSER_STORE_CONNECTOR_TYPE(String USER_STORE_CONNECTOR_TYPE) {
+
+        this.USER_STORE_CONNECTOR_TYPE = USER_STORE_CONNECTOR_TYPE;
+    }
+
+    public boolean getREQUIRE_REGISTRATION() {
+
+        return REQUIRE_REGISTRATION;
+    }
+
+    public void setREQUIRE_REGISTRATION(boolean REQUIRE_REGISTRATION) {
+
+        this.REQUIRE_REGISTRATION = REQUIRE_REGISTRATION;
+    }
+
+    public String getMANAGEMENT_TOKEN() {
+
+        return MANAGEMENT_TOKEN;
+    }
+
+    public void setMANAGEMENT_TOKEN(String MANAGEMENT_TOKEN) {
+
+        this.MANAGEMENT_TOKEN = MANAGEMENT_TOKEN;
+    }
+
+    public String getIDENTITY_SERVER_TRUST_STORE() {
+
+        return IDENTITY_SERVER_TRUST_STORE;
+    }
+
+    public void setIDENTITY_SERVER_TRUST_STORE(String IDENTITY_SERVER_TRUST_STORE) {
+
+        this.IDENTITY_SERVER_TRUST_STORE = IDENTITY_SERVER_TRUST_STORE;
+    }
+
+    public String getIDENTITY_SERVER_TRUST_STORE_PASSWORD() {
+
+        return IDENTITY_SERVER_TRUST_STORE_PASSWORD;
+    }
+
+    public void setIDENTITY_SERVER_TRUST_STORE_PASSWORD(String IDENTITY_SERVER_TRUST_STORE_PASSWORD) {
+
+        this.IDENTITY_SERVER_TRUST_STORE_PASSWORD = IDENTITY_SERVER_TRUST_STORE_PASSWORD;
+    }
+
 }
@@ -36,6 +36,75 @@ public class TempConfig {
     private String database;
     private String flowMode;
     private String clientNotificationEndpoint;
+    private String redisHost;
+    private Integer redisPort;
+    private String redisPassword;
+    private String clientStoreConnectorType;
+    private Integer nearCacheMaxEntries;
+    private Integer dbPoolMaxActive;
+    private Integer dbPoolInitialSize;
+    private Integer dbPoolMaxWait;
+    private Integer dbPoolLeakTimeout;
+    private Integer dbStatementCacheSize;
+    private String jdbcWriteMode;
+    private Integer writeBehindFlushInterval;
+    private Integer writeBehindBatchSize;
+    private Integer writeBehindMaxPending;
+    private Integer reaperInterval;
+    private Integer reaperBatchSize;
+    private Integer reaperBatchPause;
+    private Integer httpMaxConnectionsPerRoute;
+    private Integer httpMaxConnections;
+    private Integer httpConnectTimeout;
+    private Integer httpReadTimeout;
+    private Integer httpIdleTimeout;
+    private Integer outboundDispatchThreads;
+    private Integer outboundQueueCapacity;
+    private Integer tokenExchangeRetries;
+    private Integer tokenExchangeBackoff;
+    private Integer circuitBreakerWindow;
+    private Integer circuitBreakerFailureRate;
+    private Integer circuitBreakerOpenDuration;
+    private Integer authorizeMaxConcurrent;
+    private Integer authorizeTimeout;
+    private Integer tokenMaxConcurrent;
+    private Integer tokenTimeout;
+    private Integer scimMaxConcurrent;
+    private Integer scimTimeout;
+    private String identityServerNodes;
+    private String healthCheckPath;
+    private Integer healthCheckInterval;
+    private Integer adaptiveLimitInitial;
+    private Integer adaptiveLimitMin;
+    private Integer adaptiveLimitSmoothing;
+    private Boolean tokenHedging;
+    private Integer hedgePercentile;
+    private Integer hedgeMinDelay;
+    private Integer hedgeBudget;
+    private Integer tlsSessionCacheSize;
+    private Integer tlsSessionTimeout;
+    private Integer httpPrewarmConnections;
+    private Integer scimBulkBatchSize;
+    private Integer scimBulkParallelism;
+    private String runtimeMode;
+    private String threadMode;
+    private Boolean tokenLongPoll;
+    private Integer longPollTimeout;
+    private Integer longPollMaxWaiting;
+    private Integer notificationThreads;
+    private Integer notificationQueueCapacity;
+    private Integer notificationMaxConcurrent;
+    private Integer notificationTimeout;
+    private Integer notificationRetries;
+    private Integer notificationBackoff;
+    private Integer notificationDeadLetterCapacity;
+    private Integer tokenExchangeThreads;
+    private Integer tokenExchangeQueueCapacity;
+    private String userStoreConnectorType;
+    private Boolean requireRegistration;
+    private String managementToken;
+    private String identityServerTrustStore;
+    private String identityServerTrustStorePassword;
 
     public String getClientNotificationEndpoint() {
 
@@ -127,4 +196,694 @@ public class TempConfig {
         this.database = database;
     }
 
+    public String getRedisHost() {
+
+        return redisHost;
+    }
+
+    public void setRedisHost(String redisHost) {
+
+        this.redisHost = redisHost;
+    }
+
+    public Integer getRedisPort() {
+
+        return redisPort;
+    }
+
+    public void setRedisPort(Integer redisPort) {
+
+        this.redisPort = redisPort;
+    }
+
+    public String getRedisPassword() {
+
+        return redisPassword;
+    }
+
+    public void setRedisPassword(String redisPassword) {
+
+        this.redisPassword = redisPassword;
+    }
+
+    public String getClientStoreConnectorType() {
+
+        return clientStoreConnectorType;
+    }
+
+    public void setClientStoreConnectorType(String clientStoreConnectorType) {
+
+        this.clientStoreConnectorType = clientStoreConnectorType;
+    }
+
+    public Integer getNearCacheMaxEntries() {
+
+        return nearCacheMaxEntries;
+    }
+
+    public void setNearCacheMaxEntries(Integer nearCacheMaxEntries) {
+
+        this.nearCacheMaxEntries = nearCacheMaxEntries;
+    }
+
+    public Integer getDbPoolMaxActive() {
+
+        return dbPoolMaxActive;
+    }
+
+    public void setDbPoolMaxActive(Integer dbPoolMaxActive) {
+
+        this.dbPoolMaxActive = dbPoolMaxActive;
+    }
+
+    public Integer getDbPoolInitialSize() {
+
+        return dbPoolInitialSize;
+    }
+
+    public void setDbPoolInitialSize(Integer dbPoolInitialSize) {
+
+        this.dbPoolInitialSize = dbPoolInitialSize;
+    }
+
+    public Integer getDbPoolMaxWait() {
+
+        return dbPoolMaxWait;
+    }
+
+    public void setDbPoolMaxWait(Integer dbPoolMaxWait) {
+
+        this.dbPoolMaxWait = dbPoolMaxWait;
+    }
+
+    public Integer getDbPoolLeakTimeout() {
+
+        return dbPoolLeakTimeout;
+    }
+
+    public void setDbPoolLeakTimeout(Integer dbPoolLeakTimeout) {
+
+        this.dbPoolLeakTimeout = dbPoolLeakTimeout;
+    }
+
+    public Integer getDbStatementCacheSize() {
+
+        return dbStatementCacheSize;
+    }
+
+    public void setDbStatementCacheSize(Integer dbStatementCacheSize) {
+
+        this.dbStatementCacheSize = dbStatementCacheSize;
+    }
+
+    public String getJdbcWriteMode() {
+
+        return jdbcWriteMode;
+    }
+
+    public void setJdbcWriteMode(String jdbcWriteMode) {
+
+        this.jdbcWriteMode = jdbcWriteMode;
+    }
+
+    public Integer getWriteBehindFlushInterval() {
+
+        return writeBehindFlushInterval;
+    }
+
+    public void setWriteBehindFlushInterval(Integer writeBehindFlushInterval) {
+
+        this.writeBehindFlushInterval = writeBehindFlushInterval;
+    }
+
+    public Integer getWriteBehindBatchSize() {
+
+        return writeBehindBatchSize;
+    }
+
+    public void setWriteBehindBatchSize(Integer writeBehindBatchSize) {
+
+        this.writeBehindBatchSize = writeBehindBatchSize;
+    }
+
+    public Integer getWriteBehindMaxPending() {
+
+        return writeBehindMaxPending;
+    }
+
+    public void setWriteBehindMaxPending(Integer writeBehindMaxPending) {
+
+        this.writeBehindMaxPending = writeBehindMaxPending;
+    }
+
+    public Integer getReaperInterval() {
+
+        return reaperInterval;
+    }
+
+    public void setReaperInterval(Integer reaperInterval) {
+
+        this.reaperInterval = reaperInterval;
+    }
+
+    public Integer getReaperBatchSize() {
+
+        return reaperBatchSize;
+    }
+
+    public void setReaperBatchSize(Integer reaperBatchSize) {
+
+        this.reaperBatchSize = reaperBatchSize;
+    }
+
+    public Integer getReaperBatchPause() {
+
+        return reaperBatchPause;
+    }
+
+    public void setReaperBatchPause(Integer reaperBatchPause) {
+
+        this.reaperBatchPause = reaperBatchPause;
+    }
+
+    public Integer getHttpMaxConnectionsPerRoute() {
+
+        return httpMaxConnectionsPerRoute;
+    }
+
+    public void setHttpMaxConnectionsPerRoute(Integer httpMaxConnectionsPerRoute) {
+
+        this.httpMaxConnectionsPerRoute = httpMaxConnectionsPerRoute;
+    }
+
+    public Integer getHttpMaxConnections() {
+
+        return httpMaxConnections;
+    }
+
+    public void setHttpMaxConnections(Integer httpMaxConnections) {
+
+        this.httpMaxConnections = httpMaxConnections;
+    }
+
+    public Integer getHttpConnectTimeout() {
+
+        return httpConnectTimeout;
+    }
+
+    public void setHttpConnectTimeout(Integer httpConnectTimeout) {
+
+        this.httpConnectTimeout = httpConnectTimeout;
+    }
+
+    public Integer getHttpReadTimeout() {
+
+        return httpReadTimeout;
+    }
+
+    public void setHttpReadTimeout(Integer httpReadTimeout) {
+
+        this.httpReadTimeout = httpReadTimeout;
+    }
+
+    public Integer getHttpIdleTimeout() {
+
+        return httpIdleTimeout;
+    }
+
+    public void setHttpIdleTimeout(Integer httpIdleTimeout) {
+
+        this.httpIdleTimeout = httpIdleTimeout;
+    }
+
+    public Integer getOutboundDispatchThreads() {
+
+        return outboundDispatchThreads;
+    }
+
+    public void setOutboundDispatchThreads(Integer outboundDispatchThreads) {
+
+        this.outboundDispatchThreads = outboundDispatchThreads;
+    }
+
+    public Integer getOutboundQueueCapacity() {
+
+        return outboundQueueCapacity;
+    }
+
+    public void setOutboundQueueCapacity(Integer outboundQueueCapacity) {
+
+        this.outboundQueueCapacity = outboundQueueCapacity;
+    }
+
+    public Integer getTokenExchangeRetries() {
+
+        return tokenExchangeRetries;
+    }
+
+    public void setTokenExchangeRetries(Integer tokenExchangeRetries) {
+
+        this.tokenExchangeRetries = tokenExchangeRetries;
+    }
+
+    public Integer getTokenExchangeBackoff() {
+
+        return tokenExchangeBackoff;
+    }
+
+    public void setTokenExchangeBackoff(Integer tokenExchangeBackoff) {
+
+        this.tokenExchangeBackoff = tokenExchangeBackoff;
+    }
+
+    public Integer getCircuitBreakerWindow() {
+
+        return circuitBreakerWindow;
+    }
+
+    public void setCircuitBreakerWindow(Integer circuitBreakerWindow) {
+
+        this.circuitBreakerWindow = circuitBreakerWindow;
+    }
+
+    public Integer getCircuitBreakerFailureRate() {
+
+        return circuitBreakerFailureRate;
+    }
+
+    public void setCircuitBreakerFailureRate(Integer circuitBreakerFailureRate) {
+
+        this.circuitBreakerFailureRate = circuitBreakerFailureRate;
+    }
+
+    public Integer getCircuitBreakerOpenDuration() {
+
+        return circuitBreakerOpenDuration;
+    }
+
+    public void setCircuitBreakerOpenDuration(Integer circuitBreakerOpenDuration) {
+
+        this.circuitBreakerOpenDuration = circuitBreakerOpenDuration;
+    }
+
+    public Integer getAuthorizeMaxConcurrent() {
+
+        return authorizeMaxConcurrent;
+    }
+
+    public void setAuthorizeMaxConcurrent(Integer authorizeMaxConcurrent) {
+
+        this.authorizeMaxConcurrent = authorizeMaxConcurrent;
+    }
+
+    public Integer getAuthorizeTimeout() {
+
+        return authorizeTimeout;
+    }
+
+    public void setAuthorizeTimeout(Integer authorizeTimeout) {
+
+        this.authorizeTimeout = authorizeTimeout;
+    }
+
+    public Integer getTokenMaxConcurrent() {
+
+        return tokenMaxConcurrent;
+    }
+
+    public void setTokenMaxConcurrent(Integer tokenMaxConcurrent) {
+
+        this.tokenMaxConcurrent = tokenMaxConcurrent;
+    }
+
+    public Integer getTokenTimeout() {
+
+        return tokenTimeout;
+    }
+
+    public void setTokenTimeout(Integer tokenTimeout) {
+
+        this.tokenTimeout = tokenTimeout;
+    }
+
+    public Integer getScimMaxConcurrent() {
+
+        return scimMaxConcurrent;
+    }
+
+    public void setScimMaxConcurrent(Integer scimMaxConcurrent) {
+
+        this.scimMaxConcurrent = scimMaxConcurrent;
+    }
+
+    public Integer getScimTimeout() {
+
+        return scimTimeout;
+    }
+
+    public void setScimTimeout(Integer scimTimeout) {
+
+        this.scimTimeout = scimTimeout;
+    }
+
+    public String getIdentityServerNodes() {
+
+        return identityServerNodes;
+    }
+
+    public void setIdentityServerNodes(String identityServerNodes) {
+
+        this.identityServerNodes = identityServerNodes;
+    }
+
+    public String getHealthCheckPath() {
+
+        return healthCheckPath;
+    }
+
+    public void setHealthCheckPath(String healthCheckPath) {
+
+        this.healthCheckPath = healthCheckPath;
+    }
+
+    public Integer getHealthCheckInterval() {
+
+        return healthCheckInterval;
+    }
+
+    public void setHealthCheckInterval(Integer healthCheckInterval) {
+
+        this.healthCheckInterval = healthCheckInterval;
+    }
+
+    public Integer getAdaptiveLimitInitial() {
+
+        return adaptiveLimitInitial;
+    }
+
+    public void setAdaptiveLimitInitial(Integer adaptiveLimitInitial) {
+
+        this.adaptiveLimitInitial = adaptiveLimitInitial;
+    }
+
+    public Integer getAdaptiveLimitMin() {
+
+        return adaptiveLimitMin;
+    }
+
+    public void setAdaptiveLimitMin(Integer adaptiveLimitMin) {
+
+        this.adaptiveLimitMin = adaptiveLimitMin;
+    }
+
+    public Integer getAdaptiveLimitSmoothing() {
+
+        return adaptiveLimitSmoothing;
+    }
+
+    public void setAdaptiveLimitSmoothing(Integer adaptiveLimitSmoothing) {
+
+        this.adaptiveLimitSmoothing = adaptiveLimitSmoothing;
+    }
+
+    public Boolean getTokenHedging() {
+
+        return tokenHedging;
+    }
+
+    public void setTokenHedging(Boolean tokenHedging) {
+
+        this.tokenHedging = tokenHedging;
+    }
+
+    public Integer getHedgePercentile() {
+
+        return hedgePercentile;
+    }
+
+    public void setHedgePercentile(Integer hedgePercentile) {
+
+        this.hedgePercentile = hedgePercentile;
+    }
+
+    public Integer getHedgeMinDelay() {
+
+        return hedgeMinDelay;
+    }
+
+    public void setHedgeMinDelay(Integer hedgeMinDelay) {
+
+        this.hedgeMinDelay = hedgeMinDelay;
+    }
+
+    public Integer getHedgeBudget() {
+
+        return hedgeBudget;
+    }
+
+    public void setHedgeBudget(Integer hedgeBudget) {
+
+        this.hedgeBudget = hedgeBudget;
+    }
+
+    public Integer getTlsSessionCacheSize() {
+
+        return tlsSessionCacheSize;
+    }
+
+    public void setTlsSessionCacheSize(Integer tlsSessionCacheSize) {
+
+        this.tlsSessionCacheSize = tlsSessionCacheSize;
+    }
+
+    public Integer getTlsSessionTimeout() {
+
+        return tlsSessionTimeout;
+    }
+
+    public void setTlsSessionTimeout(Integer tlsSessionTimeout) {
+
+        this.tlsSessionTimeout = tlsSessionTimeout;
+    }
+
+    public Integer getHttpPrewarmConnections() {
+
+        return httpPrewarmConnections;
+    }
+
+    public void setHttpPrewarmConnections(Integer httpPrewarmConnections) {
+
+        this.httpPrewarmConnections = httpPrewarmConnections;
+    }
+
+    public Integer getScimBulkBatchSize() {
+
+        return scimBulkBatchSize;
+    }
+
+    public void setScimBulkBatchSize(Integer scimBulkBatchSize) {
+
+        this.scimBulkBatchSize = scimBulkBatchSize;
+    }
+
+    public Integer getScimBulkParallelism() {
+
+        return scimBulkParallelism;
+    }
+
+    public void setScimBulkParallelism(Integer scimBulkParallelism) {
+
+        this.scimBulkParallelism = scimBulkParallelism;
+    }
+
+    public String getRuntimeMode() {
+
+        return runtimeMode;
+    }
+
+    public void setRuntimeMode(String runtimeMode) {
+
+        this.runtimeMode = runtimeMode;
+    }
+
+    public String getThreadMode() {
+
+        return threadMode;
+    }
+
+    public void setThreadMode(String threadMode) {
+
+        this.threadMode = threadMode;
+    }
+
+    public Boolean getTokenLongPoll() {
+
+        return tokenLongPoll;
+    }
+
+    public void setTokenLongPoll(Boolean tokenLongPoll) {
+
+        this.tokenLongPoll = tokenLongPoll;
+    }
+
+    public Integer getLongPollTimeout() {
+
+        return longPollTimeout;
+    }
+
+    public void setLongPollTimeout(Integer longPollTimeout) {
+
+        this.longPollTimeout = longPollTimeout;
+    }
+
+    public Integer getLongPollMaxWaiting() {
+
+        return longPollMaxWaiting;
+    }
+
+    public void setLongPollMaxWaiting(Integer longPollMaxWaiting) {
+
+        this.longPollMaxWaiting = longPollMaxWaiting;
+    }
+
+    public Integer getNotificationThreads() {
+
+        return notificationThreads;
+    }
+
+    public void setNotificationThreads(Integer notificationThreads) {
+
+        this.notificationThreads = notificationThreads;
+    }
+
+    public Integer getNotificationQueueCapacity() {
+
+        return notificationQueueCapacity;
+    }
+
+    public void setNotificationQueueCapacity(Integer notificationQueueCapacity) {
+
+        this.notificationQueueCapacity = notificationQueueCapacity;
+    }
+
+    public Integer getNotificationMaxConcurrent() {
+
+        return notificationMaxConcurrent;
+    }
+
+    public void setNotificationMaxConcurrent(Integer notificationMaxConcurrent) {
+
+        this.notificationMaxConcurrent = notificationMaxConcurrent;
+    }
+
+    public Integer getNotificationTimeout() {
+
+        return notificationTimeout;
+    }
+
+    public void setNotificationTimeout(Integer notificationTimeout) {
+
+        this.notificationTimeout = notificationTimeout;
+    }
+
+    public Integer getNotificationRetries() {
+
+        return notificationRetries;
+    }
+
+    public void setNotificationRetries(Integer notificationRetries) {
+
+        this.notificationRetries = notificationRetries;
+    }
+
+    public Integer getNotificationBackoff() {
+
+        return notificationBackoff;
+    }
+
+    public void setNotificationBackoff(Integer notificationBackoff) {
+
+        this.notificationBackoff = notificationBackoff;
+    }
+
+    public Integer getNotificationDeadLetterCapacity() {
+
+        return notificationDeadLetterCapacity;
+    }
+
+    public void setNotificationDeadLetterCapacity(Integer notificationDeadLetterCapacity) {
+
+        this.notificationDeadLetterCapacity = notificationDeadLetterCapacity;
+    }
+
+    public Integer getTokenExchangeThreads() {
+
+        return tokenExchangeThreads;
+    }
+
+    public void setTokenExchangeThreads(Integer tokenExchangeThreads) {
+
+        this.tokenExchangeThreads = tokenExchangeThreads;
+    }
+
+    public Integer getTokenExchangeQueueCapacity() {
+
+        return tokenExchangeQueueCapacity;
+    }
+
+    public void setTokenExchangeQueueCapacity(Integer tokenExchangeQueueCapacity) {
+
+        this.tokenExchangeQueueCapacity = tokenExchangeQueueCapacity;
+    }
+
+    public String getUserStoreConnectorType() {
+
+        return userStoreConnectorType;
+    }
+
+    public void setUserStoreConnectorType(String userStoreConnectorType) {
+
+        this.userStoreConnectorType = userStoreConnectorType;
+    }
+
+    public Boolean getRequireRegistration() {
+
+        return requireRegistration;
+    }
+
+    public void setRequireRegistration(Boolean requireRegistration) {
+
+        this.requireRegistration = requireRegistration;
+    }
+
+    public String getManagementToken() {
+
+        return managementToken;
+    }
+
+    public void setManagementToken(String managementToken) {
+
+        this.managementToken = managementToken;
+    }
+
+    public String getIdentityServerTrustStore() {
+
+        return identityServerTrustStore;
+    }
+
+    public void setIdentityServerTrustStore(String identityServerTrustStore) {
+
+        this.identityServerTrustStore = identityServerTrustStore;
+    }
+
+    public String getIdentityServerTrustStorePassword() {
+
+        return identityServerTrustStorePassword;
+    }
+
+    public void setIdentityServerTrustStorePassword(String identityServerTrustStorePassword) {
+
+        this.identityServerTrustStorePassword = identityServerTrustStorePassword;
+    }
+
 }
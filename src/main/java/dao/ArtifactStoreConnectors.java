@@ -18,8 +18,10 @@
 
 package dao;
 
+import tempErrorCache.TempErrorCache;
 import transactionartifacts.CIBAauthRequest;
 import transactionartifacts.CIBAauthResponse;
+import transactionartifacts.CibaTransaction;
 import transactionartifacts.PollingAtrribute;
 import transactionartifacts.TokenRequest;
 import transactionartifacts.TokenResponse;
@@ -144,6 +146,81 @@ public interface ArtifactStoreConnectors {
      */
     PollingAtrribute getPollingAttribute(String authReqID);
 
+    /**
+     * Get every artifact of a transaction with a single lookup.
+     *
+     * @param authReqID Ciba Authentication request identifier.
+     * @return Ciba transaction or null if the auth_req_id is unknown.
+     */
+    CibaTransaction getTransaction(String authReqID);
+
+    /**
+     * Write back the modified parts of a transaction.
+     *
+     * @param authReqID   Ciba Authentication request identifier.
+     * @param transaction Ciba transaction obtained from {@link #getTransaction(String)}.
+     */
+    default void updateTransaction(String authReqID, CibaTransaction transaction) {
+
+        if (transaction.isModified(CibaTransaction.Part.AUTH_REQUEST)) {
+            removeAuthRequest(authReqID);
+            addAuthRequest(authReqID, transaction.getAuthRequest());
+        }
+        if (transaction.isModified(CibaTransaction.Part.AUTH_RESPONSE)) {
+            removeAuthResponse(authReqID);
+            addAuthResponse(authReqID, transaction.getAuthResponse());
+        }
+        if (transaction.isModified(CibaTransaction.Part.POLLING_ATTRIBUTE)) {
+            removePollingAttribute(authReqID);
+            addPollingAttribute(authReqID, transaction.getPollingAtrribute());
+        }
+        if (transaction.isModified(CibaTransaction.Part.TOKEN_REQUEST)) {
+            removeTokenRequest(authReqID);
+            addTokenRequest(authReqID, transaction.getTokenRequest());
+        }
+        if (transaction.isModified(CibaTransaction.Part.TOKEN_RESPONSE)) {
+            removeTokenResponse(authReqID);
+            addTokenResponse(authReqID, transaction.getTokenResponse());
+        }
+        if (transaction.isModified(CibaTransaction.Part.AUTHENTICATION_STATUS)) {
+            TempErrorCache.getInstance().addAuthenticationStatus(authReqID, transaction.getAuthenticationStatus());
+        }
+        transaction.clearModifications();
+    }
+
+    /**
+     * Record a poll, provided no other poll was recorded since the caller read the polling attribute.
+     *
+     * @param authReqID              Ciba Authentication request identifier.
+     * @param expectedLastPolledTime Last polled time the caller read.
+     * @param lastPolledTime         Time of this poll.
+     * @param pollingInterval        Polling interval to enforce from now on.
+     * @return true if the poll was recorded, false if another poll came first or there is no polling attribute.
+     */
+    boolean touchLastPolled(String authReqID, long expectedLastPolledTime, long lastPolledTime,
+                            long pollingInterval);
+
+    /**
+     * Set the notification issued flag of the polling attribute.
+     *
+     * @param authReqID Ciba Authentication request identifier.
+     * @return true if this call set the flag, false if it was already set or there is no polling attribute.
+     */
+    boolean markNotificationIssued(String authReqID);
+
+    /**
+     * Record the authentication status of a transaction without loading it.
+     *
+     * @param authReqID            Ciba Authentication request identifier.
+     * @param authenticationStatus Status of the authentication at the Identity server.
+     */
+    default void updateAuthenticationStatus(String authReqID, String authenticationStatus) {
+
+        CibaTransaction transaction = new CibaTransaction(authReqID);
+        transaction.setAuthenticationStatus(authenticationStatus);
+        updateTransaction(authReqID, transaction);
+    }
+
     /**
      * Register to authentication request observer list.
      *
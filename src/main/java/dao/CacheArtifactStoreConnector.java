@@ -19,8 +19,11 @@
 package dao;
 
 import cache.CibaProxyCache;
+import cache.CibaTransactionCache;
+import tempErrorCache.TempErrorCache;
 import transactionartifacts.CIBAauthRequest;
 import transactionartifacts.CIBAauthResponse;
+import transactionartifacts.CibaTransaction;
 import transactionartifacts.PollingAtrribute;
 import transactionartifacts.TokenRequest;
 import transactionartifacts.TokenResponse;
@@ -155,6 +158,50 @@ public class CacheArtifactStoreConnector implements ArtifactStoreConnectors {
         return (PollingAtrribute) cibaProxyCache.getPollingAtrributeCache().get(authReqID);
     }
 
+    @Override
+    public CibaTransaction getTransaction(String authReqID) {
+
+        CibaTransaction record = CibaTransactionCache.getInstance().get(authReqID);
+        if (record == null) {
+            return null;
+        }
+
+        // Hand out a copy so that callers modify the record only through updateTransaction.
+        CibaTransaction transaction = new CibaTransaction(record);
+        transaction.setAuthenticationStatus(TempErrorCache.getInstance().getAuthenticationResponse(authReqID));
+        transaction.clearModifications();
+        return transaction;
+    }
+
+    @Override
+    public boolean touchLastPolled(String authReqID, long expectedLastPolledTime, long lastPolledTime,
+                                   long pollingInterval) {
+
+        return CibaTransactionCache.getInstance().compareAndUpdate(authReqID,
+                record -> record.getPollingAtrribute() != null &&
+                        record.getPollingAtrribute().getLastPolledTime() == expectedLastPolledTime,
+                record -> {
+                    // Readers may hold the current attribute, so it is replaced rather than modified.
+                    PollingAtrribute pollingAtrribute = new PollingAtrribute(record.getPollingAtrribute());
+                    pollingAtrribute.setLastPolledTime(lastPolledTime);
+                    pollingAtrribute.setPollingInterval(pollingInterval);
+                    record.setPollingAtrribute(pollingAtrribute);
+                });
+    }
+
+    @Override
+    public boolean markNotificationIssued(String authReqID) {
+
+        return CibaTransactionCache.getInstance().compareAndUpdate(authReqID,
+                record -> record.getPollingAtrribute() != null &&
+                        !Boolean.TRUE.equals(record.getPollingAtrribute().getNotificationIssued()),
+                record -> {
+                    PollingAtrribute pollingAtrribute = new PollingAtrribute(record.getPollingAtrribute());
+                    pollingAtrribute.setNotificationIssued(true);
+                    record.setPollingAtrribute(pollingAtrribute);
+                });
+    }
+
     @Override
     public void registerToAuthRequestObservers(Object authRequestHandler) {
 
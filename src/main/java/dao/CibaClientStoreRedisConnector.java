@@ -18,13 +18,52 @@
 
 package dao;
 
+import cache.NearCache;
+import com.google.gson.Gson;
+import configuration.ConfigurationFile;
+import exceptions.BadRequestException;
+import exceptions.InternalServerErrorException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.exceptions.JedisException;
 import transactionartifacts.Client;
 
+import java.util.logging.Logger;
+
 /**
  * Connector for client store in Redis Database.
+ * Lookups are served from a near cache kept consistent across nodes over Redis pub/sub.
  */
 public class CibaClientStoreRedisConnector implements ClientStoreConnector {
 
+    private static final Logger LOGGER = Logger.getLogger(CibaClientStoreRedisConnector.class.getName());
+
+    private static final String KEY_PREFIX = "ciba:client:";
+    private static final String INVALIDATION_CHANNEL = "ciba:invalidate:clients";
+
+    private final Gson gson = new Gson();
+    private final NearCache<Client> nearCache;
+    private volatile JedisPool jedisPool;
+
+    private CibaClientStoreRedisConnector() {
+
+        nearCache = new NearCache<>(INVALIDATION_CHANNEL,
+                ConfigurationFile.getInstance().getNEAR_CACHE_MAX_ENTRIES(), this::getJedisPool);
+    }
+
+    /**
+     * Creates a connector over the given pool, such as one pointing at an in-process Redis server.
+     *
+     * @param jedisPool Pool of Redis connections.
+     */
+    CibaClientStoreRedisConnector(JedisPool jedisPool) {
+
+        this();
+        this.jedisPool = jedisPool;
+    }
+
     private static CibaClientStoreRedisConnector cibaClientStoreRedisConnectorInstance =
             new CibaClientStoreRedisConnector();
 
@@ -48,16 +87,68 @@ public class CibaClientStoreRedisConnector implements ClientStoreConnector {
     @Override
     public void addClient(String clientid, Object client) {
 
+        if (client instanceof Client) {
+            try (Jedis jedis = getJedisPool().getResource()) {
+                jedis.set(KEY_PREFIX + clientid, gson.toJson(client));
+                nearCache.publishInvalidation(jedis, clientid);
+                LOGGER.info("Client added to the store");
+            } catch (JedisException e) {
+                throwInternalServerError("Error adding client to Redis : " + e.getMessage());
+            }
+        }
     }
 
     @Override
     public void removeClient(String clientid) {
 
+        try (Jedis jedis = getJedisPool().getResource()) {
+            jedis.del(KEY_PREFIX + clientid);
+            nearCache.publishInvalidation(jedis, clientid);
+        } catch (JedisException e) {
+            throwInternalServerError("Error removing client from Redis : " + e.getMessage());
+        }
     }
 
     @Override
     public Client getClient(String clientid) {
 
-        return null;
+        try {
+            Client client = nearCache.get(clientid, this::load);
+            if (client == null) {
+                throw new BadRequestException("Unexpected client.");
+            }
+            return client;
+        } catch (BadRequestException badrequest) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, badrequest.getMessage());
+        }
+    }
+
+    private Client load(String clientid) {
+
+        try (Jedis jedis = getJedisPool().getResource()) {
+            String json = jedis.get(KEY_PREFIX + clientid);
+            return json == null ? null : gson.fromJson(json, Client.class);
+        } catch (JedisException e) {
+            LOGGER.severe("Error reading client from Redis : " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void throwInternalServerError(String message) {
+
+        try {
+            throw new InternalServerErrorException(message);
+        } catch (InternalServerErrorException internalServerErrorException) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, internalServerErrorException
+                    .getMessage());
+        }
+    }
+
+    private JedisPool getJedisPool() {
+
+        if (jedisPool == null) {
+            jedisPool = RedisConnection.getJedisPool();
+        }
+        return jedisPool;
     }
 }
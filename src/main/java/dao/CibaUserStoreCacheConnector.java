@@ -21,7 +21,6 @@ package dao;
 import exceptions.BadRequestException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
-import store.ClientStore;
 import store.UserStore;
 import transactionartifacts.User;
 
@@ -71,7 +70,7 @@ public class CibaUserStoreCacheConnector implements UserStoreConnector {
     public User getUser(String userid) {
 
         try {
-            if (ClientStore.getInstance().get(userid) == null) {
+            if (UserStore.getInstance().get(userid) == null) {
                 throw new BadRequestException("Unexpected user.");
 
             } else {
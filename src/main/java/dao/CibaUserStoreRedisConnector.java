@@ -18,14 +18,54 @@
 
 package dao;
 
+import cache.NearCache;
+import com.google.gson.Gson;
+import configuration.ConfigurationFile;
+import exceptions.BadRequestException;
+import exceptions.InternalServerErrorException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.exceptions.JedisException;
 import transactionartifacts.User;
 
+import java.util.logging.Logger;
+
 /**
  * User store connector for Redis.
+ * Lookups are served from a near cache kept consistent across nodes over Redis pub/sub.
  */
 public class CibaUserStoreRedisConnector implements UserStoreConnector {
 
-    private static CibaUserStoreRedisConnector cibaUserStoreRedisConnectorInstance = new CibaUserStoreRedisConnector();
+    private static final Logger LOGGER = Logger.getLogger(CibaUserStoreRedisConnector.class.getName());
+
+    private static final String KEY_PREFIX = "ciba:user:";
+    private static final String INVALIDATION_CHANNEL = "ciba:invalidate:users";
+
+    private final Gson gson = new Gson();
+    private final NearCache<User> nearCache;
+    private volatile JedisPool jedisPool;
+
+    private CibaUserStoreRedisConnector() {
+
+        nearCache = new NearCache<>(INVALIDATION_CHANNEL,
+                ConfigurationFile.getInstance().getNEAR_CACHE_MAX_ENTRIES(), this::getJedisPool);
+    }
+
+    /**
+     * Creates a connector over the given pool, such as one pointing at an in-process Redis server.
+     *
+     * @param jedisPool Pool of Redis connections.
+     */
+    CibaUserStoreRedisConnector(JedisPool jedisPool) {
+
+        this();
+        this.jedisPool = jedisPool;
+    }
+
+    private static CibaUserStoreRedisConnector cibaUserStoreRedisConnectorInstance =
+            new CibaUserStoreRedisConnector();
 
     public static CibaUserStoreRedisConnector getInstance() {
 
@@ -47,16 +87,68 @@ public class CibaUserStoreRedisConnector implements UserStoreConnector {
     @Override
     public void addUser(String userid, Object user) {
 
+        if (user instanceof User) {
+            try (Jedis jedis = getJedisPool().getResource()) {
+                jedis.set(KEY_PREFIX + userid, gson.toJson(user));
+                nearCache.publishInvalidation(jedis, userid);
+                LOGGER.info("User added to the store");
+            } catch (JedisException e) {
+                throwInternalServerError("Error adding user to Redis : " + e.getMessage());
+            }
+        }
     }
 
     @Override
     public void removeUser(String userid) {
 
+        try (Jedis jedis = getJedisPool().getResource()) {
+            jedis.del(KEY_PREFIX + userid);
+            nearCache.publishInvalidation(jedis, userid);
+        } catch (JedisException e) {
+            throwInternalServerError("Error removing user from Redis : " + e.getMessage());
+        }
     }
 
     @Override
     public User getUser(String userid) {
 
-        return null;
+        try {
+            User user = nearCache.get(userid, this::load);
+            if (user == null) {
+                throw new BadRequestException("Unexpected user.");
+            }
+            return user;
+        } catch (BadRequestException badrequest) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, badrequest.getMessage());
+        }
+    }
+
+    private User load(String userid) {
+
+        try (Jedis jedis = getJedisPool().getResource()) {
+            String json = jedis.get(KEY_PREFIX + userid);
+            return json == null ? null : gson.fromJson(json, User.class);
+        } catch (JedisException e) {
+            LOGGER.severe("Error reading user from Redis : " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void throwInternalServerError(String message) {
+
+        try {
+            throw new InternalServerErrorException(message);
+        } catch (InternalServerErrorException internalServerErrorException) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, internalServerErrorException
+                    .getMessage());
+        }
+    }
+
+    private JedisPool getJedisPool() {
+
+        if (jedisPool == null) {
+            jedisPool = RedisConnection.getJedisPool();
+        }
+        return jedisPool;
     }
 }
@@ -19,39 +19,127 @@
 package dao;
 
 import configuration.ConfigurationFile;
+import metrics.ProxyMetrics;
 import org.apache.tomcat.jdbc.pool.DataSource;
 import org.apache.tomcat.jdbc.pool.PoolProperties;
 
 import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
 
 /**
  * DB connections.
+ * One connection pool is kept per database for the lifetime of the process. Callers borrow a connection for a
+ * single operation and return it by closing it.
  */
 public class DbConnection {
 
-    private static Connection connect;
+    private static final Logger LOGGER = Logger.getLogger(DbConnection.class.getName());
+
+    private static final String VALIDATION_QUERY = "SELECT 1";
+
+    private static final ConcurrentHashMap<String, DataSource> dataSources = new ConcurrentHashMap<>();
 
     /**
-     * Create and return db connection.
+     * Borrow a connection to the configured database. Closing the connection returns it to the pool.
      *
      * @return Database connection.
      */
-    public static Connection getConnection() throws Exception {
+    public static Connection getConnection() throws SQLException {
+
+        String database = ConfigurationFile.getInstance().getDATABASE();
+        long borrowStartTime = System.currentTimeMillis();
+        try {
+            return getDataSource(database).getConnection();
+        } catch (SQLException e) {
+            ProxyMetrics.getInstance().incrementCounter("db.pool." + database + ".borrowFailures");
+            throw e;
+        } finally {
+            ProxyMetrics.getInstance()
+                    .recordTime("db.pool." + database + ".borrow", System.currentTimeMillis() - borrowStartTime);
+        }
+    }
+
+    /**
+     * Return the pool of the database, creating it on first use.
+     *
+     * @param database Name of the database.
+     * @return Pooled data source.
+     */
+    public static DataSource getDataSource(String database) {
+
+        return dataSources.computeIfAbsent(database, DbConnection::createDataSource);
+    }
+
+    /**
+     * Close every pool, to be called when the server shuts down.
+     */
+    public static void closeAll() {
+
+        for (String database : dataSources.keySet()) {
+            DataSource dataSource = dataSources.remove(database);
+            if (dataSource != null) {
+                dataSource.close();
+            }
+        }
+    }
+
+    private static DataSource createDataSource(String database) {
+
+        ConfigurationFile configurationFile = ConfigurationFile.getInstance();
 
         PoolProperties poolProperties = new PoolProperties();
-        poolProperties.setUrl("jdbc:mysql://localhost:3306/" + ConfigurationFile.getInstance().getDATABASE());
+        // Server side prepared statements, cached by the driver so each statement is parsed once per connection.
+        // Batches are sent as multi row statements.
+        poolProperties.setUrl("jdbc:mysql://localhost:3306/" + database + "?useServerPrepStmts=true" +
+                "&cachePrepStmts=true&prepStmtCacheSize=" + configurationFile.getDB_STATEMENT_CACHE_SIZE() +
+                "&prepStmtCacheSqlLimit=2048&rewriteBatchedStatements=true");
         poolProperties.setDriverClassName("com.mysql.cj.jdbc.Driver");
-        poolProperties.setUsername(ConfigurationFile.getInstance().getDB_USER_NAME());
-        poolProperties.setPassword(ConfigurationFile.getInstance().getDB_PASSWORD());
+        poolProperties.setUsername(configurationFile.getDB_USER_NAME());
+        poolProperties.setPassword(configurationFile.getDB_PASSWORD());
+
+        // Sizing.
+        poolProperties.setMaxActive(configurationFile.getDB_POOL_MAX_ACTIVE());
+        poolProperties.setMaxIdle(configurationFile.getDB_POOL_MAX_ACTIVE());
+        poolProperties.setInitialSize(Math.min(configurationFile.getDB_POOL_INITIAL_SIZE(),
+                configurationFile.getDB_POOL_MAX_ACTIVE()));
+        poolProperties.setMinIdle(poolProperties.getInitialSize());
+        poolProperties.setMaxWait(configurationFile.getDB_POOL_MAX_WAIT());
+
+        // Validation of borrowed and idle connections.
+        poolProperties.setValidationQuery(VALIDATION_QUERY);
+        poolProperties.setTestOnBorrow(true);
+        poolProperties.setTestWhileIdle(true);
         poolProperties.setValidationInterval(30000);
-        poolProperties.setMaxActive(100);
-        poolProperties.setInitialSize(50); // initial size of the pool
-        poolProperties.setMaxWait(10000);
-        DataSource datasource = new DataSource();
-        datasource.setPoolProperties(poolProperties);
-
-        Connection connect = datasource.getConnection();
-        return connect;
+        poolProperties.setTimeBetweenEvictionRunsMillis(30000);
+        poolProperties.setMinEvictableIdleTimeMillis(60000);
+
+        // Leak detection. Connections held longer than the timeout are reclaimed and logged.
+        poolProperties.setRemoveAbandoned(true);
+        poolProperties.setRemoveAbandonedTimeout(configurationFile.getDB_POOL_LEAK_TIMEOUT());
+        poolProperties.setLogAbandoned(true);
+        // StatementCache hands back the same PreparedStatement per connection and SQL instead of preparing anew.
+        // Its limit is shared by the whole pool.
+        int statementCacheSize = configurationFile.getDB_STATEMENT_CACHE_SIZE() * poolProperties.getMaxActive();
+        poolProperties.setJdbcInterceptors("org.apache.tomcat.jdbc.pool.interceptor.ConnectionState;" +
+                "org.apache.tomcat.jdbc.pool.interceptor.StatementCache(prepared=true,callable=false,max=" +
+                statementCacheSize + ");" +
+                "org.apache.tomcat.jdbc.pool.interceptor.StatementFinalizer");
+
+        DataSource dataSource = new DataSource();
+        dataSource.setPoolProperties(poolProperties);
+
+        ProxyMetrics proxyMetrics = ProxyMetrics.getInstance();
+        String prefix = "db.pool." + database;
+        proxyMetrics.registerGauge(prefix + ".active", dataSource::getActive);
+        proxyMetrics.registerGauge(prefix + ".idle", dataSource::getIdle);
+        proxyMetrics.registerGauge(prefix + ".size", dataSource::getSize);
+        proxyMetrics.registerGauge(prefix + ".waiting", dataSource::getWaitCount);
+        proxyMetrics.registerGauge(prefix + ".maxActive", dataSource::getMaxActive);
+
+        LOGGER.info("Connection pool created for database " + database);
+        return dataSource;
     }
 
 }
@@ -18,9 +18,14 @@
 
 package dao;
 
+import cache.CibaTransactionCache;
+import configuration.ConfigurationFile;
 import jdbc.CibaProxyJdbcStore;
+import jdbc.JdbcWriteBehindQueue;
+import tempErrorCache.TempErrorCache;
 import transactionartifacts.CIBAauthRequest;
 import transactionartifacts.CIBAauthResponse;
+import transactionartifacts.CibaTransaction;
 import transactionartifacts.PollingAtrribute;
 import transactionartifacts.TokenRequest;
 import transactionartifacts.TokenResponse;
@@ -32,6 +37,10 @@ public class JdbcArtifactStoreConnector implements ArtifactStoreConnectors {
 
     private CibaProxyJdbcStore cibaProxyJdbcStore = CibaProxyJdbcStore.getcibaProxyJdbcStoreInstance();
 
+    // Write-behind mode serves reads from memory and queues writes for the background flusher.
+    private CacheArtifactStoreConnector memoryTier = CacheArtifactStoreConnector.getInstance();
+    private JdbcWriteBehindQueue writeBehindQueue = JdbcWriteBehindQueue.getInstance();
+
     private static JdbcArtifactStoreConnector jdbcArtifactStoreConnectorInstance = new JdbcArtifactStoreConnector();
 
     public static JdbcArtifactStoreConnector getInstance() {
@@ -54,7 +63,12 @@ public class JdbcArtifactStoreConnector implements ArtifactStoreConnectors {
     public void addAuthRequest(String authReqID, Object authrequest) {
 
         if (authrequest instanceof CIBAauthRequest) {
-            cibaProxyJdbcStore.getAuthRequestDB().add(authReqID, authrequest);
+            if (isWriteBehind()) {
+                memoryTier.addAuthRequest(authReqID, authrequest);
+                writeBehindQueue.put(authReqID, CibaTransaction.Part.AUTH_REQUEST, authrequest);
+            } else {
+                cibaProxyJdbcStore.getAuthRequestDB().add(authReqID, authrequest);
+            }
         }
     }
 
@@ -62,7 +76,13 @@ public class JdbcArtifactStoreConnector implements ArtifactStoreConnectors {
     public void addAuthResponse(String authReqID, Object authresponse) {
 
         if (authresponse instanceof CIBAauthResponse) {
-            cibaProxyJdbcStore.getAuthResponseDB().add(authReqID, authresponse);
+            if (isWriteBehind()) {
+                loadIntoMemoryTier(authReqID);
+                memoryTier.addAuthResponse(authReqID, authresponse);
+                writeBehindQueue.put(authReqID, CibaTransaction.Part.AUTH_RESPONSE, authresponse);
+            } else {
+                cibaProxyJdbcStore.getAuthResponseDB().add(authReqID, authresponse);
+            }
         }
     }
 
@@ -70,7 +90,13 @@ public class JdbcArtifactStoreConnector implements ArtifactStoreConnectors {
     public void addTokenRequest(String authReqID, Object tokenrequest) {
 
         if (tokenrequest instanceof TokenRequest) {
-            cibaProxyJdbcStore.getTokenRequestDB().add(authReqID, tokenrequest);
+            if (isWriteBehind()) {
+                loadIntoMemoryTier(authReqID);
+                memoryTier.addTokenRequest(authReqID, tokenrequest);
+                writeBehindQueue.put(authReqID, CibaTransaction.Part.TOKEN_REQUEST, tokenrequest);
+            } else {
+                cibaProxyJdbcStore.getTokenRequestDB().add(authReqID, tokenrequest);
+            }
         }
     }
 
@@ -78,7 +104,13 @@ public class JdbcArtifactStoreConnector implements ArtifactStoreConnectors {
     public void addTokenResponse(String authReqID, Object tokenresponse) {
 
         if (tokenresponse instanceof TokenResponse) {
-            cibaProxyJdbcStore.getTokenResponseDB().add(authReqID, tokenresponse);
+            if (isWriteBehind()) {
+                loadIntoMemoryTier(authReqID);
+                memoryTier.addTokenResponse(authReqID, tokenresponse);
+                writeBehindQueue.put(authReqID, CibaTransaction.Part.TOKEN_RESPONSE, tokenresponse);
+            } else {
+                cibaProxyJdbcStore.getTokenResponseDB().add(authReqID, tokenresponse);
+            }
         }
     }
 
@@ -86,70 +118,219 @@ public class JdbcArtifactStoreConnector implements ArtifactStoreConnectors {
     public void addPollingAttribute(String authReqID, Object pollingattribute) {
 
         if (pollingattribute instanceof PollingAtrribute) {
-            cibaProxyJdbcStore.getPollingAttributeDB().add(authReqID, pollingattribute);
+            if (isWriteBehind()) {
+                loadIntoMemoryTier(authReqID);
+                memoryTier.addPollingAttribute(authReqID, pollingattribute);
+                writeBehindQueue.put(authReqID, CibaTransaction.Part.POLLING_ATTRIBUTE, pollingattribute);
+            } else {
+                cibaProxyJdbcStore.getPollingAttributeDB().add(authReqID, pollingattribute);
+            }
         }
     }
 
     @Override
     public void removeAuthRequest(String authReqID) {
 
-        cibaProxyJdbcStore.getAuthRequestDB().remove(authReqID);
+        if (isWriteBehind()) {
+            memoryTier.removeAuthRequest(authReqID);
+            writeBehindQueue.delete(authReqID, CibaTransaction.Part.AUTH_REQUEST);
+        } else {
+            cibaProxyJdbcStore.getAuthRequestDB().remove(authReqID);
+        }
     }
 
     @Override
     public void removeAuthResponse(String authReqID) {
 
-        cibaProxyJdbcStore.getAuthResponseDB().remove(authReqID);
+        if (isWriteBehind()) {
+            memoryTier.removeAuthResponse(authReqID);
+            writeBehindQueue.delete(authReqID, CibaTransaction.Part.AUTH_RESPONSE);
+        } else {
+            cibaProxyJdbcStore.getAuthResponseDB().remove(authReqID);
+        }
     }
 
     @Override
     public void removeTokenRequest(String authReqID) {
 
-        cibaProxyJdbcStore.getTokenRequestDB().remove(authReqID);
+        if (isWriteBehind()) {
+            memoryTier.removeTokenRequest(authReqID);
+            writeBehindQueue.delete(authReqID, CibaTransaction.Part.TOKEN_REQUEST);
+        } else {
+            cibaProxyJdbcStore.getTokenRequestDB().remove(authReqID);
+        }
     }
 
     @Override
     public void removeTokenResponse(String authReqID) {
 
-        cibaProxyJdbcStore.getTokenResponseDB().remove(authReqID);
+        if (isWriteBehind()) {
+            memoryTier.removeTokenResponse(authReqID);
+            writeBehindQueue.delete(authReqID, CibaTransaction.Part.TOKEN_RESPONSE);
+        } else {
+            cibaProxyJdbcStore.getTokenResponseDB().remove(authReqID);
+        }
     }
 
     @Override
     public void removePollingAttribute(String authReqID) {
 
-        cibaProxyJdbcStore.getPollingAttributeDB().remove(authReqID);
+        if (isWriteBehind()) {
+            memoryTier.removePollingAttribute(authReqID);
+            writeBehindQueue.delete(authReqID, CibaTransaction.Part.POLLING_ATTRIBUTE);
+        } else {
+            cibaProxyJdbcStore.getPollingAttributeDB().remove(authReqID);
+        }
     }
 
     @Override
     public CIBAauthRequest getAuthRequest(String authReqID) {
 
+        if (isWriteBehind()) {
+            CIBAauthRequest artifact = memoryTier.getAuthRequest(authReqID);
+            if (artifact != null || writeBehindQueue.isPendingDelete(authReqID, CibaTransaction.Part.AUTH_REQUEST)) {
+                return artifact;
+            }
+        }
         return (CIBAauthRequest) cibaProxyJdbcStore.getAuthRequestDB().get(authReqID);
     }
 
     @Override
     public CIBAauthResponse getAuthResponse(String authReqID) {
 
+        if (isWriteBehind()) {
+            CIBAauthResponse artifact = memoryTier.getAuthResponse(authReqID);
+            if (artifact != null || writeBehindQueue.isPendingDelete(authReqID, CibaTransaction.Part.AUTH_RESPONSE)) {
+                return artifact;
+            }
+        }
         return (CIBAauthResponse) cibaProxyJdbcStore.getAuthResponseDB().get(authReqID);
     }
 
     @Override
     public TokenRequest getTokenRequest(String authReqID) {
 
+        if (isWriteBehind()) {
+            TokenRequest artifact = memoryTier.getTokenRequest(authReqID);
+            if (artifact != null || writeBehindQueue.isPendingDelete(authReqID, CibaTransaction.Part.TOKEN_REQUEST)) {
+                return artifact;
+            }
+        }
         return (TokenRequest) cibaProxyJdbcStore.getTokenRequestDB().get(authReqID);
     }
 
     @Override
     public TokenResponse getTokenResponse(String authReqID) {
 
+        if (isWriteBehind()) {
+            TokenResponse artifact = memoryTier.getTokenResponse(authReqID);
+            if (artifact != null || writeBehindQueue.isPendingDelete(authReqID, CibaTransaction.Part.TOKEN_RESPONSE)) {
+                return artifact;
+            }
+        }
         return (TokenResponse) cibaProxyJdbcStore.getTokenResponseDB().get(authReqID);
     }
 
     @Override
     public PollingAtrribute getPollingAttribute(String authReqID) {
 
+        if (isWriteBehind()) {
+            PollingAtrribute artifact = memoryTier.getPollingAttribute(authReqID);
+            if (artifact != null ||
+                    writeBehindQueue.isPendingDelete(authReqID, CibaTransaction.Part.POLLING_ATTRIBUTE)) {
+                return artifact;
+            }
+        }
         return (PollingAtrribute) cibaProxyJdbcStore.getPollingAttributeDB().get(authReqID);
     }
 
+    @Override
+    public CibaTransaction getTransaction(String authReqID) {
+
+        if (isWriteBehind()) {
+            CibaTransaction transaction = memoryTier.getTransaction(authReqID);
+            if (transaction != null) {
+                return transaction;
+            }
+        }
+        CibaTransaction transaction = (CibaTransaction) cibaProxyJdbcStore.getCibaTransactionDB().get(authReqID);
+        if (transaction != null) {
+            // Authentication status is not persisted yet, it is kept in memory for every store type.
+            transaction.setAuthenticationStatus(TempErrorCache.getInstance().getAuthenticationResponse(authReqID));
+            transaction.clearModifications();
+        }
+        return transaction;
+    }
+
+    @Override
+    public boolean touchLastPolled(String authReqID, long expectedLastPolledTime, long lastPolledTime,
+                                   long pollingInterval) {
+
+        if (isWriteBehind()) {
+            loadIntoMemoryTier(authReqID);
+            if (!memoryTier.touchLastPolled(authReqID, expectedLastPolledTime, lastPolledTime, pollingInterval)) {
+                return false;
+            }
+            writeBehindQueue.put(authReqID, CibaTransaction.Part.POLLING_ATTRIBUTE,
+                    memoryTier.getPollingAttribute(authReqID));
+            return true;
+        }
+        return cibaProxyJdbcStore.getPollingAttributeDB()
+                .touchLastPolled(authReqID, expectedLastPolledTime, lastPolledTime, pollingInterval);
+    }
+
+    @Override
+    public boolean markNotificationIssued(String authReqID) {
+
+        if (isWriteBehind()) {
+            loadIntoMemoryTier(authReqID);
+            if (!memoryTier.markNotificationIssued(authReqID)) {
+                return false;
+            }
+            writeBehindQueue.put(authReqID, CibaTransaction.Part.POLLING_ATTRIBUTE,
+                    memoryTier.getPollingAttribute(authReqID));
+            return true;
+        }
+        return cibaProxyJdbcStore.getPollingAttributeDB().markNotificationIssued(authReqID);
+    }
+
+    private boolean isWriteBehind() {
+
+        return "WriteBehind".equals(ConfigurationFile.getInstance().getJDBC_WRITE_MODE());
+    }
+
+    /**
+     * Loads a transaction stored before this node cached it, so the memory tier never holds a partial record.
+     * Transactions start with the authentication request, which is therefore written without a lookup.
+     */
+    private void loadIntoMemoryTier(String authReqID) {
+
+        if (CibaTransactionCache.getInstance().get(authReqID) != null) {
+            return;
+        }
+        CibaTransaction stored = (CibaTransaction) cibaProxyJdbcStore.getCibaTransactionDB().get(authReqID);
+        if (stored == null) {
+            return;
+        }
+        CibaTransactionCache.getInstance().update(authReqID, record -> {
+            if (record.getAuthRequest() == null) {
+                record.setAuthRequest(stored.getAuthRequest());
+            }
+            if (record.getAuthResponse() == null) {
+                record.setAuthResponse(stored.getAuthResponse());
+            }
+            if (record.getPollingAtrribute() == null) {
+                record.setPollingAtrribute(stored.getPollingAtrribute());
+            }
+            if (record.getTokenRequest() == null) {
+                record.setTokenRequest(stored.getTokenRequest());
+            }
+            if (record.getTokenResponse() == null) {
+                record.setTokenResponse(stored.getTokenResponse());
+            }
+        });
+    }
+
     @Override
     public void registerToAuthRequestObservers(Object authRequestHandler) {
 
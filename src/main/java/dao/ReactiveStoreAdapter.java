@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package dao;
+
+import configuration.ConfigurationFile;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import util.ExecutorFactory;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adapts the artifact stores, and other blocking work, to the reactive runtime, so that it never runs on an event
+ * loop thread. Whatever the store, work is called on a pool of as many threads as the store has connections; more
+ * threads would only wait. Only work known to never block, such as reads of in-memory state, is called in place.
+ */
+public class ReactiveStoreAdapter {
+
+    private volatile Scheduler scheduler;
+    private ExecutorService executor;
+
+    private ReactiveStoreAdapter() {
+
+    }
+
+    private static ReactiveStoreAdapter reactiveStoreAdapterInstance = new ReactiveStoreAdapter();
+
+    public static ReactiveStoreAdapter getInstance() {
+
+        if (reactiveStoreAdapterInstance == null) {
+
+            synchronized (ReactiveStoreAdapter.class) {
+
+                if (reactiveStoreAdapterInstance == null) {
+
+                    /* instance will be created at request time */
+                    reactiveStoreAdapterInstance = new ReactiveStoreAdapter();
+                }
+            }
+        }
+        return reactiveStoreAdapterInstance;
+    }
+
+    /**
+     * Run store work without blocking the caller.
+     *
+     * @param work Work that reads or writes the stores, or otherwise blocks.
+     * @param <T>  Result of the work.
+     * @return result of the work, empty if the work returns null.
+     */
+    public <T> Mono<T> call(Callable<T> work) {
+
+        return Mono.fromCallable(work).subscribeOn(getScheduler());
+    }
+
+    /**
+     * Run work in place, on the subscribing thread. Only for work that touches nothing but in-memory state and
+     * never blocks, whatever the configured store.
+     *
+     * @param work Work that never blocks.
+     * @param <T>  Result of the work.
+     * @return result of the work, empty if the work returns null.
+     */
+    public <T> Mono<T> callInPlace(Callable<T> work) {
+
+        return Mono.fromCallable(work);
+    }
+
+    /**
+     * Run store work without blocking the caller.
+     *
+     * @param work Work that reads or writes the stores.
+     * @return completion of the work.
+     */
+    public Mono<Void> run(Runnable work) {
+
+        return call(() -> {
+            work.run();
+            return null;
+        }).then();
+    }
+
+    /**
+     * Stop the store threads, to be called when the server shuts down. Work already handed to them is let finish.
+     */
+    public synchronized void shutdown() {
+
+        if (scheduler != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            scheduler.dispose();
+            scheduler = null;
+            executor = null;
+        }
+    }
+
+    private Scheduler getScheduler() {
+
+        if (scheduler == null) {
+            synchronized (this) {
+                if (scheduler == null) {
+                    executor = Executors.newFixedThreadPool(ConfigurationFile.getInstance().getDB_POOL_MAX_ACTIVE(),
+                            ExecutorFactory.getInstance().threadFactory("ciba-store"));
+                    scheduler = Schedulers.fromExecutorService(executor);
+                }
+            }
+        }
+        return scheduler;
+    }
+}
@@ -18,17 +18,95 @@
 
 package dao;
 
+import cibaparameters.CIBAParameters;
+import com.google.gson.Gson;
+import exceptions.InternalServerErrorException;
+import handlers.Handlers;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
+import tempErrorCache.TempErrorCache;
 import transactionartifacts.CIBAauthRequest;
 import transactionartifacts.CIBAauthResponse;
+import transactionartifacts.CibaTransaction;
 import transactionartifacts.PollingAtrribute;
 import transactionartifacts.TokenRequest;
 import transactionartifacts.TokenResponse;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+
 /**
  * Artifact store connector for Redis.
+ * Every transaction is kept in one hash, keyed by its auth_req_id, that expires along with the transaction.
  */
 public class RedisArtifactStoreConnector implements ArtifactStoreConnectors {
 
+    private static final Logger LOGGER = Logger.getLogger(RedisArtifactStoreConnector.class.getName());
+
+    private static final String KEY_PREFIX = "ciba:transaction:";
+
+    static final String AUTH_REQUEST = "authRequest";
+    static final String AUTH_RESPONSE = "authResponse";
+    static final String TOKEN_REQUEST = "tokenRequest";
+    static final String TOKEN_RESPONSE = "tokenResponse";
+    static final String AUTHENTICATION_STATUS = "authenticationStatus";
+
+    // Polling attribute is kept as flat fields so that single fields can be updated in place.
+    static final String EXPIRES_IN = "expiresIn";
+    static final String POLLING_INTERVAL = "pollingInterval";
+    static final String LAST_POLLED_TIME = "lastPolledTime";
+    static final String ISSUED_TIME = "issuedTime";
+    static final String NOTIFICATION_ISSUED = "notificationIssued";
+
+    private static final String[] POLLING_ATTRIBUTE_FIELDS =
+            {EXPIRES_IN, POLLING_INTERVAL, LAST_POLLED_TIME, ISSUED_TIME, NOTIFICATION_ISSUED};
+
+    // Compare-and-set scripts, run atomically by Redis. They return 1 when the hash was updated.
+    private static final String TOUCH_LAST_POLLED_SCRIPT =
+            "if redis.call('HGET', KEYS[1], '" + LAST_POLLED_TIME + "') == ARGV[1] then " +
+                    "redis.call('HMSET', KEYS[1], '" + LAST_POLLED_TIME + "', ARGV[2], '" + POLLING_INTERVAL +
+                    "', ARGV[3]) return 1 end return 0";
+    // Gives a hash its expiry when it has none yet, so that later writes do not push the expiry further out.
+    private static final String EXPIRE_IF_NEW_SCRIPT =
+            "if redis.call('TTL', KEYS[1]) == -1 then redis.call('EXPIRE', KEYS[1], ARGV[1]) return 1 end return 0";
+    private static final String MARK_NOTIFICATION_ISSUED_SCRIPT =
+            "if redis.call('HGET', KEYS[1], '" + NOTIFICATION_ISSUED + "') == 'false' then " +
+                    "redis.call('HSET', KEYS[1], '" + NOTIFICATION_ISSUED + "', 'true') return 1 end return 0";
+
+    private final Gson gson = new Gson();
+    private final ConcurrentHashMap<String, String> scriptDigests = new ConcurrentHashMap<>();
+    private final CopyOnWriteArrayList<Handlers> interestedparty = new CopyOnWriteArrayList<>();
+    private volatile JedisPool jedisPool;
+
+    private RedisArtifactStoreConnector() {
+
+    }
+
+    /**
+     * Creates a connector over the given pool, such as one pointing at an in-process Redis server.
+     *
+     * @param jedisPool Pool of Redis connections.
+     */
+    RedisArtifactStoreConnector(JedisPool jedisPool) {
+
+        this.jedisPool = jedisPool;
+    }
+
     private static RedisArtifactStoreConnector redisArtifactStoreConnectorInstance = new RedisArtifactStoreConnector();
 
     public static RedisArtifactStoreConnector getInstance() {
@@ -50,106 +128,390 @@ public class RedisArtifactStoreConnector implements ArtifactStoreConnectors {
     @Override
     public void addAuthRequest(String authReqID, Object authrequest) {
 
+        if (authrequest instanceof CIBAauthRequest) {
+            Map<String, String> fields = new HashMap<>();
+            fields.put(AUTH_REQUEST, gson.toJson(authrequest));
+            write(authReqID, fields, null);
+        }
     }
 
     @Override
     public void addAuthResponse(String authReqID, Object authresponse) {
 
+        if (authresponse instanceof CIBAauthResponse) {
+            Map<String, String> fields = new HashMap<>();
+            fields.put(AUTH_RESPONSE, gson.toJson(authresponse));
+            write(authReqID, fields, null);
+        }
     }
 
     @Override
     public void addTokenRequest(String authReqID, Object tokenrequest) {
 
+        if (tokenrequest instanceof TokenRequest) {
+            Map<String, String> fields = new HashMap<>();
+            fields.put(TOKEN_REQUEST, gson.toJson(tokenrequest));
+            write(authReqID, fields, null);
+        }
     }
 
     @Override
-    public void addTokenResponse(String authReqID, Object authresponse) {
+    public void addTokenResponse(String authReqID, Object tokenresponse) {
 
+        if (tokenresponse instanceof TokenResponse) {
+            Map<String, String> fields = new HashMap<>();
+            fields.put(TOKEN_RESPONSE, gson.toJson(tokenresponse));
+            write(authReqID, fields, null);
+        }
     }
 
     @Override
     public void addPollingAttribute(String authReqID, Object pollingattribute) {
 
+        if (pollingattribute instanceof PollingAtrribute) {
+            Map<String, String> fields = new HashMap<>();
+            putPollingAttribute(fields, (PollingAtrribute) pollingattribute);
+            write(authReqID, fields, null);
+        }
     }
 
     @Override
     public void removeAuthRequest(String authReqID) {
 
+        write(authReqID, null, new String[]{AUTH_REQUEST});
     }
 
     @Override
     public void removeAuthResponse(String authReqID) {
 
+        write(authReqID, null, new String[]{AUTH_RESPONSE});
     }
 
     @Override
     public void removeTokenRequest(String authReqID) {
 
+        write(authReqID, null, new String[]{TOKEN_REQUEST});
     }
 
     @Override
     public void removeTokenResponse(String authReqID) {
 
+        write(authReqID, null, new String[]{TOKEN_RESPONSE});
     }
 
     @Override
     public void removePollingAttribute(String authReqID) {
 
+        write(authReqID, null, POLLING_ATTRIBUTE_FIELDS);
     }
 
     @Override
     public CIBAauthRequest getAuthRequest(String authReqID) {
 
-        return null;
+        return fromJson(read(authReqID, AUTH_REQUEST).get(0), CIBAauthRequest.class);
     }
 
     @Override
     public CIBAauthResponse getAuthResponse(String authReqID) {
 
-        return null;
+        return fromJson(read(authReqID, AUTH_RESPONSE).get(0), CIBAauthResponse.class);
     }
 
     @Override
     public TokenRequest getTokenRequest(String authReqID) {
 
-        return null;
+        return fromJson(read(authReqID, TOKEN_REQUEST).get(0), TokenRequest.class);
     }
 
     @Override
     public TokenResponse getTokenResponse(String authReqID) {
 
-        return null;
+        return fromJson(read(authReqID, TOKEN_RESPONSE).get(0), TokenResponse.class);
     }
 
     @Override
     public PollingAtrribute getPollingAttribute(String authReqID) {
 
-        return null;
+        List<String> values = read(authReqID, POLLING_ATTRIBUTE_FIELDS);
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < POLLING_ATTRIBUTE_FIELDS.length; i++) {
+            if (values.get(i) != null) {
+                fields.put(POLLING_ATTRIBUTE_FIELDS[i], values.get(i));
+            }
+        }
+        return toPollingAttribute(authReqID, fields);
+    }
+
+    @Override
+    public CibaTransaction getTransaction(String authReqID) {
+
+        if (authReqID == null) {
+            return null;
+        }
+        Map<String, String> fields;
+        try (Jedis jedis = getJedisPool().getResource()) {
+            fields = jedis.hgetAll(KEY_PREFIX + authReqID);
+        } catch (JedisException e) {
+            LOGGER.severe("Error reading transaction from Redis : " + e.getMessage());
+            return null;
+        }
+        if (fields == null || fields.isEmpty()) {
+            return null;
+        }
+
+        CibaTransaction transaction = new CibaTransaction(authReqID);
+        transaction.setAuthRequest(fromJson(fields.get(AUTH_REQUEST), CIBAauthRequest.class));
+        transaction.setAuthResponse(fromJson(fields.get(AUTH_RESPONSE), CIBAauthResponse.class));
+        transaction.setPollingAtrribute(toPollingAttribute(authReqID, fields));
+        transaction.setTokenRequest(fromJson(fields.get(TOKEN_REQUEST), TokenRequest.class));
+        transaction.setTokenResponse(fromJson(fields.get(TOKEN_RESPONSE), TokenResponse.class));
+
+        // Status written by another proxy node takes precedence over the one known locally.
+        String authenticationStatus = fields.get(AUTHENTICATION_STATUS);
+        transaction.setAuthenticationStatus(authenticationStatus != null ? authenticationStatus :
+                TempErrorCache.getInstance().getAuthenticationResponse(authReqID));
+        transaction.clearModifications();
+        return transaction;
+    }
+
+    @Override
+    public void updateTransaction(String authReqID, CibaTransaction transaction) {
+
+        Map<String, String> fields = new HashMap<>();
+        List<String> removedFields = new ArrayList<>();
+
+        if (transaction.isModified(CibaTransaction.Part.AUTH_REQUEST)) {
+            putJson(fields, removedFields, AUTH_REQUEST, transaction.getAuthRequest());
+        }
+        if (transaction.isModified(CibaTransaction.Part.AUTH_RESPONSE)) {
+            putJson(fields, removedFields, AUTH_RESPONSE, transaction.getAuthResponse());
+        }
+        if (transaction.isModified(CibaTransaction.Part.POLLING_ATTRIBUTE)) {
+            if (transaction.getPollingAtrribute() == null) {
+                for (String field : POLLING_ATTRIBUTE_FIELDS) {
+                    removedFields.add(field);
+                }
+            } else {
+                putPollingAttribute(fields, transaction.getPollingAtrribute());
+            }
+        }
+        if (transaction.isModified(CibaTransaction.Part.TOKEN_REQUEST)) {
+            putJson(fields, removedFields, TOKEN_REQUEST, transaction.getTokenRequest());
+        }
+        if (transaction.isModified(CibaTransaction.Part.TOKEN_RESPONSE)) {
+            putJson(fields, removedFields, TOKEN_RESPONSE, transaction.getTokenResponse());
+        }
+        if (transaction.isModified(CibaTransaction.Part.AUTHENTICATION_STATUS)) {
+            TempErrorCache.getInstance().addAuthenticationStatus(authReqID, transaction.getAuthenticationStatus());
+            if (transaction.getAuthenticationStatus() == null) {
+                removedFields.add(AUTHENTICATION_STATUS);
+            } else {
+                fields.put(AUTHENTICATION_STATUS, transaction.getAuthenticationStatus());
+            }
+        }
+
+        // Every modified part goes to Redis in a single round trip.
+        write(authReqID, fields, removedFields.toArray(new String[0]));
+        transaction.clearModifications();
+    }
+
+    @Override
+    public boolean touchLastPolled(String authReqID, long expectedLastPolledTime, long lastPolledTime,
+                                   long pollingInterval) {
+
+        return runScript(TOUCH_LAST_POLLED_SCRIPT, authReqID, String.valueOf(expectedLastPolledTime),
+                String.valueOf(lastPolledTime), String.valueOf(pollingInterval));
+    }
+
+    @Override
+    public boolean markNotificationIssued(String authReqID) {
+
+        return runScript(MARK_NOTIFICATION_ISSUED_SCRIPT, authReqID);
     }
 
     @Override
     public void registerToAuthRequestObservers(Object authRequestHandler) {
 
+        interestedparty.add((Handlers) authRequestHandler);
     }
 
     @Override
     public void registerToAuthResponseObservers(Object authResponseHandler) {
 
+        interestedparty.add((Handlers) authResponseHandler);
     }
 
     @Override
     public void registerToTokenRequestObservers(Object tokenRequestHandler) {
 
+        interestedparty.add((Handlers) tokenRequestHandler);
     }
 
     @Override
-    public void registerToTokenResponseObservers(Object tokenRequestHandler) {
+    public void registerToTokenResponseObservers(Object tokenResponseHandler) {
 
+        interestedparty.add((Handlers) tokenResponseHandler);
     }
 
     @Override
     public void registerToPollingAttribute(Object pollingatrribute) {
+        //No need of validation or implementation
+    }
+
+    /**
+     * Sets and removes fields of the transaction hash, all in one pipeline. The hash expires expires_in after the
+     * transaction was issued: writes carrying the issued time set that deadline, and any other write only gives
+     * an expiry to a hash that has none, so the expiry never slides with later writes.
+     *
+     * @param authReqID     Ciba Authentication request identifier.
+     * @param fields        Fields to set, may be null.
+     * @param removedFields Fields to remove, may be null.
+     */
+    private void write(String authReqID, Map<String, String> fields, String[] removedFields) {
+
+        if (authReqID == null) {
+            return;
+        }
+        boolean hasFields = fields != null && !fields.isEmpty();
+        boolean hasRemovedFields = removedFields != null && removedFields.length > 0;
+        if (!hasFields && !hasRemovedFields) {
+            return;
+        }
+
+        String key = KEY_PREFIX + authReqID;
+        try (Jedis jedis = getJedisPool().getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            if (hasFields) {
+                pipeline.hmset(key, fields);
+            }
+            if (hasRemovedFields) {
+                pipeline.hdel(key, removedFields);
+            }
+            if (hasFields && fields.get(ISSUED_TIME) != null) {
+                pipeline.pexpireAt(key, Long.parseLong(fields.get(ISSUED_TIME)) + Long.parseLong(fields.get(
+                        EXPIRES_IN)));
+            } else {
+                pipeline.eval(EXPIRE_IF_NEW_SCRIPT, Collections.singletonList(key), Collections.singletonList(
+                        String.valueOf(CIBAParameters.getInstance().getExpires_in())));
+            }
+            pipeline.sync();
+        } catch (JedisException e) {
+            try {
+                throw new InternalServerErrorException("Error writing transaction to Redis : " + e.getMessage());
+            } catch (InternalServerErrorException internalServerErrorException) {
+                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, internalServerErrorException
+                        .getMessage());
+            }
+        }
+    }
+
+    /**
+     * Runs a compare-and-set script on the transaction hash. The script is referenced by its digest and only sent
+     * in full when Redis does not have it cached yet.
+     *
+     * @return true if the script updated the hash.
+     */
+    private boolean runScript(String script, String authReqID, String... args) {
 
+        if (authReqID == null) {
+            return false;
+        }
+        List<String> keys = Collections.singletonList(KEY_PREFIX + authReqID);
+        List<String> arguments = Arrays.asList(args);
+        try (Jedis jedis = getJedisPool().getResource()) {
+            Object result;
+            try {
+                result = jedis.evalsha(scriptDigests.computeIfAbsent(script, this::sha1Hex), keys, arguments);
+            } catch (JedisNoScriptException e) {
+                result = jedis.eval(script, keys, arguments);
+            }
+            return Long.valueOf(1).equals(result);
+        } catch (JedisException e) {
+            try {
+                throw new InternalServerErrorException("Error updating transaction in Redis : " + e.getMessage());
+            } catch (InternalServerErrorException internalServerErrorException) {
+                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, internalServerErrorException
+                        .getMessage());
+            }
+        }
+    }
+
+    private List<String> read(String authReqID, String... fields) {
+
+        List<String> values = null;
+        if (authReqID != null) {
+            try (Jedis jedis = getJedisPool().getResource()) {
+                values = jedis.hmget(KEY_PREFIX + authReqID, fields);
+            } catch (JedisException e) {
+                LOGGER.severe("Error reading transaction from Redis : " + e.getMessage());
+            }
+        }
+        if (values == null) {
+            values = new ArrayList<>();
+            for (int i = 0; i < fields.length; i++) {
+                values.add(null);
+            }
+        }
+        return values;
     }
 
+    private void putJson(Map<String, String> fields, List<String> removedFields, String field, Object artifact) {
+
+        if (artifact == null) {
+            removedFields.add(field);
+        } else {
+            fields.put(field, gson.toJson(artifact));
+        }
+    }
+
+    private void putPollingAttribute(Map<String, String> fields, PollingAtrribute pollingAtrribute) {
+
+        fields.put(EXPIRES_IN, String.valueOf(pollingAtrribute.getExpiresIn()));
+        fields.put(POLLING_INTERVAL, String.valueOf(pollingAtrribute.getPollingInterval()));
+        fields.put(LAST_POLLED_TIME, String.valueOf(pollingAtrribute.getLastPolledTime()));
+        fields.put(ISSUED_TIME, String.valueOf(pollingAtrribute.getIssuedTime()));
+        fields.put(NOTIFICATION_ISSUED, String.valueOf(Boolean.TRUE.equals(pollingAtrribute.getNotificationIssued())));
+    }
+
+    private PollingAtrribute toPollingAttribute(String authReqID, Map<String, String> fields) {
+
+        if (fields.get(ISSUED_TIME) == null) {
+            return null;
+        }
+        PollingAtrribute pollingAtrribute = new PollingAtrribute();
+        pollingAtrribute.setAuth_req_id(authReqID);
+        pollingAtrribute.setExpiresIn(Long.parseLong(fields.get(EXPIRES_IN)));
+        pollingAtrribute.setPollingInterval(Long.parseLong(fields.get(POLLING_INTERVAL)));
+        pollingAtrribute.setLastPolledTime(Long.parseLong(fields.get(LAST_POLLED_TIME)));
+        pollingAtrribute.setIssuedTime(Long.parseLong(fields.get(ISSUED_TIME)));
+        pollingAtrribute.setNotificationIssued(Boolean.parseBoolean(fields.get(NOTIFICATION_ISSUED)));
+        return pollingAtrribute;
+    }
+
+    private String sha1Hex(String script) {
+
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(script.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        }
+    }
+
+    private <T> T fromJson(String json, Class<T> type) {
+
+        return json == null ? null : gson.fromJson(json, type);
+    }
+
+    private JedisPool getJedisPool() {
+
+        if (jedisPool == null) {
+            jedisPool = RedisConnection.getJedisPool();
+        }
+        return jedisPool;
+    }
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dao;
+
+import configuration.ConfigurationFile;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Protocol;
+
+/**
+ * Redis connections.
+ */
+public class RedisConnection {
+
+    private static volatile JedisPool jedisPool;
+
+    /**
+     * Return the shared Jedis pool, creating it from the configuration on first use.
+     *
+     * @return Pool of Redis connections.
+     */
+    public static JedisPool getJedisPool() {
+
+        if (jedisPool == null) {
+
+            synchronized (RedisConnection.class) {
+
+                if (jedisPool == null) {
+                    JedisPoolConfig poolConfig = new JedisPoolConfig();
+                    poolConfig.setMaxTotal(100);
+                    poolConfig.setMaxIdle(50);
+                    poolConfig.setMinIdle(10);
+                    poolConfig.setMaxWaitMillis(10000);
+
+                    ConfigurationFile configurationFile = ConfigurationFile.getInstance();
+                    jedisPool = new JedisPool(poolConfig, configurationFile.getREDIS_HOST(),
+                            configurationFile.getREDIS_PORT(), Protocol.DEFAULT_TIMEOUT,
+                            configurationFile.getREDIS_PASSWORD());
+                }
+            }
+        }
+        return jedisPool;
+    }
+
+}
@@ -22,6 +22,7 @@ import authorizationserver.CIBAProxyServer;
 import com.nimbusds.jwt.SignedJWT;
 import configuration.ConfigurationFile;
 import dao.DaoFactory;
+import metrics.ProxyMetrics;
 import net.minidev.json.JSONObject;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
@@ -31,6 +32,7 @@ import transactionartifacts.CIBAauthRequest;
 import util.CodeGenerator;
 import validator.AuthRequestValidator;
 
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 
 /**
@@ -87,6 +89,8 @@ public class CIBAAuthRequestHandler implements Handlers {
             // Once properly validated creating the authentication response.
             if (this.refactorAuthRequest(jo) != null) {
 
+                checkRegistration(this.refactorAuthRequest(jo));
+
                 // Initiate code generator.
                 CodeGenerator codeGenerator = CodeGenerator.getInstance();
 
@@ -133,6 +137,46 @@ public class CIBAAuthRequestHandler implements Handlers {
         }
     }
 
+    /**
+     * Look up the client and the user of an authentication request in the client and user stores. Requests from
+     * unregistered clients or for unregistered users are counted, and turned away when registration is required.
+     *
+     * @param cibAauthRequest Ciba Authentication request.
+     */
+    private void checkRegistration(CIBAauthRequest cibAauthRequest) {
+
+        ConfigurationFile configurationFile = ConfigurationFile.getInstance();
+
+        if (!isRegistered(() -> daoFactory.getClientStoreConnector(configurationFile.getCLIENT_STORE_CONNECTOR_TYPE())
+                .getClient(cibAauthRequest.getIss()))) {
+            ProxyMetrics.getInstance().incrementCounter("registration.client.unknown");
+            if (configurationFile.getREQUIRE_REGISTRATION()) {
+                LOGGER.info("Authentication request from an unregistered client.");
+                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "unauthorized_client");
+            }
+        }
+
+        String loginHint = cibAauthRequest.getLogin_hint();
+        if (loginHint != null && !loginHint.equals("null") && !isRegistered(() -> daoFactory
+                .getUserStoreConnector(configurationFile.getUSER_STORE_CONNECTOR_TYPE()).getUser(loginHint))) {
+            ProxyMetrics.getInstance().incrementCounter("registration.user.unknown");
+            if (configurationFile.getREQUIRE_REGISTRATION()) {
+                LOGGER.info("Authentication request for an unregistered user.");
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "unknown_user_id");
+            }
+        }
+    }
+
+    private static boolean isRegistered(Supplier<Object> lookup) {
+
+        try {
+            return lookup.get() != null;
+        } catch (ResponseStatusException e) {
+            // The stores answer an unknown client or user with a bad request.
+            return false;
+        }
+    }
+
     /**
      * Receive ciba authentication request parameters.
      *
@@ -26,6 +26,7 @@ import configuration.ConfigurationFile;
 import dao.DaoFactory;
 import transactionartifacts.CIBAauthRequest;
 import transactionartifacts.CIBAauthResponse;
+import transactionartifacts.CibaTransaction;
 import transactionartifacts.PollingAtrribute;
 
 import java.time.ZonedDateTime;
@@ -101,17 +102,19 @@ public class CIBAAuthResponseHandler implements Handlers {
      */
     public void storeAuthResponse(String authReqId, CIBAauthResponse cibAauthResponse) {
 
+        // The auth response and the polling attributes are written together, in one round trip where the store
+        // supports it.
+        CibaTransaction transaction = new CibaTransaction(authReqId);
+        transaction.setAuthResponse(cibAauthResponse);
+        transaction.setPollingAtrribute(createPollingAttribute(authReqId));
         daoFactory.getArtifactStoreConnector(ConfigurationFile.getInstance().getSTORE_CONNECTOR_TYPE()).
-                addAuthResponse(authReqId, cibAauthResponse);
+                updateTransaction(authReqId, transaction);
 
         LOGGER.info("CIBA Authentication Response stored in Auth Response Store.");
         System.out
                 .println("Working in perfection" + daoFactory.getArtifactStoreConnector(ConfigurationFile.getInstance().
                         getSTORE_CONNECTOR_TYPE()).getAuthResponse(authReqId).getExpiresIn());
 
-        // Store polling attributes.
-        storePollingAttribute(authReqId);
-
         // Triggering the server to initiate the flow.
         triggerServerRequestHandler(authReqId);
 
@@ -132,11 +135,12 @@ public class CIBAAuthResponseHandler implements Handlers {
     }
 
     /**
-     * Store polling attributes in the store.
+     * Create the polling attributes of a new transaction.
      *
      * @param authReqId Ciba Authentication request identifier.
+     * @return Polling attributes.
      */
-    private void storePollingAttribute(String authReqId) {
+    private PollingAtrribute createPollingAttribute(String authReqId) {
 
         long currentTime = ZonedDateTime.now().toInstant().toEpochMilli();
 
@@ -155,7 +159,6 @@ public class CIBAAuthResponseHandler implements Handlers {
             //do nothing
         }
 
-        daoFactory.getArtifactStoreConnector(ConfigurationFile.getInstance().getSTORE_CONNECTOR_TYPE()).
-                addPollingAttribute(authReqId, pollingAtrribute);
+        return pollingAtrribute;
     }
 }
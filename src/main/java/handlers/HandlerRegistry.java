@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package handlers;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Registry of the handlers observing the endpoints, keyed by handler type.
+ * Lookups read an immutable map without locking, and every registration publishes a new copy, so handlers can be
+ * added and removed while requests are being served.
+ */
+public class HandlerRegistry {
+
+    private volatile Map<Class<? extends Handlers>, Handlers> handlers = Collections.emptyMap();
+
+    /**
+     * Register a handler, replacing any handler of the same type.
+     *
+     * @param handler Handler to register.
+     */
+    public synchronized void register(Handlers handler) {
+
+        if (handler == null) {
+            throw new NullPointerException("Null Handlers.");
+        }
+        Map<Class<? extends Handlers>, Handlers> updated = new HashMap<>(handlers);
+        updated.put(handler.getClass(), handler);
+        handlers = Collections.unmodifiableMap(updated);
+    }
+
+    /**
+     * Remove a handler, if it is the one registered for its type.
+     *
+     * @param handler Handler to remove.
+     */
+    public synchronized void deRegister(Handlers handler) {
+
+        if (handler == null || handlers.get(handler.getClass()) != handler) {
+            return;
+        }
+        Map<Class<? extends Handlers>, Handlers> updated = new HashMap<>(handlers);
+        updated.remove(handler.getClass());
+        handlers = Collections.unmodifiableMap(updated);
+    }
+
+    /**
+     * @param type Type of the handler.
+     * @param <T>  Type of the handler.
+     * @return the handler registered for the type, or null if there is none.
+     */
+    public <T extends Handlers> T get(Class<T> type) {
+
+        return type.cast(handlers.get(type));
+    }
+
+    /**
+     * @return true if no handler is registered.
+     */
+    public boolean isEmpty() {
+
+        return handlers.isEmpty();
+    }
+}
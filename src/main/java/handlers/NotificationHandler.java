@@ -18,16 +18,21 @@
 
 package handlers;
 
+import ciba.proxy.server.servicelayer.NotificationDispatcher;
 import configuration.ConfigurationFile;
 import dao.ArtifactStoreConnectors;
 import dao.DaoFactory;
-import transactionartifacts.PollingAtrribute;
+import transactionartifacts.CIBAauthRequest;
+
+import java.util.logging.Logger;
 
 /**
  * Handles the process of sending client notifications.
  */
 public class NotificationHandler implements Handlers {
 
+    private static final Logger LOGGER = Logger.getLogger(NotificationHandler.class.getName());
+
     ArtifactStoreConnectors artifactStoreConnectors =
             DaoFactory.getInstance().getArtifactStoreConnector(ConfigurationFile.
                     getInstance().getSTORE_CONNECTOR_TYPE());
@@ -62,8 +67,16 @@ public class NotificationHandler implements Handlers {
      */
     public void sendNotificationtoClient(String authReqId) {
 
-        if (setNotificationFlag(authReqId)) {
-            // Do nothing for the moment.
+        // Only the call that sets the flag notifies, so the client is pinged once per transaction.
+        if (setNotificationFlag(authReqId) && "ping".equalsIgnoreCase(ConfigurationFile.getInstance().getFLOW_MODE())) {
+
+            CIBAauthRequest authRequest = artifactStoreConnectors.getAuthRequest(authReqId);
+            if (authRequest == null || authRequest.getClient_notification_token() == null) {
+                LOGGER.warning("No client notification token for " + authReqId + ", the client is not notified.");
+                return;
+            }
+            NotificationDispatcher.getInstance().dispatch(ConfigurationFile.getInstance()
+                    .getCLIENT_NOTIFICATION_ENDPOINT(), authReqId, authRequest.getClient_notification_token());
         }
     }
 
@@ -71,16 +84,11 @@ public class NotificationHandler implements Handlers {
      * Set the notification flag.
      *
      * @param authReqId Authentication request identifier.
-     * @return Boolean if setting process is success.
+     * @return Boolean if this call set the flag.
      */
     private Boolean setNotificationFlag(String authReqId) {
 
-        PollingAtrribute pollingAtrribute1 = artifactStoreConnectors.getPollingAttribute(authReqId);
-        artifactStoreConnectors.removePollingAttribute(authReqId);
-        pollingAtrribute1.setNotificationIssued(true);
-
-        artifactStoreConnectors.addPollingAttribute(authReqId, pollingAtrribute1);
-        return true;
+        return artifactStoreConnectors.markNotificationIssued(authReqId);
     }
 
 }
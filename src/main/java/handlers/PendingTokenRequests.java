@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package handlers;
+
+import configuration.ConfigurationFile;
+import metrics.ProxyMetrics;
+import util.ExecutorFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Token requests parked until the authentication of their auth_req_id ends, with its token or with a failure, or
+ * their wait expires. A parked request holds no thread, only a future that is completed by the end of the
+ * authentication or the expiry timer.
+ */
+public class PendingTokenRequests {
+
+    private final ConcurrentHashMap<String, List<CompletableFuture<Boolean>>> waiters = new ConcurrentHashMap<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private volatile ScheduledThreadPoolExecutor timer;
+    private volatile ExecutorService executor;
+
+    private PendingTokenRequests() {
+
+        ProxyMetrics.getInstance().registerGauge("token.longPoll.waiting", waiting::get);
+    }
+
+    private static PendingTokenRequests pendingTokenRequestsInstance = new PendingTokenRequests();
+
+    public static PendingTokenRequests getInstance() {
+
+        if (pendingTokenRequestsInstance == null) {
+
+            synchronized (PendingTokenRequests.class) {
+
+                if (pendingTokenRequestsInstance == null) {
+
+                    /* instance will be created at request time */
+                    pendingTokenRequestsInstance = new PendingTokenRequests();
+                }
+            }
+        }
+        return pendingTokenRequestsInstance;
+    }
+
+    /**
+     * Park a token request.
+     *
+     * @param authReqId Authentication request identifier.
+     * @return future completed with true when the authentication ends and false when the wait expires, or null if
+     * too many requests are parked already.
+     */
+    public CompletableFuture<Boolean> await(String authReqId) {
+
+        return await(authReqId, ConfigurationFile.getInstance().getLONG_POLL_TIMEOUT());
+    }
+
+    /**
+     * Park a token request for at most the given time.
+     *
+     * @param authReqId     Authentication request identifier.
+     * @param timeoutMillis Milliseconds after which the wait expires.
+     * @return future completed with true when the authentication ends and false when the wait expires, or null if
+     * too many requests are parked already.
+     */
+    public CompletableFuture<Boolean> await(String authReqId, long timeoutMillis) {
+
+        if (waiting.incrementAndGet() > ConfigurationFile.getInstance().getLONG_POLL_MAX_WAITING()) {
+            waiting.decrementAndGet();
+            ProxyMetrics.getInstance().incrementCounter("token.longPoll.rejected");
+            return null;
+        }
+
+        CompletableFuture<Boolean> waiter = new CompletableFuture<>();
+        waiters.compute(authReqId, (id, authReqWaiters) -> {
+            List<CompletableFuture<Boolean>> updated = authReqWaiters == null ? new ArrayList<>() : authReqWaiters;
+            updated.add(waiter);
+            return updated;
+        });
+        ScheduledFuture<?> expiry = getTimer().schedule(() -> waiter.complete(false), timeoutMillis,
+                TimeUnit.MILLISECONDS);
+
+        waiter.whenComplete((received, error) -> {
+            expiry.cancel(false);
+            waiters.computeIfPresent(authReqId, (id, authReqWaiters) -> {
+                authReqWaiters.remove(waiter);
+                return authReqWaiters.isEmpty() ? null : authReqWaiters;
+            });
+            waiting.decrementAndGet();
+            if (Boolean.TRUE.equals(received)) {
+                ProxyMetrics.getInstance().incrementCounter("token.longPoll.woken");
+            } else if (Boolean.FALSE.equals(received)) {
+                ProxyMetrics.getInstance().incrementCounter("token.longPoll.expired");
+            }
+        });
+        return waiter;
+    }
+
+    /**
+     * Wake the token requests parked for an auth_req_id, to be called once its token is stored.
+     *
+     * @param authReqId Authentication request identifier.
+     */
+    public void tokenReceived(String authReqId) {
+
+        wake(authReqId);
+    }
+
+    /**
+     * Wake the token requests parked for an auth_req_id, to be called once its authentication has failed or been
+     * denied, so they are answered at once rather than when their wait expires.
+     *
+     * @param authReqId Authentication request identifier.
+     */
+    public void authenticationFailed(String authReqId) {
+
+        wake(authReqId);
+    }
+
+    /**
+     * Wait without holding a thread.
+     *
+     * @param delayMillis Milliseconds to wait.
+     * @return future completed once the delay has passed.
+     */
+    public CompletableFuture<Void> delay(long delayMillis) {
+
+        CompletableFuture<Void> delay = new CompletableFuture<>();
+        getTimer().schedule(() -> delay.complete(null), delayMillis, TimeUnit.MILLISECONDS);
+        return delay;
+    }
+
+    private void wake(String authReqId) {
+
+        List<CompletableFuture<Boolean>> authReqWaiters = waiters.remove(authReqId);
+        if (authReqWaiters != null) {
+            for (CompletableFuture<Boolean> waiter : authReqWaiters) {
+                waiter.complete(true);
+            }
+        }
+    }
+
+    /**
+     * Threads answering woken and expired requests. Answering reads the store, so it is kept off the expiry timer
+     * and off the thread storing the token.
+     */
+    public ExecutorService getExecutor() {
+
+        if (executor == null) {
+            synchronized (this) {
+                if (executor == null) {
+                    executor = Executors.newFixedThreadPool(ConfigurationFile.getInstance().getDB_POOL_MAX_ACTIVE(),
+                            ExecutorFactory.getInstance().threadFactory("ciba-long-poll"));
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Expire every parked request and stop the threads, to be called when the server shuts down.
+     */
+    public synchronized void shutdown() {
+
+        if (timer != null) {
+            timer.shutdownNow();
+            timer = null;
+        }
+        for (String authReqId : waiters.keySet()) {
+            List<CompletableFuture<Boolean>> authReqWaiters = waiters.remove(authReqId);
+            if (authReqWaiters != null) {
+                for (CompletableFuture<Boolean> waiter : authReqWaiters) {
+                    waiter.complete(false);
+                }
+            }
+        }
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    private ScheduledThreadPoolExecutor getTimer() {
+
+        if (timer == null) {
+            synchronized (this) {
+                if (timer == null) {
+                    ScheduledThreadPoolExecutor scheduledTimer = new ScheduledThreadPoolExecutor(1, runnable -> {
+                        Thread thread = new Thread(runnable, "ciba-long-poll-timer");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    // Most waits end with the token, so their expiry tasks are dropped rather than kept queued.
+                    scheduledTimer.setRemoveOnCancelPolicy(true);
+                    timer = scheduledTimer;
+                }
+            }
+        }
+        return timer;
+    }
+}
@@ -20,6 +20,7 @@ package handlers;
 
 import com.nimbusds.jose.Payload;
 import com.nimbusds.jwt.JWTClaimsSet;
+import configuration.ConfigurationFile;
 import dao.DaoFactory;
 import exceptions.BadRequestException;
 import org.springframework.context.annotation.ComponentScan;
@@ -154,9 +155,8 @@ public class RegisterHandler implements Handlers {
      */
     private void store(String clientId, Client client) {
 
-        DaoFactory.getInstance().getClientStoreConnector("InMemoryCache").addClient(clientId, client);
-        System.out.println("Name of Client " +
-                DaoFactory.getInstance().getClientStoreConnector("InMemoryCache").getClient(clientId).getClientName());
+        DaoFactory.getInstance().getClientStoreConnector(
+                ConfigurationFile.getInstance().getCLIENT_STORE_CONNECTOR_TYPE()).addClient(clientId, client);
 
         LOGGER.info("Client store into the client store.");
     }
@@ -20,10 +20,14 @@ package handlers;
 
 import authorizationserver.CIBAProxyServer;
 import com.nimbusds.jose.Payload;
+import configuration.ConfigurationFile;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.server.ResponseStatusException;
+import transactionartifacts.CibaTransaction;
 import validator.TokenRequestValidator;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
 
 /**
@@ -34,6 +38,7 @@ import java.util.logging.Logger;
 public class TokenRequestHandler implements Handlers {
 
     private static final Logger LOGGER = Logger.getLogger(CIBAProxyServer.class.getName());
+    private static final String AUTHORIZATION_PENDING = "authorization pending";
 
     private TokenRequestHandler() {
 
@@ -70,11 +75,12 @@ public class TokenRequestHandler implements Handlers {
         TokenRequestValidator tokenRequestValidator = TokenRequestValidator.getInstance();
 
         // Validator class taking care of validation of the token request.
-        if (tokenRequestValidator.validateTokenRequest(authReqId, grantType) != null) {
+        CibaTransaction transaction = tokenRequestValidator.validateTokenRequest(authReqId, grantType);
+        if (transaction != null) {
 
             // TokenRequestHandler getting the service from Token_Response_Handler to create response.
             TokenResponseHandler tokenresponsehandler = TokenResponseHandler.getInstance();
-            return (tokenresponsehandler.createTokenResponse(authReqId));
+            return (tokenresponsehandler.createTokenResponse(transaction.getTokenResponse()));
 
         } else {
             TokenResponseHandler tokenresponsehandler = TokenResponseHandler.getInstance();
@@ -95,4 +101,58 @@ public class TokenRequestHandler implements Handlers {
         return processTokenRequest(authReqId, grantType);
     }
 
+    /**
+     * Receives a long polled token request. While the authorization is pending, the request is parked until its
+     * authentication ends or the wait expires, and is then answered like a poll made at that moment. A request
+     * arriving within the polling interval waits out the interval first, rather than being told to slow down.
+     *
+     * @param authReqId Authentication request identifier.
+     * @param grantType GrantType for token.
+     * @return future response payload.
+     */
+    public CompletableFuture<Payload> receiveWhenReady(String authReqId, String grantType) {
+
+        return receiveWhenReady(authReqId, grantType, ConfigurationFile.getInstance().getLONG_POLL_TIMEOUT());
+    }
+
+    private CompletableFuture<Payload> receiveWhenReady(String authReqId, String grantType, long waitMillis) {
+
+        PendingTokenRequests pendingTokenRequests = PendingTokenRequests.getInstance();
+        if (waitMillis <= 0) {
+            return CompletableFuture.completedFuture(processTokenRequest(authReqId, grantType));
+        }
+
+        // Parked before the first check, so a token stored while checking still wakes the request.
+        CompletableFuture<Boolean> tokenArrival = pendingTokenRequests.await(authReqId, waitMillis);
+        if (tokenArrival == null) {
+            return CompletableFuture.completedFuture(processTokenRequest(authReqId, grantType));
+        }
+        long remainingInterval = Math.min(TokenRequestValidator.getInstance().getRemainingInterval(authReqId),
+                waitMillis);
+        if (remainingInterval > 0) {
+            // Checked again once the interval has passed, parking anew should the authorization still be pending.
+            tokenArrival.cancel(false);
+            return pendingTokenRequests.delay(remainingInterval).thenComposeAsync(
+                    ignored -> receiveWhenReady(authReqId, grantType, waitMillis - remainingInterval),
+                    pendingTokenRequests.getExecutor());
+        }
+        try {
+            Payload payload = processTokenRequest(authReqId, grantType);
+            tokenArrival.cancel(false);
+            return CompletableFuture.completedFuture(payload);
+        } catch (ResponseStatusException responseStatusException) {
+            if (!AUTHORIZATION_PENDING.equals(responseStatusException.getReason())) {
+                tokenArrival.cancel(false);
+                throw responseStatusException;
+            }
+        } catch (RuntimeException runtimeException) {
+            tokenArrival.cancel(false);
+            throw runtimeException;
+        }
+
+        LOGGER.info("Token request parked until the token is received.");
+        return tokenArrival.thenApplyAsync(received -> processTokenRequest(authReqId, grantType),
+                pendingTokenRequests.getExecutor());
+    }
+
 }
@@ -18,7 +18,6 @@
 
 package handlers;
 
-import cibaparameters.CIBAParameters;
 import com.nimbusds.jose.Payload;
 import com.nimbusds.jwt.JWTClaimsSet;
 import configuration.ConfigurationFile;
@@ -61,12 +60,21 @@ public class TokenResponseHandler implements Handlers {
 
     public Payload createTokenResponse(String auth_req_id) {
 
-        CIBAParameters cibaparameters = CIBAParameters.getInstance();
-
         TokenResponse tokenResponse =
                 DaoFactory.getInstance().getArtifactStoreConnector(ConfigurationFile.getInstance().
                         getSTORE_CONNECTOR_TYPE()).getTokenResponse(auth_req_id);
 
+        return createTokenResponse(tokenResponse);
+    }
+
+    /**
+     * Creates the token response payload from a token response already loaded from the store.
+     *
+     * @param tokenResponse Token response.
+     * @return response payload.
+     */
+    public Payload createTokenResponse(TokenResponse tokenResponse) {
+
         //Only checking the presence of refresh token and creating payload accordingly
         if (tokenResponse.getRefreshToken() != null) {
             JWTClaimsSet claims = new JWTClaimsSet.Builder()
@@ -96,7 +104,7 @@ public class TokenResponseHandler implements Handlers {
 
     public Payload createTokenErrorResponse(String auth_req_id) {
 
-        if (TempErrorCache.getInstance().getAuthenticationResponse(auth_req_id).equals("Failed")) {
+        if ("Failed".equals(TempErrorCache.getInstance().getAuthenticationResponse(auth_req_id))) {
             System.out.println("Failed Authentication error response.");
             return new Payload("Authentication Denied.");
 
@@ -19,12 +19,39 @@
 package handlers;
 
 import ciba.proxy.server.servicelayer.ServerUserRegistrationHandler;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import configuration.ConfigurationFile;
 import dao.DaoFactory;
 import exceptions.BadRequestException;
+import metrics.ProxyMetrics;
 import net.minidev.json.JSONObject;
+import net.minidev.json.JSONValue;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import transactionartifacts.User;
+import util.ExecutorFactory;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Logger;
 
 /**
@@ -34,6 +61,7 @@ public class UserRegisterHandler implements Handlers {
 
     private static final Logger LOGGER = Logger.getLogger(UserRegisterHandler.class.getName());
     DaoFactory daoFactory = DaoFactory.getInstance();
+    private volatile ExecutorService bulkExecutor;
 
     private UserRegisterHandler() {
 
@@ -66,8 +94,8 @@ public class UserRegisterHandler implements Handlers {
      */
     public void store(String id, User user) {
 
-        // It is always in-memory.
-        daoFactory.getUserStoreConnector("InMemoryCache").addUser(id, user);
+        daoFactory.getUserStoreConnector(ConfigurationFile.getInstance().getUSER_STORE_CONNECTOR_TYPE())
+                .addUser(id, user);
 
     }
 
@@ -80,6 +108,27 @@ public class UserRegisterHandler implements Handlers {
      */
     public String receive(JSONObject userjson, HttpHeaders httpHeaders) {
 
+        User user = toUser(userjson);
+
+        try {
+            if (validate(userjson)) {
+
+                if (!"Unstored".equals(createUserRegistrationResponse(userjson, httpHeaders))) {
+                    // Kept by the proxy too, so authentication requests can be checked against registered users.
+                    store(user.getUserName(), user);
+                }
+            } else {
+                throw new BadRequestException("Parameters missing");
+
+            }
+        } catch (BadRequestException badRequestException) {
+            badRequestException.printStackTrace();
+        }
+        return "";
+    }
+
+    private User toUser(JSONObject userjson) {
+
         User user = new User();
         if (String.valueOf(userjson.get("appid")) == "null") {
 
@@ -93,19 +142,7 @@ public class UserRegisterHandler implements Handlers {
 
         user.setUserName(userjson.get("userName").toString());
         user.addClaim("emails", userjson.getAsString("emails"));
-
-        try {
-            if (validate(userjson)) {
-
-                createUserRegistrationResponse(userjson, httpHeaders);
-            } else {
-                throw new BadRequestException("Parameters missing");
-
-            }
-        } catch (BadRequestException badRequestException) {
-            badRequestException.printStackTrace();
-        }
-        return "";
+        return user;
     }
 
     /**
@@ -131,6 +168,223 @@ public class UserRegisterHandler implements Handlers {
         return true;
     }
 
+    /**
+     * Receive a bulk user registration request, as a JSON array or as one JSON object per line.
+     * Users are read as they arrive and sent to the Identity server in SCIM2 bulk batches, a bounded number of batches
+     * at a time. The outcome of each user is written back as one JSON object per line as soon as its batch returns,
+     * followed by a summary line.
+     *
+     * @param users       Users to be registered.
+     * @param results     Where the outcome of each user is written.
+     * @param httpHeaders headers of the request, whose authorization is forwarded to IS.
+     * @throws IOException if the users cannot be read or the outcomes cannot be written.
+     */
+    public void receiveBulk(InputStream users, OutputStream results, HttpHeaders httpHeaders) throws IOException {
+
+        ConfigurationFile configurationFile = ConfigurationFile.getInstance();
+        int batchSize = configurationFile.getSCIM_BULK_BATCH_SIZE();
+        int parallelism = configurationFile.getSCIM_BULK_PARALLELISM();
+
+        HttpHeaders bulkHeaders = new HttpHeaders();
+        if (httpHeaders.getFirst(HttpHeaders.AUTHORIZATION) != null) {
+            bulkHeaders.set(HttpHeaders.AUTHORIZATION, httpHeaders.getFirst(HttpHeaders.AUTHORIZATION));
+        }
+        bulkHeaders.setContentType(MediaType.valueOf("application/scim+json"));
+
+        BulkProgress progress = new BulkProgress(
+                new BufferedWriter(new OutputStreamWriter(results, StandardCharsets.UTF_8)));
+        // Reading stops while as many batches as allowed are in flight, so a large upload is never held in memory.
+        Semaphore inFlight = new Semaphore(parallelism);
+
+        JsonReader reader = new JsonReader(new InputStreamReader(users, StandardCharsets.UTF_8));
+        // Lenient reading accepts several top level objects, one per line.
+        reader.setLenient(true);
+        JsonParser parser = new JsonParser();
+
+        List<JSONObject> batch = new ArrayList<>(batchSize);
+        List<Integer> indexes = new ArrayList<>(batchSize);
+        int index = 0;
+        try {
+            boolean array = reader.peek() == JsonToken.BEGIN_ARRAY;
+            if (array) {
+                reader.beginArray();
+            }
+            while (array ? reader.hasNext() : reader.peek() != JsonToken.END_DOCUMENT) {
+                JsonElement element = parser.parse(reader);
+                if (element.isJsonObject()) {
+                    batch.add((JSONObject) JSONValue.parse(element.toString()));
+                    indexes.add(index);
+                } else {
+                    progress.write(index, null, failure("400", "Not a JSON object."));
+                }
+                index++;
+
+                if (batch.size() == batchSize) {
+                    submitBatch(batch, indexes, bulkHeaders, inFlight, progress);
+                    batch = new ArrayList<>(batchSize);
+                    indexes = new ArrayList<>(batchSize);
+                }
+            }
+        } catch (JsonParseException | IOException e) {
+            LOGGER.warning("Malformed bulk user registration request : " + e.getMessage());
+            progress.writeError("Malformed input after " + index + " users : " + e.getMessage());
+        } finally {
+            if (!batch.isEmpty()) {
+                submitBatch(batch, indexes, bulkHeaders, inFlight, progress);
+            }
+            // Wait for every batch in flight before the summary.
+            acquire(inFlight, parallelism);
+            progress.writeSummary(index);
+        }
+    }
+
+    private void submitBatch(List<JSONObject> batch, List<Integer> indexes, HttpHeaders bulkHeaders,
+                             Semaphore inFlight, BulkProgress progress) throws IOException {
+
+        acquire(inFlight, 1);
+        ProxyMetrics.getInstance().addToCounter("scim.bulk.users.received", batch.size());
+        try {
+            getBulkExecutor().execute(() -> {
+                long startTime = System.currentTimeMillis();
+                try {
+                    List<JSONObject> outcomes = ServerUserRegistrationHandler.getInstance()
+                            .saveBulk(batch, bulkHeaders);
+                    for (int i = 0; i < outcomes.size(); i++) {
+                        JSONObject outcome = outcomes.get(i);
+                        if (String.valueOf(outcome.get("status")).startsWith("2")) {
+                            store(batch.get(i).getAsString("userName"), toUser(batch.get(i)));
+                        }
+                        progress.write(indexes.get(i), batch.get(i).getAsString("userName"), outcome);
+                    }
+                    progress.flush();
+                } catch (IOException e) {
+                    LOGGER.warning("Unable to write bulk user registration results : " + e.getMessage());
+                } finally {
+                    ProxyMetrics.getInstance().recordTime("scim.bulk.batch", System.currentTimeMillis() - startTime);
+                    inFlight.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            throw new IOException("Bulk user registration is shutting down.", e);
+        }
+    }
+
+    private static void acquire(Semaphore semaphore, int permits) throws IOException {
+
+        try {
+            semaphore.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for bulk user registration.");
+        }
+    }
+
+    private static JSONObject failure(String status, String error) {
+
+        JSONObject result = new JSONObject();
+        result.put("status", status);
+        result.put("error", error);
+        return result;
+    }
+
+    /**
+     * Stop the bulk registration threads, to be called when the server shuts down.
+     */
+    public synchronized void shutdown() {
+
+        if (bulkExecutor != null) {
+            bulkExecutor.shutdownNow();
+            bulkExecutor = null;
+        }
+    }
+
+    private ExecutorService getBulkExecutor() {
+
+        if (bulkExecutor == null) {
+            synchronized (this) {
+                if (bulkExecutor == null) {
+                    // Bounds the bulk requests in flight across every upload, not only within one.
+                    bulkExecutor = Executors.newFixedThreadPool(
+                            ConfigurationFile.getInstance().getSCIM_BULK_PARALLELISM(),
+                            ExecutorFactory.getInstance().threadFactory("ciba-scim-bulk"));
+                }
+            }
+        }
+        return bulkExecutor;
+    }
+
+    /**
+     * Writes the outcome of each user of a bulk registration and counts them.
+     */
+    private static class BulkProgress {
+
+        private final Writer writer;
+        // Writes block on the client, so a lock rather than a monitor keeps virtual threads off their carrier.
+        private final ReentrantLock writeLock = new ReentrantLock();
+        private final AtomicLong succeeded = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+
+        BulkProgress(Writer writer) {
+
+            this.writer = writer;
+        }
+
+        void write(int index, String userName, JSONObject outcome) throws IOException {
+
+            boolean success = String.valueOf(outcome.get("status")).startsWith("2");
+            (success ? succeeded : failed).incrementAndGet();
+            ProxyMetrics.getInstance()
+                    .incrementCounter(success ? "scim.bulk.users.succeeded" : "scim.bulk.users.failed");
+
+            JSONObject result = new JSONObject();
+            result.put("index", index);
+            if (userName != null) {
+                result.put("userName", userName);
+            }
+            result.putAll(outcome);
+            writeLine(result);
+        }
+
+        void writeError(String error) throws IOException {
+
+            JSONObject result = new JSONObject();
+            result.put("error", error);
+            writeLine(result);
+        }
+
+        void writeSummary(int total) throws IOException {
+
+            JSONObject summary = new JSONObject();
+            summary.put("total", total);
+            summary.put("succeeded", succeeded.get());
+            summary.put("failed", failed.get());
+            writeLine(summary);
+            flush();
+        }
+
+        void flush() throws IOException {
+
+            writeLock.lock();
+            try {
+                writer.flush();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        private void writeLine(JSONObject line) throws IOException {
+
+            writeLock.lock();
+            try {
+                writer.write(line.toJSONString());
+                writer.write('\n');
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
     /**
      * Validate user registration request.
      *
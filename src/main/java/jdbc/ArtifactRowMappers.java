@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jdbc;
+
+import transactionartifacts.CIBAauthRequest;
+import transactionartifacts.CIBAauthResponse;
+import transactionartifacts.PollingAtrribute;
+import transactionartifacts.TokenRequest;
+import transactionartifacts.TokenResponse;
+
+/**
+ * Row mappers of the artifact tables. Column order follows the select lists in DbScripts.
+ */
+public final class ArtifactRowMappers {
+
+    private ArtifactRowMappers() {
+
+    }
+
+    // auth_req_id, aud, iss, exp, iat, nbf, jti, scope, client_notification_token, acr_values,
+    // login_hint_token, login_hint, id_token_hint, binding_message, user_code, requested_expiry
+    public static final int AUTH_REQUEST_COLUMNS = 16;
+
+    public static final RowMapper<CIBAauthRequest> AUTH_REQUEST = (resultSet, column) -> {
+
+        CIBAauthRequest cibAauthRequest = new CIBAauthRequest();
+        cibAauthRequest.setAud(resultSet.getString(column + 1));
+        cibAauthRequest.setIss(resultSet.getString(column + 2));
+        cibAauthRequest.setExp(resultSet.getLong(column + 3));
+        cibAauthRequest.setIat(resultSet.getLong(column + 4));
+        cibAauthRequest.setNbf(resultSet.getLong(column + 5));
+        cibAauthRequest.setJti(resultSet.getString(column + 6));
+        cibAauthRequest.setScope(resultSet.getString(column + 7));
+        cibAauthRequest.setClient_notification_token(resultSet.getString(column + 8));
+        cibAauthRequest.setAcr_values(resultSet.getString(column + 9));
+        cibAauthRequest.setLogin_hint_token(resultSet.getString(column + 10));
+        cibAauthRequest.setLogin_hint(resultSet.getString(column + 11));
+        cibAauthRequest.setId_token_hint(resultSet.getString(column + 12));
+        cibAauthRequest.setBinding_message(resultSet.getString(column + 13));
+        cibAauthRequest.setUser_code(resultSet.getString(column + 14));
+        cibAauthRequest.setRequested_expiry(resultSet.getLong(column + 15));
+        return cibAauthRequest;
+    };
+
+    // auth_req_id, expires_in, interval_time
+    public static final int AUTH_RESPONSE_COLUMNS = 3;
+
+    public static final RowMapper<CIBAauthResponse> AUTH_RESPONSE = (resultSet, column) -> {
+
+        CIBAauthResponse cibAauthResponse = new CIBAauthResponse();
+        cibAauthResponse.setAuthReqId(resultSet.getString(column));
+        cibAauthResponse.setExpiresIn(resultSet.getLong(column + 1));
+        cibAauthResponse.setInterval(resultSet.getLong(column + 2));
+        return cibAauthResponse;
+    };
+
+    // auth_req_id, expiresIn, pollingTime, lastPolled, issuedTime, notification_issued
+    public static final int POLLING_ATTRIBUTE_COLUMNS = 6;
+
+    public static final RowMapper<PollingAtrribute> POLLING_ATTRIBUTE = (resultSet, column) -> {
+
+        PollingAtrribute pollingAtrribute = new PollingAtrribute();
+        pollingAtrribute.setAuth_req_id(resultSet.getString(column));
+        pollingAtrribute.setExpiresIn(resultSet.getLong(column + 1));
+        pollingAtrribute.setPollingInterval(resultSet.getLong(column + 2));
+        pollingAtrribute.setLastPolledTime(resultSet.getLong(column + 3));
+        pollingAtrribute.setIssuedTime(resultSet.getLong(column + 4));
+        pollingAtrribute.setNotificationIssued(resultSet.getBoolean(column + 5));
+        return pollingAtrribute;
+    };
+
+    // auth_req_id, grantType
+    public static final int TOKEN_REQUEST_COLUMNS = 2;
+
+    public static final RowMapper<TokenRequest> TOKEN_REQUEST = (resultSet, column) -> {
+
+        TokenRequest tokenRequest = new TokenRequest();
+        tokenRequest.setAuth_req_id(resultSet.getString(column));
+        tokenRequest.setGrant_type(resultSet.getString(column + 1));
+        return tokenRequest;
+    };
+
+    // auth_req_id, access_token, id_token, token_type, expires_in, refresh_token
+    public static final int TOKEN_RESPONSE_COLUMNS = 6;
+
+    public static final RowMapper<TokenResponse> TOKEN_RESPONSE = (resultSet, column) -> {
+
+        TokenResponse tokenResponse = new TokenResponse();
+        tokenResponse.setAccessToken(resultSet.getString(column + 1));
+        tokenResponse.setIdToken(resultSet.getString(column + 2));
+        tokenResponse.setTokenType(resultSet.getString(column + 3));
+        tokenResponse.setTokenExpirein(resultSet.getLong(column + 4));
+        tokenResponse.setRefreshToken(resultSet.getString(column + 5));
+        return tokenResponse;
+    };
+}
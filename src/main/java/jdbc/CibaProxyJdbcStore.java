@@ -33,6 +33,7 @@ public class CibaProxyJdbcStore {
     private TokenRequestDB tokenRequestDB;
     private TokenResponseDB tokenResponseDB;
     private PollingAttributeDB pollingAttributeDB;
+    private CibaTransactionDB cibaTransactionDB;
 
     private CibaProxyJdbcStore() {
 
@@ -41,6 +42,7 @@ public class CibaProxyJdbcStore {
         tokenRequestDB = TokenRequestDB.getInstance();
         tokenResponseDB = TokenResponseDB.getInstance();
         pollingAttributeDB = PollingAttributeDB.getInstance();
+        cibaTransactionDB = CibaTransactionDB.getInstance();
 
     }
 
@@ -88,6 +90,11 @@ public class CibaProxyJdbcStore {
         return pollingAttributeDB;
     }
 
+    public CibaTransactionDB getCibaTransactionDB() {
+
+        return cibaTransactionDB;
+    }
+
     public static CibaProxyJdbcStore getcibaProxyJdbcStoreInstance() {
 
         return cibaProxyJdbcStoreInstance;
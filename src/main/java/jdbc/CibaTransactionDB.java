@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jdbc;
+
+import handlers.Handlers;
+import transactionartifacts.CibaTransaction;
+
+import java.util.ArrayList;
+
+/**
+ * Data Store of whole Ciba transactions, built over the artifact tables.
+ */
+public class CibaTransactionDB implements ProxyJdbc {
+
+    private CibaTransactionDB() {
+
+    }
+
+    private static CibaTransactionDB cibaTransactionDBInstance = new CibaTransactionDB();
+
+    public static CibaTransactionDB getInstance() {
+
+        if (cibaTransactionDBInstance == null) {
+
+            synchronized (CibaTransactionDB.class) {
+
+                if (cibaTransactionDBInstance == null) {
+
+                    /* instance will be created at request time */
+                    cibaTransactionDBInstance = new CibaTransactionDB();
+                }
+            }
+        }
+        return cibaTransactionDBInstance;
+
+    }
+
+    private ArrayList<Handlers> interestedparty = new ArrayList<Handlers>();
+
+    @Override
+    public void add(String auth_req_id, Object cibaTransaction) {
+
+        if (cibaTransaction instanceof CibaTransaction) {
+            CibaTransaction transaction = (CibaTransaction) cibaTransaction;
+            AuthRequestDB.getInstance().add(auth_req_id, transaction.getAuthRequest());
+            AuthResponseDB.getInstance().add(auth_req_id, transaction.getAuthResponse());
+            PollingAttributeDB.getInstance().add(auth_req_id, transaction.getPollingAtrribute());
+            TokenRequestDB.getInstance().add(auth_req_id, transaction.getTokenRequest());
+            TokenResponseDB.getInstance().add(auth_req_id, transaction.getTokenResponse());
+        }
+    }
+
+    @Override
+    public void remove(String auth_req_id) {
+
+        AuthRequestDB.getInstance().remove(auth_req_id);
+        AuthResponseDB.getInstance().remove(auth_req_id);
+        PollingAttributeDB.getInstance().remove(auth_req_id);
+        TokenRequestDB.getInstance().remove(auth_req_id);
+        TokenResponseDB.getInstance().remove(auth_req_id);
+    }
+
+    @Override
+    public Object get(String auth_req_id) {
+
+        return DbFunctions.getInstance().getTransaction(auth_req_id);
+    }
+
+    @Override
+    public void clear() {
+
+    }
+
+    @Override
+    public long size() {
+
+        return 0;
+    }
+
+    @Override
+    public void register(Object object) {
+
+        interestedparty.add((Handlers) object);
+    }
+}
@@ -18,10 +18,10 @@
 
 package jdbc;
 
-import configuration.ConfigurationFile;
 import dao.DbConnection;
 import transactionartifacts.CIBAauthRequest;
 import transactionartifacts.CIBAauthResponse;
+import transactionartifacts.CibaTransaction;
 import transactionartifacts.PollingAtrribute;
 import transactionartifacts.TokenRequest;
 import transactionartifacts.TokenResponse;
@@ -30,7 +30,11 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.logging.Logger;
 
 /**
@@ -38,20 +42,20 @@ import java.util.logging.Logger;
  */
 public class DbFunctions {
 
-    Connection connection;
-
     private static final Logger LOGGER = Logger.getLogger(DbFunctions.class.getName());
 
-    private DbFunctions() {
+    // Parts of a transaction persisted in their own table. Authentication status is kept in memory.
+    private static final CibaTransaction.Part[] BATCHED_PARTS = {CibaTransaction.Part.AUTH_REQUEST,
+            CibaTransaction.Part.AUTH_RESPONSE, CibaTransaction.Part.POLLING_ATTRIBUTE,
+            CibaTransaction.Part.TOKEN_REQUEST, CibaTransaction.Part.TOKEN_RESPONSE};
 
-        {
-            try {
-                connection = DbConnection.getConnection();
+    private static final String[] ORPHANED_TRANSACTION_SCRIPTS = {
+            DbScripts.getGET_ORPHANED_AUTH_REQUESTS_FROM_DB_SCRIPT(),
+            DbScripts.getGET_ORPHANED_AUTH_RESPONSES_FROM_DB_SCRIPT(),
+            DbScripts.getGET_ORPHANED_TOKEN_REQUESTS_FROM_DB_SCRIPT(),
+            DbScripts.getGET_ORPHANED_TOKEN_RESPONSES_FROM_DB_SCRIPT()};
 
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
+    private DbFunctions() {
 
     }
 
@@ -76,573 +80,560 @@ public class DbFunctions {
 
     public Boolean addAuthRequest(String authReqId, Object authRequest) {
 
-        try {
-            CIBAauthRequest cibAauthRequest = (CIBAauthRequest) authRequest;
-
-            Statement statement = connection.createStatement();
-
-            //use the configured database
-            statement.execute("Use " + ConfigurationFile.getInstance().getDATABASE() + ";");
-
-            //create authentication request table if not exists
-            statement.execute(DbScripts.getCREATE_CIBA_AUTH_REQUEST_DB_SCRIPT());
-
-            //add user to store using prepared statements
-            PreparedStatement prepStmt = connection.prepareStatement(DbScripts.getADD_AUTH_REQUEST_TO_DB_SCRIPT());
-            prepStmt.setString(1, authReqId);
-
-            prepStmt.setString(2, cibAauthRequest.getAud());
-            prepStmt.setString(3, cibAauthRequest.getIss());
-            prepStmt.setLong(4, cibAauthRequest.getExp());
-            prepStmt.setLong(5, cibAauthRequest.getIat());
-            prepStmt.setLong(6, cibAauthRequest.getNbf());
-            prepStmt.setString(7, cibAauthRequest.getJti());
-
-            if (cibAauthRequest.getScope() != null) {
-                prepStmt.setString(8, cibAauthRequest.getScope());
-            } else {
-                prepStmt.setString(8, "");
-            }
-
-            if (cibAauthRequest.getClient_notification_token() != null) {
-                prepStmt.setString(9, cibAauthRequest.getClient_notification_token());
-            } else {
-                prepStmt.setString(9, "");
-            }
+        CIBAauthRequest cibAauthRequest = (CIBAauthRequest) authRequest;
+        return update(DbScripts.getADD_AUTH_REQUEST_TO_DB_SCRIPT(),
+                prepStmt -> bindAuthRequest(prepStmt, authReqId, cibAauthRequest));
+    }
 
-            if (cibAauthRequest.getAcr_values() != null) {
-                prepStmt.setString(10, cibAauthRequest.getAcr_values());
-            } else {
-                prepStmt.setString(10, "");
-            }
+    public Boolean deleteAuthRequest(String authReqId) {
 
-            if (cibAauthRequest.getLogin_hint_token() != null) {
-                prepStmt.setString(11, cibAauthRequest.getLogin_hint_token());
-            } else {
-                prepStmt.setString(11, "");
-            }
+        return update(DbScripts.getREMOVE_AUTH_REQUEST_FROM_DB_SCRIPT(),
+                preparedStmt -> preparedStmt.setString(1, authReqId));
+    }
 
-            if (cibAauthRequest.getLogin_hint() != null) {
-                prepStmt.setString(12, cibAauthRequest.getLogin_hint());
-            } else {
-                prepStmt.setString(12, "");
-            }
+    public Object getAuthRequest(String authReqId) {
 
-            if (cibAauthRequest.getId_token_hint() != null) {
-                prepStmt.setString(13, cibAauthRequest.getId_token_hint());
-            } else {
-                prepStmt.setString(13, "");
+        try {
+            CIBAauthRequest cibAauthRequest =
+                    queryForObject(DbScripts.getGET_AUTH_REQUEST_FROM_DB_SCRIPT(), authReqId,
+                            ArtifactRowMappers.AUTH_REQUEST);
+            if (cibAauthRequest != null) {
+                return cibAauthRequest;
             }
+        } catch (SQLException e) {
+            LOGGER.severe("Error reading authentication request : " + e.getMessage());
+        }
+        return new CIBAauthRequest();
+    }
 
-            if (cibAauthRequest.getBinding_message() != null) {
-                prepStmt.setString(14, cibAauthRequest.getBinding_message());
-            } else {
-                prepStmt.setString(14, "");
-            }
+    public Boolean addAuthResponse(String authReqId, Object authResponse) {
 
-            if (cibAauthRequest.getUser_code() != null) {
-                prepStmt.setString(15, cibAauthRequest.getUser_code());
-            } else {
-                prepStmt.setString(15, "");
-            }
+        CIBAauthResponse cibAauthResponse = (CIBAauthResponse) authResponse;
+        return update(DbScripts.getADD_AUTH_RESPONSE_TO_DB_SCRIPT(),
+                prepStmt -> bindAuthResponse(prepStmt, authReqId, cibAauthResponse));
+    }
 
-            if (cibAauthRequest.getRequested_expiry() != 0) {
-                prepStmt.setLong(16, cibAauthRequest.getRequested_expiry());
-            } else {
-                prepStmt.setLong(16, 0);
-            }
+    public Boolean deleteAuthResponse(String authReqId) {
 
-            Boolean result = prepStmt.execute();
-            //System.out.println("actual result of execution is" + result);
-            statement.close();
-            prepStmt.close();
+        return update(DbScripts.getREMOVE_AUTH_RESPONSE_FROM_DB_SCRIPT(),
+                preparedStmt -> preparedStmt.setString(1, authReqId));
+    }
 
-            return true; //as if there is no false it will result in false and only if error throw exception
+    public Object getAuthResponse(String authReqId) {
 
+        try {
+            return queryForObject(DbScripts.getGET_AUTH_RESPONSE_FROM_DB_SCRIPT(), authReqId,
+                    ArtifactRowMappers.AUTH_RESPONSE);
         } catch (SQLException e) {
-
-            e.printStackTrace();
-        } catch (Exception e) {
-            e.printStackTrace();
+            LOGGER.severe("Error reading authentication response : " + e.getMessage());
         }
-
-        return false;
+        return new CIBAauthResponse();
     }
 
-    public Boolean deleteAuthRequest(String authReqId) {
-
-        try {
-
-            Statement statement = connection.createStatement();
-
-            //use the configured database
-            statement.executeQuery("Use " + ConfigurationFile.getInstance().getDATABASE() + ";");
-
-            PreparedStatement preparedStmt =
-                    connection.prepareStatement(DbScripts.getREMOVE_AUTH_REQUEST_FROM_DB_SCRIPT());
-            preparedStmt.setString(1, authReqId);
+    public boolean addTokenRequest(String authReqId, Object tokenRequest1) {
 
-            // execute the prepared statement
-            Boolean result = preparedStmt.execute();
-            statement.close();
-            preparedStmt.close();
+        TokenRequest tokenRequest = (TokenRequest) tokenRequest1;
+        try (Connection connection = DbConnection.getConnection()) {
 
+            Integer count = queryForObject(connection, DbScripts.getCHECK_FOR_TOKEN_REQUEST_AVAILABILITY(), authReqId,
+                    (resultSet, column) -> resultSet.getInt(column));
+            if (count != null && count >= 1) {
+                // Token request of the transaction is already stored.
+                return true;
+            }
+            try (PreparedStatement prepStmt =
+                         connection.prepareStatement(DbScripts.getADD_TOKEN_REQUEST_TO_DB_SCRIPT())) {
+                bindTokenRequest(prepStmt, authReqId, tokenRequest);
+                prepStmt.executeUpdate();
+            }
             return true;
 
-        } catch (Exception e) {
-            e.printStackTrace();
+        } catch (SQLException e) {
+            LOGGER.severe("Error storing token request : " + e.getMessage());
         }
         return false;
     }
 
-    public Object getAuthRequest(String authReqId) {
-
-        CIBAauthRequest cibAauthRequest = new CIBAauthRequest();
-        try {
-
-            Statement statement = connection.createStatement();
-
-            //use the configured database
-            statement.executeQuery("Use " + ConfigurationFile.getInstance().getDATABASE() + ";");
+    public boolean deleteTokenRequest(String authReqId) {
 
-            PreparedStatement preparedStmt =
-                    connection.prepareStatement(DbScripts.getGET_AUTH_REQUEST_FROM_DB_SCRIPT());
-            preparedStmt.setString(1, authReqId);
+        return update(DbScripts.getREMOVE_TOKEN_REQUEST_FROM_DB_SCRIPT(),
+                preparedStmt -> preparedStmt.setString(1, authReqId));
+    }
 
-            // execute the prepared statement
-            ResultSet resultSet = preparedStmt.executeQuery();
-
-            while (resultSet.next()) {               // Position the cursor
-
-                cibAauthRequest.setAud(resultSet.getString(2));
-                cibAauthRequest.setIss(resultSet.getString(3));
-                cibAauthRequest.setExp(resultSet.getLong(4));
-                cibAauthRequest.setIat(resultSet.getLong(5));
-                cibAauthRequest.setNbf(resultSet.getLong(6));
-                cibAauthRequest.setJti(resultSet.getString(7));
-                cibAauthRequest.setScope(resultSet.getString(8));
-                cibAauthRequest.setClient_notification_token(resultSet.getString(9));
-                cibAauthRequest.setAcr_values(resultSet.getString(10));
-                cibAauthRequest.setLogin_hint_token(resultSet.getString(11));
-                cibAauthRequest.setLogin_hint(resultSet.getString(12));
-                cibAauthRequest.setId_token_hint(resultSet.getString(13));
-                cibAauthRequest.setBinding_message(resultSet.getString(14));
-                cibAauthRequest.setUser_code(resultSet.getString(15));
-                cibAauthRequest.setRequested_expiry(resultSet.getLong(16));
+    public Object getTokenRequest(String authReqId) {
 
+        try {
+            TokenRequest tokenRequest = queryForObject(DbScripts.getGET_TOKEN_REQUEST_FROM_DB_SCRIPT(), authReqId,
+                    ArtifactRowMappers.TOKEN_REQUEST);
+            if (tokenRequest != null) {
+                return tokenRequest;
             }
-            statement.close();
-            preparedStmt.close();
-
-        } catch (Exception e) {
-            e.printStackTrace();
-
+        } catch (SQLException e) {
+            LOGGER.severe("Error reading token request : " + e.getMessage());
         }
-        return cibAauthRequest;
+        return new TokenRequest();
     }
 
-    public Boolean addAuthResponse(String authReqId, Object authResponse) {
-
-        Boolean result;
-        try {
-
-            CIBAauthResponse cibAauthResponse = (CIBAauthResponse) authResponse;
-
-            Statement statement = connection.createStatement();
-
-            //use the configured database
-            statement.execute("Use " + ConfigurationFile.getInstance().getDATABASE() + ";");
-
-            //create authentication request table if not exists
-            statement.execute(DbScripts.getCREATE_CIBA_AUTH_RESPONSE_DB_SCRIPT());
-
-            //add user to store using prepared statements
-            PreparedStatement prepStmt = connection.prepareStatement(DbScripts.getADD_AUTH_RESPONSE_TO_DB_SCRIPT());
-            prepStmt.setString(1, authReqId);
-            prepStmt.setLong(2, cibAauthResponse.getExpiresIn());
-            prepStmt.setLong(3, cibAauthResponse.getInterval());
+    public boolean addTokenResponse(String authReqId, Object tokenResponse1) {
 
-            result = prepStmt.execute();
-            statement.close();
-            prepStmt.close();
+        TokenResponse tokenResponse = (TokenResponse) tokenResponse1;
+        return update(DbScripts.getADD_TOKEN_RESPONSE_TO_DB_SCRIPT(),
+                prepStmt -> bindTokenResponse(prepStmt, authReqId, tokenResponse));
+    }
 
-            return true;
+    public boolean deleteTokenResponse(String authReqId) {
 
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return false;
+        return update(DbScripts.getREMOVE_TOKEN_RESPONSE_FROM_DB_SCRIPT(),
+                preparedStmt -> preparedStmt.setString(1, authReqId));
     }
 
-    public Boolean deleteAuthResponse(String authReqId) {
+    public Object getTokenResponse(String authReqId) {
 
         try {
+            TokenResponse tokenResponse = queryForObject(DbScripts.getGET_TOKEN_RESPONSE_FROM_DB_SCRIPT(), authReqId,
+                    ArtifactRowMappers.TOKEN_RESPONSE);
+            return tokenResponse != null ? tokenResponse : new TokenResponse();
+        } catch (SQLException e) {
+            LOGGER.severe("Error reading token response : " + e.getMessage());
+        }
+        return null;
+    }
 
-            Statement statement = connection.createStatement();
-
-            //use the configured database
-            statement.executeQuery("Use " + ConfigurationFile.getInstance().getDATABASE() + ";");
-
-            PreparedStatement preparedStmt =
-                    connection.prepareStatement(DbScripts.getREMOVE_AUTH_RESPONSE_FROM_DB_SCRIPT());
-            preparedStmt.setString(1, authReqId);
+    public boolean addPollingAttribute(String authReqId, Object pollingattribute1) {
 
-            // execute the preparedstatement
-            Boolean result = preparedStmt.execute();
-            statement.close();
-            preparedStmt.close();
+        PollingAtrribute pollingAtrribute = (PollingAtrribute) pollingattribute1;
+        return update(DbScripts.getADD_POLLING_ATTRIBUTE_TO_DB_SCRIPT(),
+                prepStmt -> bindPollingAttribute(prepStmt, authReqId, pollingAtrribute));
+    }
 
-            return true;
+    public boolean deletePollingAttribute(String authReqId) {
 
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return false;
+        return update(DbScripts.getREMOVE_POLLING_ATTRIBUTE_FROM_DB_SCRIPT(),
+                preparedStmt -> preparedStmt.setString(1, authReqId));
     }
 
-    public Object getAuthResponse(String authReqId) {
+    public Object getPollingAttribute(String authReqId) {
 
-        CIBAauthResponse cibAauthResponse = new CIBAauthResponse();
         try {
+            PollingAtrribute pollingAtrribute =
+                    queryForObject(DbScripts.getGET_POLLING_ATTRIBUTE_FROM_DB_SCRIPT(), authReqId,
+                            ArtifactRowMappers.POLLING_ATTRIBUTE);
+            return pollingAtrribute != null ? pollingAtrribute : new PollingAtrribute();
+        } catch (SQLException e) {
+            LOGGER.severe("Error reading polling attribute : " + e.getMessage());
+        }
+        return null;
+    }
 
-            Statement statement = connection.createStatement();
+    public boolean touchLastPolled(String authReqId, long expectedLastPolledTime, long lastPolledTime,
+                                   long pollingInterval) {
 
-            //use the configured database
-            statement.executeQuery("Use " + ConfigurationFile.getInstance().getDATABASE() + ";");
+        return executeUpdate(DbScripts.getTOUCH_LAST_POLLED_DB_SCRIPT(), prepStmt -> {
+            prepStmt.setLong(1, lastPolledTime);
+            prepStmt.setLong(2, pollingInterval);
+            prepStmt.setString(3, authReqId);
+            prepStmt.setLong(4, expectedLastPolledTime);
+        }) == 1;
+    }
 
-            PreparedStatement preparedStmt =
-                    connection.prepareStatement(DbScripts.getGET_AUTH_RESPONSE_FROM_DB_SCRIPT());
-            preparedStmt.setString(1, authReqId);
+    public boolean markNotificationIssued(String authReqId) {
 
-            // execute the prepared statement
-            ResultSet resultSet = preparedStmt.executeQuery();
+        return executeUpdate(DbScripts.getMARK_NOTIFICATION_ISSUED_DB_SCRIPT(),
+                prepStmt -> prepStmt.setString(1, authReqId)) == 1;
+    }
 
-            while (resultSet.next()) {               // Position the cursor
+    public CibaTransaction getTransaction(String authReqId) {
 
-                cibAauthResponse.setAuthReqId(resultSet.getString(1));
-                cibAauthResponse.setExpiresIn(resultSet.getLong(2));
-                cibAauthResponse.setInterval(resultSet.getLong(3));
-                return cibAauthResponse;
+        try {
+            return queryForObject(DbScripts.getGET_CIBA_TRANSACTION_FROM_DB_SCRIPT(), authReqId,
+                    (resultSet, column) -> mapTransaction(authReqId, resultSet, column));
+        } catch (SQLException e) {
+            LOGGER.severe("Error reading ciba transaction : " + e.getMessage());
+        }
+        return null;
+    }
 
+    /**
+     * @param now   Current epoch millis.
+     * @param limit Maximum number of identifiers to return.
+     * @return auth_req_ids of expired transactions, oldest first. Empty if the lookup failed.
+     */
+    public List<String> getExpiredTransactions(long now, int limit) {
+
+        List<String> authReqIds = new ArrayList<>();
+        try (Connection connection = DbConnection.getConnection();
+             PreparedStatement preparedStmt =
+                     connection.prepareStatement(DbScripts.getGET_EXPIRED_TRANSACTIONS_FROM_DB_SCRIPT())) {
+
+            preparedStmt.setLong(1, now);
+            preparedStmt.setInt(2, limit);
+            try (ResultSet resultSet = preparedStmt.executeQuery()) {
+                while (resultSet.next()) {
+                    authReqIds.add(resultSet.getString(1));
+                }
             }
-            cibAauthResponse =
-                    null;
-
-            statement.close();
-            preparedStmt.close();
-
-        } catch (Exception e) {
-            e.printStackTrace();
 
+        } catch (SQLException e) {
+            LOGGER.severe("Error reading expired transactions : " + e.getMessage());
         }
-        return cibAauthResponse;
+        return authReqIds;
     }
 
-    public boolean addTokenRequest(String authReqId, Object tokenRequest1) {
-
-        try {
-            TokenRequest tokenRequest = (TokenRequest) tokenRequest1;
-
-            Statement statement = connection.createStatement();
-
-            //use the configured database
-            statement.execute("Use " + ConfigurationFile.getInstance().getDATABASE() + ";");
-
-            //create authentication request table if not exists
-            statement.execute(DbScripts.getCREATE_TOKEN_REQUEST_DB_SCRIPT());
-
-            //add user to store using prepared statements
-            PreparedStatement prepdStmt =
-                    connection.prepareStatement(DbScripts.getCHECK_FOR_TOKEN_REQUEST_AVAILABILITY());
-            prepdStmt.setString(1, authReqId);
-            ResultSet resultSet = prepdStmt.executeQuery();
-            System.out.println("result set " + resultSet);
-            int count;
-            while (resultSet.next()) {
-                count = (resultSet.getInt(1));
-
-                if (count >= 1) {
-                    //do nothing
-                    statement.close();
-                    prepdStmt.close();
-                    return true;
-                } else {
-                    PreparedStatement prepStmt =
-                            connection.prepareStatement(DbScripts.getADD_TOKEN_REQUEST_TO_DB_SCRIPT());
-                    prepStmt.setString(1, authReqId);
-
-                    prepStmt.setString(2, tokenRequest.getGrant_type());
-
-                    Boolean result1 = prepStmt.execute();
-                    statement.close();
-                    prepStmt.close();
-
-                    return true;
+    /**
+     * Finds transactions whose artifacts outlived them without a polling attribute, such as those whose flow failed
+     * before the polling attribute was stored, or whose polling attribute was removed on its own.
+     *
+     * @param maxAge Seconds after which an artifact without a polling attribute is left over.
+     * @param limit  Maximum number of identifiers to return.
+     * @return auth_req_ids of orphaned transactions. Empty if the lookup failed.
+     */
+    public List<String> getOrphanedTransactions(long maxAge, int limit) {
+
+        Set<String> authReqIds = new LinkedHashSet<>();
+        try (Connection connection = DbConnection.getConnection()) {
+
+            for (String script : ORPHANED_TRANSACTION_SCRIPTS) {
+                if (authReqIds.size() >= limit) {
+                    break;
+                }
+                try (PreparedStatement preparedStmt = connection.prepareStatement(script)) {
+                    preparedStmt.setLong(1, maxAge);
+                    preparedStmt.setInt(2, limit - authReqIds.size());
+                    try (ResultSet resultSet = preparedStmt.executeQuery()) {
+                        while (resultSet.next()) {
+                            authReqIds.add(resultSet.getString(1));
+                        }
+                    }
                 }
             }
 
-        } catch (Exception e) {
-            e.printStackTrace();
+        } catch (SQLException e) {
+            LOGGER.severe("Error reading orphaned transactions : " + e.getMessage());
         }
-        return false;
+        return new ArrayList<>(authReqIds);
     }
 
-    public boolean deleteTokenRequest(String authReqId) {
-
-        try {
-
-            Statement statement = connection.createStatement();
-
-            //use the configured database
-            statement.execute("Use " + ConfigurationFile.getInstance().getDATABASE() + ";");
-
-            PreparedStatement preparedStmt =
-                    connection.prepareStatement(DbScripts.getREMOVE_TOKEN_REQUEST_FROM_DB_SCRIPT());
-            preparedStmt.setString(1, authReqId);
+    /**
+     * @return expiry of the oldest stored transaction in epoch millis, 0 if there is none or the lookup failed.
+     */
+    public long getOldestExpiry() {
 
-            // execute the preparedstatement
-            Boolean result = preparedStmt.execute();
-            statement.close();
-            preparedStmt.close();
+        try (Connection connection = DbConnection.getConnection();
+             PreparedStatement preparedStmt =
+                     connection.prepareStatement(DbScripts.getGET_OLDEST_EXPIRY_FROM_DB_SCRIPT());
+             ResultSet resultSet = preparedStmt.executeQuery()) {
 
-            return true;
+            // MIN over an empty table is NULL, read as 0.
+            return resultSet.next() ? resultSet.getLong(1) : 0;
 
-        } catch (Exception e) {
-            e.printStackTrace();
+        } catch (SQLException e) {
+            LOGGER.severe("Error reading oldest transaction expiry : " + e.getMessage());
         }
-        return false;
+        return 0;
     }
 
-    public Object getTokenRequest(String authReqId) {
-
-        TokenRequest tokenRequest = new TokenRequest();
-        try {
-
-            Statement statement = connection.createStatement();
-
-            //use the configured database
-            statement.execute("Use " + ConfigurationFile.getInstance().getDATABASE() + ";");
-
-            PreparedStatement preparedStmt =
-                    connection.prepareStatement(DbScripts.getGET_TOKEN_REQUEST_FROM_DB_SCRIPT());
-            preparedStmt.setString(1, authReqId);
+    /**
+     * Deletes every artifact of the transactions in one database transaction.
+     *
+     * @param authReqIds Ciba Authentication request identifiers.
+     * @return true if the transactions were deleted.
+     */
+    public boolean deleteTransactions(List<String> authReqIds) {
 
-            // execute the prepared statement
-            ResultSet resultSet = preparedStmt.executeQuery();
-
-            while (resultSet.next()) {               // Position the cursor
-
-                tokenRequest.setAuth_req_id(resultSet.getString(1));
-                tokenRequest.setGrant_type(resultSet.getString(2));
+        try (Connection connection = DbConnection.getConnection()) {
 
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                for (CibaTransaction.Part part : BATCHED_PARTS) {
+                    try (PreparedStatement prepStmt = connection.prepareStatement(getDeleteScript(part))) {
+                        for (String authReqId : authReqIds) {
+                            prepStmt.setString(1, authReqId);
+                            prepStmt.addBatch();
+                        }
+                        prepStmt.executeBatch();
+                    }
+                }
+                connection.commit();
+                return true;
+
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
             }
-            statement.close();
-            preparedStmt.close();
-
-        } catch (Exception e) {
-            e.printStackTrace();
 
+        } catch (SQLException e) {
+            LOGGER.severe("Error deleting expired transactions : " + e.getMessage());
         }
-        return tokenRequest;
+        return false;
     }
 
-    public boolean addTokenResponse(String authReqId, Object tokenResponse1) {
-
-        try {
-            TokenResponse tokenResponse = (TokenResponse) tokenResponse1;
-
-            Statement statement = connection.createStatement();
-
-            //use the configured database
-            statement.execute("Use " + ConfigurationFile.getInstance().getDATABASE() + ";");
-
-            //create authentication request table if not exists
-            statement.execute(DbScripts.getCREATE_TOKEN_RESPONSE_DB_SCRIPT());
-
-            //add user to store using prepared statements
-            PreparedStatement prepStmt = connection.prepareStatement(DbScripts.getADD_TOKEN_RESPONSE_TO_DB_SCRIPT());
-            prepStmt.setString(1, authReqId);
+    /**
+     * Applies coalesced writes in one database transaction, with a JDBC batch per table and kind of statement.
+     *
+     * @param writes Writes taken by the write-behind flusher.
+     * @return true if every write was committed.
+     */
+    public boolean writeBatch(Collection<PendingWrite> writes) {
 
-            prepStmt.setString(2, tokenResponse.getAccessToken());
-            prepStmt.setString(3, tokenResponse.getIdToken());
-            prepStmt.setString(4, tokenResponse.getTokenType());
-            prepStmt.setLong(5, tokenResponse.getTokenExpirein());
-            prepStmt.setString(6, tokenResponse.getRefreshToken());
+        try (Connection connection = DbConnection.getConnection()) {
 
-            Boolean result = prepStmt.execute();
-            statement.close();
-            prepStmt.close();
-
-            return true;
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                for (CibaTransaction.Part part : BATCHED_PARTS) {
+                    executeBatch(connection, getUpsertScript(part), writes, part, false);
+                    executeBatch(connection, getDeleteScript(part), writes, part, true);
+                }
+                connection.commit();
+                return true;
+
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
 
-        } catch (Exception e) {
-            e.printStackTrace();
+        } catch (SQLException e) {
+            LOGGER.severe("Error flushing batched writes : " + e.getMessage());
         }
         return false;
     }
 
-    public boolean deleteTokenResponse(String authReqId) {
-
-        try {
-
-            Statement statement = connection.createStatement();
+    private void executeBatch(Connection connection, String sql, Collection<PendingWrite> writes,
+                              CibaTransaction.Part part, boolean deletes) throws SQLException {
 
-            //use the configured database
-            statement.execute("Use " + ConfigurationFile.getInstance().getDATABASE() + ";");
+        try (PreparedStatement prepStmt = connection.prepareStatement(sql)) {
 
-            PreparedStatement preparedStmt =
-                    connection.prepareStatement(DbScripts.getREMOVE_TOKEN_RESPONSE_FROM_DB_SCRIPT());
-            preparedStmt.setString(1, authReqId);
-
-            // execute the preparedstatement
-            Boolean result = preparedStmt.execute();
-            statement.close();
-            preparedStmt.close();
-
-            return true;
-
-        } catch (Exception e) {
-            e.printStackTrace();
+            int batched = 0;
+            for (PendingWrite write : writes) {
+                Object artifact = write.getParts().get(part);
+                if (artifact == null || (artifact == PendingWrite.DELETED) != deletes) {
+                    continue;
+                }
+                if (deletes) {
+                    prepStmt.setString(1, write.getAuthReqId());
+                } else {
+                    bind(prepStmt, part, write.getAuthReqId(), artifact);
+                }
+                prepStmt.addBatch();
+                batched++;
+            }
+            if (batched > 0) {
+                prepStmt.executeBatch();
+            }
         }
-        return false;
     }
 
-    public Object getTokenResponse(String authReqId) {
-
-        TokenResponse tokenResponse = new TokenResponse();
-        try {
-
-            Statement statement = connection.createStatement();
-
-            //use the configured database
-            statement.execute("Use " + ConfigurationFile.getInstance().getDATABASE() + ";");
-
-            PreparedStatement preparedStmt =
-                    connection.prepareStatement(DbScripts.getGET_TOKEN_RESPONSE_FROM_DB_SCRIPT());
-            preparedStmt.setString(1, authReqId);
+    private static void bind(PreparedStatement prepStmt, CibaTransaction.Part part, String authReqId,
+                             Object artifact) throws SQLException {
+
+        switch (part) {
+            case AUTH_REQUEST:
+                bindAuthRequest(prepStmt, authReqId, (CIBAauthRequest) artifact);
+                break;
+            case AUTH_RESPONSE:
+                bindAuthResponse(prepStmt, authReqId, (CIBAauthResponse) artifact);
+                break;
+            case POLLING_ATTRIBUTE:
+                bindPollingAttribute(prepStmt, authReqId, (PollingAtrribute) artifact);
+                break;
+            case TOKEN_REQUEST:
+                bindTokenRequest(prepStmt, authReqId, (TokenRequest) artifact);
+                break;
+            case TOKEN_RESPONSE:
+                bindTokenResponse(prepStmt, authReqId, (TokenResponse) artifact);
+                break;
+            default:
+                throw new IllegalArgumentException("Part is not persisted : " + part);
+        }
+    }
 
-            // execute the prepared statement
-            ResultSet resultSet = preparedStmt.executeQuery();
+    private static String getUpsertScript(CibaTransaction.Part part) {
+
+        switch (part) {
+            case AUTH_REQUEST:
+                return DbScripts.getUPSERT_AUTH_REQUEST_DB_SCRIPT();
+            case AUTH_RESPONSE:
+                return DbScripts.getUPSERT_AUTH_RESPONSE_DB_SCRIPT();
+            case POLLING_ATTRIBUTE:
+                return DbScripts.getUPSERT_POLLING_ATTRIBUTE_DB_SCRIPT();
+            case TOKEN_REQUEST:
+                return DbScripts.getUPSERT_TOKEN_REQUEST_DB_SCRIPT();
+            case TOKEN_RESPONSE:
+                return DbScripts.getUPSERT_TOKEN_RESPONSE_DB_SCRIPT();
+            default:
+                throw new IllegalArgumentException("Part is not persisted : " + part);
+        }
+    }
 
-            while (resultSet.next()) {               // Position the cursor
+    private static String getDeleteScript(CibaTransaction.Part part) {
+
+        switch (part) {
+            case AUTH_REQUEST:
+                return DbScripts.getREMOVE_AUTH_REQUEST_FROM_DB_SCRIPT();
+            case AUTH_RESPONSE:
+                return DbScripts.getREMOVE_AUTH_RESPONSE_FROM_DB_SCRIPT();
+            case POLLING_ATTRIBUTE:
+                return DbScripts.getREMOVE_POLLING_ATTRIBUTE_FROM_DB_SCRIPT();
+            case TOKEN_REQUEST:
+                return DbScripts.getREMOVE_TOKEN_REQUEST_FROM_DB_SCRIPT();
+            case TOKEN_RESPONSE:
+                return DbScripts.getREMOVE_TOKEN_RESPONSE_FROM_DB_SCRIPT();
+            default:
+                throw new IllegalArgumentException("Part is not persisted : " + part);
+        }
+    }
 
-                tokenResponse.setAccessToken(resultSet.getString(2));
-                tokenResponse.setIdToken(resultSet.getString(3));
-                tokenResponse.setTokenType(resultSet.getString(4));
-                tokenResponse.setTokenExpirein(resultSet.getLong(5));
-                tokenResponse.setRefreshToken(resultSet.getString(6));
+    /**
+     * Maps a row of the transaction query. Each joined artifact is present only if its auth_req_id column is set.
+     */
+    private CibaTransaction mapTransaction(String authReqId, ResultSet resultSet, int column) throws SQLException {
 
-            }
-            statement.close();
-            preparedStmt.close();
+        CibaTransaction transaction = new CibaTransaction(authReqId);
 
-            return tokenResponse;
+        transaction.setAuthRequest(ArtifactRowMappers.AUTH_REQUEST.mapRow(resultSet, column));
+        column += ArtifactRowMappers.AUTH_REQUEST_COLUMNS;
 
-        } catch (Exception e) {
-            e.printStackTrace();
+        if (resultSet.getString(column) != null) {
+            transaction.setAuthResponse(ArtifactRowMappers.AUTH_RESPONSE.mapRow(resultSet, column));
+        }
+        column += ArtifactRowMappers.AUTH_RESPONSE_COLUMNS;
 
+        if (resultSet.getString(column) != null) {
+            transaction.setPollingAtrribute(ArtifactRowMappers.POLLING_ATTRIBUTE.mapRow(resultSet, column));
         }
-        return null;
-    }
+        column += ArtifactRowMappers.POLLING_ATTRIBUTE_COLUMNS;
 
-    public boolean addPollingAttribute(String authReqId, Object pollingattribute1) {
+        if (resultSet.getString(column) != null) {
+            transaction.setTokenRequest(ArtifactRowMappers.TOKEN_REQUEST.mapRow(resultSet, column));
+        }
+        column += ArtifactRowMappers.TOKEN_REQUEST_COLUMNS;
 
-        try {
-            PollingAtrribute pollingAtrribute = (PollingAtrribute) pollingattribute1;
+        if (resultSet.getString(column) != null) {
+            transaction.setTokenResponse(ArtifactRowMappers.TOKEN_RESPONSE.mapRow(resultSet, column));
+        }
 
-            Statement statement = connection.createStatement();
+        transaction.clearModifications();
+        return transaction;
+    }
 
-            //use the configured database
-            statement.execute("Use " + ConfigurationFile.getInstance().getDATABASE() + ";");
+    private static void bindAuthRequest(PreparedStatement prepStmt, String authReqId, CIBAauthRequest cibAauthRequest)
+            throws SQLException {
+
+        prepStmt.setString(1, authReqId);
+        prepStmt.setString(2, cibAauthRequest.getAud());
+        prepStmt.setString(3, cibAauthRequest.getIss());
+        prepStmt.setLong(4, cibAauthRequest.getExp());
+        prepStmt.setLong(5, cibAauthRequest.getIat());
+        prepStmt.setLong(6, cibAauthRequest.getNbf());
+        prepStmt.setString(7, cibAauthRequest.getJti());
+        prepStmt.setString(8, nonNull(cibAauthRequest.getScope()));
+        prepStmt.setString(9, nonNull(cibAauthRequest.getClient_notification_token()));
+        prepStmt.setString(10, nonNull(cibAauthRequest.getAcr_values()));
+        prepStmt.setString(11, nonNull(cibAauthRequest.getLogin_hint_token()));
+        prepStmt.setString(12, nonNull(cibAauthRequest.getLogin_hint()));
+        prepStmt.setString(13, nonNull(cibAauthRequest.getId_token_hint()));
+        prepStmt.setString(14, nonNull(cibAauthRequest.getBinding_message()));
+        prepStmt.setString(15, nonNull(cibAauthRequest.getUser_code()));
+        prepStmt.setLong(16, cibAauthRequest.getRequested_expiry());
+    }
 
-            //create authentication request table if not exists
-            statement.execute(DbScripts.getCREATE_POLLING_ATTRIBUTE_DB_SCRIPT());
+    private static void bindAuthResponse(PreparedStatement prepStmt, String authReqId,
+                                         CIBAauthResponse cibAauthResponse) throws SQLException {
 
-            //add user to store using prepared statements
-            PreparedStatement prepStmt = connection.prepareStatement(DbScripts.getADD_POLLING_ATTRIBUTE_TO_DB_SCRIPT());
-            prepStmt.setString(1, authReqId);
+        prepStmt.setString(1, authReqId);
+        prepStmt.setLong(2, cibAauthResponse.getExpiresIn());
+        prepStmt.setLong(3, cibAauthResponse.getInterval());
+    }
 
-            prepStmt.setLong(2, pollingAtrribute.getExpiresIn());
-            prepStmt.setLong(3, pollingAtrribute.getPollingInterval());
-            prepStmt.setLong(4, pollingAtrribute.getLastPolledTime());
-            prepStmt.setLong(5, pollingAtrribute.getIssuedTime());
-            prepStmt.setBoolean(6, pollingAtrribute.getNotificationIssued());
+    private static void bindPollingAttribute(PreparedStatement prepStmt, String authReqId,
+                                             PollingAtrribute pollingAtrribute) throws SQLException {
 
-            Boolean result = prepStmt.execute();
-            statement.close();
-            prepStmt.close();
+        prepStmt.setString(1, authReqId);
+        prepStmt.setLong(2, pollingAtrribute.getExpiresIn());
+        prepStmt.setLong(3, pollingAtrribute.getPollingInterval());
+        prepStmt.setLong(4, pollingAtrribute.getLastPolledTime());
+        prepStmt.setLong(5, pollingAtrribute.getIssuedTime());
+        prepStmt.setBoolean(6, pollingAtrribute.getNotificationIssued());
+    }
 
-            return true;
+    private static void bindTokenRequest(PreparedStatement prepStmt, String authReqId, TokenRequest tokenRequest)
+            throws SQLException {
 
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return false;
+        prepStmt.setString(1, authReqId);
+        prepStmt.setString(2, tokenRequest.getGrant_type());
     }
 
-    public boolean deletePollingAttribute(String authReqId) {
+    private static void bindTokenResponse(PreparedStatement prepStmt, String authReqId, TokenResponse tokenResponse)
+            throws SQLException {
 
-        try {
+        prepStmt.setString(1, authReqId);
+        prepStmt.setString(2, tokenResponse.getAccessToken());
+        prepStmt.setString(3, tokenResponse.getIdToken());
+        prepStmt.setString(4, tokenResponse.getTokenType());
+        prepStmt.setLong(5, tokenResponse.getTokenExpirein());
+        prepStmt.setString(6, tokenResponse.getRefreshToken());
+    }
 
-            Statement statement = connection.createStatement();
+    /**
+     * Runs an insert or delete on a pooled connection.
+     *
+     * @return true unless the statement failed.
+     */
+    private boolean update(String sql, StatementSetter statementSetter) {
 
-            //use the configured database
-            statement.execute("Use " + ConfigurationFile.getInstance().getDATABASE() + ";");
+        return executeUpdate(sql, statementSetter) >= 0;
+    }
 
-            PreparedStatement preparedStmt =
-                    connection.prepareStatement(DbScripts.getREMOVE_POLLING_ATTRIBUTE_FROM_DB_SCRIPT());
-            preparedStmt.setString(1, authReqId);
+    /**
+     * Runs an insert, update or delete on a pooled connection.
+     *
+     * @return number of affected rows, -1 if the statement failed.
+     */
+    private int executeUpdate(String sql, StatementSetter statementSetter) {
 
-            // execute the preparedstatement
-            Boolean result = preparedStmt.execute();
-            statement.close();
-            preparedStmt.close();
+        try (Connection connection = DbConnection.getConnection();
+             PreparedStatement preparedStmt = connection.prepareStatement(sql)) {
 
-            return true;
+            statementSetter.setValues(preparedStmt);
+            return preparedStmt.executeUpdate();
 
-        } catch (Exception e) {
-            e.printStackTrace();
+        } catch (SQLException e) {
+            LOGGER.severe("Error executing database update : " + e.getMessage());
         }
-        return false;
+        return -1;
     }
 
-    public Object getPollingAttribute(String authReqId) {
+    private <T> T queryForObject(String sql, String authReqId, RowMapper<T> rowMapper) throws SQLException {
 
-        PollingAtrribute pollingAtrribute = new PollingAtrribute();
-        try {
-
-            Statement statement = connection.createStatement();
+        try (Connection connection = DbConnection.getConnection()) {
+            return queryForObject(connection, sql, authReqId, rowMapper);
+        }
+    }
 
-            //use the configured database
-            statement.execute("Use " + ConfigurationFile.getInstance().getDATABASE() + ";");
+    /**
+     * Maps the first row selected by the auth_req_id.
+     *
+     * @return Mapped row, null if no row matches.
+     */
+    private <T> T queryForObject(Connection connection, String sql, String authReqId, RowMapper<T> rowMapper)
+            throws SQLException {
 
-            PreparedStatement preparedStmt =
-                    connection.prepareStatement(DbScripts.getGET_POLLING_ATTRIBUTE_FROM_DB_SCRIPT());
+        // Closing the statement hands it back to the statement cache of the pooled connection.
+        try (PreparedStatement preparedStmt = connection.prepareStatement(sql)) {
             preparedStmt.setString(1, authReqId);
-
-            // execute the prepared statement
-            ResultSet resultSet = preparedStmt.executeQuery();
-
-            while (resultSet.next()) {               // Position the cursor
-                pollingAtrribute.setAuth_req_id(resultSet.getString(1));
-                pollingAtrribute.setExpiresIn(resultSet.getLong(2));
-                pollingAtrribute.setPollingInterval(resultSet.getLong(3));
-                pollingAtrribute.setLastPolledTime(resultSet.getLong(4));
-                pollingAtrribute.setIssuedTime(resultSet.getLong(5));
-                pollingAtrribute.setNotificationIssued(resultSet.getBoolean(6));
-
+            try (ResultSet resultSet = preparedStmt.executeQuery()) {
+                return resultSet.next() ? rowMapper.mapRow(resultSet, 1) : null;
             }
-            statement.close();
-            preparedStmt.close();
-
-            return pollingAtrribute;
-
-        } catch (Exception e) {
-            e.printStackTrace();
-
         }
+    }
 
-        return null;
+    private static String nonNull(String value) {
+
+        return value != null ? value : "";
     }
 }
-
@@ -68,7 +68,9 @@ public class DbScripts {
             " VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?) ";
 
     private static final String REMOVE_AUTH_REQUEST_FROM_DB_SCRIPT = "DELETE FROM authRequest where auth_req_id = ?";
-    private static final String GET_AUTH_REQUEST_FROM_DB_SCRIPT = "SELECT * FROM authRequest where auth_req_id = ? ";
+    private static final String GET_AUTH_REQUEST_FROM_DB_SCRIPT = "SELECT auth_req_id, aud, iss, exp, " +
+            "iat, nbf, jti, scope, client_notification_token, acr_values, login_hint_token, login_hint, " +
+            "id_token_hint, binding_message, user_code, requested_expiry FROM authRequest where auth_req_id = ? ";
 
     public static String getCREATE_CIBA_AUTH_REQUEST_DB_SCRIPT() {
 
@@ -100,7 +102,8 @@ public class DbScripts {
             " VALUES (?,?,?) ";
 
     private static final String REMOVE_AUTH_RESPONSE_FROM_DB_SCRIPT = "DELETE FROM authResponse where auth_req_id = ?";
-    private static final String GET_AUTH_RESPONSE_FROM_DB_SCRIPT = "SELECT * FROM authResponse where auth_req_id = ? ";
+    private static final String GET_AUTH_RESPONSE_FROM_DB_SCRIPT = "SELECT auth_req_id, expires_in, " +
+            "interval_time FROM authResponse where auth_req_id = ? ";
 
     public static String getCREATE_CIBA_AUTH_RESPONSE_DB_SCRIPT() {
 
@@ -255,7 +258,8 @@ public class DbScripts {
             " VALUES (?,?) ";
 
     private static final String REMOVE_TOKEN_REQUEST_FROM_DB_SCRIPT = "DELETE FROM tokenRequest where auth_req_id = ?";
-    private final static String GET_TOKEN_REQUEST_FROM_DB_SCRIPT = "SELECT * FROM tokenRequest where auth_req_id = ? ";
+    private final static String GET_TOKEN_REQUEST_FROM_DB_SCRIPT = "SELECT auth_req_id, grantType " +
+            "FROM tokenRequest where auth_req_id = ? ";
     private static final String CHECK_FOR_TOKEN_REQUEST_AVAILABILITY = "SELECT COUNT(auth_req_id) from tokenRequest " +
             "where tokenRequest.auth_req_id = ?";
 
@@ -297,7 +301,8 @@ public class DbScripts {
     private static final String REMOVE_TOKEN_RESPONSE_FROM_DB_SCRIPT =
             "DELETE FROM tokenResponse where auth_req_id = ?";
     private final static String GET_TOKEN_RESPONSE_FROM_DB_SCRIPT =
-            "SELECT * FROM tokenResponse where auth_req_id = ? ";
+            "SELECT auth_req_id, access_token, id_token, token_type, expires_in, refresh_token " +
+            "FROM tokenResponse where auth_req_id = ? ";
 
     public static String getCREATE_TOKEN_RESPONSE_DB_SCRIPT() {
 
@@ -332,7 +337,8 @@ public class DbScripts {
     private static final String REMOVE_POLLING_ATTRIBUTE_FROM_DB_SCRIPT =
             "DELETE FROM pollingAttribute where auth_req_id = ?";
     private final static String GET_POLLING_ATTRIBUTE_FROM_DB_SCRIPT =
-            "SELECT * FROM pollingAttribute where auth_req_id = ? ";
+            "SELECT auth_req_id, expiresIn, pollingTime, lastPolled, issuedTime, notification_issued " +
+            "FROM pollingAttribute where auth_req_id = ? ";
 
     public static String getCREATE_POLLING_ATTRIBUTE_DB_SCRIPT() {
 
@@ -353,8 +359,236 @@ public class DbScripts {
 
         return GET_POLLING_ATTRIBUTE_FROM_DB_SCRIPT;
     }
-}
 
+    // Loads every artifact of a transaction in one round trip. Artifacts not stored yet come back as NULL columns.
+    private final static String GET_CIBA_TRANSACTION_FROM_DB_SCRIPT = "SELECT " +
+            "authRequest.auth_req_id, authRequest.aud, authRequest.iss, authRequest.exp, authRequest.iat, " +
+            "authRequest.nbf, authRequest.jti, authRequest.scope, authRequest.client_notification_token, " +
+            "authRequest.acr_values, authRequest.login_hint_token, authRequest.login_hint, " +
+            "authRequest.id_token_hint, authRequest.binding_message, authRequest.user_code, " +
+            "authRequest.requested_expiry, " +
+            "authResponse.auth_req_id, authResponse.expires_in, authResponse.interval_time, " +
+            "pollingAttribute.auth_req_id, pollingAttribute.expiresIn, pollingAttribute.pollingTime, " +
+            "pollingAttribute.lastPolled, pollingAttribute.issuedTime, pollingAttribute.notification_issued, " +
+            "tokenRequest.auth_req_id, tokenRequest.grantType, " +
+            "tokenResponse.auth_req_id, tokenResponse.access_token, tokenResponse.id_token, " +
+            "tokenResponse.token_type, tokenResponse.expires_in, tokenResponse.refresh_token " +
+            "FROM authRequest " +
+            "LEFT JOIN authResponse ON authResponse.auth_req_id = authRequest.auth_req_id " +
+            "LEFT JOIN pollingAttribute ON pollingAttribute.auth_req_id = authRequest.auth_req_id " +
+            "LEFT JOIN tokenRequest ON tokenRequest.auth_req_id = authRequest.auth_req_id " +
+            "LEFT JOIN tokenResponse ON tokenResponse.auth_req_id = authRequest.auth_req_id " +
+            "WHERE authRequest.auth_req_id = ? ";
+
+    public static String getGET_CIBA_TRANSACTION_FROM_DB_SCRIPT() {
+
+        return GET_CIBA_TRANSACTION_FROM_DB_SCRIPT;
+    }
+
+    private final static String CREATE_SCHEMA_VERSION_DB_SCRIPT = "CREATE TABLE IF NOT EXISTS schemaVersion (" +
+            "version INT NOT NULL, appliedAt BIGINT NOT NULL, " +
+            "primary key (version));";
+
+    private static final String ADD_SCHEMA_VERSION_TO_DB_SCRIPT = "INSERT INTO schemaVersion" +
+            "(version, appliedAt)" +
+            " VALUES (?,?) ";
+
+    private final static String GET_SCHEMA_VERSION_FROM_DB_SCRIPT = "SELECT MAX(version) FROM schemaVersion";
+
+    // Named lock keeping proxy nodes that start together from migrating the schema at the same time.
+    private final static String ACQUIRE_SCHEMA_LOCK_SCRIPT = "SELECT GET_LOCK('ciba_proxy_schema', 60)";
+    private final static String RELEASE_SCHEMA_LOCK_SCRIPT = "SELECT RELEASE_LOCK('ciba_proxy_schema')";
+
+    public static String getCREATE_SCHEMA_VERSION_DB_SCRIPT() {
+
+        return CREATE_SCHEMA_VERSION_DB_SCRIPT;
+    }
+
+    public static String getADD_SCHEMA_VERSION_TO_DB_SCRIPT() {
+
+        return ADD_SCHEMA_VERSION_TO_DB_SCRIPT;
+    }
+
+    public static String getGET_SCHEMA_VERSION_FROM_DB_SCRIPT() {
+
+        return GET_SCHEMA_VERSION_FROM_DB_SCRIPT;
+    }
+
+    public static String getACQUIRE_SCHEMA_LOCK_SCRIPT() {
+
+        return ACQUIRE_SCHEMA_LOCK_SCRIPT;
+    }
+
+    public static String getRELEASE_SCHEMA_LOCK_SCRIPT() {
+
+        return RELEASE_SCHEMA_LOCK_SCRIPT;
+    }
+
+    // Upserts used by the write-behind flusher, so a coalesced write never depends on the row being absent.
+    private static final String UPSERT_AUTH_REQUEST_DB_SCRIPT = ADD_AUTH_REQUEST_TO_DB_SCRIPT +
+            "ON DUPLICATE KEY UPDATE aud = VALUES(aud), iss = VALUES(iss), exp = VALUES(exp), iat = VALUES(iat), " +
+            "nbf = VALUES(nbf), jti = VALUES(jti), scope = VALUES(scope), " +
+            "client_notification_token = VALUES(client_notification_token), acr_values = VALUES(acr_values), " +
+            "login_hint_token = VALUES(login_hint_token), login_hint = VALUES(login_hint), " +
+            "id_token_hint = VALUES(id_token_hint), binding_message = VALUES(binding_message), " +
+            "user_code = VALUES(user_code), requested_expiry = VALUES(requested_expiry)";
+
+    private static final String UPSERT_AUTH_RESPONSE_DB_SCRIPT = ADD_AUTH_RESPONSE_TO_DB_SCRIPT +
+            "ON DUPLICATE KEY UPDATE expires_in = VALUES(expires_in), interval_time = VALUES(interval_time)";
+
+    private static final String UPSERT_POLLING_ATTRIBUTE_DB_SCRIPT = ADD_POLLING_ATTRIBUTE_TO_DB_SCRIPT +
+            "ON DUPLICATE KEY UPDATE expiresIn = VALUES(expiresIn), pollingTime = VALUES(pollingTime), " +
+            "lastPolled = VALUES(lastPolled), issuedTime = VALUES(issuedTime), " +
+            "notification_issued = VALUES(notification_issued)";
+
+    private static final String UPSERT_TOKEN_REQUEST_DB_SCRIPT = ADD_TOKEN_REQUEST_TO_DB_SCRIPT +
+            "ON DUPLICATE KEY UPDATE grantType = VALUES(grantType)";
 
+    private static final String UPSERT_TOKEN_RESPONSE_DB_SCRIPT = ADD_TOKEN_RESPONSE_TO_DB_SCRIPT +
+            "ON DUPLICATE KEY UPDATE access_token = VALUES(access_token), id_token = VALUES(id_token), " +
+            "token_type = VALUES(token_type), expires_in = VALUES(expires_in), " +
+            "refresh_token = VALUES(refresh_token)";
 
+    public static String getUPSERT_AUTH_REQUEST_DB_SCRIPT() {
+
+        return UPSERT_AUTH_REQUEST_DB_SCRIPT;
+    }
+
+    public static String getUPSERT_AUTH_RESPONSE_DB_SCRIPT() {
+
+        return UPSERT_AUTH_RESPONSE_DB_SCRIPT;
+    }
+
+    public static String getUPSERT_POLLING_ATTRIBUTE_DB_SCRIPT() {
+
+        return UPSERT_POLLING_ATTRIBUTE_DB_SCRIPT;
+    }
+
+    public static String getUPSERT_TOKEN_REQUEST_DB_SCRIPT() {
+
+        return UPSERT_TOKEN_REQUEST_DB_SCRIPT;
+    }
+
+    public static String getUPSERT_TOKEN_RESPONSE_DB_SCRIPT() {
+
+        return UPSERT_TOKEN_RESPONSE_DB_SCRIPT;
+    }
+
+    // Conditional updates. One affected row means the compare-and-set succeeded.
+    private static final String TOUCH_LAST_POLLED_DB_SCRIPT = "UPDATE pollingAttribute " +
+            "SET lastPolled = ?, pollingTime = ? where auth_req_id = ? AND lastPolled = ?";
+
+    private static final String MARK_NOTIFICATION_ISSUED_DB_SCRIPT = "UPDATE pollingAttribute " +
+            "SET notification_issued = TRUE where auth_req_id = ? AND notification_issued = FALSE";
+
+    public static String getTOUCH_LAST_POLLED_DB_SCRIPT() {
+
+        return TOUCH_LAST_POLLED_DB_SCRIPT;
+    }
+
+    public static String getMARK_NOTIFICATION_ISSUED_DB_SCRIPT() {
+
+        return MARK_NOTIFICATION_ISSUED_DB_SCRIPT;
+    }
 
+    // Schema version 2. Expiry of a transaction, derived by MySQL and indexed for the expiry reaper.
+    private static final String ADD_EXPIRES_AT_TO_POLLING_ATTRIBUTE_DB_SCRIPT = "ALTER TABLE pollingAttribute " +
+            "ADD COLUMN expiresAt BIGINT AS (issuedTime + expiresIn) STORED, " +
+            "ADD INDEX idx_polling_attribute_expires_at (expiresAt)";
+
+    private static final String GET_EXPIRED_TRANSACTIONS_FROM_DB_SCRIPT = "SELECT auth_req_id FROM pollingAttribute " +
+            "where expiresAt < ? ORDER BY expiresAt LIMIT ?";
+
+    private static final String GET_OLDEST_EXPIRY_FROM_DB_SCRIPT = "SELECT MIN(expiresAt) FROM pollingAttribute";
+
+    public static String getADD_EXPIRES_AT_TO_POLLING_ATTRIBUTE_DB_SCRIPT() {
+
+        return ADD_EXPIRES_AT_TO_POLLING_ATTRIBUTE_DB_SCRIPT;
+    }
+
+    public static String getGET_EXPIRED_TRANSACTIONS_FROM_DB_SCRIPT() {
+
+        return GET_EXPIRED_TRANSACTIONS_FROM_DB_SCRIPT;
+    }
+
+    public static String getGET_OLDEST_EXPIRY_FROM_DB_SCRIPT() {
+
+        return GET_OLDEST_EXPIRY_FROM_DB_SCRIPT;
+    }
+
+    // Schema version 3. Time each artifact row was stored, set by MySQL, so rows left without a polling attribute
+    // can be reaped too.
+    private static final String ADD_STORED_AT_TO_AUTH_REQUEST_DB_SCRIPT = "ALTER TABLE authRequest " +
+            "ADD COLUMN storedAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+            "ADD INDEX idx_auth_request_stored_at (storedAt)";
+
+    private static final String ADD_STORED_AT_TO_AUTH_RESPONSE_DB_SCRIPT = "ALTER TABLE authResponse " +
+            "ADD COLUMN storedAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+            "ADD INDEX idx_auth_response_stored_at (storedAt)";
+
+    private static final String ADD_STORED_AT_TO_TOKEN_REQUEST_DB_SCRIPT = "ALTER TABLE tokenRequest " +
+            "ADD COLUMN storedAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+            "ADD INDEX idx_token_request_stored_at (storedAt)";
+
+    private static final String ADD_STORED_AT_TO_TOKEN_RESPONSE_DB_SCRIPT = "ALTER TABLE tokenResponse " +
+            "ADD COLUMN storedAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+            "ADD INDEX idx_token_response_stored_at (storedAt)";
+
+    // Rows stored longer than expires_in ago whose transaction has no polling attribute to expire it.
+    private static final String GET_ORPHANED_AUTH_REQUESTS_FROM_DB_SCRIPT = "SELECT auth_req_id FROM authRequest " +
+            "where storedAt < TIMESTAMPADD(SECOND, -?, CURRENT_TIMESTAMP) AND NOT EXISTS (SELECT 1 FROM " +
+            "pollingAttribute where pollingAttribute.auth_req_id = authRequest.auth_req_id) ORDER BY storedAt LIMIT ?";
+
+    private static final String GET_ORPHANED_AUTH_RESPONSES_FROM_DB_SCRIPT = "SELECT auth_req_id FROM authResponse " +
+            "where storedAt < TIMESTAMPADD(SECOND, -?, CURRENT_TIMESTAMP) AND NOT EXISTS (SELECT 1 FROM " +
+            "pollingAttribute where pollingAttribute.auth_req_id = authResponse.auth_req_id) ORDER BY storedAt LIMIT ?";
+
+    private static final String GET_ORPHANED_TOKEN_REQUESTS_FROM_DB_SCRIPT = "SELECT auth_req_id FROM tokenRequest " +
+            "where storedAt < TIMESTAMPADD(SECOND, -?, CURRENT_TIMESTAMP) AND NOT EXISTS (SELECT 1 FROM " +
+            "pollingAttribute where pollingAttribute.auth_req_id = tokenRequest.auth_req_id) ORDER BY storedAt LIMIT ?";
+
+    private static final String GET_ORPHANED_TOKEN_RESPONSES_FROM_DB_SCRIPT = "SELECT auth_req_id FROM " +
+            "tokenResponse where storedAt < TIMESTAMPADD(SECOND, -?, CURRENT_TIMESTAMP) AND NOT EXISTS (SELECT 1 " +
+            "FROM pollingAttribute where pollingAttribute.auth_req_id = tokenResponse.auth_req_id) " +
+            "ORDER BY storedAt LIMIT ?";
+
+    public static String getADD_STORED_AT_TO_AUTH_REQUEST_DB_SCRIPT() {
+
+        return ADD_STORED_AT_TO_AUTH_REQUEST_DB_SCRIPT;
+    }
+
+    public static String getADD_STORED_AT_TO_AUTH_RESPONSE_DB_SCRIPT() {
+
+        return ADD_STORED_AT_TO_AUTH_RESPONSE_DB_SCRIPT;
+    }
+
+    public static String getADD_STORED_AT_TO_TOKEN_REQUEST_DB_SCRIPT() {
+
+        return ADD_STORED_AT_TO_TOKEN_REQUEST_DB_SCRIPT;
+    }
+
+    public static String getADD_STORED_AT_TO_TOKEN_RESPONSE_DB_SCRIPT() {
+
+        return ADD_STORED_AT_TO_TOKEN_RESPONSE_DB_SCRIPT;
+    }
+
+    public static String getGET_ORPHANED_AUTH_REQUESTS_FROM_DB_SCRIPT() {
+
+        return GET_ORPHANED_AUTH_REQUESTS_FROM_DB_SCRIPT;
+    }
+
+    public static String getGET_ORPHANED_AUTH_RESPONSES_FROM_DB_SCRIPT() {
+
+        return GET_ORPHANED_AUTH_RESPONSES_FROM_DB_SCRIPT;
+    }
+
+    public static String getGET_ORPHANED_TOKEN_REQUESTS_FROM_DB_SCRIPT() {
+
+        return GET_ORPHANED_TOKEN_REQUESTS_FROM_DB_SCRIPT;
+    }
+
+    public static String getGET_ORPHANED_TOKEN_RESPONSES_FROM_DB_SCRIPT() {
+
+        return GET_ORPHANED_TOKEN_RESPONSES_FROM_DB_SCRIPT;
+    }
+}
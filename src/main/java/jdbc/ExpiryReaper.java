@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jdbc;
+
+import cibaparameters.CIBAParameters;
+import configuration.ConfigurationFile;
+import metrics.ProxyMetrics;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Deletes expired transactions from the JDBC artifact tables.
+ * Transactions expire at issuedTime + expiresIn of their polling attribute. Artifacts of a transaction without a
+ * polling attribute expire expires_in after they were stored. They are deleted in batches of bounded size with a
+ * pause in between, so that a large backlog does not hold locks or flood replicas.
+ */
+public class ExpiryReaper {
+
+    private static final Logger LOGGER = Logger.getLogger(ExpiryReaper.class.getName());
+
+    // Expiry of the oldest transaction still stored, as of the last run.
+    private final AtomicLong oldestExpiry = new AtomicLong();
+    private volatile ScheduledExecutorService scheduler;
+
+    private ExpiryReaper() {
+
+        ProxyMetrics.getInstance().registerGauge("jdbc.reaper.lag", () -> {
+            long expiry = oldestExpiry.get();
+            return expiry == 0 ? 0 : Math.max(0, currentTime() - expiry);
+        });
+    }
+
+    private static ExpiryReaper expiryReaperInstance = new ExpiryReaper();
+
+    public static ExpiryReaper getInstance() {
+
+        if (expiryReaperInstance == null) {
+
+            synchronized (ExpiryReaper.class) {
+
+                if (expiryReaperInstance == null) {
+
+                    /* instance will be created at request time */
+                    expiryReaperInstance = new ExpiryReaper();
+                }
+            }
+        }
+        return expiryReaperInstance;
+    }
+
+    /**
+     * Schedule the reaper, once.
+     */
+    public synchronized void start() {
+
+        if (scheduler != null) {
+            return;
+        }
+        long interval = ConfigurationFile.getInstance().getREAPER_INTERVAL();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ciba-jdbc-expiry-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::reapQuietly, interval, interval, TimeUnit.SECONDS);
+        LOGGER.info("Expiry reaper scheduled every " + interval + " seconds.");
+    }
+
+    /**
+     * Stop the reaper, to be called when the server shuts down.
+     */
+    public synchronized void shutdown() {
+
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Delete every transaction expired by now.
+     *
+     * @return number of transactions deleted.
+     */
+    public int reap() {
+
+        ConfigurationFile configurationFile = ConfigurationFile.getInstance();
+        int batchSize = configurationFile.getREAPER_BATCH_SIZE();
+        long now = currentTime();
+        long runStartTime = System.currentTimeMillis();
+
+        int reaped = reapBatches(() -> DbFunctions.getInstance().getExpiredTransactions(now, batchSize),
+                "jdbc.reaper.reaped");
+        long maxAge = CIBAParameters.getInstance().getExpires_in();
+        reaped += reapBatches(() -> DbFunctions.getInstance().getOrphanedTransactions(maxAge, batchSize),
+                "jdbc.reaper.orphans");
+
+        oldestExpiry.set(DbFunctions.getInstance().getOldestExpiry());
+        ProxyMetrics.getInstance().recordTime("jdbc.reaper.run", System.currentTimeMillis() - runStartTime);
+        if (reaped > 0) {
+            LOGGER.info(reaped + " expired transactions deleted from the database.");
+        }
+        return reaped;
+    }
+
+    /**
+     * Delete the transactions found by the lookup, a batch at a time, until a batch comes back short.
+     *
+     * @return number of transactions deleted.
+     */
+    private int reapBatches(Supplier<List<String>> lookup, String counter) {
+
+        ConfigurationFile configurationFile = ConfigurationFile.getInstance();
+        int batchSize = configurationFile.getREAPER_BATCH_SIZE();
+
+        int reaped = 0;
+        List<String> expired;
+        do {
+            expired = lookup.get();
+            if (expired.isEmpty()) {
+                break;
+            }
+            if (!DbFunctions.getInstance().deleteTransactions(expired)) {
+                ProxyMetrics.getInstance().incrementCounter("jdbc.reaper.failures");
+                break;
+            }
+            reaped += expired.size();
+            ProxyMetrics.getInstance().addToCounter(counter, expired.size());
+
+            if (expired.size() == batchSize && !pause(configurationFile.getREAPER_BATCH_PAUSE())) {
+                break;
+            }
+        } while (expired.size() == batchSize);
+        return reaped;
+    }
+
+    private void reapQuietly() {
+
+        try {
+            reap();
+        } catch (RuntimeException e) {
+            // Never let a failed run cancel the scheduled task.
+            LOGGER.severe("Error while deleting expired transactions : " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return false if the reaper was interrupted while pausing.
+     */
+    private boolean pause(long millis) {
+
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private long currentTime() {
+
+        return ZonedDateTime.now().toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jdbc;
+
+import configuration.ConfigurationFile;
+import metrics.ProxyMetrics;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import transactionartifacts.CibaTransaction;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * Coalesces the writes of the JDBC artifact store per auth_req_id and flushes them to the database in batches
+ * from a background thread. Writers only block when the number of pending transactions reaches its bound, and are
+ * turned away if the database cannot take the pending writes in time.
+ */
+public class JdbcWriteBehindQueue {
+
+    private static final Logger LOGGER = Logger.getLogger(JdbcWriteBehindQueue.class.getName());
+
+    private final ConcurrentHashMap<String, PendingWrite> pendingWrites = new ConcurrentHashMap<>();
+    // Transactions taken out of the queue by a flush still under way.
+    private final AtomicInteger flushing = new AtomicInteger();
+    private final Object flusherLock = new Object();
+    // A lock rather than a monitor, so a virtual thread waiting on the database does not pin its carrier thread.
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private volatile ScheduledExecutorService flusher;
+
+    private JdbcWriteBehindQueue() {
+
+        ProxyMetrics.getInstance().registerGauge("jdbc.writeBehind.pending", this::size);
+    }
+
+    private static JdbcWriteBehindQueue jdbcWriteBehindQueueInstance = new JdbcWriteBehindQueue();
+
+    public static JdbcWriteBehindQueue getInstance() {
+
+        if (jdbcWriteBehindQueueInstance == null) {
+
+            synchronized (JdbcWriteBehindQueue.class) {
+
+                if (jdbcWriteBehindQueueInstance == null) {
+
+                    /* instance will be created at request time */
+                    jdbcWriteBehindQueueInstance = new JdbcWriteBehindQueue();
+                }
+            }
+        }
+        return jdbcWriteBehindQueueInstance;
+    }
+
+    /**
+     * Queue the latest state of a part, superseding any write of the part not flushed yet.
+     *
+     * @param authReqId Ciba Authentication request identifier.
+     * @param part      Part of the transaction.
+     * @param artifact  Artifact to persist.
+     */
+    public void put(String authReqId, CibaTransaction.Part part, Object artifact) {
+
+        awaitCapacity(authReqId);
+        pendingWrites.compute(authReqId, (id, write) -> {
+            PendingWrite pendingWrite = write != null ? write : new PendingWrite(id);
+            pendingWrite.put(part, artifact);
+            return pendingWrite;
+        });
+        startFlusher();
+    }
+
+    /**
+     * Queue the deletion of a part, superseding any write of the part not flushed yet.
+     *
+     * @param authReqId Ciba Authentication request identifier.
+     * @param part      Part of the transaction.
+     */
+    public void delete(String authReqId, CibaTransaction.Part part) {
+
+        awaitCapacity(authReqId);
+        pendingWrites.compute(authReqId, (id, write) -> {
+            PendingWrite pendingWrite = write != null ? write : new PendingWrite(id);
+            pendingWrite.delete(part);
+            return pendingWrite;
+        });
+        startFlusher();
+    }
+
+    /**
+     * @return true if the part is waiting to be deleted, in which case the database still holds the stale row.
+     */
+    public boolean isPendingDelete(String authReqId, CibaTransaction.Part part) {
+
+        boolean[] deleted = new boolean[1];
+        pendingWrites.computeIfPresent(authReqId, (id, write) -> {
+            deleted[0] = write.isDeleted(part);
+            return write;
+        });
+        return deleted[0];
+    }
+
+    /**
+     * @return number of transactions with writes not flushed yet.
+     */
+    public int size() {
+
+        return pendingWrites.size() + flushing.get();
+    }
+
+    /**
+     * Write every pending transaction to the database. Flushes never overlap, so writes of an auth_req_id are
+     * applied in order.
+     *
+     * @return false if a batch could not be written, it is then kept for the next flush.
+     */
+    public boolean flush() {
+
+        flushLock.lock();
+        try {
+            return flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private boolean flushPending() {
+
+        int batchSize = ConfigurationFile.getInstance().getWRITE_BEHIND_BATCH_SIZE();
+        while (!pendingWrites.isEmpty()) {
+
+            List<PendingWrite> batch = new ArrayList<>(Math.min(batchSize, pendingWrites.size()));
+            Iterator<String> authReqIds = pendingWrites.keySet().iterator();
+            while (authReqIds.hasNext() && batch.size() < batchSize) {
+                // Counted before it leaves the queue, so writers never see fewer pending transactions than there are.
+                flushing.incrementAndGet();
+                PendingWrite write = pendingWrites.remove(authReqIds.next());
+                if (write != null) {
+                    batch.add(write);
+                } else {
+                    flushing.decrementAndGet();
+                }
+            }
+
+            long flushStartTime = System.currentTimeMillis();
+            boolean flushed = false;
+            try {
+                flushed = DbFunctions.getInstance().writeBatch(batch);
+            } finally {
+                if (!flushed) {
+                    // Put the batch back behind any newer write and retry on the next run.
+                    for (PendingWrite write : batch) {
+                        pendingWrites.merge(write.getAuthReqId(), write, PendingWrite::mergeOlder);
+                    }
+                }
+                flushing.set(0);
+            }
+            ProxyMetrics.getInstance()
+                    .recordTime("jdbc.writeBehind.flush", System.currentTimeMillis() - flushStartTime);
+
+            if (!flushed) {
+                ProxyMetrics.getInstance().incrementCounter("jdbc.writeBehind.failures");
+                return false;
+            }
+            ProxyMetrics.getInstance().addToCounter("jdbc.writeBehind.flushed", batch.size());
+        }
+        return true;
+    }
+
+    /**
+     * Stop the flusher and write what is still pending, to be called when the server shuts down.
+     */
+    public void shutdown() {
+
+        ScheduledExecutorService scheduledFlusher = flusher;
+        if (scheduledFlusher != null) {
+            scheduledFlusher.shutdown();
+            try {
+                scheduledFlusher.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+        if (!pendingWrites.isEmpty()) {
+            LOGGER.severe(pendingWrites.size() + " transactions could not be written to the database.");
+        }
+    }
+
+    /**
+     * Back pressure. A write of a transaction not pending yet waits for the database while the queue is full, as
+     * long as a borrower waits for a connection, instead of growing the queue without bound. Writes of a pending
+     * transaction are coalesced into it, so they never wait.
+     *
+     * @throws ResponseStatusException if the database could not take the pending writes in time.
+     */
+    private void awaitCapacity(String authReqId) {
+
+        ConfigurationFile configurationFile = ConfigurationFile.getInstance();
+        if (size() < configurationFile.getWRITE_BEHIND_MAX_PENDING() || pendingWrites.containsKey(authReqId)) {
+            return;
+        }
+
+        ProxyMetrics.getInstance().incrementCounter("jdbc.writeBehind.overflows");
+        long deadline = System.currentTimeMillis() + configurationFile.getDB_POOL_MAX_WAIT();
+        while (!flush() && size() >= configurationFile.getWRITE_BEHIND_MAX_PENDING()) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                ProxyMetrics.getInstance().incrementCounter("jdbc.writeBehind.rejected");
+                LOGGER.severe("Write rejected, " + size()
+                        + " transactions are waiting to be written to the database.");
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "temporarily_unavailable");
+            }
+            try {
+                Thread.sleep(Math.min(remaining, configurationFile.getWRITE_BEHIND_FLUSH_INTERVAL()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "temporarily_unavailable");
+            }
+        }
+    }
+
+    private void startFlusher() {
+
+        if (flusher == null) {
+            synchronized (flusherLock) {
+                if (flusher == null) {
+                    long flushInterval = ConfigurationFile.getInstance().getWRITE_BEHIND_FLUSH_INTERVAL();
+                    ScheduledExecutorService scheduledFlusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                        Thread thread = new Thread(runnable, "ciba-jdbc-write-behind");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    scheduledFlusher.scheduleWithFixedDelay(this::flushQuietly, flushInterval, flushInterval,
+                            TimeUnit.MILLISECONDS);
+                    flusher = scheduledFlusher;
+                }
+            }
+        }
+    }
+
+    private void flushQuietly() {
+
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // Never let a failed flush cancel the scheduled task.
+            LOGGER.severe("Error while flushing pending writes : " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jdbc;
+
+import transactionartifacts.CibaTransaction;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Writes of a transaction waiting for the write-behind flusher.
+ * Only the latest write of each part is kept, an earlier write of the same part is superseded.
+ */
+public class PendingWrite {
+
+    // Marks a part whose row is to be deleted.
+    static final Object DELETED = new Object();
+
+    private final String authReqId;
+    private final EnumMap<CibaTransaction.Part, Object> parts = new EnumMap<>(CibaTransaction.Part.class);
+
+    PendingWrite(String authReqId) {
+
+        this.authReqId = authReqId;
+    }
+
+    public String getAuthReqId() {
+
+        return authReqId;
+    }
+
+    void put(CibaTransaction.Part part, Object artifact) {
+
+        parts.put(part, artifact);
+    }
+
+    void delete(CibaTransaction.Part part) {
+
+        parts.put(part, DELETED);
+    }
+
+    boolean isDeleted(CibaTransaction.Part part) {
+
+        return parts.get(part) == DELETED;
+    }
+
+    /**
+     * @return latest write per part, {@link #DELETED} for deletes.
+     */
+    Map<CibaTransaction.Part, Object> getParts() {
+
+        return parts;
+    }
+
+    /**
+     * Takes back the parts of an older write that failed to flush, unless this write has superseded them.
+     *
+     * @param older Write that was taken before this one.
+     * @return this write.
+     */
+    PendingWrite mergeOlder(PendingWrite older) {
+
+        for (Map.Entry<CibaTransaction.Part, Object> entry : older.parts.entrySet()) {
+            parts.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+        return this;
+    }
+}
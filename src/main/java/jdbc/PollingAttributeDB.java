@@ -102,6 +102,28 @@ public class PollingAttributeDB implements ProxyJdbc {
     }
 
 
+    /**
+     * Record a poll with a single conditional update.
+     *
+     * @return true if no other poll was recorded since expectedLastPolledTime was read.
+     */
+    public boolean touchLastPolled(String auth_req_id, long expectedLastPolledTime, long lastPolledTime,
+                                   long pollingInterval) {
+
+        return DbFunctions.getInstance()
+                .touchLastPolled(auth_req_id, expectedLastPolledTime, lastPolledTime, pollingInterval);
+    }
+
+    /**
+     * Set the notification issued flag with a single conditional update.
+     *
+     * @return true if this call set the flag.
+     */
+    public boolean markNotificationIssued(String auth_req_id) {
+
+        return DbFunctions.getInstance().markNotificationIssued(auth_req_id);
+    }
+
     @Override
     public Object get(String auth_req_id) {
         return DbFunctions.getInstance().getPollingAttribute(auth_req_id);
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the columns of the current result set row to an artifact.
+ *
+ * @param <T> Artifact type.
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+    /**
+     * @param resultSet   Result set positioned at the row to map.
+     * @param firstColumn Index of the first column of the artifact, so that joined rows can be mapped in parts.
+     * @return Mapped artifact.
+     */
+    T mapRow(ResultSet resultSet, int firstColumn) throws SQLException;
+}
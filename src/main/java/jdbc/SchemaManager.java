@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package jdbc;
+
+import dao.DbConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Creates and migrates the tables of the JDBC store once, when the server starts.
+ * Applied versions are recorded in the schemaVersion table so that each migration runs only once per database.
+ */
+public class SchemaManager {
+
+    private static final Logger LOGGER = Logger.getLogger(SchemaManager.class.getName());
+
+    // Migration at index i brings the schema to version i + 1. Never edit an applied migration, append a new one.
+    private final List<List<String>> migrations = new ArrayList<>();
+
+    private volatile boolean migrated = false;
+
+    private SchemaManager() {
+
+        migrations.add(Arrays.asList(
+                DbScripts.getCREATE_CIBA_AUTH_REQUEST_DB_SCRIPT(),
+                DbScripts.getCREATE_CIBA_AUTH_RESPONSE_DB_SCRIPT(),
+                DbScripts.getCREATE_POLLING_ATTRIBUTE_DB_SCRIPT(),
+                DbScripts.getCREATE_TOKEN_REQUEST_DB_SCRIPT(),
+                DbScripts.getCREATE_TOKEN_RESPONSE_DB_SCRIPT()));
+        migrations.add(Collections.singletonList(
+                DbScripts.getADD_EXPIRES_AT_TO_POLLING_ATTRIBUTE_DB_SCRIPT()));
+        migrations.add(Arrays.asList(
+                DbScripts.getADD_STORED_AT_TO_AUTH_REQUEST_DB_SCRIPT(),
+                DbScripts.getADD_STORED_AT_TO_AUTH_RESPONSE_DB_SCRIPT(),
+                DbScripts.getADD_STORED_AT_TO_TOKEN_REQUEST_DB_SCRIPT(),
+                DbScripts.getADD_STORED_AT_TO_TOKEN_RESPONSE_DB_SCRIPT()));
+    }
+
+    private static SchemaManager schemaManagerInstance = new SchemaManager();
+
+    public static SchemaManager getInstance() {
+
+        if (schemaManagerInstance == null) {
+
+            synchronized (SchemaManager.class) {
+
+                if (schemaManagerInstance == null) {
+
+                    /* instance will be created at request time */
+                    schemaManagerInstance = new SchemaManager();
+                }
+            }
+        }
+        return schemaManagerInstance;
+    }
+
+    /**
+     * Brings the schema of the configured database to the latest version.
+     *
+     * @throws IllegalStateException if the schema could not be migrated, so the server does not start on it.
+     */
+    public synchronized void migrate() {
+
+        if (migrated) {
+            return;
+        }
+        try (Connection connection = DbConnection.getConnection();
+             Statement statement = connection.createStatement()) {
+
+            acquireLock(statement);
+            try {
+                statement.execute(DbScripts.getCREATE_SCHEMA_VERSION_DB_SCRIPT());
+
+                int currentVersion = getCurrentVersion(statement);
+                for (int version = currentVersion + 1; version <= migrations.size(); version++) {
+                    for (String script : migrations.get(version - 1)) {
+                        statement.execute(script);
+                    }
+                    recordVersion(connection, version);
+                    LOGGER.info("Database schema migrated to version " + version);
+                }
+            } finally {
+                statement.execute(DbScripts.getRELEASE_SCHEMA_LOCK_SCRIPT());
+            }
+            migrated = true;
+            LOGGER.info("Database schema is up to date.");
+
+        } catch (SQLException e) {
+            LOGGER.severe("Error migrating database schema : " + e.getMessage());
+            throw new IllegalStateException("Error migrating database schema", e);
+        }
+    }
+
+    /**
+     * @return latest schema version known to this server.
+     */
+    public int getLatestVersion() {
+
+        return migrations.size();
+    }
+
+    private void acquireLock(Statement statement) throws SQLException {
+
+        try (ResultSet resultSet = statement.executeQuery(DbScripts.getACQUIRE_SCHEMA_LOCK_SCRIPT())) {
+            if (!resultSet.next() || resultSet.getInt(1) != 1) {
+                throw new SQLException("Timed out waiting for the schema lock.");
+            }
+        }
+    }
+
+    private int getCurrentVersion(Statement statement) throws SQLException {
+
+        try (ResultSet resultSet = statement.executeQuery(DbScripts.getGET_SCHEMA_VERSION_FROM_DB_SCRIPT())) {
+            // MAX over an empty table is NULL, read as 0.
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+        }
+    }
+
+    private void recordVersion(Connection connection, int version) throws SQLException {
+
+        try (PreparedStatement preparedStmt =
+                     connection.prepareStatement(DbScripts.getADD_SCHEMA_VERSION_TO_DB_SCRIPT())) {
+            preparedStmt.setInt(1, version);
+            preparedStmt.setLong(2, ZonedDateTime.now().toInstant().toEpochMilli());
+            preparedStmt.execute();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package metrics;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Registry of the counters, gauges and timers of the proxy server.
+ */
+public class ProxyMetrics {
+
+    private static final Logger LOGGER = Logger.getLogger(ProxyMetrics.class.getName());
+
+    private final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Supplier<? extends Number>> gauges = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+    private ProxyMetrics() {
+
+    }
+
+    private static ProxyMetrics proxyMetricsInstance = new ProxyMetrics();
+
+    public static ProxyMetrics getInstance() {
+
+        if (proxyMetricsInstance == null) {
+
+            synchronized (ProxyMetrics.class) {
+
+                if (proxyMetricsInstance == null) {
+
+                    /* instance will be created at request time */
+                    proxyMetricsInstance = new ProxyMetrics();
+                }
+            }
+        }
+        return proxyMetricsInstance;
+    }
+
+    /**
+     * Increment a counter by one.
+     *
+     * @param name Name of the counter.
+     */
+    public void incrementCounter(String name) {
+
+        addToCounter(name, 1);
+    }
+
+    /**
+     * Add to a counter.
+     *
+     * @param name  Name of the counter.
+     * @param delta Amount to add.
+     */
+    public void addToCounter(String name, long delta) {
+
+        counters.computeIfAbsent(name, key -> new LongAdder()).add(delta);
+    }
+
+    /**
+     * @param name Name of the counter.
+     * @return current value of the counter.
+     */
+    public long getCounter(String name) {
+
+        LongAdder counter = counters.get(name);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * Register a gauge, replacing any gauge of the same name.
+     *
+     * @param name  Name of the gauge.
+     * @param gauge Supplies the current value when metrics are read.
+     */
+    public void registerGauge(String name, Supplier<? extends Number> gauge) {
+
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * Record the duration of an operation.
+     *
+     * @param name          Name of the timer.
+     * @param elapsedMillis Duration of the operation in milliseconds.
+     */
+    public void recordTime(String name, long elapsedMillis) {
+
+        timers.computeIfAbsent(name, key -> new Timer()).record(elapsedMillis);
+    }
+
+    /**
+     * Percentile of the recent durations of a timer.
+     *
+     * @param name       Name of the timer.
+     * @param percentile Percentile, from 0 to 100.
+     * @return duration in milliseconds, or -1 if nothing was recorded.
+     */
+    public long getPercentile(String name, double percentile) {
+
+        Timer timer = timers.get(name);
+        return timer == null ? -1 : timer.percentile(percentile);
+    }
+
+    /**
+     * @return current value of every metric, by name.
+     */
+    public Map<String, Object> snapshot() {
+
+        Map<String, Object> snapshot = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> counter : counters.entrySet()) {
+            snapshot.put(counter.getKey(), counter.getValue().sum());
+        }
+        for (Map.Entry<String, Supplier<? extends Number>> gauge : gauges.entrySet()) {
+            try {
+                snapshot.put(gauge.getKey(), gauge.getValue().get());
+            } catch (RuntimeException e) {
+                LOGGER.warning("Error reading gauge " + gauge.getKey() + " : " + e.getMessage());
+            }
+        }
+        for (Map.Entry<String, Timer> timer : timers.entrySet()) {
+            timer.getValue().snapshot(timer.getKey(), snapshot);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Count, total and maximum of recorded durations, with percentiles over the most recent ones.
+     */
+    private static class Timer {
+
+        // Number of most recent durations percentiles are computed over.
+        private static final int RESERVOIR_SIZE = 1024;
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalMillis = new LongAdder();
+        private final AtomicLong maxMillis = new AtomicLong();
+        private final long[] recent = new long[RESERVOIR_SIZE];
+        private int next;
+        private int recorded;
+
+        void record(long elapsedMillis) {
+
+            count.increment();
+            totalMillis.add(elapsedMillis);
+            maxMillis.accumulateAndGet(elapsedMillis, Math::max);
+            synchronized (recent) {
+                recent[next] = elapsedMillis;
+                next = (next + 1) % RESERVOIR_SIZE;
+                if (recorded < RESERVOIR_SIZE) {
+                    recorded++;
+                }
+            }
+        }
+
+        long percentile(double percentile) {
+
+            long[] samples = sortedSamples();
+            return samples.length == 0 ? -1 : valueAt(samples, percentile);
+        }
+
+        void snapshot(String name, Map<String, Object> snapshot) {
+
+            long samples = count.sum();
+            long total = totalMillis.sum();
+            snapshot.put(name + ".count", samples);
+            snapshot.put(name + ".totalMillis", total);
+            snapshot.put(name + ".maxMillis", maxMillis.get());
+            snapshot.put(name + ".meanMillis", samples == 0 ? 0 : total / samples);
+
+            long[] sorted = sortedSamples();
+            if (sorted.length > 0) {
+                snapshot.put(name + ".p50Millis", valueAt(sorted, 50));
+                snapshot.put(name + ".p95Millis", valueAt(sorted, 95));
+                snapshot.put(name + ".p99Millis", valueAt(sorted, 99));
+            }
+        }
+
+        private long[] sortedSamples() {
+
+            long[] samples;
+            synchronized (recent) {
+                samples = Arrays.copyOf(recent, recorded);
+            }
+            Arrays.sort(samples);
+            return samples;
+        }
+
+        private static long valueAt(long[] sorted, double percentile) {
+
+            int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package resilience;
+
+import metrics.ProxyMetrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gradient concurrency limit of one Identity server endpoint, adjusted from the round trip times of its calls.
+ * The limit grows while recent round trips stay close to the long term average, and shrinks in proportion as they
+ * grow longer, so that calls queueing up inside the Identity server are shed before its latency explodes.
+ * A call that times out or fails with a server error cuts the limit back at once.
+ * The limiter only reads the samples it is given, so it can be driven without a real Identity server.
+ */
+public class AdaptiveLimiter {
+
+    // Number of samples the long term round trip time averages over.
+    private static final int LONG_WINDOW = 100;
+
+    // Share of the limit kept on a timeout or server error.
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+    private double longRttNanos;
+
+    /**
+     * @param name         Name of the endpoint, used in metrics.
+     * @param initialLimit Limit before any call is measured.
+     * @param minLimit     Lowest the limit can go.
+     * @param maxLimit     Highest the limit can go.
+     * @param smoothing    Share of the new estimate taken into the limit on every sample, from 0 to 1.
+     */
+    public AdaptiveLimiter(String name, int initialLimit, int minLimit, int maxLimit, double smoothing) {
+
+        this.minLimit = minLimit;
+        this.maxLimit = Math.max(minLimit, maxLimit);
+        this.smoothing = smoothing;
+        this.limit = Math.min(Math.max(initialLimit, minLimit), this.maxLimit);
+
+        ProxyMetrics proxyMetrics = ProxyMetrics.getInstance();
+        proxyMetrics.registerGauge("resilience." + name + ".limit", this::getLimit);
+        proxyMetrics.registerGauge("resilience." + name + ".inFlight", inFlight::get);
+    }
+
+    /**
+     * @return false if as many calls are in flight as the limit allows.
+     */
+    public boolean tryAcquire() {
+
+        while (true) {
+            int current = inFlight.get();
+            if (current >= getLimit()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Release the permit of a call that was not made.
+     */
+    public void cancel() {
+
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Release the permit of a finished call and adjust the limit.
+     *
+     * @param rttNanos Round trip time of the call.
+     * @param dropped  Whether the call timed out or failed with a server error.
+     */
+    public void onSample(long rttNanos, boolean dropped) {
+
+        int callsInFlight = inFlight.getAndDecrement();
+        adjust(rttNanos, dropped, callsInFlight);
+    }
+
+    public int getLimit() {
+
+        return (int) limit;
+    }
+
+    private synchronized void adjust(long rttNanos, boolean dropped, int callsInFlight) {
+
+        if (dropped) {
+            limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+            return;
+        }
+
+        if (longRttNanos == 0) {
+            longRttNanos = rttNanos;
+        } else {
+            longRttNanos += (rttNanos - longRttNanos) / LONG_WINDOW;
+        }
+        // Let the long term average recover quickly once latency drops back.
+        if (longRttNanos > rttNanos * 2) {
+            longRttNanos = rttNanos * 2;
+        }
+
+        // A limit that is not being used says nothing about the Identity server, so it is not grown.
+        if (callsInFlight < limit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, longRttNanos / rttNanos));
+        // Headroom for the limit to grow while round trips hold steady.
+        double queueSize = Math.sqrt(limit);
+        double estimate = limit * gradient + queueSize;
+        double newLimit = limit * (1 - smoothing) + estimate * smoothing;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+}
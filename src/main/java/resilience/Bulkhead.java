@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package resilience;
+
+import metrics.ProxyMetrics;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Concurrency cap of one Identity server endpoint, so that a slow endpoint cannot hold every outbound thread and
+ * connection. Calls beyond the cap are rejected at once rather than queued.
+ */
+public class Bulkhead {
+
+    private final Semaphore permits;
+
+    /**
+     * @param name          Name of the endpoint, used in metrics.
+     * @param maxConcurrent Maximum number of concurrent calls.
+     */
+    public Bulkhead(String name, int maxConcurrent) {
+
+        this.permits = new Semaphore(maxConcurrent);
+        ProxyMetrics.getInstance().registerGauge("resilience." + name + ".bulkhead.available",
+                permits::availablePermits);
+    }
+
+    /**
+     * @return false if the endpoint already has as many calls in flight as allowed.
+     */
+    public boolean tryAcquire() {
+
+        return permits.tryAcquire();
+    }
+
+    /**
+     * Release the permit of a finished call.
+     */
+    public void release() {
+
+        permits.release();
+    }
+}
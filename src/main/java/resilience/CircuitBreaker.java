@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package resilience;
+
+import metrics.ProxyMetrics;
+
+import java.util.logging.Logger;
+
+/**
+ * Failure-rate circuit breaker of one Identity server endpoint.
+ * The breaker opens when the share of failed calls among the last calls reaches the threshold, and then fails calls
+ * fast for the open duration. After that a single trial call is let through, which closes the breaker on success
+ * and opens it again on failure.
+ */
+public class CircuitBreaker {
+
+    private static final Logger LOGGER = Logger.getLogger(CircuitBreaker.class.getName());
+
+    /**
+     * State of a circuit breaker.
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureRateThreshold;
+    private final long openDurationMillis;
+
+    // Ring buffer of the outcomes of the last calls, true for a failure.
+    private final boolean[] outcomes;
+    private int next;
+    private int recorded;
+    private int failures;
+
+    private volatile State state = State.CLOSED;
+    private long openedTime;
+    private boolean trialInFlight;
+
+    /**
+     * @param name                 Name of the endpoint, used in metrics and logs.
+     * @param windowSize           Number of last calls the failure rate is computed over.
+     * @param failureRateThreshold Failure percentage at which the breaker opens.
+     * @param openDurationMillis   Time the breaker stays open before a trial call.
+     */
+    public CircuitBreaker(String name, int windowSize, int failureRateThreshold, long openDurationMillis) {
+
+        this.name = name;
+        this.outcomes = new boolean[windowSize];
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationMillis = openDurationMillis;
+        ProxyMetrics.getInstance().registerGauge("resilience." + name + ".circuit.state", () -> state.ordinal());
+    }
+
+    /**
+     * Ask for a call to be let through. Every permitted call must be followed by onSuccess or onFailure.
+     *
+     * @return false if the call must fail fast.
+     */
+    public synchronized boolean tryAcquirePermission() {
+
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.currentTimeMillis() - openedTime < openDurationMillis) {
+                    return false;
+                }
+                transitionTo(State.HALF_OPEN);
+                trialInFlight = true;
+                return true;
+            default:
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+        }
+    }
+
+    /**
+     * Record a call the endpoint answered.
+     */
+    public synchronized void onSuccess() {
+
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+            transitionTo(State.CLOSED);
+        } else {
+            record(false);
+        }
+    }
+
+    /**
+     * Record a call that timed out or that the endpoint failed.
+     */
+    public synchronized void onFailure() {
+
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+            transitionTo(State.OPEN);
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (recorded == outcomes.length && failures * 100 >= failureRateThreshold * recorded) {
+                transitionTo(State.OPEN);
+            }
+        }
+    }
+
+    /**
+     * @return true if calls are failing fast.
+     */
+    public boolean isOpen() {
+
+        return state == State.OPEN && System.currentTimeMillis() - openedTime < openDurationMillis;
+    }
+
+    public State getState() {
+
+        return state;
+    }
+
+    private void record(boolean failure) {
+
+        if (recorded == outcomes.length) {
+            if (outcomes[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % outcomes.length;
+    }
+
+    private void transitionTo(State newState) {
+
+        state = newState;
+        if (newState == State.OPEN) {
+            openedTime = System.currentTimeMillis();
+            LOGGER.warning("Circuit of Identity server endpoint " + name + " opened.");
+        } else {
+            LOGGER.info("Circuit of Identity server endpoint " + name + " is " + newState + ".");
+        }
+        if (newState == State.CLOSED) {
+            // A closed breaker judges the endpoint on calls made after it recovered.
+            recorded = 0;
+            failures = 0;
+            next = 0;
+        }
+        ProxyMetrics.getInstance().incrementCounter("resilience." + name + ".circuit." + newState.name().toLowerCase());
+    }
+}
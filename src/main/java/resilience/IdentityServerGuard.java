@@ -0,0 +1,343 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package resilience;
+
+import configuration.ConfigurationFile;
+import metrics.ProxyMetrics;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Guards the calls to each Identity server endpoint with its own bulkhead and circuit breaker, so that a slow or
+ * unreachable Identity server fails calls fast instead of holding threads until the socket times out.
+ * Timeouts, connection errors and server errors count as failures; any other answer shows the endpoint is up.
+ * Token and SCIM2 calls are further held to a concurrency limit that adapts to their round trip times.
+ */
+public class IdentityServerGuard {
+
+    public static final String AUTHORIZE = "authorize";
+    public static final String TOKEN = "token";
+    public static final String SCIM = "scim";
+
+    private static final Logger LOGGER = Logger.getLogger(IdentityServerGuard.class.getName());
+
+    private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+    private final Map<String, AdaptiveLimiter> limiters = new ConcurrentHashMap<>();
+
+    private IdentityServerGuard() {
+
+    }
+
+    private static IdentityServerGuard identityServerGuardInstance = new IdentityServerGuard();
+
+    public static IdentityServerGuard getInstance() {
+
+        if (identityServerGuardInstance == null) {
+
+            synchronized (IdentityServerGuard.class) {
+
+                if (identityServerGuardInstance == null) {
+
+                    /* instance will be created at request time */
+                    identityServerGuardInstance = new IdentityServerGuard();
+                }
+            }
+        }
+        return identityServerGuardInstance;
+    }
+
+    /**
+     * Make a call to an Identity server endpoint.
+     *
+     * @param endpoint Name of the endpoint.
+     * @param call     Call to the endpoint.
+     * @param <T>      Result of the call.
+     * @return result of the call.
+     * @throws CallNotPermittedException if the circuit of the endpoint is open or its bulkhead is full.
+     * @throws LimitExceededException    if the endpoint is at its adaptive concurrency limit.
+     */
+    public <T> T call(String endpoint, Supplier<T> call) {
+
+        Permit permit = acquire(endpoint);
+        try {
+            T result = call.get();
+            permit.release(null);
+            return result;
+        } catch (RuntimeException | Error e) {
+            permit.release(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Make a non-blocking call to an Identity server endpoint. The permit of the call is held until the returned
+     * stage completes, rather than while a thread waits.
+     *
+     * @param endpoint Name of the endpoint.
+     * @param call     Starts the call to the endpoint.
+     * @param <T>      Result of the call.
+     * @return result of the call, failed with a CallNotPermittedException if the call was not made.
+     */
+    public <T> CompletableFuture<T> callAsync(String endpoint, Supplier<? extends CompletionStage<T>> call) {
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Permit permit;
+        CompletionStage<T> stage;
+        try {
+            permit = acquire(endpoint);
+        } catch (CallNotPermittedException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+        try {
+            stage = call.get();
+        } catch (RuntimeException | Error e) {
+            permit.release(e);
+            result.completeExceptionally(e);
+            return result;
+        }
+        stage.whenComplete((value, error) -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            permit.release(cause);
+            if (cause == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(cause);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Timeouts, connection errors and server errors show the endpoint is in trouble; any other answer shows it is up.
+     *
+     * @param error Error of a call.
+     * @return true if the error counts against the endpoint.
+     */
+    public static boolean isFailure(Throwable error) {
+
+        return error instanceof ResourceAccessException || error instanceof HttpServerErrorException
+                || error instanceof TimeoutException || error instanceof IOException
+                || error instanceof WebClientResponseException
+                && ((WebClientResponseException) error).getStatusCode().is5xxServerError();
+    }
+
+    /**
+     * Whether a failed call counts against the circuit of its endpoint. An authorize call is held open until the
+     * user answers, so its read timeout means the consent window expired rather than the endpoint being in trouble.
+     * Only connection failures and server errors count for it.
+     *
+     * @param endpoint Name of the endpoint.
+     * @param error    Error of a call.
+     * @return true if the error counts against the endpoint.
+     */
+    public static boolean isFailure(String endpoint, Throwable error) {
+
+        if (AUTHORIZE.equals(endpoint)) {
+            return isConnectFailure(error) || error instanceof HttpServerErrorException
+                    || error instanceof WebClientResponseException
+                    && ((WebClientResponseException) error).getStatusCode().is5xxServerError();
+        }
+        return isFailure(error);
+    }
+
+    /**
+     * @param error Error of a call.
+     * @return true if no connection to the Identity server could be made.
+     */
+    public static boolean isConnectFailure(Throwable error) {
+
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException || cause instanceof ConnectTimeoutException
+                    || cause instanceof UnknownHostException || cause instanceof NoRouteToHostException) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private Permit acquire(String endpoint) {
+
+        ProxyMetrics proxyMetrics = ProxyMetrics.getInstance();
+        CircuitBreaker circuitBreaker = getCircuitBreaker(endpoint);
+        Bulkhead bulkhead = getBulkhead(endpoint);
+        AdaptiveLimiter limiter = getLimiter(endpoint);
+
+        if (!bulkhead.tryAcquire()) {
+            proxyMetrics.incrementCounter("resilience." + endpoint + ".rejected.bulkhead");
+            throw new CallNotPermittedException("Too many concurrent " + endpoint + " calls to the Identity server.");
+        }
+        if (limiter != null && !limiter.tryAcquire()) {
+            bulkhead.release();
+            proxyMetrics.incrementCounter("resilience." + endpoint + ".rejected.limit");
+            throw new LimitExceededException("Identity server " + endpoint + " endpoint is at its limit.");
+        }
+        if (!circuitBreaker.tryAcquirePermission()) {
+            if (limiter != null) {
+                limiter.cancel();
+            }
+            bulkhead.release();
+            proxyMetrics.incrementCounter("resilience." + endpoint + ".rejected.circuit");
+            throw new CallNotPermittedException("Identity server " + endpoint + " endpoint is unavailable.");
+        }
+        return new Permit(endpoint, circuitBreaker, bulkhead, limiter);
+    }
+
+    /**
+     * Permission for one call, recording its outcome when released.
+     */
+    private static class Permit {
+
+        private final String endpoint;
+        private final CircuitBreaker circuitBreaker;
+        private final Bulkhead bulkhead;
+        private final AdaptiveLimiter limiter;
+        private final long startTime = System.nanoTime();
+
+        Permit(String endpoint, CircuitBreaker circuitBreaker, Bulkhead bulkhead, AdaptiveLimiter limiter) {
+
+            this.endpoint = endpoint;
+            this.circuitBreaker = circuitBreaker;
+            this.bulkhead = bulkhead;
+            this.limiter = limiter;
+        }
+
+        void release(Throwable error) {
+
+            long rttNanos = System.nanoTime() - startTime;
+            boolean dropped = error != null && isFailure(endpoint, error);
+            try {
+                if (dropped) {
+                    circuitBreaker.onFailure();
+                } else {
+                    circuitBreaker.onSuccess();
+                }
+                ProxyMetrics.getInstance()
+                        .recordTime("resilience." + endpoint + ".rtt", TimeUnit.NANOSECONDS.toMillis(rttNanos));
+                if (limiter != null) {
+                    limiter.onSample(rttNanos, dropped);
+                }
+            } finally {
+                bulkhead.release();
+            }
+        }
+    }
+
+    /**
+     * Admission check, letting requests that need an endpoint be turned away while its circuit is open.
+     *
+     * @param endpoint Name of the endpoint.
+     * @return true if calls to the endpoint are failing fast.
+     */
+    public boolean isOpen(String endpoint) {
+
+        CircuitBreaker circuitBreaker = circuitBreakers.get(endpoint);
+        return circuitBreaker != null && circuitBreaker.isOpen();
+    }
+
+    /**
+     * @param endpoint Name of the endpoint.
+     * @return read timeout of calls to the endpoint in milliseconds.
+     */
+    public int getTimeout(String endpoint) {
+
+        ConfigurationFile configurationFile = ConfigurationFile.getInstance();
+        switch (endpoint) {
+            case AUTHORIZE:
+                return configurationFile.getAUTHORIZE_TIMEOUT();
+            case TOKEN:
+                return configurationFile.getTOKEN_TIMEOUT();
+            case SCIM:
+                return configurationFile.getSCIM_TIMEOUT();
+            default:
+                return configurationFile.getHTTP_READ_TIMEOUT();
+        }
+    }
+
+    private int getMaxConcurrent(String endpoint) {
+
+        ConfigurationFile configurationFile = ConfigurationFile.getInstance();
+        switch (endpoint) {
+            case AUTHORIZE:
+                return configurationFile.getAUTHORIZE_MAX_CONCURRENT();
+            case TOKEN:
+                return configurationFile.getTOKEN_MAX_CONCURRENT();
+            case SCIM:
+                return configurationFile.getSCIM_MAX_CONCURRENT();
+            default:
+                return configurationFile.getHTTP_MAX_CONNECTIONS_PER_ROUTE();
+        }
+    }
+
+    private CircuitBreaker getCircuitBreaker(String endpoint) {
+
+        return circuitBreakers.computeIfAbsent(endpoint, key -> {
+            ConfigurationFile configurationFile = ConfigurationFile.getInstance();
+            LOGGER.info("Circuit breaker created for Identity server endpoint " + key + ".");
+            return new CircuitBreaker(key, configurationFile.getCIRCUIT_BREAKER_WINDOW(),
+                    configurationFile.getCIRCUIT_BREAKER_FAILURE_RATE(),
+                    TimeUnit.SECONDS.toMillis(configurationFile.getCIRCUIT_BREAKER_OPEN_DURATION()));
+        });
+    }
+
+    /**
+     * Authorize calls wait for the user's consent, so their round trip times say nothing about the load on the
+     * Identity server and they are only capped by their bulkhead.
+     */
+    private AdaptiveLimiter getLimiter(String endpoint) {
+
+        if (AUTHORIZE.equals(endpoint)) {
+            return null;
+        }
+        return limiters.computeIfAbsent(endpoint, key -> {
+            ConfigurationFile configurationFile = ConfigurationFile.getInstance();
+            // The bulkhead of the endpoint is the ceiling of its limit.
+            return new AdaptiveLimiter(key, configurationFile.getADAPTIVE_LIMIT_INITIAL(),
+                    configurationFile.getADAPTIVE_LIMIT_MIN(), getMaxConcurrent(key),
+                    configurationFile.getADAPTIVE_LIMIT_SMOOTHING() / 100.0);
+        });
+    }
+
+    private Bulkhead getBulkhead(String endpoint) {
+
+        return bulkheads.computeIfAbsent(endpoint, key -> new Bulkhead(key, getMaxConcurrent(key)));
+    }
+}
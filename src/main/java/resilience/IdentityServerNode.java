@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package resilience;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An Identity server node, with its health and its number of calls in flight.
+ */
+public class IdentityServerNode {
+
+    private final String baseUrl;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private volatile boolean healthy = true;
+
+    /**
+     * @param baseUrl Base URL of the node, without a trailing slash.
+     */
+    public IdentityServerNode(String baseUrl) {
+
+        this.baseUrl = baseUrl;
+    }
+
+    public String getBaseUrl() {
+
+        return baseUrl;
+    }
+
+    public int getOutstanding() {
+
+        return outstanding.get();
+    }
+
+    public boolean isHealthy() {
+
+        return healthy;
+    }
+
+    public void setHealthy(boolean healthy) {
+
+        this.healthy = healthy;
+    }
+
+    void acquire() {
+
+        outstanding.incrementAndGet();
+    }
+
+    void release() {
+
+        outstanding.decrementAndGet();
+    }
+}
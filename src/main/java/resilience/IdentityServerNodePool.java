@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package resilience;
+
+import configuration.ConfigurationFile;
+import metrics.ProxyMetrics;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import util.RestTemplateFactory;
+
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * Pool of the configured Identity server nodes, balancing outbound calls across the healthy ones.
+ * A node is picked by the power of two choices: of two random healthy nodes, the one with fewer calls in flight.
+ * Nodes are health checked in the background, and a node that cannot be reached is left out until it passes a
+ * health check again. Connections to healthy nodes are opened ahead of the calls that need them.
+ */
+public class IdentityServerNodePool {
+
+    private static final Logger LOGGER = Logger.getLogger(IdentityServerNodePool.class.getName());
+
+    private volatile List<IdentityServerNode> nodes;
+    private ScheduledExecutorService maintenance;
+
+    private IdentityServerNodePool() {
+
+    }
+
+    private static IdentityServerNodePool identityServerNodePoolInstance = new IdentityServerNodePool();
+
+    public static IdentityServerNodePool getInstance() {
+
+        if (identityServerNodePoolInstance == null) {
+
+            synchronized (IdentityServerNodePool.class) {
+
+                if (identityServerNodePoolInstance == null) {
+
+                    /* instance will be created at request time */
+                    identityServerNodePoolInstance = new IdentityServerNodePool();
+                }
+            }
+        }
+        return identityServerNodePoolInstance;
+    }
+
+    /**
+     * Make a call on a node of the pool.
+     *
+     * @param call Call, given the base URL of the node.
+     * @param <T>  Result of the call.
+     * @return result of the call.
+     */
+    public <T> T call(Function<String, T> call) {
+
+        return call(choose(), call);
+    }
+
+    /**
+     * Make a call on a given node of the pool.
+     *
+     * @param node Node to call.
+     * @param call Call, given the base URL of the node.
+     * @param <T>  Result of the call.
+     * @return result of the call.
+     */
+    public <T> T call(IdentityServerNode node, Function<String, T> call) {
+
+        node.acquire();
+        try {
+            return call.apply(node.getBaseUrl());
+        } catch (ResourceAccessException e) {
+            // A read timeout may only be a user taking their time to consent, the node itself answered.
+            if (IdentityServerGuard.isConnectFailure(e)) {
+                markDown(node, e);
+            }
+            throw e;
+        } finally {
+            node.release();
+        }
+    }
+
+    /**
+     * Make a non-blocking call on a node of the pool. The node counts the call as in flight until it completes.
+     *
+     * @param call Starts the call, given the base URL of the node.
+     * @param <T>  Result of the call.
+     * @return result of the call.
+     */
+    public <T> CompletionStage<T> callAsync(Function<String, ? extends CompletionStage<T>> call) {
+
+        IdentityServerNode node = choose();
+        node.acquire();
+        CompletionStage<T> stage;
+        try {
+            stage = call.apply(node.getBaseUrl());
+        } catch (RuntimeException e) {
+            node.release();
+            throw e;
+        }
+        return stage.whenComplete((value, error) -> {
+            node.release();
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            if (IdentityServerGuard.isConnectFailure(cause)) {
+                markDown(node, cause);
+            }
+        });
+    }
+
+    /**
+     * @return a healthy node with few calls in flight, or any node if none is healthy.
+     */
+    public IdentityServerNode choose() {
+
+        List<IdentityServerNode> allNodes = getNodes();
+        List<IdentityServerNode> candidates = new ArrayList<>(allNodes.size());
+        for (IdentityServerNode node : allNodes) {
+            if (node.isHealthy()) {
+                candidates.add(node);
+            }
+        }
+        if (candidates.isEmpty()) {
+            // Better to try a node that may have recovered than to fail every call.
+            candidates = allNodes;
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        IdentityServerNode firstNode = candidates.get(first);
+        IdentityServerNode secondNode = candidates.get(second);
+        return firstNode.getOutstanding() <= secondNode.getOutstanding() ? firstNode : secondNode;
+    }
+
+    /**
+     * Leave out a node that could not be reached until it passes a health check.
+     */
+    private void markDown(IdentityServerNode node, Throwable error) {
+
+        if (node.isHealthy() && getNodes().size() > 1) {
+            node.setHealthy(false);
+            LOGGER.warning("Identity server node " + node.getBaseUrl() + " marked down : " + error.getMessage());
+        }
+    }
+
+    /**
+     * @param excluded Node to leave out.
+     * @return the healthy node with fewest calls in flight other than the given one, or null if there is none.
+     */
+    public IdentityServerNode chooseOther(IdentityServerNode excluded) {
+
+        IdentityServerNode chosen = null;
+        for (IdentityServerNode node : getNodes()) {
+            if (node != excluded && node.isHealthy()
+                    && (chosen == null || node.getOutstanding() < chosen.getOutstanding())) {
+                chosen = node;
+            }
+        }
+        return chosen;
+    }
+
+    /**
+     * Read the configured nodes and start checking their health and opening connections to them, to be called once
+     * the configuration is read.
+     */
+    public void start() {
+
+        getNodes();
+    }
+
+    /**
+     * Stop the health checks and connection pre-warming, to be called when the server shuts down.
+     */
+    public synchronized void shutdown() {
+
+        if (maintenance != null) {
+            maintenance.shutdownNow();
+            maintenance = null;
+        }
+    }
+
+    private List<IdentityServerNode> getNodes() {
+
+        if (nodes == null) {
+            synchronized (this) {
+                if (nodes == null) {
+                    nodes = createNodes();
+                }
+            }
+        }
+        return nodes;
+    }
+
+    private List<IdentityServerNode> createNodes() {
+
+        List<IdentityServerNode> identityServerNodes = new ArrayList<>();
+        for (String baseUrl : ConfigurationFile.getInstance().getIDENTITY_SERVER_NODES().split(",")) {
+            baseUrl = baseUrl.trim();
+            while (baseUrl.endsWith("/")) {
+                baseUrl = baseUrl.substring(0, baseUrl.length() - 1);
+            }
+            if (!baseUrl.isEmpty()) {
+                identityServerNodes.add(new IdentityServerNode(baseUrl));
+            }
+        }
+        if (identityServerNodes.isEmpty()) {
+            throw new IllegalStateException("No Identity server nodes configured.");
+        }
+
+        ProxyMetrics proxyMetrics = ProxyMetrics.getInstance();
+        for (int i = 0; i < identityServerNodes.size(); i++) {
+            IdentityServerNode node = identityServerNodes.get(i);
+            proxyMetrics.registerGauge("is.node." + i + ".outstanding", node::getOutstanding);
+            proxyMetrics.registerGauge("is.node." + i + ".healthy", () -> node.isHealthy() ? 1 : 0);
+        }
+
+        startMaintenance(identityServerNodes);
+        LOGGER.info(identityServerNodes.size() + " Identity server nodes configured.");
+        return Collections.unmodifiableList(identityServerNodes);
+    }
+
+    private void startMaintenance(List<IdentityServerNode> identityServerNodes) {
+
+        // With a single node there is nothing to balance, and it is always tried.
+        boolean healthChecks = identityServerNodes.size() > 1;
+        int prewarmConnections = ConfigurationFile.getInstance().getHTTP_PREWARM_CONNECTIONS();
+        if (!healthChecks && prewarmConnections == 0) {
+            return;
+        }
+
+        int interval = ConfigurationFile.getInstance().getHEALTH_CHECK_INTERVAL();
+        maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ciba-is-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Runs at once so connections are ready for the first calls, and then again to replace evicted ones.
+        maintenance.scheduleWithFixedDelay(() -> {
+            for (IdentityServerNode node : identityServerNodes) {
+                if (healthChecks) {
+                    checkHealth(node);
+                }
+                if (prewarmConnections > 0 && node.isHealthy()) {
+                    try {
+                        RestTemplateFactory.getInstance().prewarm(node.getBaseUrl(), prewarmConnections);
+                    } catch (RuntimeException e) {
+                        // Keeps the task scheduled, a failed run only leaves connections to be opened on demand.
+                        LOGGER.warning("Unable to open connections to " + node.getBaseUrl() + " : " + e.getMessage());
+                    }
+                }
+            }
+        }, 0, interval, TimeUnit.SECONDS);
+    }
+
+    private void checkHealth(IdentityServerNode node) {
+
+        boolean healthy;
+        try {
+            RestTemplateFactory.getInstance()
+                    .getRestTemplate(ConfigurationFile.getInstance().getHTTP_CONNECT_TIMEOUT())
+                    .getForObject(node.getBaseUrl() + ConfigurationFile.getInstance().getHEALTH_CHECK_PATH(),
+                            String.class);
+            healthy = true;
+        } catch (HttpClientErrorException e) {
+            // The node answered, it is up even if it refuses the probe.
+            healthy = true;
+        } catch (RuntimeException | GeneralSecurityException e) {
+            ProxyMetrics.getInstance().incrementCounter("is.healthcheck.failed");
+            healthy = false;
+        }
+        if (healthy != node.isHealthy()) {
+            LOGGER.info("Identity server node " + node.getBaseUrl() + " is " + (healthy ? "up." : "down."));
+            node.setHealthy(healthy);
+        }
+    }
+}
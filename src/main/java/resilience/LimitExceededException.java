@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package resilience;
+
+/**
+ * Thrown when a call to the Identity server is shed because its endpoint is at its adaptive concurrency limit.
+ * Unlike an open circuit, the endpoint is up and the call is worth retrying shortly.
+ */
+public class LimitExceededException extends CallNotPermittedException {
+
+    public LimitExceededException(String message) {
+
+        super(message);
+    }
+}
@@ -19,7 +19,7 @@ package store;
 
 import transactionartifacts.Client;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 /**
@@ -51,7 +51,7 @@ public class ClientStore implements ProxyStore {
         return clientStoreInstance;
     }
 
-    private HashMap<String, Object> clientstore = new HashMap<String, Object>();
+    private ConcurrentHashMap<String, Object> clientstore = new ConcurrentHashMap<String, Object>();
 
     @Override
     public void add(String clientid, Object client) {
@@ -20,7 +20,7 @@ package store;
 
 import transactionartifacts.User;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 /**
@@ -50,7 +50,7 @@ public class UserStore implements ProxyStore {
         return userStoreInstance;
     }
 
-    private HashMap<String, Object> userstore = new HashMap<String , Object>();
+    private ConcurrentHashMap<String, Object> userstore = new ConcurrentHashMap<String, Object>();
     @Override
     public void add(String userid, Object user) {
         if (user instanceof User) {
@@ -18,14 +18,16 @@
 
 package tempErrorCache;
 
-import java.util.HashMap;
+import handlers.PendingTokenRequests;
+
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Temporary Error cache memory..
  */
 public class TempErrorCache {
 
-    private HashMap<String, String> authenticationResponseCache = new HashMap<String, String>();
+    private ConcurrentHashMap<String, String> authenticationResponseCache = new ConcurrentHashMap<String, String>();
 
     private TempErrorCache() {
 
@@ -52,18 +54,31 @@ public class TempErrorCache {
 
     public void addAuthenticationStatus(String auth_req_id, String state) {
 
-        authenticationResponseCache.put(auth_req_id, state);
+        if (auth_req_id == null) {
+            return;
+        }
+        if (state == null) {
+            authenticationResponseCache.remove(auth_req_id);
+        } else {
+            authenticationResponseCache.put(auth_req_id, state);
+            if (!"RequestSent".equals(state) && !"Success".equals(state)) {
+                // The authentication ended without a token, so long polls waiting for one are answered now.
+                PendingTokenRequests.getInstance().authenticationFailed(auth_req_id);
+            }
+        }
 
     }
 
     public String getAuthenticationResponse(String auth_req_id) {
 
-        return authenticationResponseCache.get(auth_req_id);
+        return auth_req_id == null ? null : authenticationResponseCache.get(auth_req_id);
 
     }
 
     public void removeAuthResponse(String auth_req_id) {
 
-        authenticationResponseCache.remove(auth_req_id);
+        if (auth_req_id != null) {
+            authenticationResponseCache.remove(auth_req_id);
+        }
     }
 }
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package transactionartifacts;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * All artifacts of a single CIBA transaction, keyed by its auth_req_id.
+ * Setters record which parts were modified so that stores only write back what changed.
+ */
+public class CibaTransaction implements Artifacts {
+
+    /**
+     * Parts of a transaction that can be modified independently.
+     */
+    public enum Part {
+        AUTH_REQUEST, AUTH_RESPONSE, POLLING_ATTRIBUTE, TOKEN_REQUEST, TOKEN_RESPONSE, AUTHENTICATION_STATUS
+    }
+
+    private final String auth_req_id;
+    private volatile CIBAauthRequest authRequest;
+    private volatile CIBAauthResponse authResponse;
+    private volatile PollingAtrribute pollingAtrribute;
+    private volatile TokenRequest tokenRequest;
+    private volatile TokenResponse tokenResponse;
+    private volatile String authenticationStatus;
+    private final Set<Part> modifiedParts = EnumSet.noneOf(Part.class);
+
+    public CibaTransaction(String auth_req_id) {
+
+        this.auth_req_id = auth_req_id;
+    }
+
+    /**
+     * Creates a copy holding the same artifacts, with no modified parts.
+     *
+     * @param transaction Transaction to copy.
+     */
+    public CibaTransaction(CibaTransaction transaction) {
+
+        this.auth_req_id = transaction.auth_req_id;
+        this.authRequest = transaction.authRequest;
+        this.authResponse = transaction.authResponse;
+        this.pollingAtrribute = transaction.pollingAtrribute;
+        this.tokenRequest = transaction.tokenRequest;
+        this.tokenResponse = transaction.tokenResponse;
+        this.authenticationStatus = transaction.authenticationStatus;
+    }
+
+    public String getAuth_req_id() {
+
+        return auth_req_id;
+    }
+
+    public CIBAauthRequest getAuthRequest() {
+
+        return authRequest;
+    }
+
+    public void setAuthRequest(CIBAauthRequest authRequest) {
+
+        this.authRequest = authRequest;
+        markModified(Part.AUTH_REQUEST);
+    }
+
+    public CIBAauthResponse getAuthResponse() {
+
+        return authResponse;
+    }
+
+    public void setAuthResponse(CIBAauthResponse authResponse) {
+
+        this.authResponse = authResponse;
+        markModified(Part.AUTH_RESPONSE);
+    }
+
+    public PollingAtrribute getPollingAtrribute() {
+
+        return pollingAtrribute;
+    }
+
+    public void setPollingAtrribute(PollingAtrribute pollingAtrribute) {
+
+        this.pollingAtrribute = pollingAtrribute;
+        markModified(Part.POLLING_ATTRIBUTE);
+    }
+
+    public TokenRequest getTokenRequest() {
+
+        return tokenRequest;
+    }
+
+    public void setTokenRequest(TokenRequest tokenRequest) {
+
+        this.tokenRequest = tokenRequest;
+        markModified(Part.TOKEN_REQUEST);
+    }
+
+    public TokenResponse getTokenResponse() {
+
+        return tokenResponse;
+    }
+
+    public void setTokenResponse(TokenResponse tokenResponse) {
+
+        this.tokenResponse = tokenResponse;
+        markModified(Part.TOKEN_RESPONSE);
+    }
+
+    public String getAuthenticationStatus() {
+
+        return authenticationStatus;
+    }
+
+    public void setAuthenticationStatus(String authenticationStatus) {
+
+        this.authenticationStatus = authenticationStatus;
+        markModified(Part.AUTHENTICATION_STATUS);
+    }
+
+    /**
+     * @param part Part of the transaction.
+     * @return true if the part was set since the transaction was loaded.
+     */
+    public boolean isModified(Part part) {
+
+        synchronized (modifiedParts) {
+            return modifiedParts.contains(part);
+        }
+    }
+
+    /**
+     * Forgets the modified parts once they are written to the store.
+     */
+    public void clearModifications() {
+
+        synchronized (modifiedParts) {
+            modifiedParts.clear();
+        }
+    }
+
+    /**
+     * @return true if the transaction holds no artifact.
+     */
+    public boolean isEmpty() {
+
+        return authRequest == null && authResponse == null && pollingAtrribute == null && tokenRequest == null &&
+                tokenResponse == null && authenticationStatus == null;
+    }
+
+    private void markModified(Part part) {
+
+        synchronized (modifiedParts) {
+            modifiedParts.add(part);
+        }
+    }
+}
@@ -30,6 +30,20 @@ public class PollingAtrribute implements Artifacts {
     private long issuedTime;
     private Boolean notificationIssued;
 
+    public PollingAtrribute() {
+
+    }
+
+    public PollingAtrribute(PollingAtrribute pollingAtrribute) {
+
+        this.auth_req_id = pollingAtrribute.auth_req_id;
+        this.expiresIn = pollingAtrribute.expiresIn;
+        this.lastPolledTime = pollingAtrribute.lastPolledTime;
+        this.pollingInterval = pollingAtrribute.pollingInterval;
+        this.issuedTime = pollingAtrribute.issuedTime;
+        this.notificationIssued = pollingAtrribute.notificationIssued;
+    }
+
     public Boolean getNotificationIssued() {
 
         return notificationIssued;
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package util;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs every task on a thread of its own, such as a virtual thread, within the same bounds as a fixed pool with a
+ * bounded queue. Permits take the place of the pool's threads: at most as many tasks run at once, the others wait
+ * for a permit in arrival order, and tasks beyond the queue capacity are rejected.
+ */
+public class BoundedPerTaskExecutor extends AbstractExecutorService {
+
+    private final ExecutorService executor;
+    private final int capacity;
+    private final Semaphore running;
+    private final Semaphore admitted;
+    private final AtomicInteger active = new AtomicInteger();
+
+    /**
+     * @param executor      Executor starting a thread for every task.
+     * @param threads       Most tasks run at once.
+     * @param queueCapacity Most tasks waiting to run.
+     */
+    public BoundedPerTaskExecutor(ExecutorService executor, int threads, int queueCapacity) {
+
+        this.executor = executor;
+        this.capacity = threads + queueCapacity;
+        this.running = new Semaphore(threads, true);
+        this.admitted = new Semaphore(capacity);
+    }
+
+    /**
+     * @throws RejectedExecutionException if as many tasks are running and waiting as allowed, or on shutdown.
+     */
+    @Override
+    public void execute(Runnable command) {
+
+        if (!admitted.tryAcquire()) {
+            throw new RejectedExecutionException("Executor is at capacity.");
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    running.acquire();
+                } catch (InterruptedException e) {
+                    admitted.release();
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                active.incrementAndGet();
+                try {
+                    command.run();
+                } finally {
+                    active.decrementAndGet();
+                    running.release();
+                    admitted.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            admitted.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return number of tasks running.
+     */
+    public int getActiveCount() {
+
+        return active.get();
+    }
+
+    /**
+     * @return number of tasks waiting for a permit.
+     */
+    public int getQueuedCount() {
+
+        return Math.max(0, capacity - admitted.availablePermits() - active.get());
+    }
+
+    /**
+     * @return true if a further task would be rejected.
+     */
+    public boolean isFull() {
+
+        return admitted.availablePermits() == 0;
+    }
+
+    @Override
+    public void shutdown() {
+
+        executor.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+
+        return executor.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+
+        return executor.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+
+        return executor.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+
+        return executor.awaitTermination(timeout, unit);
+    }
+}
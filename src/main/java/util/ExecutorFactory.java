@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package util;
+
+import configuration.ConfigurationFile;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Creates the threads of the proxy's pools. In Virtual thread mode on a JDK with virtual threads, blocking handler,
+ * store and Identity server work runs on virtual threads, so a thread waiting on I/O does not hold a platform thread.
+ * Pools sized to a resource, such as the store connections, keep their sizes. Outbound calls start a virtual thread
+ * per call instead, bounded by permits rather than by threads.
+ */
+public class ExecutorFactory {
+
+    private static final Logger LOGGER = Logger.getLogger(ExecutorFactory.class.getName());
+
+    private static ExecutorFactory executorFactoryInstance = new ExecutorFactory();
+
+    private Boolean virtual;
+    private ExecutorService requestExecutor;
+
+    private ExecutorFactory() {
+
+    }
+
+    /**
+     * Creates a factory fixed to one thread mode, whatever the configuration says, such as for comparing both modes.
+     *
+     * @param virtual whether the pools run their work on virtual threads.
+     */
+    public ExecutorFactory(boolean virtual) {
+
+        this.virtual = virtual;
+    }
+
+    public static ExecutorFactory getInstance() {
+
+        if (executorFactoryInstance == null) {
+
+            synchronized (ExecutorFactory.class) {
+
+                if (executorFactoryInstance == null) {
+
+                    /* instance will be created at request time */
+                    executorFactoryInstance = new ExecutorFactory();
+                }
+            }
+        }
+        return executorFactoryInstance;
+    }
+
+    /**
+     * @return true if the pools run their work on virtual threads.
+     */
+    public boolean isVirtual() {
+
+        if (virtual == null) {
+            synchronized (this) {
+                if (virtual == null) {
+                    boolean supported = false;
+                    if ("Virtual".equals(ConfigurationFile.getInstance().getTHREAD_MODE())) {
+                        try {
+                            Thread.class.getMethod("ofVirtual");
+                            supported = true;
+                        } catch (NoSuchMethodException e) {
+                            LOGGER.warning("Virtual threads need JDK 21 or later, using platform threads.");
+                        }
+                    }
+                    virtual = supported;
+                }
+            }
+        }
+        return virtual;
+    }
+
+    /**
+     * Thread factory of a pool, naming its threads prefix-1, prefix-2 and so on. Platform threads are daemons, as
+     * virtual threads always are, so a pool never keeps the server from stopping.
+     *
+     * @param prefix name of the pool.
+     */
+    public ThreadFactory threadFactory(String prefix) {
+
+        if (isVirtual()) {
+            try {
+                Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                builder = builderClass.getMethod("name", String.class, long.class)
+                        .invoke(builder, prefix + "-", 1L);
+                return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            } catch (ReflectiveOperationException e) {
+                LOGGER.warning("Virtual thread factory not available for " + prefix + ", using platform threads.");
+            }
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Executor of inbound requests in Virtual thread mode, starting a virtual thread for every request.
+     * The web server's connection limit bounds the requests served at once.
+     *
+     * @return null in Platform thread mode, where the web server keeps its own pool.
+     */
+    public ExecutorService getRequestExecutor() {
+
+        if (!isVirtual()) {
+            return null;
+        }
+        if (requestExecutor == null) {
+            synchronized (this) {
+                if (requestExecutor == null) {
+                    requestExecutor = newPerTaskExecutor("ciba-request");
+                }
+            }
+        }
+        return requestExecutor;
+    }
+
+    /**
+     * Executor starting a virtual thread for every task, in Virtual thread mode. It has no bound of its own.
+     *
+     * @param prefix name of the executor's threads.
+     * @return null in Platform thread mode, or if the JDK has no virtual thread executor.
+     */
+    public ExecutorService newPerTaskExecutor(String prefix) {
+
+        if (!isVirtual()) {
+            return null;
+        }
+        try {
+            Method perTask = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) perTask.invoke(null, threadFactory(prefix));
+        } catch (ReflectiveOperationException e) {
+            LOGGER.warning("Virtual thread executor not available for " + prefix + ", using platform threads.");
+            return null;
+        }
+    }
+}
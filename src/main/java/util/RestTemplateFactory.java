@@ -18,24 +18,70 @@
 
 package util;
 
+import configuration.ConfigurationFile;
+import metrics.ProxyMetrics;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
-import org.apache.http.conn.ssl.TrustStrategy;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.security.GeneralSecurityException;
 import java.security.KeyManagementException;
+import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
-import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.TrustManagerFactory;
 
 /**
  * Rest Template factory.
+ * Every outbound call shares one HTTP client whose connections are pooled per Identity server host and kept alive
+ * between calls, so that calls reuse warm TLS connections instead of handshaking each time.
+ * One SSL context is kept for the life of the server, so that new connections resume cached TLS sessions.
+ * The Identity server's certificate and host name are verified, against the configured trust store or else the
+ * trust store of the JVM.
  */
 public class RestTemplateFactory {
 
+    private static final Logger LOGGER = Logger.getLogger(RestTemplateFactory.class.getName());
+
+    // Connections idle for longer than this are validated before being leased again.
+    private static final int VALIDATE_AFTER_INACTIVITY_MILLIS = 2000;
+
+    private volatile RestTemplate restTemplate;
+    private volatile SSLContext sslContext;
+    private final Map<Integer, RestTemplate> timedRestTemplates = new ConcurrentHashMap<>();
+    private PoolingHttpClientConnectionManager connectionManager;
+    private CloseableHttpClient httpClient;
+    private final Map<Integer, RestTemplate> notificationRestTemplates = new ConcurrentHashMap<>();
+    private CloseableHttpClient notificationHttpClient;
+
     private RestTemplateFactory() {
 
     }
@@ -59,7 +105,7 @@ public class RestTemplateFactory {
     }
 
     /**
-     * get Rest Template factory.
+     * get Rest Template factory. The template is shared and safe to use from concurrent requests.
      *
      * @throws KeyStoreException
      * @throws NoSuchAlgorithmException
@@ -67,23 +113,276 @@ public class RestTemplateFactory {
      */
     public RestTemplate getRestTemplate() throws KeyStoreException, NoSuchAlgorithmException, KeyManagementException {
 
-        TrustStrategy acceptingTrustStrategy = (X509Certificate[] chain, String authType) -> true;
+        if (restTemplate == null) {
+            synchronized (this) {
+                if (restTemplate == null) {
+                    restTemplate = createRestTemplate();
+                }
+            }
+        }
+        return restTemplate;
+    }
+
+    /**
+     * get Rest Template with its own read timeout, sharing the pooled connections of the default template.
+     *
+     * @param readTimeoutMillis Read timeout in milliseconds.
+     * @throws KeyStoreException
+     * @throws NoSuchAlgorithmException
+     * @throws KeyManagementException
+     */
+    public RestTemplate getRestTemplate(int readTimeoutMillis)
+            throws KeyStoreException, NoSuchAlgorithmException, KeyManagementException {
+
+        getRestTemplate();
+        return timedRestTemplates.computeIfAbsent(readTimeoutMillis, timeout -> {
+            HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory();
+            requestFactory.setHttpClient(httpClient);
+            // Overrides the socket timeout of the client's request config only.
+            requestFactory.setReadTimeout(timeout);
+            return new RestTemplate(requestFactory);
+        });
+    }
+
+    /**
+     * get Rest Template for client notification endpoints. Unlike the Identity server templates, it verifies the
+     * certificate and host name of the endpoint against the trust store of the JVM, as client notification tokens
+     * are bearer credentials.
+     *
+     * @param readTimeoutMillis Read timeout in milliseconds.
+     */
+    public RestTemplate getNotificationRestTemplate(int readTimeoutMillis) {
+
+        return notificationRestTemplates.computeIfAbsent(readTimeoutMillis, timeout -> {
+            HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory();
+            requestFactory.setHttpClient(getNotificationHttpClient());
+            requestFactory.setConnectTimeout(ConfigurationFile.getInstance().getHTTP_CONNECT_TIMEOUT());
+            requestFactory.setReadTimeout(timeout);
+            return new RestTemplate(requestFactory);
+        });
+    }
+
+    private synchronized CloseableHttpClient getNotificationHttpClient() {
+
+        if (notificationHttpClient == null) {
+            ConfigurationFile configurationFile = ConfigurationFile.getInstance();
+            Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+                    .register("https", SSLConnectionSocketFactory.getSystemSocketFactory())
+                    .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                    .build();
+            PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager(socketFactoryRegistry);
+            manager.setMaxTotal(configurationFile.getHTTP_MAX_CONNECTIONS());
+            manager.setDefaultMaxPerRoute(configurationFile.getHTTP_MAX_CONNECTIONS_PER_ROUTE());
+            manager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MILLIS);
+            notificationHttpClient = HttpClients.custom()
+                    .setConnectionManager(manager)
+                    .evictExpiredConnections()
+                    .evictIdleConnections(configurationFile.getHTTP_IDLE_TIMEOUT(), TimeUnit.SECONDS)
+                    .build();
+        }
+        return notificationHttpClient;
+    }
+
+    /**
+     * Close the pooled connections, to be called when the server shuts down.
+     */
+    public synchronized void close() {
+
+        if (notificationHttpClient != null) {
+            try {
+                notificationHttpClient.close();
+            } catch (IOException e) {
+                LOGGER.warning("Error closing the notification HTTP client : " + e.getMessage());
+            }
+            notificationHttpClient = null;
+            notificationRestTemplates.clear();
+        }
+
+        if (httpClient != null) {
+            try {
+                httpClient.close();
+            } catch (IOException e) {
+                LOGGER.warning("Error closing the HTTP client : " + e.getMessage());
+            }
+            httpClient = null;
+            connectionManager = null;
+            restTemplate = null;
+            timedRestTemplates.clear();
+        }
+    }
+
+    /**
+     * Open connections to an Identity server node ahead of the calls that need them, so that those calls do not wait
+     * for a TLS handshake. Connections already in the pool count towards the number.
+     *
+     * @param baseUrl     Base URL of the node.
+     * @param connections Number of connections the node should have open.
+     */
+    public void prewarm(String baseUrl, int connections) {
+
+        PoolingHttpClientConnectionManager manager;
+        try {
+            getRestTemplate();
+            manager = connectionManager;
+        } catch (KeyStoreException | NoSuchAlgorithmException | KeyManagementException e) {
+            LOGGER.warning("Unable to create the HTTP client : " + e.getMessage());
+            return;
+        }
+        if (manager == null) {
+            return;
+        }
+
+        ConfigurationFile configurationFile = ConfigurationFile.getInstance();
+        URI uri = URI.create(baseUrl);
+        // The client routes a URL without a port to the default port of its scheme, so the route must name it too.
+        int port = uri.getPort() != -1 ? uri.getPort() : "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+        HttpHost target = new HttpHost(uri.getHost(), port, uri.getScheme());
+        HttpRoute route = new HttpRoute(target, null, "https".equalsIgnoreCase(uri.getScheme()));
+        int connectTimeout = configurationFile.getHTTP_CONNECT_TIMEOUT();
+        long idleTimeoutMillis = TimeUnit.SECONDS.toMillis(configurationFile.getHTTP_IDLE_TIMEOUT());
+
+        // Idle connections are leased first, so only the missing ones are opened.
+        int toLease = Math.min(connections, manager.getMaxPerRoute(route)) - manager.getStats(route).getLeased();
+        List<HttpClientConnection> leased = new ArrayList<>();
+        int opened = 0;
+        try {
+            for (int i = 0; i < toLease; i++) {
+                HttpClientConnection connection = manager.requestConnection(route, null)
+                        .get(connectTimeout, TimeUnit.MILLISECONDS);
+                leased.add(connection);
+                if (!connection.isOpen()) {
+                    HttpClientContext context = HttpClientContext.create();
+                    manager.connect(connection, route, connectTimeout, context);
+                    manager.routeComplete(connection, route, context);
+                    opened++;
+                }
+            }
+        } catch (IOException | ExecutionException e) {
+            ProxyMetrics.getInstance().incrementCounter("http.prewarm.failed");
+            LOGGER.warning("Unable to open connections to " + baseUrl + " : " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (HttpClientConnection connection : leased) {
+                manager.releaseConnection(connection, null, idleTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (opened > 0) {
+            ProxyMetrics.getInstance().addToCounter("http.prewarm.opened", opened);
+            LOGGER.info(opened + " connections opened to " + baseUrl + " ahead of calls.");
+        }
+    }
 
-        SSLContext sslContext = org.apache.http.ssl.SSLContexts.custom()
-                .loadTrustMaterial(null, acceptingTrustStrategy)
+    /**
+     * The context lives as long as the server, so its client session cache lets new connections to a node resume
+     * an earlier TLS session instead of making a full handshake.
+     */
+    private SSLContext getSslContext() throws NoSuchAlgorithmException, KeyManagementException {
+
+        if (sslContext == null) {
+            synchronized (this) {
+                if (sslContext == null) {
+                    ConfigurationFile configurationFile = ConfigurationFile.getInstance();
+                    SSLContext context = SSLContext.getInstance("TLS");
+                    context.init(null, getTrustManagerFactory().getTrustManagers(), null);
+
+                    SSLSessionContext sessionContext = context.getClientSessionContext();
+                    sessionContext.setSessionCacheSize(configurationFile.getTLS_SESSION_CACHE_SIZE());
+                    sessionContext.setSessionTimeout(configurationFile.getTLS_SESSION_TIMEOUT());
+                    ProxyMetrics.getInstance().registerGauge("tls.sessions.cached",
+                            () -> Collections.list(sessionContext.getIds()).size());
+                    sslContext = context;
+                }
+            }
+        }
+        return sslContext;
+    }
+
+    /**
+     * Trust managers verifying the Identity server, shared by the blocking and the reactive clients.
+     *
+     * @return trust managers of the configured Identity server trust store, or of the JVM if none is configured.
+     */
+    public TrustManagerFactory getTrustManagerFactory() {
+
+        ConfigurationFile configurationFile = ConfigurationFile.getInstance();
+        String trustStorePath = configurationFile.getIDENTITY_SERVER_TRUST_STORE();
+        try {
+            KeyStore trustStore = null;
+            if (trustStorePath != null && !trustStorePath.isEmpty()) {
+                String password = configurationFile.getIDENTITY_SERVER_TRUST_STORE_PASSWORD();
+                trustStore = KeyStore.getInstance(KeyStore.getDefaultType());
+                try (InputStream inputStream = new FileInputStream(trustStorePath)) {
+                    trustStore.load(inputStream, password != null ? password.toCharArray() : null);
+                }
+            }
+            TrustManagerFactory trustManagerFactory =
+                    TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+            trustManagerFactory.init(trustStore);
+            return trustManagerFactory;
+
+        } catch (GeneralSecurityException | IOException e) {
+            throw new IllegalStateException("Unable to load the Identity server trust store " + trustStorePath
+                    + " : " + e.getMessage(), e);
+        }
+    }
+
+    private RestTemplate createRestTemplate()
+            throws KeyStoreException, NoSuchAlgorithmException, KeyManagementException {
+
+        ConfigurationFile configurationFile = ConfigurationFile.getInstance();
+
+        SSLConnectionSocketFactory csf = new SSLConnectionSocketFactory(getSslContext());
+
+        Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("https", csf)
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .build();
+
+        // Connections are pooled per route, that is per Identity server host.
+        connectionManager = new PoolingHttpClientConnectionManager(socketFactoryRegistry);
+        connectionManager.setMaxTotal(configurationFile.getHTTP_MAX_CONNECTIONS());
+        connectionManager.setDefaultMaxPerRoute(configurationFile.getHTTP_MAX_CONNECTIONS_PER_ROUTE());
+        connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MILLIS);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(configurationFile.getHTTP_CONNECT_TIMEOUT())
+                .setConnectionRequestTimeout(configurationFile.getHTTP_CONNECT_TIMEOUT())
+                .setSocketTimeout(configurationFile.getHTTP_READ_TIMEOUT())
                 .build();
 
-        SSLConnectionSocketFactory csf = new SSLConnectionSocketFactory(sslContext);
+        // Keep connections alive as long as the server allows, and no longer than the idle timeout.
+        long idleTimeoutMillis = TimeUnit.SECONDS.toMillis(configurationFile.getHTTP_IDLE_TIMEOUT());
+        ConnectionKeepAliveStrategy keepAliveStrategy = (response, context) -> {
+            long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return keepAlive > 0 ? Math.min(keepAlive, idleTimeoutMillis) : idleTimeoutMillis;
+        };
 
-        CloseableHttpClient httpClient = HttpClients.custom()
-                .setSSLSocketFactory(csf)
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy)
+                .evictExpiredConnections()
+                .evictIdleConnections(configurationFile.getHTTP_IDLE_TIMEOUT(), TimeUnit.SECONDS)
                 .build();
 
+        registerPoolMetrics(connectionManager);
+
         HttpComponentsClientHttpRequestFactory requestFactory =
                 new HttpComponentsClientHttpRequestFactory();
 
         requestFactory.setHttpClient(httpClient);
-        RestTemplate restTemplate = new RestTemplate(requestFactory);
-        return restTemplate;
+        LOGGER.info("Pooled HTTP client created.");
+        return new RestTemplate(requestFactory);
+    }
+
+    private void registerPoolMetrics(PoolingHttpClientConnectionManager manager) {
+
+        ProxyMetrics proxyMetrics = ProxyMetrics.getInstance();
+        proxyMetrics.registerGauge("http.pool.leased", () -> manager.getTotalStats().getLeased());
+        proxyMetrics.registerGauge("http.pool.available", () -> manager.getTotalStats().getAvailable());
+        proxyMetrics.registerGauge("http.pool.pending", () -> manager.getTotalStats().getPending());
+        proxyMetrics.registerGauge("http.pool.max", () -> manager.getTotalStats().getMax());
+        proxyMetrics.registerGauge("http.pool.routes", () -> manager.getRoutes().size());
     }
 }
@@ -18,16 +18,13 @@
 
 package util;
 
-import com.sun.net.ssl.X509TrustManager;
-
-import java.security.cert.X509Certificate;
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLSession;
 
 /**
  * Temporary Host name Verifier.
  */
-public class TempHostNameVerifier implements X509TrustManager, HostnameVerifier {
+public class TempHostNameVerifier implements HostnameVerifier {
 
     private TempHostNameVerifier() {
 
@@ -52,23 +49,6 @@ public class TempHostNameVerifier implements X509TrustManager, HostnameVerifier
 
     }
 
-    @Override
-    public boolean isClientTrusted(X509Certificate[] x509Certificates) {
-
-        return true;
-    }
-
-    @Override
-    public boolean isServerTrusted(X509Certificate[] x509Certificates) {
-
-        return true;
-    }
-
-    public X509Certificate[] getAcceptedIssuers() {
-
-        return null;
-    }
-
     @Override
     public boolean verify(String s, SSLSession sslSession) {
 
@@ -24,10 +24,9 @@ import dao.ArtifactStoreConnectors;
 import dao.DaoFactory;
 import exceptions.BadRequestException;
 import exceptions.UnAuthorizedRequestException;
-import handlers.TokenResponseHandler;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
-import tempErrorCache.TempErrorCache;
+import transactionartifacts.CibaTransaction;
 import transactionartifacts.PollingAtrribute;
 import transactionartifacts.TokenRequest;
 
@@ -70,112 +69,85 @@ public class TokenRequestValidator {
      *
      * @param authReqId Authentication request identifier.
      * @param grantType grantType for the token.
+     * @return Ciba transaction holding the token response, or null if the authentication was not successful.
      */
-    public TokenRequest validateTokenRequest(String authReqId, String grantType) {
+    public CibaTransaction validateTokenRequest(String authReqId, String grantType) {
 
-        TokenRequest tokenRequest = new TokenRequest();
         ArtifactStoreConnectors artifactStoreConnectors =
                 daoFactory.getArtifactStoreConnector(ConfigurationFile.getInstance().getSTORE_CONNECTOR_TYPE());
 
         CIBAParameters cibaparameters = CIBAParameters.getInstance();
 
         try {
-            if (authReqId.isEmpty() || authReqId.equals("") || authReqId == null) {
-                tokenRequest = null;
+            if (authReqId == null || authReqId.isEmpty()) {
                 LOGGER.info("Invalid auth_req_id");
-
                 throw new UnAuthorizedRequestException("Invalid auth_req_id");
+            }
 
-            } else if (artifactStoreConnectors.getAuthResponse(authReqId) == null) {
-                LOGGER.info("Invalid auth_req_id");
+            // Single lookup serving the whole poll.
+            CibaTransaction transaction = artifactStoreConnectors.getTransaction(authReqId);
 
+            if (transaction == null || transaction.getAuthResponse() == null ||
+                    transaction.getPollingAtrribute() == null) {
+                LOGGER.info("Invalid auth_req_id");
                 throw new UnAuthorizedRequestException("Invalid auth_req_id");
 
-            } else if (grantType.isEmpty()) {
-                tokenRequest = null;
+            } else if (grantType.isEmpty() || !grantType.equals(cibaparameters.getGrant_type())) {
                 LOGGER.info("Improper grant_type");
                 throw new BadRequestException("Improper grant_type");
 
             } else {
-                //check whether provided auth_req_id is valid and provided by the system and has relevant auth response
-
-                if (!(artifactStoreConnectors.getAuthResponse(authReqId) == null) &&
-                        (grantType.equals(cibaparameters.getGrant_type()))) {
-
-                    long expiryduration = artifactStoreConnectors.getPollingAttribute(authReqId).getExpiresIn();
-                    long issuedtime = artifactStoreConnectors.getPollingAttribute(authReqId).getIssuedTime();
-                    long currenttime = ZonedDateTime.now().toInstant().toEpochMilli();
-                    long interval = artifactStoreConnectors.getPollingAttribute(authReqId).getPollingInterval();
-                    long lastpolltime = artifactStoreConnectors.getPollingAttribute(authReqId).getLastPolledTime();
-                    Boolean notificationIssued =
-                            artifactStoreConnectors.getPollingAttribute(authReqId).getNotificationIssued();
-                    System.out.println("notification status : " + notificationIssued);
-                    try {
-                        if (!notificationIssued) {
-                            LOGGER.info("Improper Flow. Subscribed to Ping but yet Polling");
-                            throw new BadRequestException("Improper Flow. Subscribed to Ping but yet Polling");
-
-                        } else if (currenttime > issuedtime + expiryduration + 5) {
-                            tokenRequest = null;
-                            LOGGER.info("Expired Token");
-                            throw new BadRequestException("Expired Token");
-
-                            //checking for frequency of poll
-                        } else if (currenttime - lastpolltime < interval) {
-
-                            artifactStoreConnectors.removePollingAttribute(authReqId);
-
-                            PollingAtrribute pollingAtrribute2 = new PollingAtrribute();
-                            pollingAtrribute2.setIssuedTime(issuedtime);
-                            pollingAtrribute2.setLastPolledTime(currenttime);
-                            pollingAtrribute2.setPollingInterval(5000);
-                            pollingAtrribute2.setAuth_req_id(authReqId);
-                            pollingAtrribute2.setExpiresIn(expiryduration);
-                            System.out.println("notification status 2: " + notificationIssued);
-                            pollingAtrribute2.setNotificationIssued(notificationIssued);
-                            // TODO: 8/31/19   pollingAtrribute2.setNotificationIssued();
-
-                            artifactStoreConnectors.addPollingAttribute(authReqId, pollingAtrribute2);
-                            //updating the polling frequency -deleting and adding new object with updated values
-                            tokenRequest = null;
-                            throw new BadRequestException("Slow Down");
-                        } else {
-                            if (TempErrorCache.getInstance().getAuthenticationResponse(authReqId).equals("Sucess") ||
-                                    TempErrorCache.getInstance().getAuthenticationResponse(authReqId)
-                                            .equals("RequestSent")) {
-
-                                if (TokenResponseHandler.getInstance().checkTokenReceived(authReqId)) {
-                                    //check for the reception of token is handled here
-                                    tokenRequest.setGrant_type(grantType);
-                                    tokenRequest.setAuth_req_id(authReqId);
-
-                                    //storing token request
-                                    artifactStoreConnectors.addTokenRequest(authReqId, tokenRequest);
-
-                                    artifactStoreConnectors.removePollingAttribute(authReqId);
-
-                                    PollingAtrribute pollingAtrribute3 = new PollingAtrribute();
-                                    pollingAtrribute3.setIssuedTime(issuedtime);
-                                    pollingAtrribute3.setLastPolledTime(currenttime);
-                                    pollingAtrribute3.setPollingInterval(interval);
-                                    pollingAtrribute3.setAuth_req_id(authReqId);
-                                    pollingAtrribute3.setExpiresIn(expiryduration);
-                                    pollingAtrribute3.setNotificationIssued(notificationIssued);
-
-                                    artifactStoreConnectors.addPollingAttribute(authReqId, pollingAtrribute3);
-                                    //updating last polled time
-                                } else {
-                                    tokenRequest = null;
-                                    throw new BadRequestException("authorization pending");
-                                }
-                            } else {
-                                System.out.println("Not authenticated");
-                                return null;
+                PollingAtrribute pollingAtrribute = transaction.getPollingAtrribute();
+                long expiryduration = pollingAtrribute.getExpiresIn();
+                long issuedtime = pollingAtrribute.getIssuedTime();
+                long currenttime = ZonedDateTime.now().toInstant().toEpochMilli();
+                long interval = pollingAtrribute.getPollingInterval();
+                long lastpolltime = pollingAtrribute.getLastPolledTime();
+                Boolean notificationIssued = pollingAtrribute.getNotificationIssued();
+
+                if (!notificationIssued) {
+                    LOGGER.info("Improper Flow. Subscribed to Ping but yet Polling");
+                    throw new BadRequestException("Improper Flow. Subscribed to Ping but yet Polling");
+
+                } else if (currenttime > issuedtime + expiryduration + 5) {
+                    LOGGER.info("Expired Token");
+                    throw new BadRequestException("Expired Token");
+
+                    //checking for frequency of poll
+                } else if (currenttime - lastpolltime < interval) {
+
+                    //updating the polling frequency, unless a concurrent poll already did
+                    artifactStoreConnectors.touchLastPolled(authReqId, lastpolltime, currenttime, 5000);
+                    throw new BadRequestException("Slow Down");
+
+                } else {
+                    String authenticationStatus = transaction.getAuthenticationStatus();
+                    if ("Success".equals(authenticationStatus) || "RequestSent".equals(authenticationStatus)) {
+
+                        //check for the reception of token is handled here
+                        if (transaction.getTokenResponse() != null) {
+                            TokenRequest tokenRequest = new TokenRequest();
+                            tokenRequest.setGrant_type(grantType);
+                            tokenRequest.setAuth_req_id(authReqId);
+
+                            //updating last polled time. Losing the race means another poll is being served
+                            if (!artifactStoreConnectors.touchLastPolled(authReqId, lastpolltime, currenttime,
+                                    interval)) {
+                                LOGGER.info("Concurrent poll for the same auth_req_id");
+                                throw new BadRequestException("Slow Down");
                             }
-                            return tokenRequest;
+
+                            //storing token request
+                            transaction.setTokenRequest(tokenRequest);
+                            artifactStoreConnectors.updateTransaction(authReqId, transaction);
+                            return transaction;
+                        } else {
+                            LOGGER.info("Token Response still not received");
+                            throw new BadRequestException("authorization pending");
                         }
-                    } catch (BadRequestException badrequest) {
-                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, badrequest.getMessage());
+                    } else {
+                        LOGGER.info("Not authenticated");
+                        return null;
                     }
                 }
             }
@@ -184,6 +156,27 @@ public class TokenRequestValidator {
         } catch (BadRequestException badRequestException) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, badRequestException.getMessage());
         }
-        return tokenRequest;
+    }
+
+    /**
+     * Time left before a poll of the transaction is allowed by its polling interval.
+     *
+     * @param authReqId Authentication request identifier.
+     * @return milliseconds to wait, 0 if a poll is allowed now or the transaction is unknown.
+     */
+    public long getRemainingInterval(String authReqId) {
+
+        if (authReqId == null || authReqId.isEmpty()) {
+            return 0;
+        }
+        CibaTransaction transaction = daoFactory
+                .getArtifactStoreConnector(ConfigurationFile.getInstance().getSTORE_CONNECTOR_TYPE())
+                .getTransaction(authReqId);
+        if (transaction == null || transaction.getPollingAtrribute() == null) {
+            return 0;
+        }
+        PollingAtrribute pollingAtrribute = transaction.getPollingAtrribute();
+        long currenttime = ZonedDateTime.now().toInstant().toEpochMilli();
+        return Math.max(0, pollingAtrribute.getLastPolledTime() + pollingAtrribute.getPollingInterval() - currenttime);
     }
 }
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package authorizationserver;
+
+import configuration.ConfigurationFile;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks the bearer token guarding the management endpoints.
+ */
+public class ManagementAccessTest {
+
+    @After
+    public void tearDown() {
+
+        ConfigurationFile.getInstance().setMANAGEMENT_TOKEN(null);
+    }
+
+    @Test
+    public void endpointsAreOffWithoutAToken() {
+
+        assertRejected("Bearer anything", HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    public void onlyTheConfiguredTokenIsAccepted() {
+
+        ConfigurationFile.getInstance().setMANAGEMENT_TOKEN("s3cret");
+
+        ManagementAccess.getInstance().authorize("Bearer s3cret");
+        assertRejected(null, HttpStatus.UNAUTHORIZED);
+        assertRejected("s3cret", HttpStatus.UNAUTHORIZED);
+        assertRejected("Bearer s3cre", HttpStatus.UNAUTHORIZED);
+        assertRejected("Basic czNjcmV0", HttpStatus.UNAUTHORIZED);
+    }
+
+    private void assertRejected(String authorization, HttpStatus status) {
+
+        try {
+            ManagementAccess.getInstance().authorize(authorization);
+            fail("accepted " + authorization);
+        } catch (ResponseStatusException e) {
+            assertEquals(status, e.getStatus());
+        }
+    }
+}
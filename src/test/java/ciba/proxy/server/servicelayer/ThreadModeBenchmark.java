@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package ciba.proxy.server.servicelayer;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import configuration.ConfigurationFile;
+import metrics.ProxyMetrics;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import transactionartifacts.CIBAauthRequest;
+import util.ExecutorFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the Platform and Virtual thread modes with pending transactions, each holding an authorize call open
+ * until a stub Identity server answers for the user's consent. The transactions go through the authorize path of
+ * the proxy, the server request handler and the outbound request dispatcher. Both modes run as many calls at once;
+ * in Virtual mode the waiting calls hold no platform thread. Runs with the virtual-threads profile, on JDK 21 or
+ * later.
+ */
+public class ThreadModeBenchmark {
+
+    private static final Logger LOGGER = Logger.getLogger(ThreadModeBenchmark.class.getName());
+
+    private static final int PENDING_TRANSACTIONS = 1000;
+
+    private static final long CONSENT_MILLIS = 200;
+
+    // The Identity server nodes are read once, so one stub serves both modes.
+    private static HttpServer identityServer;
+
+    @BeforeClass
+    public static void startIdentityServer() throws IOException {
+
+        Assume.assumeTrue("Virtual threads need JDK 21 or later.", hasVirtualThreads());
+
+        identityServer = HttpServer.create(new InetSocketAddress("localhost", 0), PENDING_TRANSACTIONS);
+        identityServer.createContext("/oauth2/authorize", ThreadModeBenchmark::authorize);
+        // The stub serves on virtual threads in both modes, so it adds no platform threads of its own.
+        identityServer.setExecutor(new ExecutorFactory(true).newPerTaskExecutor("benchmark-is"));
+        identityServer.start();
+
+        ConfigurationFile configurationFile = ConfigurationFile.getInstance();
+        configurationFile.setIDENTITY_SERVER_NODES("http://localhost:" + identityServer.getAddress().getPort());
+        configurationFile.setSTORE_CONNECTOR_TYPE("InMemoryCache");
+        configurationFile.setRUNTIME_MODE("Servlet");
+        configurationFile.setOUTBOUND_QUEUE_CAPACITY(PENDING_TRANSACTIONS);
+    }
+
+    @AfterClass
+    public static void stopIdentityServer() {
+
+        if (identityServer != null) {
+            identityServer.stop(0);
+        }
+    }
+
+    @Test
+    public void virtualThreadsHoldNoPlatformThreadWhileConsentIsPending() throws InterruptedException {
+
+        Result platform = run("Platform", new ExecutorFactory(false));
+        Result virtual = run("Virtual", new ExecutorFactory(true));
+
+        assertEquals(PENDING_TRANSACTIONS, platform.completed);
+        assertEquals(PENDING_TRANSACTIONS, virtual.completed);
+        assertEquals(ConfigurationFile.getInstance().getOUTBOUND_DISPATCH_THREADS(), platform.peakPlatformThreads);
+        assertEquals(virtual + " against " + platform, 0, virtual.peakPlatformThreads);
+    }
+
+    private Result run(String mode, ExecutorFactory executorFactory) throws InterruptedException {
+
+        ProxyMetrics proxyMetrics = ProxyMetrics.getInstance();
+        OutboundRequestDispatcher dispatcher = new OutboundRequestDispatcher(executorFactory);
+        ServerRequestHandler handler = new ServerRequestHandler(dispatcher);
+
+        long completedBefore = proxyMetrics.getCounter("dispatch.authorize.completed");
+        long failedBefore = proxyMetrics.getCounter("dispatch.authorize.failed");
+        int peakPlatformThreads = 0;
+        long startTime = System.nanoTime();
+        try {
+            for (int i = 0; i < PENDING_TRANSACTIONS; i++) {
+                CIBAauthRequest request = new CIBAauthRequest();
+                request.setLogin_hint("benchmark-user-" + i);
+                handler.initiateServerCommunication(request, mode + "-" + i);
+            }
+            long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(5);
+            while (proxyMetrics.getCounter("dispatch.authorize.completed") - completedBefore
+                    + proxyMetrics.getCounter("dispatch.authorize.failed") - failedBefore < PENDING_TRANSACTIONS
+                    && System.nanoTime() < deadline) {
+                peakPlatformThreads = Math.max(peakPlatformThreads, countDispatchThreads());
+                Thread.sleep(10);
+            }
+        } finally {
+            dispatcher.shutdown();
+        }
+
+        Result result = new Result(mode, (int) (proxyMetrics.getCounter("dispatch.authorize.completed")
+                - completedBefore), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime),
+                peakPlatformThreads);
+        LOGGER.info(result.toString());
+        return result;
+    }
+
+    /**
+     * @return number of live platform threads of the outbound dispatch pool. Virtual threads are not listed.
+     */
+    private static int countDispatchThreads() {
+
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().matches("ciba-outbound-\\d+")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void authorize(HttpExchange exchange) throws IOException {
+
+        try {
+            // The Identity server answers once the user has consented.
+            Thread.sleep(CONSENT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        byte[] body = "consented".getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(body);
+        }
+    }
+
+    private static boolean hasVirtualThreads() {
+
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static class Result {
+
+        private final String mode;
+        private final int completed;
+        private final long elapsedMillis;
+        private final int peakPlatformThreads;
+
+        Result(String mode, int completed, long elapsedMillis, int peakPlatformThreads) {
+
+            this.mode = mode;
+            this.completed = completed;
+            this.elapsedMillis = elapsedMillis;
+            this.peakPlatformThreads = peakPlatformThreads;
+        }
+
+        @Override
+        public String toString() {
+
+            return mode + " mode : " + completed + " pending transactions served in " + elapsedMillis
+                    + " ms, peak of " + peakPlatformThreads + " platform dispatch threads";
+        }
+    }
+}
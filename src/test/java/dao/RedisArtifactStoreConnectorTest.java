@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package dao;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.embedded.RedisServer;
+import transactionartifacts.CIBAauthRequest;
+import transactionartifacts.CIBAauthResponse;
+import transactionartifacts.CibaTransaction;
+import transactionartifacts.PollingAtrribute;
+import transactionartifacts.TokenRequest;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the Redis artifact store connector against an in-process Redis server.
+ */
+public class RedisArtifactStoreConnectorTest {
+
+    private static final String AUTH_REQ_ID = "auth-req-id";
+    private static final String KEY = "ciba:transaction:" + AUTH_REQ_ID;
+
+    private RedisServer redisServer;
+    private JedisPool jedisPool;
+    private RedisArtifactStoreConnector connector;
+
+    @Before
+    public void setUp() throws IOException {
+
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        jedisPool = new JedisPool("localhost", port);
+        connector = new RedisArtifactStoreConnector(jedisPool);
+    }
+
+    @After
+    public void tearDown() {
+
+        jedisPool.close();
+        redisServer.stop();
+    }
+
+    @Test
+    public void storesEveryPartOfATransactionInOneHash() {
+
+        CIBAauthRequest authRequest = new CIBAauthRequest();
+        authRequest.setScope("openid");
+        connector.addAuthRequest(AUTH_REQ_ID, authRequest);
+
+        CibaTransaction transaction = new CibaTransaction(AUTH_REQ_ID);
+        CIBAauthResponse authResponse = new CIBAauthResponse();
+        authResponse.setExpiresIn(120);
+        transaction.setAuthResponse(authResponse);
+        transaction.setPollingAtrribute(pollingAttribute(System.currentTimeMillis(), 120000));
+        connector.updateTransaction(AUTH_REQ_ID, transaction);
+
+        CibaTransaction stored = connector.getTransaction(AUTH_REQ_ID);
+        assertNotNull(stored);
+        assertEquals("openid", stored.getAuthRequest().getScope());
+        assertEquals(120, stored.getAuthResponse().getExpiresIn());
+        assertEquals(120000, stored.getPollingAtrribute().getExpiresIn());
+        assertNull(stored.getTokenRequest());
+
+        connector.removeAuthResponse(AUTH_REQ_ID);
+        assertNull(connector.getAuthResponse(AUTH_REQ_ID));
+        assertNotNull(connector.getAuthRequest(AUTH_REQ_ID));
+    }
+
+    @Test
+    public void newTransactionExpiresAfterExpiresIn() {
+
+        connector.addAuthRequest(AUTH_REQ_ID, new CIBAauthRequest());
+
+        long ttl = ttl();
+        assertTrue("ttl " + ttl, ttl > 0 && ttl <= TimeUnit.SECONDS.toMillis(3600));
+    }
+
+    @Test
+    public void expiryIsSetFromTheIssuedTimeAndDoesNotSlide() {
+
+        connector.addAuthRequest(AUTH_REQ_ID, new CIBAauthRequest());
+
+        // Issued 50 minutes ago with an hour to live, so ten minutes are left.
+        long issuedTime = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(50);
+        connector.addPollingAttribute(AUTH_REQ_ID, pollingAttribute(issuedTime, TimeUnit.HOURS.toMillis(1)));
+        long ttl = ttl();
+        assertTrue("ttl " + ttl, ttl > 0 && ttl <= TimeUnit.MINUTES.toMillis(10));
+
+        // Later writes keep the deadline.
+        connector.addTokenRequest(AUTH_REQ_ID, new TokenRequest());
+        connector.updateAuthenticationStatus(AUTH_REQ_ID, "Authenticated");
+        ttl = ttl();
+        assertTrue("ttl " + ttl, ttl > 0 && ttl <= TimeUnit.MINUTES.toMillis(10));
+    }
+
+    @Test
+    public void pollIsRecordedOnlyAgainstTheLastPolledTimeRead() {
+
+        long issuedTime = System.currentTimeMillis();
+        connector.addPollingAttribute(AUTH_REQ_ID, pollingAttribute(issuedTime, 120000));
+
+        assertTrue(connector.touchLastPolled(AUTH_REQ_ID, issuedTime, issuedTime + 5000, 5000));
+        assertFalse(connector.touchLastPolled(AUTH_REQ_ID, issuedTime, issuedTime + 6000, 5000));
+        assertEquals(issuedTime + 5000, connector.getPollingAttribute(AUTH_REQ_ID).getLastPolledTime());
+    }
+
+    @Test
+    public void notificationIsMarkedIssuedOnce() {
+
+        connector.addPollingAttribute(AUTH_REQ_ID, pollingAttribute(System.currentTimeMillis(), 120000));
+
+        assertTrue(connector.markNotificationIssued(AUTH_REQ_ID));
+        assertFalse(connector.markNotificationIssued(AUTH_REQ_ID));
+        assertTrue(connector.getPollingAttribute(AUTH_REQ_ID).getNotificationIssued());
+    }
+
+    private PollingAtrribute pollingAttribute(long issuedTime, long expiresIn) {
+
+        PollingAtrribute pollingAtrribute = new PollingAtrribute();
+        pollingAtrribute.setAuth_req_id(AUTH_REQ_ID);
+        pollingAtrribute.setExpiresIn(expiresIn);
+        pollingAtrribute.setIssuedTime(issuedTime);
+        pollingAtrribute.setLastPolledTime(issuedTime);
+        pollingAtrribute.setPollingInterval(5000);
+        pollingAtrribute.setNotificationIssued(false);
+        return pollingAtrribute;
+    }
+
+    private long ttl() {
+
+        try (Jedis jedis = jedisPool.getResource()) {
+            return jedis.pttl(KEY);
+        }
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package handlers;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import configuration.ConfigurationFile;
+import dao.DaoFactory;
+import net.minidev.json.JSONArray;
+import net.minidev.json.JSONObject;
+import net.minidev.json.JSONValue;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs bulk user registrations against a stub Identity server serving the SCIM2 bulk endpoint.
+ * The stub creates every user, except those named "conflict" which already exist, and fails a whole request
+ * holding a user named "outage".
+ */
+public class UserRegisterHandlerBulkTest {
+
+    // The Identity server nodes are read once, so one stub serves every test.
+    private static HttpServer identityServer;
+    private static final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+    @BeforeClass
+    public static void startIdentityServer() throws IOException {
+
+        identityServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        identityServer.createContext("/scim2/Bulk", UserRegisterHandlerBulkTest::bulk);
+        identityServer.start();
+        ConfigurationFile.getInstance()
+                .setIDENTITY_SERVER_NODES("http://localhost:" + identityServer.getAddress().getPort());
+    }
+
+    @AfterClass
+    public static void stopIdentityServer() {
+
+        identityServer.stop(0);
+    }
+
+    @Before
+    public void setUp() {
+
+        batchSizes.clear();
+        ConfigurationFile configurationFile = ConfigurationFile.getInstance();
+        configurationFile.setSCIM_BULK_BATCH_SIZE(2);
+        configurationFile.setUSER_STORE_CONNECTOR_TYPE("InMemoryCache");
+    }
+
+    @Test
+    public void ndjsonUsersAreSentInBatches() throws IOException {
+
+        List<JSONObject> results = receiveBulk(ndjson("bulk-a0", "bulk-a1", "bulk-a2", "bulk-a3", "bulk-a4"));
+
+        // Batches run in parallel, so they may reach the Identity server in any order.
+        List<Integer> sizes = new ArrayList<>(batchSizes);
+        Collections.sort(sizes);
+        assertEquals(Arrays.asList(1, 2, 2), sizes);
+
+        Map<Object, JSONObject> outcomes = byIndex(results);
+        for (int i = 0; i < 5; i++) {
+            assertEquals("201", outcomes.get(i).get("status"));
+            assertEquals("bulk-a" + i, outcomes.get(i).get("userName"));
+        }
+        assertSummary(results, 5, 5, 0);
+
+        // Registered users are kept by the proxy as well.
+        assertNotNull(DaoFactory.getInstance().getUserStoreConnector("InMemoryCache").getUser("bulk-a3"));
+    }
+
+    @Test
+    public void failuresAreReportedPerUser() throws IOException {
+
+        // Sent as the batches [bulk-b0, conflict], [bulk-b3, bulk-b4] and [outage].
+        String users = "[" + user("bulk-b0") + ", \"not a user\", " + user("conflict") + ", " + user("bulk-b3")
+                + ", " + user("bulk-b4") + ", " + user("outage") + "]";
+        List<JSONObject> results = receiveBulk(users);
+
+        assertEquals(3, batchSizes.size());
+        Map<Object, JSONObject> outcomes = byIndex(results);
+        assertEquals("201", outcomes.get(0).get("status"));
+        assertEquals("400", outcomes.get(1).get("status"));
+        assertEquals("409", outcomes.get(2).get("status"));
+        assertEquals("201", outcomes.get(3).get("status"));
+        assertEquals("201", outcomes.get(4).get("status"));
+        // The whole request holding this user failed.
+        assertEquals("500", outcomes.get(5).get("status"));
+        assertSummary(results, 6, 3, 3);
+    }
+
+    @Test
+    public void malformedInputEndsWithAnErrorAndASummary() throws IOException {
+
+        List<JSONObject> results = receiveBulk(ndjson("bulk-c0", "bulk-c1") + "{\"userName\": ");
+
+        Map<Object, JSONObject> outcomes = byIndex(results);
+        assertEquals("201", outcomes.get(0).get("status"));
+        assertEquals("201", outcomes.get(1).get("status"));
+        boolean error = false;
+        for (JSONObject result : results) {
+            error |= result.get("error") != null && result.get("index") == null;
+        }
+        assertTrue(error);
+        assertSummary(results, 2, 2, 0);
+    }
+
+    @Test
+    public void outcomesAreStreamedBeforeTheUploadEnds() throws Exception {
+
+        PipedOutputStream upload = new PipedOutputStream();
+        PipedInputStream users = new PipedInputStream(upload);
+        ByteArrayOutputStream results = new ByteArrayOutputStream();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> bulk = executor.submit(() -> {
+                UserRegisterHandler.getInstance().receiveBulk(users, results, new HttpHeaders());
+                return null;
+            });
+            upload.write(ndjson("bulk-d0", "bulk-d1").getBytes(StandardCharsets.UTF_8));
+            upload.flush();
+
+            // The first batch is answered while the upload is still open.
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+            while (!results.toString("UTF-8").contains("bulk-d1") && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertTrue(results.toString("UTF-8").contains("bulk-d1"));
+            assertFalse(bulk.isDone());
+
+            upload.write(ndjson("bulk-d2").getBytes(StandardCharsets.UTF_8));
+            upload.close();
+            bulk.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertSummary(parse(results), 3, 3, 0);
+    }
+
+    private static void bulk(HttpExchange exchange) throws IOException {
+
+        JSONObject request = (JSONObject) JSONValue.parse(read(exchange.getRequestBody()));
+        JSONArray operations = (JSONArray) request.get("Operations");
+        batchSizes.add(operations.size());
+
+        JSONArray responseOperations = new JSONArray();
+        int status = 200;
+        for (Object operation : operations) {
+            String userName = ((JSONObject) ((JSONObject) operation).get("data")).getAsString("userName");
+            if ("outage".equals(userName)) {
+                status = 500;
+            }
+            JSONObject outcome = new JSONObject();
+            outcome.put("bulkId", ((JSONObject) operation).get("bulkId"));
+            outcome.put("method", "POST");
+            if ("conflict".equals(userName)) {
+                JSONObject code = new JSONObject();
+                code.put("code", 409);
+                outcome.put("status", code);
+            } else {
+                outcome.put("status", "201");
+                outcome.put("location", "/scim2/Users/" + userName);
+            }
+            responseOperations.add(outcome);
+        }
+        JSONObject response = new JSONObject();
+        response.put("Operations", responseOperations);
+
+        byte[] body = (status == 200 ? response.toJSONString() : "{\"detail\": \"outage\"}")
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/scim+json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(body);
+        }
+    }
+
+    private List<JSONObject> receiveBulk(String users) throws IOException {
+
+        ByteArrayOutputStream results = new ByteArrayOutputStream();
+        UserRegisterHandler.getInstance().receiveBulk(
+                new ByteArrayInputStream(users.getBytes(StandardCharsets.UTF_8)), results, new HttpHeaders());
+        return parse(results);
+    }
+
+    private static List<JSONObject> parse(ByteArrayOutputStream results) throws IOException {
+
+        List<JSONObject> lines = new ArrayList<>();
+        for (String line : results.toString("UTF-8").split("\n")) {
+            if (!line.isEmpty()) {
+                lines.add((JSONObject) JSONValue.parse(line));
+            }
+        }
+        return lines;
+    }
+
+    private static Map<Object, JSONObject> byIndex(List<JSONObject> results) {
+
+        Map<Object, JSONObject> outcomes = new HashMap<>();
+        for (JSONObject result : results) {
+            if (result.get("index") != null) {
+                outcomes.put(((Number) result.get("index")).intValue(), result);
+            }
+        }
+        return outcomes;
+    }
+
+    private static void assertSummary(List<JSONObject> results, int total, int succeeded, int failed) {
+
+        JSONObject summary = results.get(results.size() - 1);
+        assertEquals(total, ((Number) summary.get("total")).intValue());
+        assertEquals(succeeded, ((Number) summary.get("succeeded")).intValue());
+        assertEquals(failed, ((Number) summary.get("failed")).intValue());
+    }
+
+    private static String ndjson(String... userNames) {
+
+        StringBuilder users = new StringBuilder();
+        for (String userName : userNames) {
+            users.append(user(userName)).append('\n');
+        }
+        return users.toString();
+    }
+
+    private static String user(String userName) {
+
+        return "{\"userName\": \"" + userName + "\", \"emails\": \"" + userName + "@example.com\"}";
+    }
+
+    private static String read(InputStream body) {
+
+        try (Scanner scanner = new Scanner(body, "UTF-8").useDelimiter("\\A")) {
+            return scanner.hasNext() ? scanner.next() : "";
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package jdbc;
+
+import configuration.ConfigurationFile;
+import dao.DbConnection;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import transactionartifacts.CibaTransaction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs the write-behind queue against a database that refuses every connection, as during an outage.
+ */
+public class JdbcWriteBehindQueueTest {
+
+    private static final String DATABASE = "write_behind_outage";
+
+    private static final int MAX_PENDING = 3;
+
+    private static final int MAX_WAIT_MILLIS = 300;
+
+    @BeforeClass
+    public static void setUp() {
+
+        ConfigurationFile configurationFile = ConfigurationFile.getInstance();
+        configurationFile.setDATABASE(DATABASE);
+        configurationFile.setDB_POOL_INITIAL_SIZE(0);
+        configurationFile.setDB_POOL_MAX_WAIT(MAX_WAIT_MILLIS);
+        configurationFile.setWRITE_BEHIND_MAX_PENDING(MAX_PENDING);
+
+        // Nothing listens on port 1, so every connection is refused.
+        DataSource dataSource = DbConnection.getDataSource(DATABASE);
+        dataSource.setUrl("jdbc:mysql://127.0.0.1:1/" + DATABASE);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+
+        JdbcWriteBehindQueue.getInstance().shutdown();
+        DbConnection.closeAll();
+    }
+
+    @Test
+    public void writesAreRejectedOnceTheQueueIsFullAndTheDatabaseIsDown() {
+
+        JdbcWriteBehindQueue queue = JdbcWriteBehindQueue.getInstance();
+        for (int i = 0; i < MAX_PENDING; i++) {
+            queue.put("outage-" + i, CibaTransaction.Part.AUTH_REQUEST, new Object());
+        }
+        assertEquals(MAX_PENDING, queue.size());
+
+        // Writes of a pending transaction are coalesced, so they never wait.
+        long startTime = System.currentTimeMillis();
+        queue.put("outage-0", CibaTransaction.Part.AUTH_RESPONSE, new Object());
+        assertTrue(System.currentTimeMillis() - startTime < MAX_WAIT_MILLIS);
+
+        startTime = System.currentTimeMillis();
+        try {
+            queue.put("outage-" + MAX_PENDING, CibaTransaction.Part.AUTH_REQUEST, new Object());
+            fail("A write beyond the bound was queued while the database is down.");
+        } catch (ResponseStatusException e) {
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatus());
+        }
+        // The writer waited for the database before being turned away, and the queue did not grow.
+        assertTrue(System.currentTimeMillis() - startTime >= MAX_WAIT_MILLIS);
+        assertEquals(MAX_PENDING, queue.size());
+        assertFalse(queue.flush());
+    }
+}
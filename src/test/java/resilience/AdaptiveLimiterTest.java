@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package resilience;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives the adaptive limiter with round trip time and drop sequences.
+ */
+public class AdaptiveLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(40);
+
+    @Test
+    public void limitGrowsWhileRoundTripsHoldSteady() {
+
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test.grows", 10, 1, 100, 0.2);
+
+        int previous = limiter.getLimit();
+        for (int i = 0; i < 20; i++) {
+            sampleAtLimit(limiter, FAST, false);
+            assertTrue(limiter.getLimit() >= previous);
+            previous = limiter.getLimit();
+        }
+        assertTrue("limit " + limiter.getLimit(), limiter.getLimit() > 10);
+    }
+
+    @Test
+    public void unusedLimitIsNotGrown() {
+
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test.unused", 10, 1, 100, 0.2);
+
+        for (int i = 0; i < 20; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.onSample(FAST, false);
+        }
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    public void limitShrinksAsRoundTripsGrowLonger() {
+
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test.gradient", 50, 1, 100, 0.2);
+        for (int i = 0; i < 5; i++) {
+            sampleAtLimit(limiter, FAST, false);
+        }
+
+        int previous = limiter.getLimit();
+        for (int i = 0; i < 10; i++) {
+            sampleAtLimit(limiter, SLOW, false);
+            assertTrue(limiter.getLimit() <= previous);
+            previous = limiter.getLimit();
+        }
+        assertTrue("limit " + limiter.getLimit(), limiter.getLimit() < 50);
+    }
+
+    @Test
+    public void dropCutsTheLimitBack() {
+
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test.drop", 50, 1, 100, 0.2);
+
+        assertTrue(limiter.tryAcquire());
+        limiter.onSample(FAST, true);
+        assertEquals(45, limiter.getLimit());
+    }
+
+    @Test
+    public void limitStaysWithinMinAndMax() {
+
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test.bounds", 500, 5, 20, 0.5);
+        assertEquals(20, limiter.getLimit());
+
+        for (int i = 0; i < 50; i++) {
+            sampleAtLimit(limiter, FAST, false);
+        }
+        assertEquals(20, limiter.getLimit());
+
+        for (int i = 0; i < 50; i++) {
+            sampleAtLimit(limiter, FAST, true);
+        }
+        assertEquals(5, limiter.getLimit());
+
+        for (int i = 0; i < 50; i++) {
+            sampleAtLimit(limiter, SLOW, false);
+        }
+        assertTrue(limiter.getLimit() >= 5);
+    }
+
+    @Test
+    public void callsBeyondTheLimitAreRefused() {
+
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test.refused", 2, 1, 100, 0.2);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        limiter.cancel();
+        assertTrue(limiter.tryAcquire());
+    }
+
+    /**
+     * Fills the limit with calls, finishes one of them with the given sample and cancels the rest.
+     */
+    private void sampleAtLimit(AdaptiveLimiter limiter, long rttNanos, boolean dropped) {
+
+        int acquired = 0;
+        while (limiter.tryAcquire()) {
+            acquired++;
+        }
+        limiter.onSample(rttNanos, dropped);
+        for (int i = 1; i < acquired; i++) {
+            limiter.cancel();
+        }
+    }
+}